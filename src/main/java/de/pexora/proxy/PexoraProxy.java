@@ -5,22 +5,43 @@ import com.velocitypowered.api.command.CommandManager;
 import com.velocitypowered.api.event.Subscribe;
 import com.velocitypowered.api.event.proxy.ProxyInitializeEvent;
 import com.velocitypowered.api.event.proxy.ProxyShutdownEvent;
+import com.velocitypowered.api.plugin.Dependency;
 import com.velocitypowered.api.plugin.Plugin;
 import com.velocitypowered.api.plugin.annotation.DataDirectory;
 import com.velocitypowered.api.proxy.ProxyServer;
 import de.pexora.proxy.api.PexoraProxyAPI;
+import de.pexora.proxy.api.messaging.FanOutScheduler;
+import de.pexora.proxy.api.messaging.PermissionIndex;
+import de.pexora.proxy.bus.BusTransport;
+import de.pexora.proxy.bus.LoopbackBusTransport;
+import de.pexora.proxy.bus.MessageBus;
+import de.pexora.proxy.bus.TcpBusTransport;
 import de.pexora.proxy.commands.PexoraCommand;
+import de.pexora.proxy.config.ConfigWatcher;
 import de.pexora.proxy.config.CoreConfig;
 import de.pexora.proxy.config.MessageConfig;
 import de.pexora.proxy.database.DatabaseManager;
 import de.pexora.proxy.logger.LoggerService;
 import de.pexora.proxy.messaging.MessagingManager;
 import de.pexora.proxy.module.ModuleLoader;
+import de.pexora.proxy.module.ModuleResourceTracker;
+import de.pexora.proxy.shutdown.ShutdownCoordinator;
+import de.pexora.proxy.startup.InitPipeline;
+import de.pexora.proxy.startup.StartupProfiler;
 import de.pexora.proxy.status.StatusAPI;
 import org.slf4j.Logger;
 
+import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Hauptklasse für das PexoraProxy-Plugin.
@@ -31,12 +52,17 @@ import java.nio.file.Paths;
     name = "PexoraProxy",
     version = "1.0.0",
     description = "Core plugin für Velocity-Proxy mit modularem System und Datenbankunterstützung",
-    authors = {"Pexora Development Team"}
+    authors = {"Pexora Development Team"},
+    dependencies = {@Dependency(id = "luckperms", optional = true)}
 )
 public class PexoraProxy {
 
     private static PexoraProxy instance;
     
+    /** Abschnitte der config.toml, die nur beim Start gelesen werden */
+    private static final Set<String> RESTART_SECTIONS = Collections.unmodifiableSet(
+            new HashSet<>(Arrays.asList("bus", "config-watch")));
+    
     private final ProxyServer server;
     private final Logger logger;
     private final Path dataDirectory;
@@ -46,8 +72,15 @@ public class PexoraProxy {
     private MessageConfig messageConfig;
     private DatabaseManager databaseManager;
     private ModuleLoader moduleLoader;
+    private ModuleResourceTracker resourceTracker;
     private StatusAPI statusAPI;
     private MessagingManager messagingManager;
+    private MessageBus messageBus;
+    private FanOutScheduler fanOutScheduler;
+    private PermissionIndex permissionIndex;
+    private ConfigWatcher configWatcher;
+    private StartupProfiler startupProfiler;
+    private ShutdownCoordinator shutdownCoordinator;
     
     @Inject
     public PexoraProxy(ProxyServer server, Logger logger, @DataDirectory Path dataDirectory) {
@@ -60,6 +93,8 @@ public class PexoraProxy {
     
     @Subscribe
     public void onProxyInitialize(ProxyInitializeEvent event) {
+        this.startupProfiler = new StartupProfiler("PexoraProxy.onProxyInitialize");
+        
         // Initialisiere Komponenten
         this.loggerService = new LoggerService(this);
         
@@ -68,57 +103,140 @@ public class PexoraProxy {
         
         this.loggerService.info("PexoraProxy wird initialisiert...");
         
-        // Konfigurationen laden
-        this.coreConfig = new CoreConfig(this);
-        this.messageConfig = new MessageConfig(this);
-        
-        // Datenbankverbindung einrichten
+        // Ressourcen-Tracking pro Modul
+        this.resourceTracker = new ModuleResourceTracker();
+        this.statusAPI = new StatusAPI(this.resourceTracker);
         this.databaseManager = new DatabaseManager(this);
+        this.shutdownCoordinator = new ShutdownCoordinator(this);
+        this.shutdownCoordinator.registerDrainable("Datenbank-Schreibvorgänge", this.databaseManager);
         
-        if (this.coreConfig.isDatabaseEnabled()) {
-            this.databaseManager.connect();
-        }
-        
-        // Status-API initialisieren
-        this.statusAPI = new StatusAPI();
+        // Unabhängige Schritte laufen parallel, jeder Schritt wartet nur auf seine Abhängigkeiten:
+        // Konfigurationen -> Datenbank (läuft im Hintergrund weiter) | Proxy-Bus | Messaging -> Module
+        InitPipeline pipeline = new InitPipeline(this.loggerService, this.startupProfiler, 3);
+        CompletableFuture<Void> coreConfigStage = pipeline.stage("Kern-Konfiguration",
+                () -> this.coreConfig = new CoreConfig(this));
+        CompletableFuture<Void> messageConfigStage = pipeline.stage("Nachrichten-Konfiguration",
+                () -> this.messageConfig = new MessageConfig(this));
+        pipeline.stage("Datenbank verbinden", () -> this.databaseManager.initialize(), coreConfigStage);
+        CompletableFuture<Void> messagingStage = pipeline.stage("Messaging", () -> {
+            this.messagingManager = new MessagingManager(this);
+            this.permissionIndex = new PermissionIndex(this);
+            if (this.messagingManager.getBatcher() != null) {
+                this.shutdownCoordinator.registerDrainable("Ausgehende Nachrichten", this.messagingManager.getBatcher());
+            }
+            if (this.coreConfig.getMessagingFanOutBudget() > 0) {
+                this.fanOutScheduler = new FanOutScheduler(this, this.coreConfig.getMessagingFanOutSliceMillis(),
+                        this.coreConfig.getMessagingFanOutBudget());
+                this.shutdownCoordinator.registerDrainable("Verteilte Zustellungen", this.fanOutScheduler);
+            }
+        }, coreConfigStage, messageConfigStage);
+        CompletableFuture<Void> busStage = pipeline.stage("Proxy-Bus", this::startMessageBus, coreConfigStage);
+        CompletableFuture<Void> modulesStage = pipeline.stage("Module",
+                () -> this.moduleLoader = new ModuleLoader(this), messagingStage);
+        pipeline.shutdownWhenDone();
         
-        // Messaging-Manager initialisieren
-        this.messagingManager = new MessagingManager(this);
+        // Auf alles außer der Datenbank warten, Komponenten mit Datenbankbedarf warten auf deren Bereitschafts-Future
+        if (!pipeline.await(coreConfigStage, messageConfigStage, messagingStage, busStage, modulesStage)) {
+            this.loggerService.severe("PexoraProxy konnte nicht vollständig initialisiert werden!");
+        }
         
-        // Modul-Loader initialisieren
-        this.moduleLoader = new ModuleLoader(this);
-        this.loggerService.info("Module wurden geladen: " + this.moduleLoader.getModules().size());
+        if (this.moduleLoader != null) {
+            this.loggerService.info("Module wurden geladen: " + this.moduleLoader.getModules().size());
+        }
         
         // API initialisieren
         PexoraProxyAPI.initialize(this);
         
         // Befehle registrieren
-        registerCommands();
+        try (StartupProfiler.Span span = startupProfiler.start("Befehle")) {
+            registerCommands();
+        }
+        
+        // Änderungen an den Konfigurationsdateien automatisch übernehmen
+        if (this.coreConfig != null && this.coreConfig.isConfigWatchEnabled()) {
+            try {
+                this.configWatcher = new ConfigWatcher(this, this.coreConfig.getConfigWatchDebounceMillis());
+            } catch (IOException e) {
+                this.loggerService.severe("Konnte das Datenverzeichnis nicht überwachen: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+        
+        this.startupProfiler.finish();
+        reportStartupProfile();
+        
+        if (!this.databaseManager.getReadyFuture().isDone()) {
+            this.loggerService.info("Datenbankverbindung wird im Hintergrund aufgebaut...");
+        }
         
         this.loggerService.info("PexoraProxy wurde erfolgreich aktiviert!");
     }
     
+    /**
+     * Gibt das Startprofil aus und speichert es im Datenverzeichnis
+     */
+    private void reportStartupProfile() {
+        this.loggerService.info(String.format("Start abgeschlossen in %.1f ms",
+                this.startupProfiler.getRoot().getWallNanos() / 1_000_000.0));
+        
+        if (this.coreConfig == null || !this.coreConfig.isStartupProfileEnabled()) {
+            return;
+        }
+        
+        this.startupProfiler.printTree(this.loggerService);
+        try {
+            this.startupProfiler.writeTraceJson(this.dataDirectory.resolve("startup-profile.json"));
+            this.startupProfiler.writeFoldedStacks(this.dataDirectory.resolve("startup-profile.folded"));
+            this.loggerService.info("Startprofil gespeichert: startup-profile.json, startup-profile.folded");
+        } catch (IOException e) {
+            this.loggerService.warning("Konnte Startprofil nicht speichern: " + e.getMessage());
+        }
+    }
+    
     @Subscribe
     public void onProxyShutdown(ProxyShutdownEvent event) {
         this.loggerService.info("PexoraProxy wird deaktiviert...");
         
-        // Module entladen
-        if (this.moduleLoader != null) {
-            this.moduleLoader.disableAllModules();
-        }
+        // Eingang stoppen, Module parallel entladen, Warteschlangen leeren und Verbindungen schließen
+        long timeout = this.coreConfig != null ? this.coreConfig.getShutdownTimeoutMillis() : 10000L;
+        this.shutdownCoordinator.shutdown(timeout);
         
-        // Datenbankverbindung schließen
-        if (this.databaseManager != null && this.databaseManager.isConnected()) {
-            this.databaseManager.disconnect();
+        this.loggerService.info("PexoraProxy wurde deaktiviert!");
+        instance = null;
+    }
+    
+    /**
+     * Startet den Bus zwischen mehreren Proxys, falls er aktiviert ist
+     */
+    private void startMessageBus() {
+        if (!this.coreConfig.isBusEnabled()) {
+            return;
         }
         
-        // Messaging abmelden
-        if (this.messagingManager != null) {
-            this.messagingManager.unregister();
+        BusTransport transport;
+        if ("loopback".equalsIgnoreCase(this.coreConfig.getBusTransport())) {
+            transport = new LoopbackBusTransport("pexora");
+        } else {
+            List<InetSocketAddress> peers = new ArrayList<>();
+            for (String peer : this.coreConfig.getBusPeers()) {
+                peers.add(TcpBusTransport.parseAddress(peer));
+            }
+            transport = new TcpBusTransport(this.loggerService, TcpBusTransport.parseAddress(this.coreConfig.getBusBind()), peers,
+                    this.coreConfig.getBusSecret());
         }
         
-        this.loggerService.info("PexoraProxy wurde deaktiviert!");
-        instance = null;
+        MessageBus bus = new MessageBus(this, this.coreConfig.getBusProxyId(), transport,
+                this.coreConfig.getBusBatchIntervalMillis(), this.coreConfig.getBusRetryMillis(), this.coreConfig.getBusMaxUnacked());
+        try {
+            bus.start();
+        } catch (IOException e) {
+            this.loggerService.severe("Proxy-Bus konnte nicht gestartet werden: " + e.getMessage());
+            e.printStackTrace();
+            transport.close();
+            return;
+        }
+        this.messageBus = bus;
+        this.shutdownCoordinator.registerDrainable("Proxy-Bus", bus);
     }
     
     /**
@@ -137,15 +255,72 @@ public class PexoraProxy {
     /**
      * Lädt das Plugin neu
      */
-    public void reload() {
+    public synchronized void reload() {
         this.loggerService.info("PexoraProxy wird neu geladen...");
         
         // Konfigurationen neu laden
         this.coreConfig.reload();
         this.messageConfig.reload();
+        CoreConfig.Snapshot settings = this.coreConfig.getSnapshot();
         
         // Datenbankverbindung aktualisieren
-        if (this.coreConfig.isDatabaseEnabled()) {
+        updateDatabaseConnection(settings);
+        
+        // Module neu laden, wenn Auto-Reload aktiviert ist
+        if (settings.isModuleAutoReload()) {
+            this.moduleLoader.reloadAllModules();
+        }
+        
+        this.loggerService.info("PexoraProxy wurde neu geladen!");
+    }
+    
+    /**
+     * Lädt nur die Kern-Konfiguration neu und wendet die Teilsysteme der geänderten Abschnitte an:
+     * [database] baut die Verbindung bei Bedarf neu auf, [modules] lädt die Module neu (wenn
+     * Auto-Reload aktiviert ist), [debug] und [shutdown] gelten sofort. Für Abschnitte, die
+     * nur beim Start gelesen werden, wird ein Hinweis ausgegeben.
+     *
+     * @return Die geänderten Abschnitte oder null, wenn die Datei verworfen wurde
+     */
+    public synchronized Set<String> reloadCoreConfig() {
+        CoreConfig.Snapshot previous = this.coreConfig.getSnapshot();
+        if (!this.coreConfig.reload()) {
+            return null;
+        }
+        CoreConfig.Snapshot settings = this.coreConfig.getSnapshot();
+        Set<String> changed = settings.getChangedSections(previous);
+        
+        if (changed.contains("database")) {
+            updateDatabaseConnection(settings);
+        }
+        if (changed.contains("modules") && settings.isModuleAutoReload() && this.moduleLoader != null) {
+            this.moduleLoader.reloadAllModules();
+        }
+        if (changed.contains("messaging")) {
+            this.loggerService.warning("Abschnitt [messaging] geändert: immediate-actions, rpc-timeout-ms und permission-index-ttl-ms gelten sofort, alle anderen Werte erst nach einem Neustart");
+        }
+        for (String section : changed) {
+            if (RESTART_SECTIONS.contains(section)) {
+                this.loggerService.warning("Abschnitt [" + section + "] geändert, wird erst nach einem Neustart wirksam");
+            }
+        }
+        return changed;
+    }
+    
+    /**
+     * Lädt nur die Nachrichten neu (Sprachdateien werden danach bei Bedarf neu gelesen)
+     *
+     * @return Ob die neuen Nachrichten übernommen wurden
+     */
+    public synchronized boolean reloadMessages() {
+        return this.messageConfig.reload();
+    }
+    
+    /**
+     * Verbindet, trennt oder verbindet die Datenbank neu, je nach Konfiguration
+     */
+    private void updateDatabaseConnection(CoreConfig.Snapshot settings) {
+        if (settings.isDatabaseEnabled()) {
             if (!this.databaseManager.isConnected()) {
                 this.databaseManager.connect();
             } else if (this.databaseManager.needsReconnect()) {
@@ -154,13 +329,6 @@ public class PexoraProxy {
         } else if (this.databaseManager.isConnected()) {
             this.databaseManager.disconnect();
         }
-        
-        // Module neu laden, wenn Auto-Reload aktiviert ist
-        if (this.coreConfig.isModuleAutoReload()) {
-            this.moduleLoader.reloadAllModules();
-        }
-        
-        this.loggerService.info("PexoraProxy wurde neu geladen!");
     }
     
     /**
@@ -219,6 +387,13 @@ public class PexoraProxy {
         return moduleLoader;
     }
     
+    /**
+     * @return den Ressourcen-Tracker für Module
+     */
+    public ModuleResourceTracker getResourceTracker() {
+        return resourceTracker;
+    }
+    
     /**
      * @return die Status-API
      */
@@ -233,6 +408,48 @@ public class PexoraProxy {
         return messagingManager;
     }
     
+    /**
+     * @return den Scheduler für verteilte Zustellungen an viele Spieler oder null, wenn er deaktiviert ist
+     */
+    public FanOutScheduler getFanOutScheduler() {
+        return fanOutScheduler;
+    }
+    
+    /**
+     * @return den Index der Online-Spieler pro Berechtigung
+     */
+    public PermissionIndex getPermissionIndex() {
+        return permissionIndex;
+    }
+    
+    /**
+     * @return die Überwachung der Konfigurationsdateien oder null, wenn sie deaktiviert ist
+     */
+    public ConfigWatcher getConfigWatcher() {
+        return configWatcher;
+    }
+    
+    /**
+     * @return den Bus zwischen mehreren Proxys oder null, wenn er deaktiviert ist
+     */
+    public MessageBus getMessageBus() {
+        return messageBus;
+    }
+    
+    /**
+     * @return den Start-Profiler (zeichnet nach dem Start keine Spans mehr auf)
+     */
+    public StartupProfiler getStartupProfiler() {
+        return startupProfiler;
+    }
+    
+    /**
+     * @return den Koordinator für das Herunterfahren
+     */
+    public ShutdownCoordinator getShutdownCoordinator() {
+        return shutdownCoordinator;
+    }
+    
     /**
      * @return die Instanz des Plugins
      */
@@ -1,6 +1,7 @@
 package de.pexora.proxy.api;
 
 import de.pexora.proxy.PexoraProxy;
+import de.pexora.proxy.api.messaging.PermissionIndex;
 import de.pexora.proxy.database.DatabaseManager;
 import de.pexora.proxy.logger.LoggerService;
 import de.pexora.proxy.status.StatusAPI;
@@ -67,4 +68,15 @@ public class PexoraProxyAPI {
         }
         return plugin.getDatabaseManager();
     }
+
+    /**
+     * @return Der Berechtigungs-Index für Broadcasts, über den Rechteänderungen gemeldet werden können
+     * @throws IllegalStateException wenn die API nicht initialisiert wurde
+     */
+    public static PermissionIndex getPermissionIndex() {
+        if (plugin == null) {
+            throw new IllegalStateException("PexoraProxyAPI wurde nicht initialisiert!");
+        }
+        return plugin.getPermissionIndex();
+    }
 }
\ No newline at end of file
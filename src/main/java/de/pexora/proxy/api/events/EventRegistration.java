@@ -1,37 +1,202 @@
 package de.pexora.proxy.api.events;
 
+import com.velocitypowered.api.event.Continuation;
 import com.velocitypowered.api.event.EventHandler;
 import com.velocitypowered.api.event.EventManager;
+import com.velocitypowered.api.event.EventTask;
 import com.velocitypowered.api.event.PostOrder;
 import com.velocitypowered.api.event.Subscribe;
 import de.pexora.proxy.PexoraProxy;
+import de.pexora.proxy.module.ModuleResourceTracker;
 
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
 
 /**
  * Hilfsklasse zur Registrierung von Event-Listenern im PexoraProxy-System.
  * Diese Klasse vereinfacht die Registrierung von Event-Handlern.
+ * 
+ * Alle Handler werden dem Modul zugeordnet, für das die Instanz erstellt wurde,
+ * damit ihre Laufzeit im {@link ModuleResourceTracker} erfasst wird.
  */
 public class EventRegistration {
     
     private final PexoraProxy plugin;
+    private final String moduleName;
+    private final BooleanSupplier active;
+    private final Map<Object, List<EventHandler<?>>> listenerHandlers = new IdentityHashMap<>();
+    private final List<EventHandler<?>> eventHandlers = new ArrayList<>();
     
     /**
-     * Erstellt eine neue EventRegistration-Instanz
+     * Erstellt eine neue EventRegistration-Instanz für das Kernsystem
      * 
      * @param plugin Das Plugin, für das Events registriert werden sollen
      */
     public EventRegistration(PexoraProxy plugin) {
+        this(plugin, ModuleResourceTracker.CORE_MODULE);
+    }
+    
+    /**
+     * Erstellt eine neue EventRegistration-Instanz für ein Modul
+     * 
+     * @param plugin Das Plugin, für das Events registriert werden sollen
+     * @param moduleName Der Name des Moduls, dem die Handler zugeordnet werden
+     */
+    public EventRegistration(PexoraProxy plugin, String moduleName) {
+        this(plugin, moduleName, () -> true);
+    }
+    
+    /**
+     * Erstellt eine neue EventRegistration-Instanz für eine Modulinstanz,
+     * deren Handler nur ausgeführt werden, solange die Instanz aktiv ist
+     * 
+     * @param plugin Das Plugin, für das Events registriert werden sollen
+     * @param moduleName Der Name des Moduls, dem die Handler zugeordnet werden
+     * @param active Prüft, ob die Modulinstanz gerade Events verarbeiten soll
+     */
+    public EventRegistration(PexoraProxy plugin, String moduleName, BooleanSupplier active) {
         this.plugin = plugin;
+        this.moduleName = moduleName;
+        this.active = active;
     }
     
     /**
      * Registriert einen Listener für alle seine Event-Handler
      * 
+     * Jede mit {@link Subscribe} annotierte Methode wird einzeln registriert und gemessen,
+     * wie bei Velocity auch die geerbten Methoden der Oberklassen. Unterstützt werden dieselben
+     * Formen wie bei Velocity: {@code void} oder {@link EventTask} als Rückgabe, optional mit
+     * einer {@link Continuation} als zweitem Parameter. Alle Handler laufen über die Prüfung,
+     * ob die Modulinstanz aktiv ist, damit beim Austausch nie zwei Versionen dasselbe Event verarbeiten.
+     * 
      * @param listener Der zu registrierende Listener
+     * @throws IllegalArgumentException wenn eine Methode keine dieser Formen hat
+     */
+    public synchronized void registerListener(Object listener) {
+        List<Method> methods = collectSubscribers(listener.getClass());
+        for (Method method : methods) {
+            if (!isSupported(method)) {
+                throw new IllegalArgumentException("Event-Handler " + listener.getClass().getName() + "#" + method.getName()
+                        + " muss genau ein Event (optional gefolgt von einer Continuation) annehmen und void oder EventTask zurückgeben");
+            }
+        }
+        
+        List<EventHandler<?>> handlers = new ArrayList<>();
+        for (Method method : methods) {
+            method.setAccessible(true);
+            PostOrder postOrder = method.getAnnotation(Subscribe.class).order();
+            handlers.add(registerMethod(listener, method, method.getParameterTypes()[0], postOrder));
+        }
+        listenerHandlers.put(listener, handlers);
+    }
+    
+    /**
+     * Sammelt die mit {@link Subscribe} annotierten Methoden einer Klasse und ihrer Oberklassen.
+     * Überschriebene Methoden werden nur einmal (in der speziellsten Klasse) berücksichtigt.
      */
-    public void registerListener(Object listener) {
-        plugin.getServer().getEventManager().register(plugin, listener);
+    private static List<Method> collectSubscribers(Class<?> type) {
+        List<Method> methods = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            for (Method method : current.getDeclaredMethods()) {
+                if (method.isBridge() || method.isSynthetic()) {
+                    continue;
+                }
+                String signature = method.getName() + Arrays.toString(method.getParameterTypes());
+                boolean overridable = !Modifier.isPrivate(method.getModifiers()) && !Modifier.isStatic(method.getModifiers());
+                if (overridable && !seen.add(signature)) {
+                    continue;
+                }
+                if (method.isAnnotationPresent(Subscribe.class)) {
+                    methods.add(method);
+                }
+            }
+        }
+        return methods;
+    }
+    
+    private static boolean isSupported(Method method) {
+        Class<?>[] parameters = method.getParameterTypes();
+        if (parameters.length == 2) {
+            return parameters[1] == Continuation.class && method.getReturnType() == void.class;
+        }
+        return parameters.length == 1
+                && (method.getReturnType() == void.class || method.getReturnType() == EventTask.class);
+    }
+    
+    private <E> EventHandler<E> registerMethod(Object listener, Method method, Class<E> eventClass, PostOrder postOrder) {
+        Object target = Modifier.isStatic(method.getModifiers()) ? null : listener;
+        EventHandler<E> handler;
+        if (method.getParameterCount() == 2) {
+            // Handler mit Continuation werden wie bei Velocity als EventTask ausgeführt
+            handler = new EventHandler<E>() {
+                @Override
+                public void execute(E event) {
+                    throw new UnsupportedOperationException("Handler mit Continuation laufen nur über executeAsync");
+                }
+                
+                @Override
+                public EventTask executeAsync(E event) {
+                    if (!active.getAsBoolean()) {
+                        return null;
+                    }
+                    return EventTask.withContinuation(continuation -> {
+                        try {
+                            trackedInvoke(target, method, event, continuation);
+                        } catch (RuntimeException e) {
+                            continuation.resumeWithException(e);
+                        }
+                    });
+                }
+            };
+        } else if (method.getReturnType() == EventTask.class) {
+            handler = new EventHandler<E>() {
+                @Override
+                public void execute(E event) {
+                    throw new UnsupportedOperationException("EventTask-Handler laufen nur über executeAsync");
+                }
+                
+                @Override
+                public EventTask executeAsync(E event) {
+                    return active.getAsBoolean() ? (EventTask) trackedInvoke(target, method, event) : null;
+                }
+            };
+        } else {
+            handler = event -> {
+                if (active.getAsBoolean()) {
+                    trackedInvoke(target, method, event);
+                }
+            };
+        }
+        plugin.getServer().getEventManager().register(plugin, eventClass, postOrder, handler);
+        return handler;
+    }
+    
+    private Object trackedInvoke(Object target, Method method, Object... args) {
+        Object[] result = new Object[1];
+        plugin.getResourceTracker().runEventHandler(moduleName, () -> {
+            try {
+                result[0] = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new RuntimeException(cause);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        return result[0];
     }
     
     /**
@@ -48,8 +213,15 @@ public class EventRegistration {
     /**
      * Hebt die Registrierung aller Listener eines Plugins auf
      */
-    public void unregisterAllListeners() {
-        plugin.getServer().getEventManager().unregisterListeners(plugin);
+    public synchronized void unregisterAllListeners() {
+        EventManager eventManager = plugin.getServer().getEventManager();
+        for (Object listener : new ArrayList<>(listenerHandlers.keySet())) {
+            unregisterListener(listener);
+        }
+        for (EventHandler<?> handler : eventHandlers) {
+            eventManager.unregister(plugin, handler);
+        }
+        eventHandlers.clear();
     }
     
     /**
@@ -57,10 +229,18 @@ public class EventRegistration {
      * 
      * @param listener Der zu deregistrierende Listener
      */
-    public void unregisterListener(Object listener) {
+    public synchronized void unregisterListener(Object listener) {
+        EventManager eventManager = plugin.getServer().getEventManager();
+        List<EventHandler<?>> handlers = listenerHandlers.remove(listener);
+        
+        if (handlers == null) {
+            return;
+        }
+        
         // In der Velocity-API muss man jeden EventHandler einzeln deregistrieren
-        // oder alle Events eines Plugins auf einmal
-        plugin.getServer().getEventManager().unregisterListeners(listener);
+        for (EventHandler<?> handler : handlers) {
+            eventManager.unregister(plugin, handler);
+        }
     }
     
     /**
@@ -71,9 +251,15 @@ public class EventRegistration {
      * @param handler Der Event-Handler
      * @param postOrder Die Reihenfolge der Event-Verarbeitung
      */
-    public <E> void registerEvent(Class<E> eventClass, ProxyEventHandler<E> handler, PostOrder postOrder) {
+    public synchronized <E> void registerEvent(Class<E> eventClass, ProxyEventHandler<E> handler, PostOrder postOrder) {
         EventManager eventManager = plugin.getServer().getEventManager();
-        eventManager.register(plugin, eventClass, postOrder, (e) -> handler.handle(e));
+        EventHandler<E> eventHandler = (e) -> {
+            if (active.getAsBoolean()) {
+                plugin.getResourceTracker().runEventHandler(moduleName, () -> handler.handle(e));
+            }
+        };
+        eventManager.register(plugin, eventClass, postOrder, eventHandler);
+        eventHandlers.add(eventHandler);
     }
     
     /**
@@ -87,6 +273,13 @@ public class EventRegistration {
         registerEvent(eventClass, handler, PostOrder.NORMAL);
     }
     
+    /**
+     * @return Der Name des Moduls, dem die Handler zugeordnet werden
+     */
+    public String getModuleName() {
+        return moduleName;
+    }
+    
     /**
      * Funktionales Interface für Event-Handler
      * 
@@ -0,0 +1,174 @@
+package de.pexora.proxy.api.messaging;
+
+import com.velocitypowered.api.proxy.Player;
+import de.pexora.proxy.PexoraProxy;
+import de.pexora.proxy.status.LatencyHistogram;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TranslatableComponent;
+import net.kyori.adventure.translation.GlobalTranslator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Sendet eine Komponente an viele Spieler und bereitet sie dabei nur einmal pro Gruppe vor.
+ *
+ * Velocity übersetzt eine Komponente bei jedem {@code sendMessage} für die Sprache des
+ * Empfängers, bevor sie kodiert wird. Enthält die Komponente übersetzbare Teile, werden die
+ * Empfänger deshalb nach Sprache gruppiert und die Komponente einmal pro Gruppe übersetzt;
+ * jeder Spieler erhält dann den bereits übersetzten, unveränderlichen Baum. Ohne
+ * übersetzbare Teile gibt es genau eine Gruppe.
+ *
+ * Jeder Broadcast wird vermessen ({@link BroadcastTiming}), die Gesamtdauern werden
+ * in einem Histogramm gesammelt. Große Broadcasts können über den {@link FanOutScheduler}
+ * auf mehrere Zeitscheiben verteilt werden.
+ */
+public class BroadcastEngine {
+
+    private final PexoraProxy plugin;
+    private final LatencyHistogram latencies = new LatencyHistogram();
+
+    /**
+     * @param plugin Die Plugin-Instanz
+     */
+    public BroadcastEngine(PexoraProxy plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Sendet eine Komponente an alle passenden Spieler
+     *
+     * @param component Die Komponente
+     * @param filter Wählt die Empfänger aus oder null für alle Spieler
+     * @return Die Messung des Broadcasts
+     */
+    public BroadcastTiming broadcast(Component component, Predicate<Player> filter) {
+        return broadcast(plugin.getServer().getAllPlayers(), component, filter);
+    }
+
+    /**
+     * Sendet eine Komponente an die passenden Spieler einer Auswahl
+     *
+     * @param players Die möglichen Empfänger
+     * @param component Die Komponente
+     * @param filter Wählt die Empfänger aus oder null für alle
+     * @return Die Messung des Broadcasts
+     */
+    public BroadcastTiming broadcast(Collection<Player> players, Component component, Predicate<Player> filter) {
+        long start = System.nanoTime();
+        Prepared prepared = prepare(players, component, filter);
+        long ready = System.nanoTime();
+
+        for (Player player : prepared.recipients) {
+            player.sendMessage(prepared.messageFor(player));
+        }
+        return finish(start, ready, prepared.recipients.size(), prepared.getGroups());
+    }
+
+    /**
+     * Sendet eine Komponente verteilt über Zeitscheiben an die passenden Spieler
+     *
+     * @param scheduler Der Scheduler für die Verteilung
+     * @param players Die möglichen Empfänger
+     * @param component Die Komponente
+     * @param filter Wählt die Empfänger aus oder null für alle
+     * @param urgent Ob die dringende Spur genutzt wird
+     * @return Wird abgeschlossen, sobald alle Empfänger beliefert wurden
+     */
+    public CompletableFuture<FanOutScheduler.Result> broadcastPaced(FanOutScheduler scheduler, Collection<Player> players,
+                                                                    Component component, Predicate<Player> filter, boolean urgent) {
+        Prepared prepared = prepare(players, component, filter);
+        return scheduler.submit(prepared.recipients, player -> player.sendMessage(prepared.messageFor(player)), urgent);
+    }
+
+    /**
+     * Wählt die Empfänger aus und übersetzt die Komponente einmal pro Sprache
+     */
+    private Prepared prepare(Collection<Player> players, Component component, Predicate<Player> filter) {
+        List<Player> recipients = new ArrayList<>();
+        for (Player player : players) {
+            if (filter == null || filter.test(player)) {
+                recipients.add(player);
+            }
+        }
+        if (!isTranslatable(component)) {
+            return new Prepared(recipients, component, null);
+        }
+
+        Map<Locale, Component> rendered = new ConcurrentHashMap<>();
+        for (Player player : recipients) {
+            rendered.computeIfAbsent(localeOf(player), locale -> GlobalTranslator.render(component, locale));
+        }
+        return new Prepared(recipients, component, rendered);
+    }
+
+    private static Locale localeOf(Player player) {
+        return player.getEffectiveLocale() != null ? player.getEffectiveLocale() : Locale.getDefault();
+    }
+
+    private BroadcastTiming finish(long start, long prepared, int recipients, int groups) {
+        long end = System.nanoTime();
+        BroadcastTiming timing = new BroadcastTiming(recipients, groups, prepared - start, end - prepared);
+        latencies.record(timing.getTotalNanos());
+        plugin.getLoggerService().debug("Broadcast: " + timing);
+        return timing;
+    }
+
+    /**
+     * Prüft, ob eine Komponente übersetzbare Teile enthält
+     */
+    private static boolean isTranslatable(Component component) {
+        if (component instanceof TranslatableComponent) {
+            return true;
+        }
+        for (Component child : component.children()) {
+            if (isTranslatable(child)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return Die Gesamtdauern aller bisherigen Broadcasts
+     */
+    public LatencyHistogram getLatencies() {
+        return latencies;
+    }
+
+    /**
+     * Empfänger und vorbereitete Komponenten eines Broadcasts
+     */
+    private static class Prepared {
+        private final List<Player> recipients;
+        private final Component component;
+        private final Map<Locale, Component> rendered;
+
+        private Prepared(List<Player> recipients, Component component, Map<Locale, Component> rendered) {
+            this.recipients = recipients;
+            this.component = component;
+            this.rendered = rendered;
+        }
+
+        /**
+         * Liefert die übersetzte Komponente. Hat ein Spieler seine Sprache seit der Vorbereitung
+         * geändert (bei verteilten Zustellungen möglich), wird sie für die neue Sprache nachübersetzt.
+         */
+        private Component messageFor(Player player) {
+            if (rendered == null) {
+                return component;
+            }
+            return rendered.computeIfAbsent(localeOf(player), locale -> GlobalTranslator.render(component, locale));
+        }
+
+        private int getGroups() {
+            return rendered != null ? rendered.size() : recipients.isEmpty() ? 0 : 1;
+        }
+    }
+}
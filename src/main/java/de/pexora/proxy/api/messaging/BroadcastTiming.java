@@ -0,0 +1,60 @@
+package de.pexora.proxy.api.messaging;
+
+/**
+ * Messung eines Broadcasts der {@link BroadcastEngine}
+ */
+public class BroadcastTiming {
+
+    private final int recipients;
+    private final int groups;
+    private final long prepareNanos;
+    private final long sendNanos;
+
+    BroadcastTiming(int recipients, int groups, long prepareNanos, long sendNanos) {
+        this.recipients = recipients;
+        this.groups = groups;
+        this.prepareNanos = prepareNanos;
+        this.sendNanos = sendNanos;
+    }
+
+    /**
+     * @return Die Anzahl der Spieler, an die gesendet wurde
+     */
+    public int getRecipients() {
+        return recipients;
+    }
+
+    /**
+     * @return Die Anzahl der Gruppen, für die die Komponente vorbereitet wurde
+     */
+    public int getGroups() {
+        return groups;
+    }
+
+    /**
+     * @return Die Zeit für Gruppierung und Übersetzung in Nanosekunden
+     */
+    public long getPrepareNanos() {
+        return prepareNanos;
+    }
+
+    /**
+     * @return Die Zeit, bis die Nachricht an alle Verbindungen übergeben war, in Nanosekunden
+     */
+    public long getSendNanos() {
+        return sendNanos;
+    }
+
+    /**
+     * @return Die Gesamtdauer in Nanosekunden
+     */
+    public long getTotalNanos() {
+        return prepareNanos + sendNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d Spieler in %d Gruppen, %.2f ms (Vorbereitung %.2f ms, Senden %.2f ms)",
+                recipients, groups, getTotalNanos() / 1_000_000.0, prepareNanos / 1_000_000.0, sendNanos / 1_000_000.0);
+    }
+}
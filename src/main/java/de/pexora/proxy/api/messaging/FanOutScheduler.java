@@ -0,0 +1,321 @@
+package de.pexora.proxy.api.messaging;
+
+import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.scheduler.ScheduledTask;
+import de.pexora.proxy.PexoraProxy;
+import de.pexora.proxy.shutdown.Drainable;
+import de.pexora.proxy.status.LatencyHistogram;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Verteilt große Zustellungen (Broadcasts, Titel, Aktionsleisten) über kurze Zeitscheiben.
+ *
+ * Pro Zeitscheibe von {@code fanout-slice-ms} werden höchstens {@code fanout-budget} Spieler
+ * beliefert, damit ein Broadcast an tausende Spieler die Netty-Threads nicht auf einmal flutet.
+ * Zustellungen, die in eine Zeitscheibe passen, werden sofort im aufrufenden Thread ausgeführt,
+ * solange nichts wartet. Dringende Zustellungen laufen über eine eigene Spur, die in jeder
+ * Zeitscheibe zuerst bedient wird; passen sie in eine Zeitscheibe, werden sie immer sofort
+ * zugestellt.
+ *
+ * Für jede Zustellung wird die Gesamtdauer und die Verspätung gegenüber dem Plan
+ * (Anzahl Empfänger / Budget * Zeitscheibe) erfasst.
+ */
+public class FanOutScheduler implements Drainable {
+
+    private final PexoraProxy plugin;
+    private final long sliceNanos;
+    private final int budget;
+    private final ScheduledTask task;
+    private final Deque<Job> urgentLane = new ArrayDeque<>();
+    private final Deque<Job> normalLane = new ArrayDeque<>();
+    private final AtomicBoolean ticking = new AtomicBoolean();
+    private volatile boolean accepting = true;
+
+    private final LatencyHistogram completion = new LatencyHistogram();
+    private final LatencyHistogram lag = new LatencyHistogram();
+    private final AtomicLong jobs = new AtomicLong();
+    private final AtomicLong inlineJobs = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    /**
+     * Erstellt den Scheduler und startet die Zeitscheiben
+     *
+     * @param plugin Die Plugin-Instanz
+     * @param sliceMillis Die Länge einer Zeitscheibe in ms
+     * @param budget Die maximale Anzahl Spieler pro Zeitscheibe
+     */
+    public FanOutScheduler(PexoraProxy plugin, long sliceMillis, int budget) {
+        this.plugin = plugin;
+        this.sliceNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1L, sliceMillis));
+        this.budget = Math.max(1, budget);
+        this.task = plugin.getServer().getScheduler()
+                .buildTask(plugin, this::tick)
+                .repeat(Math.max(1L, sliceMillis), TimeUnit.MILLISECONDS)
+                .schedule();
+    }
+
+    /**
+     * Stellt etwas an mehrere Spieler zu
+     *
+     * @param players Die Empfänger
+     * @param action Die Zustellung an einen Spieler
+     * @param urgent Ob die Zustellung über die dringende Spur läuft
+     * @return Wird abgeschlossen, sobald alle Empfänger beliefert wurden
+     */
+    public CompletableFuture<Result> submit(Collection<Player> players, Consumer<Player> action, boolean urgent) {
+        Job job = new Job(new ArrayList<>(players), action);
+        jobs.incrementAndGet();
+
+        synchronized (this) {
+            boolean idle = urgentLane.isEmpty() && (urgent || normalLane.isEmpty());
+            if (accepting && (job.players.size() > budget || !idle)) {
+                (urgent ? urgentLane : normalLane).addLast(job);
+                return job.future;
+            }
+        }
+
+        // Klein genug (oder Herunterfahren): sofort zustellen
+        inlineJobs.incrementAndGet();
+        job.deliver(job.players.size());
+        finish(job);
+        return job.future;
+    }
+
+    /**
+     * Beliefert pro Zeitscheibe bis zum Budget, die dringende Spur zuerst
+     */
+    private void tick() {
+        if (!ticking.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            int remaining = budget;
+            while (remaining > 0) {
+                Job job;
+                synchronized (this) {
+                    job = urgentLane.isEmpty() ? normalLane.peekFirst() : urgentLane.peekFirst();
+                }
+                if (job == null) {
+                    break;
+                }
+
+                remaining -= job.deliver(remaining);
+                if (job.isDone()) {
+                    synchronized (this) {
+                        if (!urgentLane.remove(job)) {
+                            normalLane.remove(job);
+                        }
+                    }
+                    finish(job);
+                }
+            }
+        } finally {
+            ticking.set(false);
+        }
+    }
+
+    private void finish(Job job) {
+        long duration = System.nanoTime() - job.submitted;
+        long slices = (job.players.size() + budget - 1) / budget;
+        long planned = slices * sliceNanos;
+        long late = Math.max(0L, duration - planned);
+        // Beim Herunterfahren kann ein Job bereits abgeschlossen sein, dann nicht doppelt erfassen
+        if (job.future.complete(new Result(job.delivered, duration, late))) {
+            completion.record(duration);
+            lag.record(late);
+        }
+    }
+
+    @Override
+    public void stopIntake() {
+        accepting = false;
+    }
+
+    @Override
+    public boolean drain(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (getPendingCount() > 0) {
+            if (System.nanoTime() >= deadline) {
+                return false;
+            }
+            Thread.sleep(TimeUnit.NANOSECONDS.toMillis(sliceNanos) + 1L);
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized int getPendingCount() {
+        int pending = 0;
+        for (Job job : urgentLane) {
+            pending += job.players.size() - job.cursor;
+        }
+        for (Job job : normalLane) {
+            pending += job.players.size() - job.cursor;
+        }
+        return pending;
+    }
+
+    /**
+     * Stoppt die Zeitscheiben, wartende Zustellungen werden verworfen. Ihre Futures werden mit
+     * den bis dahin belieferten Spielern abgeschlossen, damit kein Aufrufer ewig wartet.
+     */
+    public void shutdown() {
+        accepting = false;
+        task.cancel();
+        List<Job> remaining;
+        synchronized (this) {
+            remaining = new ArrayList<>(urgentLane);
+            remaining.addAll(normalLane);
+            urgentLane.clear();
+            normalLane.clear();
+        }
+        for (Job job : remaining) {
+            finish(job);
+        }
+        if (!remaining.isEmpty()) {
+            plugin.getLoggerService().warning(remaining.size() + " verteilte Zustellungen beim Herunterfahren abgebrochen");
+        }
+    }
+
+    /**
+     * @return Die Dauer vom Einreihen bis zur letzten Zustellung
+     */
+    public LatencyHistogram getCompletion() {
+        return completion;
+    }
+
+    /**
+     * @return Die Verspätung gegenüber dem Plan
+     */
+    public LatencyHistogram getLag() {
+        return lag;
+    }
+
+    public int getBudget() {
+        return budget;
+    }
+
+    public long getJobs() {
+        return jobs.get();
+    }
+
+    /**
+     * @return Die Zustellungen, die ohne Aufteilung sofort ausgeführt wurden
+     */
+    public long getInlineJobs() {
+        return inlineJobs.get();
+    }
+
+    public long getDelivered() {
+        return delivered.get();
+    }
+
+    /**
+     * @return Die Empfänger, die vor ihrer Zustellung den Proxy verlassen haben
+     */
+    public long getSkipped() {
+        return skipped.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * Ergebnis einer Zustellung
+     */
+    public static class Result {
+        private final int recipients;
+        private final long completionNanos;
+        private final long lagNanos;
+
+        Result(int recipients, long completionNanos, long lagNanos) {
+            this.recipients = recipients;
+            this.completionNanos = completionNanos;
+            this.lagNanos = lagNanos;
+        }
+
+        /**
+         * @return Die Anzahl der belieferten Spieler (bei Abbruch durch Herunterfahren nur die bis dahin belieferten)
+         */
+        public int getRecipients() {
+            return recipients;
+        }
+
+        /**
+         * @return Die Dauer vom Einreihen bis zur letzten Zustellung in Nanosekunden
+         */
+        public long getCompletionNanos() {
+            return completionNanos;
+        }
+
+        /**
+         * @return Die Verspätung gegenüber dem Plan in Nanosekunden
+         */
+        public long getLagNanos() {
+            return lagNanos;
+        }
+    }
+
+    /**
+     * Eine laufende Zustellung, wird nur von einem Thread gleichzeitig beliefert
+     */
+    private class Job {
+        private final List<Player> players;
+        private final Consumer<Player> action;
+        private final long submitted = System.nanoTime();
+        private final CompletableFuture<Result> future = new CompletableFuture<>();
+        private volatile int cursor;
+        private int delivered;
+
+        private Job(List<Player> players, Consumer<Player> action) {
+            this.players = players;
+            this.action = action;
+        }
+
+        /**
+         * Beliefert die nächsten Spieler
+         *
+         * @param limit Die maximale Anzahl
+         * @return Die Anzahl der verbrauchten Plätze
+         */
+        private int deliver(int limit) {
+            int end = Math.min(players.size(), cursor + limit);
+            int start = cursor;
+            for (int i = start; i < end; i++) {
+                Player player = players.get(i);
+                if (!player.isActive()) {
+                    skipped.incrementAndGet();
+                    continue;
+                }
+                try {
+                    action.accept(player);
+                    delivered++;
+                    FanOutScheduler.this.delivered.incrementAndGet();
+                } catch (Exception e) {
+                    failed.incrementAndGet();
+                    plugin.getLoggerService().severe("Fehler bei der Zustellung an " + player.getUsername() + ": " + e.getMessage());
+                    e.printStackTrace();
+                }
+            }
+            cursor = end;
+            return end - start;
+        }
+
+        private boolean isDone() {
+            return cursor >= players.size();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package de.pexora.proxy.api.messaging;
+
+import de.pexora.proxy.PexoraProxy;
+
+import java.lang.reflect.Method;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Leitet Rechteänderungen von LuckPerms an den {@link PermissionIndex} weiter.
+ *
+ * LuckPerms ist keine feste Abhängigkeit, die API wird deshalb nur per Reflection angesprochen.
+ * Ändern sich die Rechte eines Benutzers, wird dieser Spieler neu geprüft; ändert sich eine
+ * Gruppe, wird der gesamte Index verworfen, da die betroffenen Spieler nicht bekannt sind.
+ */
+final class LuckPermsHook {
+
+    private LuckPermsHook() {
+    }
+
+    /**
+     * Registriert die Listener bei LuckPerms
+     *
+     * @param plugin Die Plugin-Instanz
+     * @param index Der zu aktualisierende Index
+     * @return true, wenn die Listener registriert wurden
+     */
+    static boolean register(PexoraProxy plugin, PermissionIndex index) {
+        try {
+            ClassLoader loader = LuckPermsHook.class.getClassLoader();
+            Object luckPerms = Class.forName("net.luckperms.api.LuckPermsProvider", true, loader)
+                    .getMethod("get").invoke(null);
+            Object eventBus = Class.forName("net.luckperms.api.LuckPerms", true, loader)
+                    .getMethod("getEventBus").invoke(luckPerms);
+            Method subscribe = Class.forName("net.luckperms.api.event.EventBus", true, loader)
+                    .getMethod("subscribe", Object.class, Class.class, Consumer.class);
+            Class<?> userEvent = Class.forName("net.luckperms.api.event.user.UserDataRecalculateEvent", true, loader);
+            Class<?> groupEvent = Class.forName("net.luckperms.api.event.group.GroupDataRecalculateEvent", true, loader);
+            Method getUser = userEvent.getMethod("getUser");
+            Method getUniqueId = Class.forName("net.luckperms.api.model.user.User", true, loader)
+                    .getMethod("getUniqueId");
+
+            Consumer<Object> userChanged = event -> {
+                try {
+                    UUID uniqueId = (UUID) getUniqueId.invoke(getUser.invoke(event));
+                    plugin.getServer().getPlayer(uniqueId).ifPresent(index::invalidatePlayer);
+                } catch (ReflectiveOperationException e) {
+                    plugin.getLoggerService().warning("Rechteänderung von LuckPerms nicht auswertbar: " + e.getMessage());
+                    index.invalidate();
+                }
+            };
+            Consumer<Object> groupChanged = event -> index.invalidate();
+
+            subscribe.invoke(eventBus, plugin, userEvent, userChanged);
+            subscribe.invoke(eventBus, plugin, groupEvent, groupChanged);
+            return true;
+        } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+            plugin.getLoggerService().warning("LuckPerms gefunden, aber Rechteänderungen können nicht verfolgt werden: "
+                    + e.getMessage());
+            return false;
+        }
+    }
+}
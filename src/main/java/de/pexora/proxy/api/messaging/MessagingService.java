@@ -7,8 +7,13 @@ import net.kyori.adventure.text.Component;
 import net.kyori.adventure.title.Title;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
  * Service zum Senden von Nachrichten an Spieler.
@@ -17,6 +22,7 @@ import java.util.UUID;
 public class MessagingService {
     
     private final PexoraProxy plugin;
+    private final BroadcastEngine broadcastEngine;
     
     /**
      * Erstellt einen neuen MessagingService
@@ -25,6 +31,7 @@ public class MessagingService {
      */
     public MessagingService(PexoraProxy plugin) {
         this.plugin = plugin;
+        this.broadcastEngine = new BroadcastEngine(plugin);
     }
     
     /**
@@ -66,24 +73,90 @@ public class MessagingService {
     }
     
     /**
-     * Sendet eine Nachricht an alle Spieler auf dem Proxy
+     * Sendet eine Nachricht an alle Spieler auf dem Proxy (bei vielen Spielern über Zeitscheiben verteilt)
      * 
      * @param component Die zu sendende Nachrichtenkomponente
      */
     public void broadcastMessage(Component component) {
-        plugin.getServer().getAllPlayers().forEach(player -> player.sendMessage(component));
+        broadcastPaced(component, null, false);
     }
     
     /**
-     * Sendet eine Nachricht an alle Spieler mit einer bestimmten Berechtigung
+     * Sendet eine Nachricht an alle Spieler mit einer bestimmten Berechtigung (bei vielen Spielern über Zeitscheiben verteilt)
      * 
      * @param component Die zu sendende Nachrichtenkomponente
      * @param permission Die erforderliche Berechtigung
      */
     public void broadcastMessage(Component component, String permission) {
-        plugin.getServer().getAllPlayers().stream()
-                .filter(player -> player.hasPermission(permission))
-                .forEach(player -> player.sendMessage(component));
+        broadcastPaced(component, permission, false);
+    }
+    
+    /**
+     * Sendet eine Nachricht an alle Spieler, verteilt über Zeitscheiben des {@link FanOutScheduler}
+     * 
+     * @param component Die zu sendende Nachrichtenkomponente
+     * @param permission Die erforderliche Berechtigung oder null für alle Spieler
+     * @param urgent Ob die Nachricht vor allen nicht dringenden Zustellungen gesendet wird
+     * @return Wird abgeschlossen, sobald alle Spieler die Nachricht erhalten haben
+     */
+    public CompletableFuture<FanOutScheduler.Result> broadcastPaced(Component component, String permission, boolean urgent) {
+        Collection<Player> players = recipients(permission);
+        FanOutScheduler scheduler = plugin.getFanOutScheduler();
+        if (scheduler == null) {
+            BroadcastTiming timing = broadcastEngine.broadcast(players, component, null);
+            return CompletableFuture.completedFuture(new FanOutScheduler.Result(timing.getRecipients(), timing.getTotalNanos(), 0L));
+        }
+        return broadcastEngine.broadcastPaced(scheduler, players, component, null, urgent);
+    }
+    
+    /**
+     * Ermittelt die Empfänger eines Broadcasts, bei einer Berechtigung über den {@link PermissionIndex}
+     * 
+     * @param permission Die erforderliche Berechtigung oder null für alle Spieler
+     */
+    private Collection<Player> recipients(String permission) {
+        if (permission == null) {
+            return plugin.getServer().getAllPlayers();
+        }
+        PermissionIndex index = plugin.getPermissionIndex();
+        if (index != null) {
+            return index.getRecipients(permission);
+        }
+        List<Player> players = new ArrayList<>();
+        for (Player player : plugin.getServer().getAllPlayers()) {
+            if (player.hasPermission(permission)) {
+                players.add(player);
+            }
+        }
+        return players;
+    }
+    
+    /**
+     * Sendet eine Nachricht an alle Spieler und misst, wie lange die Zustellung dauert
+     * 
+     * @param component Die zu sendende Nachrichtenkomponente
+     * @return Die Messung des Broadcasts
+     */
+    public BroadcastTiming broadcast(Component component) {
+        return broadcastEngine.broadcast(component, null);
+    }
+    
+    /**
+     * Sendet eine Nachricht an alle Spieler mit einer bestimmten Berechtigung und misst, wie lange die Zustellung dauert
+     * 
+     * @param component Die zu sendende Nachrichtenkomponente
+     * @param permission Die erforderliche Berechtigung
+     * @return Die Messung des Broadcasts
+     */
+    public BroadcastTiming broadcast(Component component, String permission) {
+        return broadcastEngine.broadcast(recipients(permission), component, null);
+    }
+    
+    /**
+     * @return Die Broadcast-Engine dieses Services (inkl. Laufzeit-Histogramm)
+     */
+    public BroadcastEngine getBroadcastEngine() {
+        return broadcastEngine;
     }
     
     /**
@@ -120,6 +193,59 @@ public class MessagingService {
         player.showTitle(titleObject);
     }
     
+    /**
+     * Sendet eine Aktionsleisten-Nachricht an alle Spieler, verteilt über Zeitscheiben
+     * 
+     * @param component Die zu sendende Nachrichtenkomponente
+     * @param urgent Ob die Nachricht vor allen nicht dringenden Zustellungen gesendet wird
+     * @return Wird abgeschlossen, sobald alle Spieler die Nachricht erhalten haben
+     */
+    public CompletableFuture<FanOutScheduler.Result> broadcastActionBar(Component component, boolean urgent) {
+        return fanOut(player -> player.sendActionBar(component), urgent);
+    }
+    
+    /**
+     * Sendet eine Titel-Nachricht an alle Spieler, verteilt über Zeitscheiben
+     * 
+     * @param title Der Haupttitel
+     * @param subtitle Der Untertitel
+     * @param fadeIn Die Einblendezeit in Sekunden
+     * @param stay Die Anzeigezeit in Sekunden
+     * @param fadeOut Die Ausblendezeit in Sekunden
+     * @param urgent Ob der Titel vor allen nicht dringenden Zustellungen gesendet wird
+     * @return Wird abgeschlossen, sobald alle Spieler den Titel erhalten haben
+     */
+    public CompletableFuture<FanOutScheduler.Result> broadcastTitle(Component title, Component subtitle,
+                                                                    int fadeIn, int stay, int fadeOut, boolean urgent) {
+        Title titleObject = Title.title(
+                title,
+                subtitle,
+                Title.Times.times(
+                        Duration.ofSeconds(fadeIn),
+                        Duration.ofSeconds(stay),
+                        Duration.ofSeconds(fadeOut)
+                )
+        );
+        return fanOut(player -> player.showTitle(titleObject), urgent);
+    }
+    
+    /**
+     * Führt eine Zustellung für alle Spieler aus, über den {@link FanOutScheduler}, falls er aktiv ist
+     */
+    private CompletableFuture<FanOutScheduler.Result> fanOut(Consumer<Player> action, boolean urgent) {
+        FanOutScheduler scheduler = plugin.getFanOutScheduler();
+        if (scheduler != null) {
+            return scheduler.submit(plugin.getServer().getAllPlayers(), action, urgent);
+        }
+        long start = System.nanoTime();
+        int recipients = 0;
+        for (Player player : plugin.getServer().getAllPlayers()) {
+            action.accept(player);
+            recipients++;
+        }
+        return CompletableFuture.completedFuture(new FanOutScheduler.Result(recipients, System.nanoTime() - start, 0L));
+    }
+    
     /**
      * Findet einen Spieler anhand seines Namens
      * 
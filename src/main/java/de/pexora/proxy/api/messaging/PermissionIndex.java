@@ -0,0 +1,247 @@
+package de.pexora.proxy.api.messaging;
+
+import com.velocitypowered.api.event.PostOrder;
+import com.velocitypowered.api.event.Subscribe;
+import com.velocitypowered.api.event.connection.DisconnectEvent;
+import com.velocitypowered.api.event.connection.PostLoginEvent;
+import com.velocitypowered.api.event.permission.PermissionsSetupEvent;
+import com.velocitypowered.api.proxy.Player;
+import de.pexora.proxy.PexoraProxy;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hält pro Berechtigung die Menge der Online-Spieler, die sie besitzen.
+ *
+ * Eine Berechtigung wird beim ersten Broadcast mit dieser Berechtigung einmal über alle
+ * Spieler ausgewertet, danach wird die Menge fortgeschrieben: Beim Login wird der neue
+ * Spieler gegen alle bereits bekannten Berechtigungen geprüft, beim Verlassen entfernt.
+ * Ein Broadcast an z.B. {@code pexora.staff} ist damit nur noch eine Schleife über wenige
+ * Spieler statt eines {@code hasPermission}-Aufrufs pro Online-Spieler.
+ *
+ * Velocity meldet keine Änderungen an Berechtigungen während einer Sitzung. Damit ein entzogenes
+ * Recht nie zu einer Zustellung führt, wird jeder Spieler der Menge beim Abruf noch einmal mit
+ * {@code hasPermission} geprüft. Neu vergebene Rechte werden über die Events von LuckPerms
+ * übernommen; ohne LuckPerms wird eine Spielermenge nach {@code permission-index-ttl-ms} neu
+ * aufgebaut. Andere Plugins erreichen den Index über {@link de.pexora.proxy.api.PexoraProxyAPI#getPermissionIndex()}
+ * und können {@link #invalidatePlayer(Player)}, {@link #invalidate(String)} oder {@link #invalidate()} aufrufen.
+ */
+public class PermissionIndex {
+
+    private final PexoraProxy plugin;
+    private final Map<String, Set<Player>> index = new ConcurrentHashMap<>();
+    private final Map<String, Long> builtAt = new ConcurrentHashMap<>();
+    private final Object lock = new Object();
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong builds = new AtomicLong();
+    private final AtomicLong revoked = new AtomicLong();
+    private final boolean luckPermsHooked;
+
+    /**
+     * Erstellt den Index und registriert die Listener für Login und Verlassen
+     *
+     * @param plugin Die Plugin-Instanz
+     */
+    public PermissionIndex(PexoraProxy plugin) {
+        this.plugin = plugin;
+        plugin.getServer().getEventManager().register(plugin, new MembershipListener());
+        this.luckPermsHooked = plugin.getServer().getPluginManager().isLoaded("luckperms") && LuckPermsHook.register(plugin, this);
+        if (luckPermsHooked) {
+            plugin.getLoggerService().debug("Berechtigungs-Index folgt den Rechteänderungen von LuckPerms");
+        }
+    }
+
+    /**
+     * Liefert alle Online-Spieler mit einer Berechtigung
+     *
+     * @param permission Die Berechtigung
+     * @return Die Spieler, die die Berechtigung jetzt besitzen
+     */
+    public Collection<Player> getRecipients(String permission) {
+        Set<Player> players = index.get(permission);
+        if (players != null && !isExpired(permission)) {
+            hits.incrementAndGet();
+            // Entzogene Rechte werden nicht gemeldet, deshalb jeden Empfänger noch einmal prüfen
+            List<Player> recipients = new ArrayList<>(players.size());
+            for (Player player : players) {
+                if (player.hasPermission(permission)) {
+                    recipients.add(player);
+                } else {
+                    removeRevoked(permission, players, player);
+                }
+            }
+            return recipients;
+        }
+        if (players != null) {
+            synchronized (lock) {
+                if (index.get(permission) == players) {
+                    version.incrementAndGet();
+                    index.remove(permission);
+                    builtAt.remove(permission);
+                }
+            }
+        }
+
+        builds.incrementAndGet();
+        long before = version.get();
+        Set<Player> built = ConcurrentHashMap.newKeySet();
+        for (Player player : plugin.getServer().getAllPlayers()) {
+            if (player.hasPermission(permission)) {
+                built.add(player);
+            }
+        }
+        // Nur übernehmen, wenn sich während des Aufbaus niemand an- oder abgemeldet hat. Prüfen und
+        // Eintragen laufen unter derselben Sperre wie die Änderungen, sonst könnte ein Login
+        // dazwischen den noch nicht eingetragenen Eintrag verpassen
+        synchronized (lock) {
+            if (version.get() == before) {
+                Set<Player> existing = index.putIfAbsent(permission, built);
+                if (existing != null) {
+                    built = existing;
+                } else {
+                    builtAt.put(permission, System.nanoTime());
+                }
+            }
+        }
+        return Collections.unmodifiableSet(built);
+    }
+
+    private void removeRevoked(String permission, Set<Player> players, Player player) {
+        // Unter der Sperre erneut prüfen, sonst könnte eine gleichzeitige Neuvergabe verloren gehen
+        synchronized (lock) {
+            if (!player.hasPermission(permission) && players.remove(player)) {
+                revoked.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Ohne Meldungen über neu vergebene Rechte wird eine Spielermenge nur begrenzt lange verwendet
+     */
+    private boolean isExpired(String permission) {
+        if (luckPermsHooked) {
+            return false;
+        }
+        long ttlMillis = plugin.getCoreConfig().getMessagingPermissionIndexTtlMillis();
+        Long since = builtAt.get(permission);
+        return ttlMillis > 0 && since != null && System.nanoTime() - since > ttlMillis * 1_000_000L;
+    }
+
+    /**
+     * Verwirft den gesamten Index
+     */
+    public void invalidate() {
+        synchronized (lock) {
+            version.incrementAndGet();
+            index.clear();
+            builtAt.clear();
+        }
+    }
+
+    /**
+     * Verwirft die Spielermenge einer Berechtigung
+     *
+     * @param permission Die Berechtigung
+     */
+    public void invalidate(String permission) {
+        synchronized (lock) {
+            version.incrementAndGet();
+            index.remove(permission);
+            builtAt.remove(permission);
+        }
+    }
+
+    /**
+     * Prüft die bekannten Berechtigungen für einen Spieler neu
+     *
+     * @param player Der Spieler
+     */
+    public void invalidatePlayer(Player player) {
+        synchronized (lock) {
+            version.incrementAndGet();
+            for (Map.Entry<String, Set<Player>> entry : index.entrySet()) {
+                if (player.isActive() && player.hasPermission(entry.getKey())) {
+                    entry.getValue().add(player);
+                } else {
+                    entry.getValue().remove(player);
+                }
+            }
+        }
+    }
+
+    private void removePlayer(Player player) {
+        synchronized (lock) {
+            version.incrementAndGet();
+            for (Set<Player> players : index.values()) {
+                players.remove(player);
+            }
+        }
+    }
+
+    /**
+     * @return Die Berechtigungen, für die eine Spielermenge gehalten wird
+     */
+    public Set<String> getIndexedPermissions() {
+        return Collections.unmodifiableSet(index.keySet());
+    }
+
+    /**
+     * @return Ob Rechteänderungen über LuckPerms übernommen werden (sonst gilt die Lebensdauer)
+     */
+    public boolean isLuckPermsHooked() {
+        return luckPermsHooked;
+    }
+
+    /**
+     * @return Die Empfänger, die beim Abruf ohne die Berechtigung angetroffen und entfernt wurden
+     */
+    public long getRevoked() {
+        return revoked.get();
+    }
+
+    /**
+     * @return Die Abfragen, die aus dem Index beantwortet wurden
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return Die Abfragen, für die alle Spieler geprüft werden mussten
+     */
+    public long getBuilds() {
+        return builds.get();
+    }
+
+    /**
+     * Hält die Spielermengen bei Login und Verlassen aktuell
+     */
+    private class MembershipListener {
+
+        @Subscribe
+        public void onPermissionsSetup(PermissionsSetupEvent event) {
+            // Der Berechtigungsanbieter wird neu gesetzt, bis zum Login gilt der Spieler als unbekannt
+            if (event.getSubject() instanceof Player) {
+                removePlayer((Player) event.getSubject());
+            }
+        }
+
+        @Subscribe(order = PostOrder.LAST)
+        public void onPostLogin(PostLoginEvent event) {
+            invalidatePlayer(event.getPlayer());
+        }
+
+        @Subscribe
+        public void onDisconnect(DisconnectEvent event) {
+            removePlayer(event.getPlayer());
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package de.pexora.proxy.api.module;
+
+import com.velocitypowered.api.command.SimpleCommand;
+import de.pexora.proxy.api.events.EventRegistration;
+import de.pexora.proxy.api.scheduler.SchedulerService;
+import de.pexora.proxy.messaging.MessagingManager;
+
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+/**
+ * Kontext, den ein Modul beim Aktivieren erhält.
+ * Alle hierüber registrierten Listener, Befehle, Tasks und Nachrichten-Handler
+ * gehören zu genau einer Instanz des Moduls und werden beim Austausch
+ * gegen eine neue Version atomar umgeleitet bzw. beim Entladen entfernt.
+ */
+public interface ModuleContext {
+
+    /**
+     * @return Der Name des Moduls
+     */
+    String getModuleName();
+
+    /**
+     * @return Das Datenverzeichnis des Moduls
+     */
+    Path getDataDirectory();
+
+    /**
+     * @return Die Event-Registrierung dieser Modulinstanz
+     */
+    EventRegistration getEvents();
+
+    /**
+     * @return Der Scheduler dieser Modulinstanz
+     */
+    SchedulerService getScheduler();
+
+    /**
+     * Registriert einen Befehl für diese Modulinstanz
+     *
+     * @param name Der Name des Befehls
+     * @param command Der Befehlsausführer
+     * @param aliases Optionale Aliase
+     */
+    void registerCommand(String name, SimpleCommand command, String... aliases);
+
+    /**
+     * Registriert einen Handler für eine Messaging-Aktion für diese Modulinstanz
+     *
+     * @param action Die Aktion
+     * @param handler Der Handler
+     */
+    void registerMessageHandler(String action, Consumer<MessagingManager.MessageEvent> handler);
+}
@@ -0,0 +1,24 @@
+package de.pexora.proxy.api.module;
+
+/**
+ * Einstiegspunkt eines Pexora-Moduls.
+ * Die Klasse wird in der module.toml des Moduls als {@code main} angegeben
+ * und vom ModuleLoader in einem eigenen ClassLoader instanziiert.
+ */
+public interface PexoraModule {
+
+    /**
+     * Wird aufgerufen, wenn das Modul aktiviert wird.
+     * Listener, Befehle und Nachrichten-Handler sollten über den Kontext registriert werden,
+     * damit sie beim Austausch des Moduls umgeleitet werden können.
+     *
+     * @param context Der Kontext des Moduls
+     */
+    void onEnable(ModuleContext context);
+
+    /**
+     * Wird aufgerufen, wenn das Modul deaktiviert wird
+     */
+    default void onDisable() {
+    }
+}
@@ -0,0 +1,28 @@
+package de.pexora.proxy.api.module;
+
+/**
+ * Modul, das seinen Zustand beim Austausch gegen eine neue Version übergeben kann.
+ *
+ * Beim Blue/Green-Austausch ruft der ModuleLoader {@link #snapshotState()} auf der alten
+ * Instanz auf und übergibt das Ergebnis an {@link #restoreState(Object)} der neuen Instanz,
+ * unmittelbar bevor Listener, Befehle und Nachrichten-Handler umgeleitet werden.
+ *
+ * Da beide Versionen in getrennten ClassLoadern laufen, sollte der Zustand nur aus
+ * JDK-Typen (z.B. Map, List, String, byte[]) oder Typen der PexoraProxy-API bestehen.
+ */
+public interface StatefulModule extends PexoraModule {
+
+    /**
+     * Erstellt eine Momentaufnahme des Zustands dieser Instanz
+     *
+     * @return Der Zustand, z.B. als Map oder serialisiertes byte[]
+     */
+    Object snapshotState();
+
+    /**
+     * Übernimmt den Zustand einer vorherigen Version des Moduls
+     *
+     * @param state Der Zustand der vorherigen Version, oder null wenn diese keinen Zustand lieferte
+     */
+    void restoreState(Object state);
+}
@@ -0,0 +1,135 @@
+package de.pexora.proxy.api.scheduler;
+
+import com.velocitypowered.api.scheduler.ScheduledTask;
+import com.velocitypowered.api.scheduler.TaskStatus;
+import de.pexora.proxy.PexoraProxy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Service zum Planen von Tasks für Module.
+ * Alle Tasks laufen über den Velocity-Scheduler und werden dem Modul zugeordnet,
+ * damit ihre Laufzeit in der Ressourcenübersicht erscheint.
+ */
+public class SchedulerService {
+
+    private final PexoraProxy plugin;
+    private final String moduleName;
+    private final BooleanSupplier active;
+    private final List<ScheduledTask> tasks = new ArrayList<>();
+
+    /**
+     * Erstellt einen neuen SchedulerService
+     *
+     * @param plugin Die Plugin-Instanz
+     * @param moduleName Der Name des Moduls, dem die Tasks zugeordnet werden
+     */
+    public SchedulerService(PexoraProxy plugin, String moduleName) {
+        this(plugin, moduleName, () -> true);
+    }
+
+    /**
+     * Erstellt einen neuen SchedulerService für eine Modulinstanz,
+     * deren Tasks nur ausgeführt werden, solange die Instanz aktiv ist
+     *
+     * @param plugin Die Plugin-Instanz
+     * @param moduleName Der Name des Moduls, dem die Tasks zugeordnet werden
+     * @param active Prüft, ob die Modulinstanz gerade Tasks ausführen soll
+     */
+    public SchedulerService(PexoraProxy plugin, String moduleName, BooleanSupplier active) {
+        this.plugin = plugin;
+        this.moduleName = moduleName;
+        this.active = active;
+    }
+
+    /**
+     * Führt einen Task sofort asynchron aus
+     *
+     * @param task Der auszuführende Task
+     * @return Der geplante Task
+     */
+    public ScheduledTask runAsync(Runnable task) {
+        return track(plugin.getServer().getScheduler()
+                .buildTask(plugin, wrap(task))
+                .schedule());
+    }
+
+    /**
+     * Führt einen Task verzögert aus
+     *
+     * @param task Der auszuführende Task
+     * @param delay Die Verzögerung
+     * @param unit Die Zeiteinheit der Verzögerung
+     * @return Der geplante Task
+     */
+    public ScheduledTask runLater(Runnable task, long delay, TimeUnit unit) {
+        return track(plugin.getServer().getScheduler()
+                .buildTask(plugin, wrap(task))
+                .delay(delay, unit)
+                .schedule());
+    }
+
+    /**
+     * Führt einen Task wiederholt aus
+     *
+     * @param task Der auszuführende Task
+     * @param delay Die Verzögerung bis zur ersten Ausführung
+     * @param period Der Abstand zwischen zwei Ausführungen
+     * @param unit Die Zeiteinheit
+     * @return Der geplante Task
+     */
+    public ScheduledTask runRepeating(Runnable task, long delay, long period, TimeUnit unit) {
+        return track(plugin.getServer().getScheduler()
+                .buildTask(plugin, wrap(task))
+                .delay(delay, unit)
+                .repeat(period, unit)
+                .schedule());
+    }
+
+    /**
+     * Bricht alle über diesen Service geplanten Tasks ab
+     */
+    public synchronized void cancelAll() {
+        for (ScheduledTask task : tasks) {
+            task.cancel();
+        }
+        tasks.clear();
+    }
+
+    private Runnable wrap(Runnable task) {
+        Runnable tracked = plugin.getResourceTracker().wrapTask(moduleName, task);
+        return () -> {
+            if (active.getAsBoolean()) {
+                tracked.run();
+            }
+        };
+    }
+
+    private synchronized ScheduledTask track(ScheduledTask task) {
+        tasks.removeIf(existing -> existing.status() != TaskStatus.SCHEDULED);
+        tasks.add(task);
+        return task;
+    }
+
+    /**
+     * Gibt eine Thread-Factory zurück, deren Threads dem Modul zugeordnet werden
+     *
+     * @return Die Thread-Factory für eigene Executor des Moduls
+     */
+    public ThreadFactory getThreadFactory() {
+        return plugin.getResourceTracker().threadFactory(moduleName);
+    }
+
+    /**
+     * Gibt den Namen des Moduls zurück
+     *
+     * @return Der Modulname
+     */
+    public String getModuleName() {
+        return moduleName;
+    }
+}
@@ -0,0 +1,169 @@
+package de.pexora.proxy.api.status;
+
+/**
+ * Unveränderliche Momentaufnahme des Ressourcenverbrauchs eines Moduls.
+ * Enthält die Laufzeit der Event-Handler und Tasks, die CPU-Zeit, die allokierten Bytes,
+ * die Thread-Anzahl und die Datenbankzeit, die dem Modul zugeordnet wurden.
+ */
+public class ModuleResourceStats {
+
+    private final String moduleName;
+    private final long eventInvocations;
+    private final long taskExecutions;
+    private final long totalHandlerNanos;
+    private final long handlerP50Nanos;
+    private final long handlerP95Nanos;
+    private final long handlerP99Nanos;
+    private final long handlerMaxNanos;
+    private final long cpuNanos;
+    private final long allocatedBytes;
+    private final int liveThreads;
+    private final int activeThreads;
+    private final long databaseCalls;
+    private final long databaseNanos;
+
+    /**
+     * Erstellt eine neue Momentaufnahme
+     *
+     * @param moduleName Der Name des Moduls
+     * @param eventInvocations Die Anzahl der Event-Handler-Aufrufe
+     * @param taskExecutions Die Anzahl der ausgeführten Tasks
+     * @param totalHandlerNanos Die kumulierte Laufzeit aller Handler und Tasks in Nanosekunden
+     * @param handlerP50Nanos Das 50. Perzentil der Laufzeit in Nanosekunden
+     * @param handlerP95Nanos Das 95. Perzentil der Laufzeit in Nanosekunden
+     * @param handlerP99Nanos Das 99. Perzentil der Laufzeit in Nanosekunden
+     * @param handlerMaxNanos Die längste Laufzeit in Nanosekunden
+     * @param cpuNanos Die kumulierte CPU-Zeit in Nanosekunden
+     * @param allocatedBytes Die kumuliert allokierten Bytes
+     * @param liveThreads Die Anzahl der laufenden Threads des Moduls
+     * @param activeThreads Die Anzahl der Threads, die gerade Code des Moduls ausführen
+     * @param databaseCalls Die Anzahl der ausgeliehenen Datenbankverbindungen
+     * @param databaseNanos Die kumulierte Datenbankzeit in Nanosekunden
+     */
+    public ModuleResourceStats(String moduleName, long eventInvocations, long taskExecutions,
+                               long totalHandlerNanos, long handlerP50Nanos, long handlerP95Nanos,
+                               long handlerP99Nanos, long handlerMaxNanos, long cpuNanos,
+                               long allocatedBytes, int liveThreads, int activeThreads,
+                               long databaseCalls, long databaseNanos) {
+        this.moduleName = moduleName;
+        this.eventInvocations = eventInvocations;
+        this.taskExecutions = taskExecutions;
+        this.totalHandlerNanos = totalHandlerNanos;
+        this.handlerP50Nanos = handlerP50Nanos;
+        this.handlerP95Nanos = handlerP95Nanos;
+        this.handlerP99Nanos = handlerP99Nanos;
+        this.handlerMaxNanos = handlerMaxNanos;
+        this.cpuNanos = cpuNanos;
+        this.allocatedBytes = allocatedBytes;
+        this.liveThreads = liveThreads;
+        this.activeThreads = activeThreads;
+        this.databaseCalls = databaseCalls;
+        this.databaseNanos = databaseNanos;
+    }
+
+    /**
+     * @return Der Name des Moduls
+     */
+    public String getModuleName() {
+        return moduleName;
+    }
+
+    /**
+     * @return Die Anzahl der Event-Handler-Aufrufe
+     */
+    public long getEventInvocations() {
+        return eventInvocations;
+    }
+
+    /**
+     * @return Die Anzahl der ausgeführten Tasks
+     */
+    public long getTaskExecutions() {
+        return taskExecutions;
+    }
+
+    /**
+     * @return Die kumulierte Laufzeit aller Handler und Tasks in Nanosekunden
+     */
+    public long getTotalHandlerNanos() {
+        return totalHandlerNanos;
+    }
+
+    /**
+     * @return Die durchschnittliche Laufzeit eines Handlers oder Tasks in Nanosekunden
+     */
+    public long getAverageHandlerNanos() {
+        long executions = eventInvocations + taskExecutions;
+        return executions == 0 ? 0L : totalHandlerNanos / executions;
+    }
+
+    /**
+     * @return Das 50. Perzentil der Laufzeit in Nanosekunden
+     */
+    public long getHandlerP50Nanos() {
+        return handlerP50Nanos;
+    }
+
+    /**
+     * @return Das 95. Perzentil der Laufzeit in Nanosekunden
+     */
+    public long getHandlerP95Nanos() {
+        return handlerP95Nanos;
+    }
+
+    /**
+     * @return Das 99. Perzentil der Laufzeit in Nanosekunden
+     */
+    public long getHandlerP99Nanos() {
+        return handlerP99Nanos;
+    }
+
+    /**
+     * @return Die längste Laufzeit in Nanosekunden
+     */
+    public long getHandlerMaxNanos() {
+        return handlerMaxNanos;
+    }
+
+    /**
+     * @return Die kumulierte CPU-Zeit in Nanosekunden, oder 0 wenn die JVM sie nicht misst
+     */
+    public long getCpuNanos() {
+        return cpuNanos;
+    }
+
+    /**
+     * @return Die kumuliert allokierten Bytes, oder 0 wenn die JVM sie nicht misst
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * @return Die Anzahl der laufenden Threads des Moduls
+     */
+    public int getLiveThreads() {
+        return liveThreads;
+    }
+
+    /**
+     * @return Die Anzahl der Threads, die gerade Code des Moduls ausführen
+     */
+    public int getActiveThreads() {
+        return activeThreads;
+    }
+
+    /**
+     * @return Die Anzahl der ausgeliehenen Datenbankverbindungen
+     */
+    public long getDatabaseCalls() {
+        return databaseCalls;
+    }
+
+    /**
+     * @return Die kumulierte Datenbankzeit in Nanosekunden
+     */
+    public long getDatabaseNanos() {
+        return databaseNanos;
+    }
+}
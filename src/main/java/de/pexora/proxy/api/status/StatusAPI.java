@@ -59,4 +59,19 @@ public interface StatusAPI {
      * @return Das ModuleStatus-Objekt oder null, wenn nicht gefunden
      */
     ModuleStatus getModuleStatusForModule(String moduleName);
+    
+    /**
+     * Gibt den Ressourcenverbrauch eines Moduls zurück
+     * 
+     * @param moduleName Der Name des Moduls
+     * @return Eine Momentaufnahme des Ressourcenverbrauchs oder null, wenn nichts erfasst wurde
+     */
+    ModuleResourceStats getModuleResourceStats(String moduleName);
+    
+    /**
+     * Gibt den Ressourcenverbrauch aller Module zurück
+     * 
+     * @return Eine Map mit Modulnamen und ihrem Ressourcenverbrauch
+     */
+    Map<String, ModuleResourceStats> getAllModuleResourceStats();
 }
\ No newline at end of file
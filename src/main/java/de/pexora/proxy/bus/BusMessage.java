@@ -0,0 +1,54 @@
+package de.pexora.proxy.bus;
+
+import de.pexora.proxy.messaging.MessageCodec;
+import de.pexora.proxy.messaging.MessageReader;
+
+/**
+ * Eine über den {@link MessageBus} empfangene Nachricht
+ */
+public class BusMessage {
+
+    private final String topic;
+    private final String sourceProxy;
+    private final long sequence;
+    private final MessageReader payload;
+
+    BusMessage(String topic, String sourceProxy, long sequence, MessageReader payload) {
+        this.topic = topic;
+        this.sourceProxy = sourceProxy;
+        this.sequence = sequence;
+        this.payload = payload;
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    /**
+     * @return Die ID des Proxys, der die Nachricht veröffentlicht hat
+     */
+    public String getSourceProxy() {
+        return sourceProxy;
+    }
+
+    /**
+     * @return Die Sequenznummer der Nachricht beim sendenden Proxy
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return Ein neuer Reader für die typisierten Felder der Nachricht
+     */
+    public MessageReader getPayload() {
+        return payload.copy();
+    }
+
+    /**
+     * @return Das erste Feld der Nachricht, falls es eine Zeichenkette ist, sonst null
+     */
+    public String getData() {
+        return payload.peekType() == MessageCodec.TYPE_STRING ? payload.copy().readString() : null;
+    }
+}
@@ -0,0 +1,61 @@
+package de.pexora.proxy.bus;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Transportschicht des {@link MessageBus} zwischen mehreren Proxys.
+ *
+ * Ein Transport überträgt ganze Pakete an einzelne, über ihre Proxy-ID bekannte Gegenstellen.
+ * Reihenfolge und Zustellung müssen nur pro bestehender Verbindung garantiert sein,
+ * Wiederholungen nach Verbindungsabbrüchen übernimmt der Bus.
+ */
+public interface BusTransport {
+
+    /**
+     * Startet den Transport
+     *
+     * @param localId Die ID dieses Proxys
+     * @param receiver Erhält empfangene Pakete und Verbindungsereignisse
+     * @throws IOException wenn der Transport nicht gestartet werden kann
+     */
+    void start(String localId, Receiver receiver) throws IOException;
+
+    /**
+     * Sendet ein Paket an eine Gegenstelle
+     *
+     * @param peer Die ID der Gegenstelle
+     * @param packet Das Paket
+     * @return Ob das Paket an die Verbindung übergeben wurde
+     */
+    boolean send(String peer, byte[] packet);
+
+    /**
+     * @return Die IDs der aktuell verbundenen Gegenstellen
+     */
+    Set<String> getConnectedPeers();
+
+    /**
+     * Schließt alle Verbindungen
+     */
+    void close();
+
+    /**
+     * Empfänger für Pakete und Verbindungsereignisse
+     */
+    interface Receiver {
+
+        /**
+         * @param peer Die ID der Gegenstelle
+         * @param packet Das empfangene Paket
+         */
+        void onPacket(String peer, byte[] packet);
+
+        /**
+         * Eine Gegenstelle ist (wieder) erreichbar
+         *
+         * @param peer Die ID der Gegenstelle
+         */
+        void onPeerConnected(String peer);
+    }
+}
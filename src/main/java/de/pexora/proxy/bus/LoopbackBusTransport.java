@@ -0,0 +1,89 @@
+package de.pexora.proxy.bus;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Transport innerhalb einer JVM, z.B. um den Bus lokal mit mehreren Instanzen zu testen.
+ * Alle Transporte mit demselben Netzwerknamen sind miteinander verbunden. Pakete werden
+ * pro Empfänger in einem eigenen Thread in Sendereihenfolge zugestellt.
+ */
+public class LoopbackBusTransport implements BusTransport {
+
+    private static final Map<String, Map<String, LoopbackBusTransport>> NETWORKS = new ConcurrentHashMap<>();
+
+    private final String network;
+    private String localId;
+    private Receiver receiver;
+    private ExecutorService delivery;
+
+    /**
+     * @param network Der Name des gemeinsamen Netzwerks
+     */
+    public LoopbackBusTransport(String network) {
+        this.network = network;
+    }
+
+    @Override
+    public void start(String localId, Receiver receiver) {
+        this.localId = localId;
+        this.receiver = receiver;
+        this.delivery = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Pexora-Bus-Loopback-" + localId);
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Map<String, LoopbackBusTransport> members = NETWORKS.computeIfAbsent(network, name -> new ConcurrentHashMap<>());
+        members.put(localId, this);
+        for (LoopbackBusTransport other : members.values()) {
+            if (other != this) {
+                other.deliver(() -> other.receiver.onPeerConnected(localId));
+                deliver(() -> receiver.onPeerConnected(other.localId));
+            }
+        }
+    }
+
+    @Override
+    public boolean send(String peer, byte[] packet) {
+        Map<String, LoopbackBusTransport> members = NETWORKS.get(network);
+        LoopbackBusTransport target = members != null ? members.get(peer) : null;
+        if (target == null) {
+            return false;
+        }
+        return target.deliver(() -> target.receiver.onPacket(localId, packet));
+    }
+
+    private boolean deliver(Runnable task) {
+        try {
+            delivery.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public Set<String> getConnectedPeers() {
+        Map<String, LoopbackBusTransport> members = NETWORKS.get(network);
+        Set<String> peers = members != null ? new HashSet<>(members.keySet()) : new HashSet<>();
+        peers.remove(localId);
+        return peers;
+    }
+
+    @Override
+    public void close() {
+        Map<String, LoopbackBusTransport> members = NETWORKS.get(network);
+        if (members != null) {
+            members.remove(localId, this);
+        }
+        if (delivery != null) {
+            delivery.shutdown();
+        }
+    }
+}
@@ -0,0 +1,460 @@
+package de.pexora.proxy.bus;
+
+import com.velocitypowered.api.scheduler.ScheduledTask;
+import de.pexora.proxy.PexoraProxy;
+import de.pexora.proxy.messaging.MessageCodec;
+import de.pexora.proxy.messaging.MessageWriter;
+import de.pexora.proxy.shutdown.Drainable;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Publish/Subscribe-Bus zwischen mehreren Proxys.
+ *
+ * Nachrichten werden im Format des {@link MessageCodec} kodiert (Thema als Aktion) und
+ * im Takt von {@code batch-interval-ms} gebündelt an alle bekannten Proxys gesendet.
+ * Jede Nachricht erhält eine fortlaufende Sequenznummer und bleibt pro Empfänger gespeichert,
+ * bis dieser sie bestätigt hat. Unbestätigte Nachrichten werden nach {@code retry-ms} und nach
+ * einem Neuaufbau der Verbindung wiederholt (mindestens einmal zugestellt). Empfänger
+ * verwerfen Duplikate anhand der Sequenznummer und stellen Nachrichten eines Proxys in
+ * Reihenfolge zu. Eigene Nachrichten werden nicht an lokale Abonnenten zugestellt.
+ *
+ * Paketformat:
+ * <pre>
+ * DATA: [1 Byte] 1, [Long] Epoche, [Int] Anzahl, je Nachricht [Long] Sequenz, [Int] Länge, Frame
+ * ACK:  [1 Byte] 2, [Long] Epoche, [Long] höchste lückenlos empfangene Sequenz
+ * </pre>
+ * Die Epoche wird bei jedem Start neu gewählt, damit Empfänger einen Neustart erkennen.
+ */
+public class MessageBus implements Drainable {
+
+    private static final byte PACKET_DATA = 1;
+    private static final byte PACKET_ACK = 2;
+    private static final int MAX_PACKET_SIZE = 256 * 1024;
+
+    private final PexoraProxy plugin;
+    private final String proxyId;
+    private final BusTransport transport;
+    private final long batchIntervalMillis;
+    private final long retryNanos;
+    private final int maxUnacked;
+    private final long epoch = ThreadLocalRandom.current().nextLong();
+    private final MessageCodec codec = new MessageCodec();
+
+    private final AtomicLong nextSequence = new AtomicLong();
+    private final List<Outgoing> outgoing = new ArrayList<>();
+    private final Map<String, NavigableMap<Long, Outgoing>> unacked = new ConcurrentHashMap<>();
+    private final Map<String, Inbound> inbound = new ConcurrentHashMap<>();
+    private final Map<String, List<Consumer<BusMessage>>> subscribers = new ConcurrentHashMap<>();
+    private final List<ScheduledTask> tasks = new ArrayList<>();
+    private volatile boolean accepting = true;
+
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong packetsSent = new AtomicLong();
+    private final AtomicLong retransmitted = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * Erstellt einen neuen Bus
+     *
+     * @param plugin Die Plugin-Instanz
+     * @param proxyId Die eindeutige ID dieses Proxys
+     * @param transport Der Transport
+     * @param batchIntervalMillis Das Intervall, in dem gesammelte Nachrichten gesendet werden
+     * @param retryMillis Die Zeit, nach der unbestätigte Nachrichten wiederholt werden
+     * @param maxUnacked Die maximale Anzahl unbestätigter Nachrichten pro Empfänger
+     */
+    public MessageBus(PexoraProxy plugin, String proxyId, BusTransport transport,
+                      long batchIntervalMillis, long retryMillis, int maxUnacked) {
+        this.plugin = plugin;
+        this.proxyId = proxyId;
+        this.transport = transport;
+        this.batchIntervalMillis = Math.max(1L, batchIntervalMillis);
+        this.retryNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1L, retryMillis));
+        this.maxUnacked = Math.max(1, maxUnacked);
+    }
+
+    /**
+     * Startet den Transport sowie das periodische Senden und Wiederholen
+     *
+     * @throws IOException wenn der Transport nicht gestartet werden kann
+     */
+    public void start() throws IOException {
+        transport.start(proxyId, new TransportReceiver());
+        tasks.add(plugin.getServer().getScheduler()
+                .buildTask(plugin, this::flush)
+                .repeat(batchIntervalMillis, TimeUnit.MILLISECONDS)
+                .schedule());
+        tasks.add(plugin.getServer().getScheduler()
+                .buildTask(plugin, this::retransmit)
+                .repeat(TimeUnit.NANOSECONDS.toMillis(retryNanos), TimeUnit.MILLISECONDS)
+                .schedule());
+        plugin.getLoggerService().info("Proxy-Bus gestartet als " + proxyId);
+    }
+
+    /**
+     * Abonniert ein Thema. Der Handler läuft im Empfangs-Thread des Transports.
+     *
+     * @param topic Das Thema
+     * @param handler Der Handler
+     * @return Beendet das Abonnement
+     */
+    public Runnable subscribe(String topic, Consumer<BusMessage> handler) {
+        List<Consumer<BusMessage>> handlers = subscribers.computeIfAbsent(topic, key -> new CopyOnWriteArrayList<>());
+        handlers.add(handler);
+        return () -> handlers.remove(handler);
+    }
+
+    /**
+     * Veröffentlicht eine Nachricht an alle anderen Proxys
+     *
+     * @param topic Das Thema
+     * @param payload Schreibt die Felder der Nachricht
+     * @return Ob die Nachricht zum Senden angenommen wurde
+     */
+    public boolean publish(String topic, Consumer<MessageWriter> payload) {
+        if (!accepting) {
+            return false;
+        }
+        byte[] frame;
+        try {
+            frame = codec.encode(topic, 0, payload);
+        } catch (IllegalArgumentException e) {
+            plugin.getLoggerService().warning("Bus-Nachricht " + topic + " konnte nicht kodiert werden: " + e.getMessage());
+            return false;
+        }
+
+        synchronized (outgoing) {
+            // Die Sequenz wird unter der Sperre vergeben, damit die Reihenfolge im Paket stimmt
+            outgoing.add(new Outgoing(nextSequence.incrementAndGet(), frame));
+        }
+        published.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Sendet alle gesammelten Nachrichten an die bekannten Proxys
+     */
+    public void flush() {
+        List<Outgoing> batch;
+        synchronized (outgoing) {
+            if (outgoing.isEmpty()) {
+                return;
+            }
+            batch = new ArrayList<>(outgoing);
+            outgoing.clear();
+        }
+
+        for (String peer : transport.getConnectedPeers()) {
+            unacked.computeIfAbsent(peer, key -> new ConcurrentSkipListMap<>());
+        }
+        long now = System.nanoTime();
+        for (Outgoing message : batch) {
+            message.sentAt = now;
+        }
+        for (Map.Entry<String, NavigableMap<Long, Outgoing>> peer : unacked.entrySet()) {
+            NavigableMap<Long, Outgoing> pending = peer.getValue();
+            for (Outgoing message : batch) {
+                pending.put(message.sequence, message);
+            }
+            while (pending.size() > maxUnacked) {
+                pending.pollFirstEntry();
+                dropped.incrementAndGet();
+            }
+            sendData(peer.getKey(), batch);
+        }
+    }
+
+    /**
+     * Wiederholt unbestätigte Nachrichten, deren Wartezeit abgelaufen ist
+     */
+    private void retransmit() {
+        for (String peer : transport.getConnectedPeers()) {
+            retransmit(peer, false);
+        }
+    }
+
+    /**
+     * Wiederholt unbestätigte Nachrichten an einen Proxy
+     *
+     * @param peer Die ID des Proxys
+     * @param all true, um alle zu wiederholen, sonst nur die, deren Wartezeit abgelaufen ist
+     */
+    private void retransmit(String peer, boolean all) {
+        NavigableMap<Long, Outgoing> pending = unacked.get(peer);
+        if (pending == null || pending.isEmpty()) {
+            return;
+        }
+        long now = System.nanoTime();
+        List<Outgoing> due = new ArrayList<>();
+        for (Outgoing message : pending.values()) {
+            if (all || now - message.sentAt >= retryNanos) {
+                message.sentAt = now;
+                due.add(message);
+            }
+        }
+        if (!due.isEmpty()) {
+            retransmitted.addAndGet(due.size());
+            sendData(peer, due);
+        }
+    }
+
+    private void sendData(String peer, List<Outgoing> messages) {
+        int start = 0;
+        while (start < messages.size()) {
+            int size = 1 + 8 + 4;
+            int end = start;
+            while (end < messages.size() && (end == start || size + 12 + messages.get(end).frame.length <= MAX_PACKET_SIZE)) {
+                size += 12 + messages.get(end).frame.length;
+                end++;
+            }
+
+            ByteBuffer packet = ByteBuffer.allocate(size);
+            packet.put(PACKET_DATA).putLong(epoch).putInt(end - start);
+            for (int i = start; i < end; i++) {
+                Outgoing message = messages.get(i);
+                packet.putLong(message.sequence).putInt(message.frame.length).put(message.frame);
+            }
+            if (transport.send(peer, packet.array())) {
+                packetsSent.incrementAndGet();
+            }
+            start = end;
+        }
+    }
+
+    private void handlePacket(String peer, byte[] data) {
+        try {
+            ByteBuffer packet = ByteBuffer.wrap(data);
+            byte type = packet.get();
+            long packetEpoch = packet.getLong();
+            if (type == PACKET_ACK) {
+                long sequence = packet.getLong();
+                NavigableMap<Long, Outgoing> pending = unacked.get(peer);
+                if (packetEpoch == epoch && pending != null) {
+                    pending.headMap(sequence, true).clear();
+                }
+            } else if (type == PACKET_DATA) {
+                handleData(peer, packetEpoch, packet, data);
+            } else {
+                plugin.getLoggerService().warning("Proxy-Bus: unbekannter Pakettyp " + type + " von " + peer);
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            plugin.getLoggerService().warning("Proxy-Bus: ungültiges Paket von " + peer + ": " + e.getMessage());
+        }
+    }
+
+    private void handleData(String peer, long packetEpoch, ByteBuffer packet, byte[] data) {
+        Inbound state = inbound.computeIfAbsent(peer, key -> new Inbound());
+        long acknowledged;
+        synchronized (state) {
+            if (state.epoch != packetEpoch) {
+                // Neuer Start der Gegenstelle, die Zählung beginnt mit der ersten empfangenen Nachricht
+                state.epoch = packetEpoch;
+                state.expected = -1L;
+                state.buffered.clear();
+            }
+
+            int count = packet.getInt();
+            for (int i = 0; i < count; i++) {
+                long sequence = packet.getLong();
+                int length = packet.getInt();
+                int offset = packet.position();
+                packet.position(offset + length);
+
+                if (state.expected < 0) {
+                    state.expected = sequence;
+                }
+                if (sequence < state.expected || state.buffered.containsKey(sequence)) {
+                    duplicates.incrementAndGet();
+                } else if (sequence == state.expected) {
+                    dispatch(peer, sequence, data, offset, length);
+                    state.expected++;
+                } else {
+                    // Lücke: zwischenspeichern, bis die fehlenden Nachrichten wiederholt wurden
+                    state.buffered.put(sequence, Arrays.copyOfRange(data, offset, offset + length));
+                    if (state.buffered.size() > maxUnacked) {
+                        // Der Sender hat die fehlenden Nachrichten bereits verworfen, Lücke überspringen
+                        state.expected = state.buffered.firstKey();
+                    }
+                }
+
+                Map.Entry<Long, byte[]> next;
+                while ((next = state.buffered.firstEntry()) != null && next.getKey() == state.expected) {
+                    state.buffered.pollFirstEntry();
+                    dispatch(peer, next.getKey(), next.getValue(), 0, next.getValue().length);
+                    state.expected++;
+                }
+            }
+            acknowledged = state.expected - 1;
+        }
+
+        ByteBuffer ack = ByteBuffer.allocate(1 + 8 + 8);
+        ack.put(PACKET_ACK).putLong(packetEpoch).putLong(acknowledged);
+        transport.send(peer, ack.array());
+    }
+
+    private void dispatch(String peer, long sequence, byte[] data, int offset, int length) {
+        MessageCodec.Frame frame = codec.decode(data, offset, length);
+        List<Consumer<BusMessage>> handlers = subscribers.get(frame.getAction());
+        if (handlers == null || handlers.isEmpty()) {
+            return;
+        }
+        delivered.incrementAndGet();
+        BusMessage message = new BusMessage(frame.getAction(), peer, sequence, frame.getPayload());
+        for (Consumer<BusMessage> handler : handlers) {
+            try {
+                handler.accept(message);
+            } catch (Exception e) {
+                plugin.getLoggerService().severe("Fehler beim Verarbeiten der Bus-Nachricht " + frame.getAction() + ": " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+    }
+
+    @Override
+    public void stopIntake() {
+        accepting = false;
+    }
+
+    @Override
+    public boolean drain(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        flush();
+        while (getUnackedCount() > 0) {
+            if (System.nanoTime() >= deadline) {
+                return false;
+            }
+            Thread.sleep(10L);
+        }
+        return true;
+    }
+
+    @Override
+    public int getPendingCount() {
+        synchronized (outgoing) {
+            return outgoing.size() + getUnackedCount();
+        }
+    }
+
+    /**
+     * @return Die Anzahl unbestätigter Nachrichten an erreichbare Proxys
+     */
+    public int getUnackedCount() {
+        int count = 0;
+        for (String peer : transport.getConnectedPeers()) {
+            NavigableMap<Long, Outgoing> pending = unacked.get(peer);
+            if (pending != null) {
+                count += pending.size();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Stoppt das periodische Senden und schließt den Transport
+     */
+    public void close() {
+        accepting = false;
+        for (ScheduledTask task : tasks) {
+            task.cancel();
+        }
+        transport.close();
+    }
+
+    public String getProxyId() {
+        return proxyId;
+    }
+
+    /**
+     * @return Die IDs der verbundenen Proxys
+     */
+    public Set<String> getConnectedPeers() {
+        return transport.getConnectedPeers();
+    }
+
+    public long getPublished() {
+        return published.get();
+    }
+
+    public long getPacketsSent() {
+        return packetsSent.get();
+    }
+
+    public long getRetransmitted() {
+        return retransmitted.get();
+    }
+
+    public long getDelivered() {
+        return delivered.get();
+    }
+
+    public long getDuplicates() {
+        return duplicates.get();
+    }
+
+    /**
+     * @return Die Anzahl unbestätigter Nachrichten, die wegen {@code max-unacked} verworfen wurden
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Empfängt Pakete und Verbindungsereignisse vom Transport
+     */
+    private class TransportReceiver implements BusTransport.Receiver {
+
+        @Override
+        public void onPacket(String peer, byte[] packet) {
+            handlePacket(peer, packet);
+        }
+
+        @Override
+        public void onPeerConnected(String peer) {
+            unacked.computeIfAbsent(peer, key -> new ConcurrentSkipListMap<>());
+            // Nach einem Verbindungsabbruch alles Unbestätigte sofort wiederholen
+            plugin.getServer().getScheduler().buildTask(plugin, () -> retransmit(peer, true)).schedule();
+        }
+    }
+
+    /**
+     * Eine veröffentlichte Nachricht
+     */
+    private static class Outgoing {
+        private final long sequence;
+        private final byte[] frame;
+        private volatile long sentAt;
+
+        private Outgoing(long sequence, byte[] frame) {
+            this.sequence = sequence;
+            this.frame = frame;
+        }
+    }
+
+    /**
+     * Empfangszustand für einen anderen Proxy
+     */
+    private static class Inbound {
+        private long epoch;
+        private long expected = -1L;
+        private final TreeMap<Long, byte[]> buffered = new TreeMap<>();
+    }
+}
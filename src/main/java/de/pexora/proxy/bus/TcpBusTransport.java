@@ -0,0 +1,393 @@
+package de.pexora.proxy.bus;
+
+import de.pexora.proxy.logger.LoggerService;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Einfacher TCP-Transport für den {@link MessageBus}.
+ *
+ * Jeder Proxy lauscht auf einer Adresse und wählt die konfigurierten Gegenstellen an. Nach dem
+ * Verbindungsaufbau tauschen beide Seiten ihre Proxy-ID und eine Zufallszahl aus. Pro Paar bleibt
+ * nur die Verbindung bestehen, die der Proxy mit der kleineren ID aufgebaut hat; der andere
+ * wählt diese Gegenstelle danach nicht mehr an. Abgebrochene Verbindungen werden regelmäßig neu
+ * aufgebaut. Beide Seiten weisen mit einem HMAC über Rolle, beide Zufallszahlen und beide IDs
+ * nach, dass sie das gemeinsame Geheimnis kennen; das Geheimnis selbst wird nie übertragen.
+ * Danach werden Pakete mit vorangestellter Länge in beide Richtungen übertragen.
+ *
+ * Eingehende Verbindungen werden nur von den Hosts der konfigurierten Gegenstellen angenommen,
+ * ihre Anzahl ist begrenzt und der Verbindungsaufbau hat eine Frist. Zum lokalen Testen
+ * genügen zwei Proxys mit unterschiedlichen Ports auf 127.0.0.1.
+ */
+public class TcpBusTransport implements BusTransport {
+
+    private static final int MAX_PACKET_SIZE = 16 * 1024 * 1024;
+    private static final long RECONNECT_DELAY_MS = 2000L;
+    private static final int CONNECT_TIMEOUT_MS = 3000;
+    private static final int HANDSHAKE_TIMEOUT_MS = 5000;
+    private static final int NONCE_LENGTH = 16;
+    private static final int MAX_HANDSHAKE_PACKET = 256;
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final byte ROLE_INITIATOR = 1;
+    private static final byte ROLE_RESPONDER = 2;
+
+    private final LoggerService logger;
+    private final InetSocketAddress bindAddress;
+    private final List<InetSocketAddress> peerAddresses;
+    private final byte[] secret;
+    private final Semaphore inboundSlots;
+    private final SecureRandom random = new SecureRandom();
+    private final Map<String, Connection> connections = new ConcurrentHashMap<>();
+    private final List<Thread> threads = new ArrayList<>();
+    private final Set<Socket> sockets = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean closed;
+    private String localId;
+    private Receiver receiver;
+    private ServerSocket serverSocket;
+
+    /**
+     * @param logger Der Logger
+     * @param bindAddress Die Adresse, auf der Verbindungen angenommen werden
+     * @param peerAddresses Die Adressen der anderen Proxys
+     * @param secret Das gemeinsame Geheimnis aller Proxys
+     * @throws IllegalArgumentException wenn das Geheimnis leer ist
+     */
+    public TcpBusTransport(LoggerService logger, InetSocketAddress bindAddress, List<InetSocketAddress> peerAddresses, String secret) {
+        if (secret == null || secret.isEmpty()) {
+            throw new IllegalArgumentException("Der TCP-Transport benötigt ein gemeinsames Geheimnis");
+        }
+        this.logger = logger;
+        this.bindAddress = bindAddress;
+        this.peerAddresses = peerAddresses;
+        this.secret = secret.getBytes(StandardCharsets.UTF_8);
+        // Jede Gegenstelle verbindet sich höchstens einmal zu uns, dazu Reserve für Neuverbindungen
+        this.inboundSlots = new Semaphore(Math.max(4, peerAddresses.size() * 2));
+    }
+
+    /**
+     * Wandelt eine Adresse im Format {@code host:port} um
+     *
+     * @param address Die Adresse
+     * @return Die Socket-Adresse (nicht aufgelöst)
+     * @throws IllegalArgumentException wenn das Format ungültig ist
+     */
+    public static InetSocketAddress parseAddress(String address) {
+        int separator = address.lastIndexOf(':');
+        if (separator <= 0 || separator == address.length() - 1) {
+            throw new IllegalArgumentException("Ungültige Adresse, erwartet host:port: " + address);
+        }
+        int port;
+        try {
+            port = Integer.parseInt(address.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Ungültiger Port in Adresse " + address);
+        }
+        if (port < 0 || port > 65535) {
+            throw new IllegalArgumentException("Port muss zwischen 0 und 65535 liegen: " + address);
+        }
+        return InetSocketAddress.createUnresolved(address.substring(0, separator), port);
+    }
+
+    @Override
+    public void start(String localId, Receiver receiver) throws IOException {
+        this.localId = localId;
+        this.receiver = receiver;
+        this.serverSocket = new ServerSocket();
+        this.serverSocket.bind(new InetSocketAddress(bindAddress.getHostString(), bindAddress.getPort()));
+        logger.info("Proxy-Bus lauscht auf " + bindAddress.getHostString() + ":" + bindAddress.getPort());
+
+        startThread("Pexora-Bus-Accept", this::acceptLoop);
+        for (int i = 0; i < peerAddresses.size(); i++) {
+            InetSocketAddress address = peerAddresses.get(i);
+            startThread("Pexora-Bus-Connect-" + (i + 1), () -> connectLoop(address));
+        }
+    }
+
+    private void startThread(String name, Runnable task) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        threads.add(thread);
+        thread.start();
+    }
+
+    private void acceptLoop() {
+        while (!closed) {
+            try {
+                Socket socket = serverSocket.accept();
+                if (!isPeerHost(socket.getInetAddress())) {
+                    logger.warning("Proxy-Bus: Verbindung von " + socket.getInetAddress().getHostAddress()
+                            + " abgelehnt (keine konfigurierte Gegenstelle)");
+                    closeQuietly(socket);
+                    continue;
+                }
+                if (!inboundSlots.tryAcquire()) {
+                    logger.warning("Proxy-Bus: Verbindung von " + socket.getInetAddress().getHostAddress()
+                            + " abgelehnt (zu viele eingehende Verbindungen)");
+                    closeQuietly(socket);
+                    continue;
+                }
+                Thread thread = new Thread(() -> {
+                    try {
+                        runConnection(socket, null);
+                    } finally {
+                        inboundSlots.release();
+                    }
+                }, "Pexora-Bus-Inbound");
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException e) {
+                if (!closed) {
+                    logger.warning("Proxy-Bus: Fehler beim Annehmen einer Verbindung: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void connectLoop(InetSocketAddress address) {
+        while (!closed) {
+            try {
+                Socket socket = new Socket();
+                socket.connect(new InetSocketAddress(address.getHostString(), address.getPort()), CONNECT_TIMEOUT_MS);
+                if (!runConnection(socket, address)) {
+                    return;
+                }
+            } catch (IOException e) {
+                logger.debug("Proxy-Bus: " + address.getHostString() + ":" + address.getPort() + " nicht erreichbar: " + e.getMessage());
+            }
+
+            try {
+                Thread.sleep(RECONNECT_DELAY_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Prüft, ob eine Adresse zu einer der konfigurierten Gegenstellen gehört
+     */
+    private boolean isPeerHost(InetAddress remote) {
+        for (InetSocketAddress peer : peerAddresses) {
+            try {
+                for (InetAddress address : InetAddress.getAllByName(peer.getHostString())) {
+                    if (address.equals(remote)) {
+                        return true;
+                    }
+                }
+            } catch (UnknownHostException e) {
+                logger.debug("Proxy-Bus: " + peer.getHostString() + " kann nicht aufgelöst werden: " + e.getMessage());
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Tauscht die Proxy-IDs aus, prüft das gemeinsame Geheimnis und liest Pakete, bis die Verbindung abbricht
+     *
+     * @param address Die gewählte Adresse oder null bei einer eingehenden Verbindung
+     * @return false, wenn die Verbindung zu dieser Gegenstelle von der anderen Seite aufgebaut wird
+     */
+    private boolean runConnection(Socket socket, InetSocketAddress address) {
+        boolean initiator = address != null;
+        sockets.add(socket);
+        Connection connection = null;
+        try {
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout(HANDSHAKE_TIMEOUT_MS);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+            byte[] localNonce = new byte[NONCE_LENGTH];
+            random.nextBytes(localNonce);
+            writePacket(out, localId.getBytes(StandardCharsets.UTF_8));
+            writePacket(out, localNonce);
+            String peer = new String(readPacket(in, MAX_HANDSHAKE_PACKET), StandardCharsets.UTF_8);
+            byte[] peerNonce = readPacket(in, MAX_HANDSHAKE_PACKET);
+            if (peer.equals(localId)) {
+                logger.warning("Proxy-Bus: Verbindung zu sich selbst verworfen (" + peer + ")");
+                return true;
+            }
+            // Pro Paar genügt eine Verbindung: Sie wird immer vom Proxy mit der kleineren ID aufgebaut
+            if (initiator != (localId.compareTo(peer) < 0)) {
+                if (initiator) {
+                    logger.debug("Proxy-Bus: Verbindung zu " + peer + " wird von dort aufgebaut");
+                }
+                return !initiator;
+            }
+
+            // Der Nachweis enthält die Rolle und beide Seiten, damit er nicht an eine andere Verbindung weitergereicht werden kann
+            String initiatorId = initiator ? localId : peer;
+            String responderId = initiator ? peer : localId;
+            byte[] initiatorNonce = initiator ? localNonce : peerNonce;
+            byte[] responderNonce = initiator ? peerNonce : localNonce;
+            byte[] initiatorProof = sign(ROLE_INITIATOR, initiatorNonce, responderNonce, initiatorId, responderId);
+            byte[] responderProof = sign(ROLE_RESPONDER, initiatorNonce, responderNonce, initiatorId, responderId);
+            if (initiator) {
+                writePacket(out, initiatorProof);
+                if (!MessageDigest.isEqual(readPacket(in, MAX_HANDSHAKE_PACKET), responderProof)) {
+                    logger.warning("Proxy-Bus: Gegenstelle " + address.getHostString() + ":" + address.getPort()
+                            + " als " + peer + " abgelehnt (falsches Geheimnis)");
+                    return true;
+                }
+            } else {
+                // Erst nach gültigem Nachweis der Gegenseite antworten
+                if (!MessageDigest.isEqual(readPacket(in, MAX_HANDSHAKE_PACKET), initiatorProof)) {
+                    logger.warning("Proxy-Bus: Verbindung von " + socket.getInetAddress().getHostAddress()
+                            + " als " + peer + " abgelehnt (falsches Geheimnis)");
+                    return true;
+                }
+                writePacket(out, responderProof);
+            }
+            socket.setSoTimeout(0);
+
+            connection = new Connection(peer, socket, out);
+            Connection previous = connections.put(peer, connection);
+            if (previous != null) {
+                // Die alte Verbindung ist abgelöst, ihr Lesethread endet mit dem Schließen
+                closeQuietly(previous.socket);
+            }
+            logger.info("Proxy-Bus: verbunden mit " + peer + (initiator ? " (" + address.getHostString() + ":" + address.getPort() + ")" : ""));
+            receiver.onPeerConnected(peer);
+
+            while (!closed) {
+                receiver.onPacket(peer, readPacket(in, MAX_PACKET_SIZE));
+            }
+        } catch (IOException e) {
+            if (!closed && connection != null) {
+                logger.warning("Proxy-Bus: Verbindung zu " + connection.peer + " getrennt: " + e.getMessage());
+            }
+        } finally {
+            if (connection != null) {
+                connections.remove(connection.peer, connection);
+            }
+            closeQuietly(socket);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean send(String peer, byte[] packet) {
+        Connection connection = connections.get(peer);
+        if (connection == null) {
+            return false;
+        }
+        try {
+            synchronized (connection.out) {
+                writePacket(connection.out, packet);
+            }
+            return true;
+        } catch (IOException e) {
+            connections.remove(peer, connection);
+            closeQuietly(connection.socket);
+            return false;
+        }
+    }
+
+    private static void writePacket(DataOutputStream out, byte[] packet) throws IOException {
+        out.writeInt(packet.length);
+        out.write(packet);
+        out.flush();
+    }
+
+    private byte[] sign(byte role, byte[] initiatorNonce, byte[] responderNonce, String initiatorId, String responderId) throws IOException {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(new SecretKeySpec(secret, HMAC_ALGORITHM));
+            mac.update(role);
+            mac.update(initiatorNonce);
+            mac.update(responderNonce);
+            // IDs mit Länge, damit "a"+"bc" und "ab"+"c" verschiedene Nachweise ergeben
+            for (String id : new String[]{initiatorId, responderId}) {
+                byte[] bytes = id.getBytes(StandardCharsets.UTF_8);
+                mac.update((byte) (bytes.length >>> 8));
+                mac.update((byte) bytes.length);
+                mac.update(bytes);
+            }
+            return mac.doFinal();
+        } catch (GeneralSecurityException e) {
+            throw new IOException("HMAC nicht verfügbar: " + e.getMessage(), e);
+        }
+    }
+
+    private static byte[] readPacket(DataInputStream in, int maxSize) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > maxSize) {
+            throw new IOException("Ungültige Paketlänge: " + length);
+        }
+        byte[] packet = new byte[length];
+        in.readFully(packet);
+        return packet;
+    }
+
+    @Override
+    public Set<String> getConnectedPeers() {
+        return new HashSet<>(connections.keySet());
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        if (serverSocket != null) {
+            try {
+                serverSocket.close();
+            } catch (IOException e) {
+                // Wird ohnehin geschlossen
+            }
+        }
+        for (Socket socket : sockets) {
+            closeQuietly(socket);
+        }
+        for (Thread thread : threads) {
+            thread.interrupt();
+        }
+        connections.clear();
+    }
+
+    private void closeQuietly(Socket socket) {
+        sockets.remove(socket);
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Verbindung ist bereits getrennt
+        }
+    }
+
+    /**
+     * Eine Verbindung zu einer Gegenstelle
+     */
+    private static class Connection {
+        private final String peer;
+        private final Socket socket;
+        private final DataOutputStream out;
+
+        private Connection(String peer, Socket socket, DataOutputStream out) {
+            this.peer = peer;
+            this.socket = socket;
+            this.out = out;
+        }
+    }
+}
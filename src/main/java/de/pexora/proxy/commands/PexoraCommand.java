@@ -4,6 +4,20 @@ import com.velocitypowered.api.command.SimpleCommand;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.format.NamedTextColor;
 import de.pexora.proxy.PexoraProxy;
+import de.pexora.proxy.api.messaging.FanOutScheduler;
+import de.pexora.proxy.api.messaging.PermissionIndex;
+import de.pexora.proxy.api.status.ModuleResourceStats;
+import de.pexora.proxy.bus.MessageBus;
+import de.pexora.proxy.messaging.ComponentJsonCache;
+import de.pexora.proxy.messaging.MessageCompressor;
+import de.pexora.proxy.messaging.MessageRateLimiter;
+import de.pexora.proxy.messaging.OutboundBatcher;
+import de.pexora.proxy.messaging.RequestTracker;
+import de.pexora.proxy.messaging.ServerOutbox;
+import de.pexora.proxy.module.ModuleLoader;
+import de.pexora.proxy.status.LatencyHistogram;
+
+import java.util.Map;
 
 /**
  * Haupt-Befehl für das PexoraProxy-Plugin.
@@ -46,6 +60,26 @@ public class PexoraCommand implements SimpleCommand {
                     invocation.source().sendMessage(Component.text("Du hast keine Berechtigung für diesen Befehl!").color(NamedTextColor.RED));
                 }
                 break;
+            case "modules":
+                if (invocation.source().hasPermission("pexora.command.modules")) {
+                    if (args.length > 1 && args[1].equalsIgnoreCase("stats")) {
+                        showModuleStats(invocation);
+                    } else if (args.length > 1 && args[1].equalsIgnoreCase("swap")) {
+                        swapModule(invocation, args);
+                    } else {
+                        showModules(invocation);
+                    }
+                } else {
+                    invocation.source().sendMessage(Component.text("Du hast keine Berechtigung für diesen Befehl!").color(NamedTextColor.RED));
+                }
+                break;
+            case "messaging":
+                if (invocation.source().hasPermission("pexora.command.messaging")) {
+                    showMessagingStats(invocation);
+                } else {
+                    invocation.source().sendMessage(Component.text("Du hast keine Berechtigung für diesen Befehl!").color(NamedTextColor.RED));
+                }
+                break;
             case "help":
             default:
                 showHelp(invocation);
@@ -60,6 +94,9 @@ public class PexoraCommand implements SimpleCommand {
         invocation.source().sendMessage(Component.text("=== PexoraProxy Hilfe ===").color(NamedTextColor.GOLD));
         invocation.source().sendMessage(Component.text("/pexoraproxy reload - Lädt das Plugin neu").color(NamedTextColor.YELLOW));
         invocation.source().sendMessage(Component.text("/pexoraproxy info - Zeigt Informationen zum Plugin").color(NamedTextColor.YELLOW));
+        invocation.source().sendMessage(Component.text("/pexoraproxy modules [stats] - Zeigt die Module und ihren Ressourcenverbrauch an").color(NamedTextColor.YELLOW));
+        invocation.source().sendMessage(Component.text("/pexoraproxy modules swap <Modul> <Datei> - Tauscht ein Modul ohne Ausfallzeit aus").color(NamedTextColor.YELLOW));
+        invocation.source().sendMessage(Component.text("/pexoraproxy messaging - Zeigt die Messaging-Statistik an").color(NamedTextColor.YELLOW));
         invocation.source().sendMessage(Component.text("/pexoraproxy help - Zeigt diese Hilfe an").color(NamedTextColor.YELLOW));
         invocation.source().sendMessage(Component.text("Alias: /pexcore").color(NamedTextColor.GRAY));
     }
@@ -83,4 +120,179 @@ public class PexoraCommand implements SimpleCommand {
         int moduleCount = plugin.getModuleLoader().getModules().size();
         invocation.source().sendMessage(Component.text("Geladene Module: " + moduleCount).color(NamedTextColor.YELLOW));
     }
+
+    /**
+     * Zeigt die geladenen Module an
+     */
+    private void showModules(Invocation invocation) {
+        Map<String, ModuleLoader.ProxyModule> modules = plugin.getModuleLoader().getModules();
+        invocation.source().sendMessage(Component.text("=== PexoraProxy Module (" + modules.size() + ") ===").color(NamedTextColor.GOLD));
+        
+        for (ModuleLoader.ProxyModule module : modules.values()) {
+            invocation.source().sendMessage(Component.text(module.getName() + " v" + module.getVersion() + " (" + module.getFileName() + ")").color(NamedTextColor.YELLOW));
+        }
+    }
+
+    /**
+     * Tauscht ein Modul gegen eine neue Version aus dem Modules-Ordner aus
+     */
+    private void swapModule(Invocation invocation, String[] args) {
+        if (args.length < 4) {
+            invocation.source().sendMessage(Component.text("Verwendung: /pexoraproxy modules swap <Modul> <Datei>").color(NamedTextColor.RED));
+            return;
+        }
+        
+        ModuleLoader moduleLoader = plugin.getModuleLoader();
+        if (moduleLoader.swapModule(args[2], moduleLoader.getModulesDirectory().resolve(args[3]))) {
+            invocation.source().sendMessage(Component.text("Modul " + args[2] + " wurde ausgetauscht!").color(NamedTextColor.GREEN));
+        } else {
+            invocation.source().sendMessage(Component.text("Modul " + args[2] + " konnte nicht ausgetauscht werden, siehe Konsole.").color(NamedTextColor.RED));
+        }
+    }
+
+    /**
+     * Zeigt den Ressourcenverbrauch aller Module an
+     */
+    private void showModuleStats(Invocation invocation) {
+        Map<String, ModuleResourceStats> stats = plugin.getStatusAPI().getAllModuleResourceStats();
+        invocation.source().sendMessage(Component.text("=== PexoraProxy Modul-Ressourcen ===").color(NamedTextColor.GOLD));
+        
+        if (stats.isEmpty()) {
+            invocation.source().sendMessage(Component.text("Noch keine Messwerte vorhanden.").color(NamedTextColor.GRAY));
+            return;
+        }
+        
+        for (ModuleResourceStats stat : stats.values()) {
+            invocation.source().sendMessage(Component.text(stat.getModuleName()).color(NamedTextColor.AQUA));
+            invocation.source().sendMessage(Component.text(String.format(
+                    "  Handler: %d Events, %d Tasks, gesamt %.1f ms, p50 %.2f ms, p95 %.2f ms, p99 %.2f ms, max %.2f ms",
+                    stat.getEventInvocations(), stat.getTaskExecutions(), millis(stat.getTotalHandlerNanos()),
+                    millis(stat.getHandlerP50Nanos()), millis(stat.getHandlerP95Nanos()),
+                    millis(stat.getHandlerP99Nanos()), millis(stat.getHandlerMaxNanos()))).color(NamedTextColor.YELLOW));
+            invocation.source().sendMessage(Component.text(String.format(
+                    "  CPU: %.1f ms, Allokiert: %.1f MB, Threads: %d (aktiv %d)",
+                    millis(stat.getCpuNanos()), stat.getAllocatedBytes() / (1024.0 * 1024.0),
+                    stat.getLiveThreads(), stat.getActiveThreads())).color(NamedTextColor.YELLOW));
+            invocation.source().sendMessage(Component.text(String.format(
+                    "  Datenbank: %d Verbindungen, %.1f ms",
+                    stat.getDatabaseCalls(), millis(stat.getDatabaseNanos()))).color(NamedTextColor.YELLOW));
+        }
+    }
+
+    /**
+     * Zeigt die Statistik des Messaging-Kanals an
+     */
+    private void showMessagingStats(Invocation invocation) {
+        invocation.source().sendMessage(Component.text("=== PexoraProxy Messaging ===").color(NamedTextColor.GOLD));
+        
+        MessageRateLimiter rateLimiter = plugin.getMessagingManager().getRateLimiter();
+        if (rateLimiter != null) {
+            invocation.source().sendMessage(Component.text(String.format(
+                    "Rate-Limit: %d gesendet, %d eingereiht (%d wartend), %d zusammengefasst, %d verworfen, %d Spieler",
+                    rateLimiter.getAllowed(), rateLimiter.getQueued(), rateLimiter.getQueuedCount(),
+                    rateLimiter.getCoalesced(), rateLimiter.getDropped(), rateLimiter.getTrackedPlayers())).color(NamedTextColor.YELLOW));
+        } else {
+            invocation.source().sendMessage(Component.text("Rate-Limit: deaktiviert").color(NamedTextColor.GRAY));
+        }
+        
+        RequestTracker requests = plugin.getMessagingManager().getRequestTracker();
+        invocation.source().sendMessage(Component.text(String.format(
+                "Anfragen: %d gesendet, %d beantwortet, %d fehlgeschlagen, %d Zeitüberschreitungen, %d abgelehnt, %d offen",
+                requests.getSent(), requests.getCompleted(), requests.getFailed(), requests.getTimedOut(),
+                requests.getRejected(), requests.getPendingCount())).color(NamedTextColor.YELLOW));
+        for (Map.Entry<String, LatencyHistogram> entry : requests.getLatencies().entrySet()) {
+            LatencyHistogram histogram = entry.getValue();
+            invocation.source().sendMessage(Component.text(String.format(
+                    "  %s: %d Antworten, p50 %.2f ms, p95 %.2f ms, p99 %.2f ms, max %.2f ms",
+                    entry.getKey(), histogram.getCount(), millis(histogram.getPercentile(0.50)),
+                    millis(histogram.getPercentile(0.95)), millis(histogram.getPercentile(0.99)),
+                    millis(histogram.getMax()))).color(NamedTextColor.YELLOW));
+        }
+        
+        ServerOutbox outbox = plugin.getMessagingManager().getOutbox();
+        if (outbox != null) {
+            invocation.source().sendMessage(Component.text(String.format(
+                    "Zwischenspeicher: %d wartend, %d eingereiht, %d zugestellt, %d abgelaufen, %d übergelaufen",
+                    outbox.getQueuedCount(), outbox.getEnqueued(), outbox.getDelivered(),
+                    outbox.getExpired(), outbox.getOverflowed())).color(NamedTextColor.YELLOW));
+            for (Map.Entry<String, Integer> depth : outbox.getQueueDepths().entrySet()) {
+                invocation.source().sendMessage(Component.text("  " + depth.getKey() + ": " + depth.getValue() + " Nachrichten")
+                        .color(NamedTextColor.YELLOW));
+            }
+        }
+        
+        MessageCompressor compressor = plugin.getMessagingManager().getCodec().getCompressor();
+        if (compressor.getThreshold() > 0 || compressor.getDecompressed() > 0) {
+            long attempts = compressor.getCompressed() + compressor.getSkipped();
+            invocation.source().sendMessage(Component.text(String.format(
+                    "Kompression: %d Nachrichten, %d -> %d Bytes (%.1f%%), %d nicht kleiner, %.1f µs pro Versuch, %d entpackt (%.1f µs)",
+                    compressor.getCompressed(), compressor.getBytesIn(), compressor.getBytesOut(),
+                    compressor.getBytesIn() > 0 ? 100.0 * compressor.getBytesOut() / compressor.getBytesIn() : 100.0,
+                    compressor.getSkipped(), attempts > 0 ? compressor.getCompressNanos() / 1000.0 / attempts : 0.0,
+                    compressor.getDecompressed(),
+                    compressor.getDecompressed() > 0 ? compressor.getDecompressNanos() / 1000.0 / compressor.getDecompressed() : 0.0))
+                    .color(NamedTextColor.YELLOW));
+        } else {
+            invocation.source().sendMessage(Component.text("Kompression: deaktiviert").color(NamedTextColor.GRAY));
+        }
+        
+        MessageBus bus = plugin.getMessageBus();
+        if (bus != null) {
+            invocation.source().sendMessage(Component.text(String.format(
+                    "Proxy-Bus (%s): %d veröffentlicht, %d Pakete, %d wiederholt, %d empfangen, %d doppelt, %d unbestätigt, %d verworfen, verbunden mit %s",
+                    bus.getProxyId(), bus.getPublished(), bus.getPacketsSent(), bus.getRetransmitted(), bus.getDelivered(),
+                    bus.getDuplicates(), bus.getUnackedCount(), bus.getDropped(), bus.getConnectedPeers())).color(NamedTextColor.YELLOW));
+        } else {
+            invocation.source().sendMessage(Component.text("Proxy-Bus: deaktiviert").color(NamedTextColor.GRAY));
+        }
+        
+        FanOutScheduler fanOut = plugin.getFanOutScheduler();
+        if (fanOut != null) {
+            LatencyHistogram completion = fanOut.getCompletion();
+            LatencyHistogram lag = fanOut.getLag();
+            invocation.source().sendMessage(Component.text(String.format(
+                    "Verteilte Zustellung: %d Aufträge (%d sofort), %d zugestellt, %d offline, %d Fehler, %d wartend, Dauer p95 %.2f ms, Verspätung p95 %.2f ms / max %.2f ms",
+                    fanOut.getJobs(), fanOut.getInlineJobs(), fanOut.getDelivered(), fanOut.getSkipped(), fanOut.getFailed(),
+                    fanOut.getPendingCount(), millis(completion.getPercentile(0.95)), millis(lag.getPercentile(0.95)),
+                    millis(lag.getMax()))).color(NamedTextColor.YELLOW));
+        } else {
+            invocation.source().sendMessage(Component.text("Verteilte Zustellung: deaktiviert").color(NamedTextColor.GRAY));
+        }
+        
+        ComponentJsonCache componentCache = plugin.getMessagingManager().getComponentCache();
+        invocation.source().sendMessage(Component.text(String.format(
+                "Komponenten-JSON: %.1f%% Treffer (%d vorab, %d LRU, %d serialisiert), %d/%d Einträge + %d vorab, %d verdrängt",
+                componentCache.getHitRate() * 100.0, componentCache.getPinnedHits(), componentCache.getHits(),
+                componentCache.getMisses(), componentCache.size(), componentCache.getMaxSize(),
+                componentCache.getPinnedCount(), componentCache.getEvictions())).color(NamedTextColor.YELLOW));
+        
+        PermissionIndex permissionIndex = plugin.getPermissionIndex();
+        if (permissionIndex != null) {
+            invocation.source().sendMessage(Component.text(String.format(
+                    "Berechtigungs-Index: %d Berechtigungen, %d Treffer, %d Neuaufbauten, %d entzogen (%s)",
+                    permissionIndex.getIndexedPermissions().size(), permissionIndex.getHits(), permissionIndex.getBuilds(),
+                    permissionIndex.getRevoked(), permissionIndex.isLuckPermsHooked() ? "LuckPerms" : "Lebensdauer"))
+                    .color(NamedTextColor.YELLOW));
+        }
+        
+        OutboundBatcher batcher = plugin.getMessagingManager().getBatcher();
+        if (batcher == null) {
+            invocation.source().sendMessage(Component.text("Bündelung: deaktiviert").color(NamedTextColor.GRAY));
+            return;
+        }
+        
+        OutboundBatcher.BatchStats stats = batcher.getStats();
+        invocation.source().sendMessage(Component.text(String.format(
+                "Bündelung: %d Nachrichten in %d Paketen (%d sofort, %d zwischengespeichert, %d verworfen, %d ausstehend)",
+                stats.getMessages(), stats.getPacketsSent(), stats.getMessagesBypassed(), stats.getMessagesRedirected(),
+                stats.getMessagesDropped(), batcher.getPendingCount())).color(NamedTextColor.YELLOW));
+        invocation.source().sendMessage(Component.text(String.format(
+                "  Eingespart: %d Pakete (%.1f/s), %d Bytes (%.1f/s)",
+                stats.getPacketsSaved(), stats.getPacketsSavedPerSecond(),
+                stats.getBytesSaved(), stats.getBytesSavedPerSecond())).color(NamedTextColor.YELLOW));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
 }
\ No newline at end of file
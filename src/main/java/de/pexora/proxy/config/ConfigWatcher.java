@@ -0,0 +1,257 @@
+package de.pexora.proxy.config;
+
+import com.moandjiezana.toml.Toml;
+import de.pexora.proxy.PexoraProxy;
+import de.pexora.proxy.status.LatencyHistogram;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Überwacht das Datenverzeichnis und übernimmt Änderungen an config.toml, messages.toml und
+ * den Sprachdateien ohne {@code /pexoraproxy reload}.
+ *
+ * Editoren schreiben eine Datei oft in mehreren Schritten (leeren, schreiben, umbenennen).
+ * Eine Datei wird deshalb erst neu geladen, wenn {@code debounce-ms} lang keine weitere
+ * Änderung gemeldet wurde, und nur, wenn sich ihr Inhalt gegenüber dem zuletzt übernommenen
+ * Stand geändert hat. Fehlerhafte Dateien werden verworfen, der bisherige Stand bleibt aktiv;
+ * erneutes Speichern derselben Datei versucht die Übernahme dann erneut. Bei config.toml werden nur die
+ * Teilsysteme der geänderten Abschnitte neu angewendet (siehe {@link PexoraProxy#reloadCoreConfig()}),
+ * Module werden also nicht bei jeder Änderung neu geladen.
+ */
+public class ConfigWatcher {
+
+    private static final String CORE_CONFIG = "config.toml";
+    private static final String MESSAGES = "messages.toml";
+
+    private final PexoraProxy plugin;
+    private final Path directory;
+    private final long debounceMillis;
+    private final WatchService watchService;
+    private final ScheduledExecutorService executor;
+    private final Map<String, ScheduledFuture<?>> scheduled = new ConcurrentHashMap<>();
+    private final Map<String, Long> firstChange = new ConcurrentHashMap<>();
+    private final Map<String, byte[]> contents = new ConcurrentHashMap<>();
+
+    private final LatencyHistogram applyLatency = new LatencyHistogram();
+    private final AtomicLong applied = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong unchanged = new AtomicLong();
+
+    /**
+     * Erstellt den Watcher und beginnt mit der Überwachung
+     *
+     * @param plugin Die Plugin-Instanz
+     * @param debounceMillis Die Wartezeit nach der letzten Änderung in ms
+     * @throws IOException wenn das Verzeichnis nicht überwacht werden kann
+     */
+    public ConfigWatcher(PexoraProxy plugin, long debounceMillis) throws IOException {
+        this.plugin = plugin;
+        this.directory = plugin.getDataDirectory();
+        this.debounceMillis = debounceMillis;
+
+        // Aktuellen Inhalt merken, damit reines Speichern ohne Änderung nichts auslöst
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(path -> isWatched(path.getFileName().toString()))
+                    .forEach(path -> {
+                        byte[] content = read(path);
+                        if (content != null) {
+                            contents.put(path.getFileName().toString(), content);
+                        }
+                    });
+        }
+
+        this.watchService = FileSystems.getDefault().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Pexora-Config-Reload");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Thread thread = new Thread(this::watch, "Pexora-Config-Watch");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Nimmt die Meldungen des Dateisystems entgegen
+     */
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        // Meldungen verloren, alle bekannten Dateien prüfen
+                        for (String file : contents.keySet()) {
+                            schedule(file);
+                        }
+                        continue;
+                    }
+                    String file = ((Path) event.context()).getFileName().toString();
+                    if (isWatched(file)) {
+                        schedule(file);
+                    }
+                }
+                if (!key.reset()) {
+                    plugin.getLoggerService().warning("Das Datenverzeichnis wird nicht mehr überwacht");
+                    return;
+                }
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            // Beim Herunterfahren geschlossen
+        }
+    }
+
+    /**
+     * Plant das Neuladen einer Datei und verschiebt ein bereits geplantes Neuladen
+     */
+    private void schedule(String file) {
+        firstChange.putIfAbsent(file, System.nanoTime());
+        ScheduledFuture<?> previous = scheduled.put(file,
+                executor.schedule(() -> apply(file), debounceMillis, TimeUnit.MILLISECONDS));
+        if (previous != null) {
+            previous.cancel(false);
+        }
+    }
+
+    /**
+     * Lädt eine Datei neu, nachdem sie lange genug unverändert war
+     */
+    private void apply(String file) {
+        scheduled.remove(file);
+        Long detected = firstChange.remove(file);
+        long start = System.nanoTime();
+
+        Path path = directory.resolve(file);
+        byte[] content = read(path);
+        if (content == null) {
+            rejected.incrementAndGet();
+            plugin.getLoggerService().warning(file + " ist nicht lesbar oder wurde gelöscht, der bisherige Stand bleibt aktiv");
+            return;
+        }
+        if (Arrays.equals(contents.get(file), content)) {
+            unchanged.incrementAndGet();
+            plugin.getLoggerService().debug(file + " gespeichert, aber unverändert");
+            return;
+        }
+
+        String result;
+        try {
+            result = CORE_CONFIG.equals(file) ? applyCoreConfig() : applyMessages(path);
+        } catch (Exception e) {
+            plugin.getLoggerService().severe("Fehler beim Übernehmen von " + file + ": " + e.getMessage());
+            e.printStackTrace();
+            result = null;
+        }
+
+        long end = System.nanoTime();
+        if (result == null) {
+            rejected.incrementAndGet();
+            plugin.getLoggerService().warning("Änderung an " + file + " verworfen, der bisherige Stand bleibt aktiv");
+            return;
+        }
+        // Erst nach erfolgreicher Übernahme merken, damit erneutes Speichern nach einem Fehler es wieder versucht
+        contents.put(file, content);
+        applied.incrementAndGet();
+        applyLatency.record(end - start);
+        plugin.getLoggerService().info(String.format("%s automatisch übernommen in %.1f ms (%.0f ms nach der ersten Änderung)%s",
+                file, (end - start) / 1_000_000.0, detected != null ? (end - detected) / 1_000_000.0 : 0.0, result));
+    }
+
+    /**
+     * @return Die Beschreibung der Änderung oder null, wenn die Datei verworfen wurde
+     */
+    private String applyCoreConfig() {
+        Set<String> changed = plugin.reloadCoreConfig();
+        if (changed == null) {
+            return null;
+        }
+        return changed.isEmpty() ? ", keine Werte geändert" : ", Abschnitte: " + String.join(", ", changed);
+    }
+
+    /**
+     * @return Die Beschreibung der Änderung oder null, wenn die Datei verworfen wurde
+     */
+    private String applyMessages(Path path) {
+        if (!MESSAGES.equals(path.getFileName().toString())) {
+            // Sprachdateien werden erst bei Bedarf geladen und fallen bei Fehlern still zurück,
+            // deshalb hier vorab prüfen
+            try {
+                new Toml().read(path.toFile());
+            } catch (Exception e) {
+                plugin.getLoggerService().severe("Fehler in der Sprachdatei " + path.getFileName() + ": " + e.getMessage());
+                return null;
+            }
+        }
+        return plugin.reloadMessages() ? "" : null;
+    }
+
+    private static boolean isWatched(String file) {
+        return CORE_CONFIG.equals(file) || MESSAGES.equals(file)
+                || (file.startsWith("messages_") && file.endsWith(".toml"));
+    }
+
+    private byte[] read(Path path) {
+        try {
+            return Files.readAllBytes(path);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Beendet die Überwachung, geplante Neuladevorgänge werden verworfen
+     */
+    public void close() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            plugin.getLoggerService().warning("Konnte die Dateiüberwachung nicht schließen: " + e.getMessage());
+        }
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return Die Dauer der übernommenen Neuladevorgänge
+     */
+    public LatencyHistogram getApplyLatency() {
+        return applyLatency;
+    }
+
+    public long getApplied() {
+        return applied.get();
+    }
+
+    /**
+     * @return Die Änderungen, die wegen fehlerhafter Dateien verworfen wurden
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    /**
+     * @return Die Speichervorgänge, die den Inhalt nicht geändert haben
+     */
+    public long getUnchanged() {
+        return unchanged.get();
+    }
+}
@@ -2,12 +2,22 @@ package de.pexora.proxy.config;
 
 import com.moandjiezana.toml.Toml;
 import de.pexora.proxy.PexoraProxy;
+import de.pexora.proxy.bus.TcpBusTransport;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
 
 /**
  * Verwaltet die Hauptkonfiguration des Plugins
@@ -16,27 +26,7 @@ public class CoreConfig {
 
     private final PexoraProxy plugin;
     private final Path configPath;
-    private Toml config;
-
-    private boolean databaseEnabled;
-    private String databaseHost;
-    private int databasePort;
-    private String databaseName;
-    private String databaseUser;
-    private String databasePassword;
-    private int databasePoolSize;
-    private int databasePoolMinSize;
-    private int databasePoolMaxSize;
-    private long databasePoolIdleTimeout;
-    private long databasePoolMaxLifetime;
-    private boolean databaseAutoCreateTables;
-    private boolean debugMode;
-
-    private boolean moduleAutoReload;
-    private boolean moduleAutoCopy;
-    private boolean deleteOldPlugins;
-    private boolean allowNonPexoraModules;
-    private String[] additionalModules;
+    private volatile Snapshot snapshot;
 
     /**
      * Erstellt eine neue Konfigurationsinstanz
@@ -71,190 +61,1034 @@ public class CoreConfig {
     }
 
     /**
-     * Lädt die Konfiguration
+     * Lädt die Konfiguration. Die Datei wird vollständig gelesen und geprüft, bevor der neue
+     * Stand mit einer einzigen Zuweisung veröffentlicht wird. Schlägt das fehl, bleibt der
+     * bisherige Stand aktiv (beim ersten Laden die Standardwerte aus der mitgelieferten Datei).
      */
-    private void load() {
+    private boolean load() {
         plugin.getLoggerService().info("Lade Konfiguration...");
 
         try {
-            this.config = new Toml().read(configPath.toFile());
-            
-            // Datenbankeinstellungen
-            Toml dbConfig = config.getTable("database");
-            this.databaseEnabled = dbConfig.getBoolean("enabled");
-            this.databaseHost = dbConfig.getString("host");
-            this.databasePort = dbConfig.getLong("port").intValue();
-            this.databaseName = dbConfig.getString("database");
-            this.databaseUser = dbConfig.getString("username");
-            this.databasePassword = dbConfig.getString("password");
-            this.databasePoolSize = dbConfig.getLong("pool-size").intValue();
-            
-            // Erweiterte Datenbankeinstellungen
-            this.databasePoolMinSize = dbConfig.getLong("pool-min-size", 5L).intValue();
-            this.databasePoolMaxSize = dbConfig.getLong("pool-max-size", 10L).intValue();
-            this.databasePoolIdleTimeout = dbConfig.getLong("pool-idle-timeout", 600000L);
-            this.databasePoolMaxLifetime = dbConfig.getLong("pool-max-lifetime", 1800000L);
-            this.databaseAutoCreateTables = dbConfig.getBoolean("auto-create-tables", true);
-            
-            // Debug-Einstellungen
-            Toml debugConfig = config.getTable("debug");
-            if (debugConfig != null) {
-                this.debugMode = debugConfig.getBoolean("enabled", false);
-            }
-            
-            // Moduleinstellungen
-            Toml moduleConfig = config.getTable("modules");
-            this.moduleAutoReload = moduleConfig.getBoolean("auto-reload");
-            this.moduleAutoCopy = moduleConfig.getBoolean("auto-copy-to-modules");
-            this.deleteOldPlugins = moduleConfig.getBoolean("delete-old-plugins");
-            this.allowNonPexoraModules = moduleConfig.getBoolean("allow-non-pexora-modules");
-            
-            // Zusätzliche Module
-            Object additionalModulesObj = moduleConfig.getList("additional-modules");
-            if (additionalModulesObj instanceof java.util.List) {
-                java.util.List<?> list = (java.util.List<?>) additionalModulesObj;
-                this.additionalModules = list.toArray(new String[0]);
-            } else {
-                this.additionalModules = new String[0];
-            }
-            
+            this.snapshot = new Snapshot(new Toml().read(configPath.toFile()));
             plugin.getLoggerService().info("Konfiguration erfolgreich geladen!");
+            return true;
         } catch (Exception e) {
             plugin.getLoggerService().severe("Fehler beim Laden der Konfiguration: " + e.getMessage());
             e.printStackTrace();
+            if (snapshot != null) {
+                plugin.getLoggerService().warning("Die bisherige Konfiguration bleibt aktiv");
+            } else {
+                this.snapshot = loadDefaults();
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Lädt die mitgelieferte Standardkonfiguration
+     */
+    private Snapshot loadDefaults() {
+        try (InputStream is = getClass().getClassLoader().getResourceAsStream("config.toml")) {
+            return new Snapshot(new Toml().read(is));
+        } catch (IOException e) {
+            throw new IllegalStateException("Standardkonfiguration konnte nicht gelesen werden", e);
         }
     }
 
     /**
      * Lädt die Konfiguration neu
+     *
+     * @return Ob der neue Stand übernommen wurde (false, wenn die Datei fehlerhaft ist)
      */
-    public void reload() {
-        load();
+    public boolean reload() {
+        return load();
+    }
+
+    /**
+     * @return Der Pfad der Konfigurationsdatei
+     */
+    public Path getConfigPath() {
+        return configPath;
+    }
+
+    /**
+     * Liefert den aktuellen, unveränderlichen Stand der Konfiguration. Wer mehrere
+     * zusammengehörige Werte liest (z.B. alle Datenbankdaten), sollte sie aus einem
+     * Stand lesen, damit ein gleichzeitiges Neuladen keine Mischung ergibt.
+     *
+     * @return Der aktuelle Stand
+     */
+    public Snapshot getSnapshot() {
+        return snapshot;
     }
 
     /**
      * @return Ob die Datenbankverbindung aktiviert ist
      */
     public boolean isDatabaseEnabled() {
-        return databaseEnabled;
+        return snapshot.databaseEnabled;
     }
 
     /**
      * @return Der Datenbank-Host
      */
     public String getDatabaseHost() {
-        return databaseHost;
+        return snapshot.databaseHost;
     }
 
     /**
      * @return Der Datenbank-Port
      */
     public int getDatabasePort() {
-        return databasePort;
+        return snapshot.databasePort;
     }
 
     /**
      * @return Der Datenbank-Name
      */
     public String getDatabaseName() {
-        return databaseName;
+        return snapshot.databaseName;
     }
 
     /**
      * @return Der Datenbank-Benutzer
      */
     public String getDatabaseUser() {
-        return databaseUser;
+        return snapshot.databaseUser;
     }
 
     /**
      * @return Das Datenbank-Passwort
      */
     public String getDatabasePassword() {
-        return databasePassword;
+        return snapshot.databasePassword;
     }
 
     /**
      * @return Die Größe des Verbindungspools
      */
     public int getDatabasePoolSize() {
-        return databasePoolSize;
+        return snapshot.databasePoolSize;
     }
 
     /**
      * @return Ob Module automatisch neu geladen werden sollen
      */
     public boolean isModuleAutoReload() {
-        return moduleAutoReload;
+        return snapshot.moduleAutoReload;
     }
 
     /**
      * @return Ob Plugins automatisch in den Modules-Ordner kopiert werden sollen
      */
     public boolean isModuleAutoCopy() {
-        return moduleAutoCopy;
+        return snapshot.moduleAutoCopy;
     }
 
     /**
      * @return Ob alte Plugin-Versionen gelöscht werden sollen
      */
     public boolean isDeleteOldPlugins() {
-        return deleteOldPlugins;
+        return snapshot.deleteOldPlugins;
     }
 
     /**
      * @return Ob auch Nicht-Pexora-Module geladen werden sollen
      */
     public boolean isAllowNonPexoraModules() {
-        return allowNonPexoraModules;
+        return snapshot.allowNonPexoraModules;
     }
 
     /**
      * @return Liste zusätzlicher Module
      */
     public String[] getAdditionalModules() {
-        return additionalModules;
+        return snapshot.additionalModules.clone();
     }
     
     /**
      * @return Die minimale Größe des Datenbankpools
      */
     public int getDatabasePoolMinSize() {
-        return databasePoolMinSize;
+        return snapshot.databasePoolMinSize;
     }
     
     /**
      * @return Die maximale Größe des Datenbankpools
      */
     public int getDatabasePoolMaxSize() {
-        return databasePoolMaxSize;
+        return snapshot.databasePoolMaxSize;
     }
     
     /**
      * @return Die Idle-Timeout-Zeit für Datenbankverbindungen in ms
      */
     public long getDatabasePoolIdleTimeout() {
-        return databasePoolIdleTimeout;
+        return snapshot.databasePoolIdleTimeout;
     }
     
     /**
      * @return Die maximale Lebensdauer einer Datenbankverbindung in ms
      */
     public long getDatabasePoolMaxLifetime() {
-        return databasePoolMaxLifetime;
+        return snapshot.databasePoolMaxLifetime;
     }
     
     /**
      * @return Ob Tabellen automatisch erstellt werden sollen
      */
     public boolean isDatabaseAutoCreateTables() {
-        return databaseAutoCreateTables;
+        return snapshot.databaseAutoCreateTables;
     }
     
     /**
      * @return Ob der Debug-Modus aktiviert ist
      */
     public boolean isDebugMode() {
-        return debugMode;
+        return snapshot.debugMode;
+    }
+    
+    /**
+     * @return Ob das Startprofil ausgegeben und gespeichert werden soll
+     */
+    public boolean isStartupProfileEnabled() {
+        return snapshot.startupProfileEnabled;
+    }
+    
+    /**
+     * @return Die globale Frist für das Herunterfahren in ms
+     */
+    public long getShutdownTimeoutMillis() {
+        return snapshot.shutdownTimeoutMillis;
+    }
+    
+    /**
+     * @return Das Intervall, in dem ein Spieler ein Nachrichten-Token erhält, in ms (0 = keine Begrenzung)
+     */
+    public long getMessagingThrottleMillis() {
+        return snapshot.messagingThrottleMillis;
+    }
+    
+    /**
+     * @return Die maximale Anzahl angesparter Nachrichten-Tokens pro Spieler
+     */
+    public int getMessagingRateLimitBurst() {
+        return snapshot.messagingRateLimitBurst;
+    }
+    
+    /**
+     * @return Die maximale Anzahl wartender Nachrichten pro Spieler
+     */
+    public int getMessagingRateLimitQueueSize() {
+        return snapshot.messagingRateLimitQueueSize;
+    }
+    
+    /**
+     * @return Eigene Token-Intervalle für einzelne Aktionen in ms
+     */
+    public Map<String, Long> getMessagingActionThrottleMillis() {
+        return snapshot.messagingActionThrottleMillis;
+    }
+    
+    /**
+     * @return Die Aktionen, bei denen nur die neueste wartende Nachricht gesendet wird
+     */
+    public Set<String> getMessagingCoalesceActions() {
+        return snapshot.messagingCoalesceActions;
+    }
+    
+    /**
+     * @return Das Intervall, in dem gebündelte Nachrichten gesendet werden, in ms (0 = keine Bündelung)
+     */
+    public long getMessagingBatchIntervalMillis() {
+        return snapshot.messagingBatchIntervalMillis;
+    }
+    
+    /**
+     * @return Die maximale Größe einer gebündelten Nachricht in Bytes
+     */
+    public int getMessagingBatchMaxBytes() {
+        return snapshot.messagingBatchMaxBytes;
+    }
+    
+    /**
+     * @return Die Aktionen, die ohne Bündelung sofort gesendet werden
+     */
+    public Set<String> getMessagingImmediateActions() {
+        return snapshot.messagingImmediateActions;
+    }
+    
+    /**
+     * @return Die Standardfrist für Anfragen an Backend-Server in ms
+     */
+    public long getMessagingRpcTimeoutMillis() {
+        return snapshot.messagingRpcTimeoutMillis;
+    }
+    
+    /**
+     * @return Die maximale Anzahl offener Anfragen pro Backend-Server
+     */
+    public int getMessagingRpcMaxInFlight() {
+        return snapshot.messagingRpcMaxInFlight;
+    }
+    
+    /**
+     * @return Die Auflösung der Zeitüberschreitungen von Anfragen in ms
+     */
+    public long getMessagingRpcTimerTickMillis() {
+        return snapshot.messagingRpcTimerTickMillis;
+    }
+    
+    /**
+     * @return Die Größe in Bytes, ab der ausgehende Nachrichten komprimiert werden (0 = keine Kompression)
+     */
+    public int getMessagingCompressionThreshold() {
+        return snapshot.messagingCompressionThreshold;
+    }
+    
+    /**
+     * @return Die Deflate-Kompressionsstufe (1 = schnell, 9 = klein)
+     */
+    public int getMessagingCompressionLevel() {
+        return snapshot.messagingCompressionLevel;
+    }
+    
+    /**
+     * @return Die maximale Anzahl zwischengespeicherter Nachrichten pro Server ohne Spieler (0 = aus)
+     */
+    public int getMessagingOutboxMaxSize() {
+        return snapshot.messagingOutboxMaxSize;
+    }
+    
+    /**
+     * @return Die Lebensdauer zwischengespeicherter Nachrichten in ms
+     */
+    public long getMessagingOutboxTtlMillis() {
+        return snapshot.messagingOutboxTtlMillis;
+    }
+    
+    /**
+     * @return Ob zwischengespeicherte Nachrichten beim Herunterfahren gespeichert werden
+     */
+    public boolean isMessagingOutboxPersistent() {
+        return snapshot.messagingOutboxPersistent;
+    }
+    
+    /**
+     * @return Die Länge einer Zeitscheibe für verteilte Zustellungen an viele Spieler in ms
+     */
+    public long getMessagingFanOutSliceMillis() {
+        return snapshot.messagingFanOutSliceMillis;
+    }
+    
+    /**
+     * @return Die maximale Anzahl Spieler pro Zeitscheibe (0 = alles sofort zustellen)
+     */
+    public int getMessagingFanOutBudget() {
+        return snapshot.messagingFanOutBudget;
+    }
+    
+    /**
+     * @return Die maximale Anzahl zwischengespeicherter JSON-Darstellungen von Komponenten (0 = nur Konfigurationsnachrichten)
+     */
+    public int getMessagingComponentCacheSize() {
+        return snapshot.messagingComponentCacheSize;
+    }
+    
+    /**
+     * @return Die Lebensdauer einer Spielermenge im Berechtigungs-Index ohne LuckPerms in ms (0 = unbegrenzt)
+     */
+    public long getMessagingPermissionIndexTtlMillis() {
+        return snapshot.messagingPermissionIndexTtlMillis;
+    }
+    
+    /**
+     * @return Ob der Bus zwischen mehreren Proxys aktiviert ist
+     */
+    public boolean isBusEnabled() {
+        return snapshot.busEnabled;
+    }
+    
+    /**
+     * @return Die eindeutige ID dieses Proxys im Bus
+     */
+    public String getBusProxyId() {
+        return snapshot.busProxyId;
+    }
+    
+    /**
+     * @return Der Transport des Busses ("tcp" oder "loopback")
+     */
+    public String getBusTransport() {
+        return snapshot.busTransport;
+    }
+    
+    /**
+     * @return Die Adresse, auf der der Bus Verbindungen annimmt (host:port)
+     */
+    public String getBusBind() {
+        return snapshot.busBind;
+    }
+    
+    /**
+     * @return Das gemeinsame Geheimnis, mit dem sich die Proxys beim Verbindungsaufbau ausweisen
+     */
+    public String getBusSecret() {
+        return snapshot.busSecret;
+    }
+    
+    /**
+     * @return Die Adressen der anderen Proxys (host:port)
+     */
+    public List<String> getBusPeers() {
+        return snapshot.busPeers;
+    }
+    
+    /**
+     * @return Das Intervall, in dem Bus-Nachrichten gebündelt gesendet werden, in ms
+     */
+    public long getBusBatchIntervalMillis() {
+        return snapshot.busBatchIntervalMillis;
+    }
+    
+    /**
+     * @return Die Zeit, nach der unbestätigte Bus-Nachrichten wiederholt werden, in ms
+     */
+    public long getBusRetryMillis() {
+        return snapshot.busRetryMillis;
+    }
+    
+    /**
+     * @return Die maximale Anzahl unbestätigter Bus-Nachrichten pro Proxy
+     */
+    public int getBusMaxUnacked() {
+        return snapshot.busMaxUnacked;
+    }
+    
+    /**
+     * @return Ob Änderungen an config.toml und messages.toml automatisch übernommen werden
+     */
+    public boolean isConfigWatchEnabled() {
+        return snapshot.configWatchEnabled;
+    }
+    
+    /**
+     * @return Die Wartezeit in ms nach der letzten Änderung, bevor eine Datei neu geladen wird
+     */
+    public long getConfigWatchDebounceMillis() {
+        return snapshot.configWatchDebounceMillis;
+    }
+
+    /**
+     * Ein vollständig geladener, unveränderlicher Stand der Hauptkonfiguration
+     */
+    public static final class Snapshot {
+
+        private final boolean databaseEnabled;
+        private final String databaseHost;
+        private final int databasePort;
+        private final String databaseName;
+        private final String databaseUser;
+        private final String databasePassword;
+        private final int databasePoolSize;
+        private final int databasePoolMinSize;
+        private final int databasePoolMaxSize;
+        private final long databasePoolIdleTimeout;
+        private final long databasePoolMaxLifetime;
+        private final boolean databaseAutoCreateTables;
+        private final boolean debugMode;
+        private final boolean startupProfileEnabled;
+        private final long shutdownTimeoutMillis;
+
+        private final long messagingThrottleMillis;
+        private final int messagingRateLimitBurst;
+        private final int messagingRateLimitQueueSize;
+        private final Map<String, Long> messagingActionThrottleMillis;
+        private final Set<String> messagingCoalesceActions;
+        private final long messagingBatchIntervalMillis;
+        private final int messagingBatchMaxBytes;
+        private final Set<String> messagingImmediateActions;
+        private final long messagingRpcTimeoutMillis;
+        private final int messagingRpcMaxInFlight;
+        private final long messagingRpcTimerTickMillis;
+        private final int messagingCompressionThreshold;
+        private final int messagingCompressionLevel;
+        private final int messagingOutboxMaxSize;
+        private final long messagingOutboxTtlMillis;
+        private final boolean messagingOutboxPersistent;
+        private final long messagingFanOutSliceMillis;
+        private final int messagingFanOutBudget;
+        private final int messagingComponentCacheSize;
+        private final long messagingPermissionIndexTtlMillis;
+
+        private final boolean busEnabled;
+        private final String busProxyId;
+        private final String busTransport;
+        private final String busBind;
+        private final String busSecret;
+        private final List<String> busPeers;
+        private final long busBatchIntervalMillis;
+        private final long busRetryMillis;
+        private final int busMaxUnacked;
+
+        private final boolean moduleAutoReload;
+        private final boolean moduleAutoCopy;
+        private final boolean deleteOldPlugins;
+        private final boolean allowNonPexoraModules;
+        private final String[] additionalModules;
+
+        private final boolean configWatchEnabled;
+        private final long configWatchDebounceMillis;
+
+        private final Map<String, Object> sections;
+
+        /**
+         * Liest und prüft alle Werte
+         *
+         * @param config Die gelesene Datei
+         * @throws IllegalArgumentException wenn ein Wert ungültig ist
+         */
+        private Snapshot(Toml config) {
+            // Datenbankeinstellungen
+            Toml dbConfig = requireTable(config, "database");
+            this.databaseEnabled = dbConfig.getBoolean("enabled", false);
+            this.databaseHost = dbConfig.getString("host", "localhost");
+            this.databasePort = dbConfig.getLong("port", 3306L).intValue();
+            this.databaseName = dbConfig.getString("database", "pexora");
+            this.databaseUser = dbConfig.getString("username", "root");
+            this.databasePassword = dbConfig.getString("password", "");
+            this.databasePoolSize = dbConfig.getLong("pool-size", 10L).intValue();
+
+            // Erweiterte Datenbankeinstellungen
+            this.databasePoolMinSize = dbConfig.getLong("pool-min-size", 5L).intValue();
+            this.databasePoolMaxSize = dbConfig.getLong("pool-max-size", 10L).intValue();
+            this.databasePoolIdleTimeout = dbConfig.getLong("pool-idle-timeout", 600000L);
+            this.databasePoolMaxLifetime = dbConfig.getLong("pool-max-lifetime", 1800000L);
+            this.databaseAutoCreateTables = dbConfig.getBoolean("auto-create-tables", true);
+
+            // Debug-Einstellungen
+            Toml debugConfig = config.getTable("debug");
+            if (debugConfig == null) {
+                debugConfig = new Toml();
+            }
+            this.debugMode = debugConfig.getBoolean("enabled", false);
+            this.startupProfileEnabled = debugConfig.getBoolean("startup-profile", true);
+
+            // Shutdown-Einstellungen
+            Toml shutdownConfig = config.getTable("shutdown");
+            this.shutdownTimeoutMillis = shutdownConfig != null ? shutdownConfig.getLong("timeout-ms", 10000L) : 10000L;
+
+            // Messaging-Einstellungen
+            Toml messagingConfig = config.getTable("messaging");
+            if (messagingConfig == null) {
+                messagingConfig = new Toml();
+            }
+            this.messagingThrottleMillis = messagingConfig.getLong("throttle-ms", 100L);
+            this.messagingRateLimitBurst = messagingConfig.getLong("rate-limit-burst", 10L).intValue();
+            this.messagingRateLimitQueueSize = messagingConfig.getLong("rate-limit-queue-size", 64L).intValue();
+            Map<String, Long> actionThrottleMillis = new HashMap<>();
+            Toml actionThrottle = messagingConfig.getTable("action-throttle-ms");
+            if (actionThrottle != null) {
+                for (Map.Entry<String, Object> entry : actionThrottle.entrySet()) {
+                    if (entry.getValue() instanceof Number) {
+                        actionThrottleMillis.put(entry.getKey(), ((Number) entry.getValue()).longValue());
+                    }
+                }
+            }
+            this.messagingActionThrottleMillis = Collections.unmodifiableMap(actionThrottleMillis);
+            this.messagingCoalesceActions = readStringSet(messagingConfig, "coalesce-actions");
+            this.messagingBatchIntervalMillis = messagingConfig.getLong("batch-interval-ms", 50L);
+            this.messagingBatchMaxBytes = messagingConfig.getLong("batch-max-bytes", 8192L).intValue();
+            this.messagingImmediateActions = readStringSet(messagingConfig, "immediate-actions");
+            this.messagingRpcTimeoutMillis = messagingConfig.getLong("rpc-timeout-ms", 5000L);
+            this.messagingRpcMaxInFlight = messagingConfig.getLong("rpc-max-in-flight", 256L).intValue();
+            this.messagingRpcTimerTickMillis = messagingConfig.getLong("rpc-timer-tick-ms", 10L);
+            this.messagingCompressionThreshold = messagingConfig.getLong("compression-threshold", 0L).intValue();
+            this.messagingCompressionLevel = messagingConfig.getLong("compression-level", 1L).intValue();
+            this.messagingOutboxMaxSize = messagingConfig.getLong("outbox-max-size", 256L).intValue();
+            this.messagingOutboxTtlMillis = messagingConfig.getLong("outbox-ttl-ms", 60000L);
+            this.messagingOutboxPersistent = messagingConfig.getBoolean("outbox-persist", false);
+            this.messagingFanOutSliceMillis = messagingConfig.getLong("fanout-slice-ms", 10L);
+            this.messagingFanOutBudget = messagingConfig.getLong("fanout-budget", 250L).intValue();
+            this.messagingComponentCacheSize = messagingConfig.getLong("component-cache-size", 512L).intValue();
+            this.messagingPermissionIndexTtlMillis = messagingConfig.getLong("permission-index-ttl-ms", 30000L);
+
+            // Proxy-Bus-Einstellungen
+            Toml busConfig = config.getTable("bus");
+            if (busConfig == null) {
+                busConfig = new Toml();
+            }
+            this.busEnabled = busConfig.getBoolean("enabled", false);
+            this.busProxyId = busConfig.getString("proxy-id", "proxy-1");
+            this.busTransport = busConfig.getString("transport", "tcp");
+            this.busBind = busConfig.getString("bind", "127.0.0.1:25590");
+            this.busSecret = busConfig.getString("secret", "");
+            List<Object> busPeers = busConfig.getList("peers");
+            List<String> peers = new ArrayList<>();
+            if (busPeers != null) {
+                for (Object peer : busPeers) {
+                    peers.add(String.valueOf(peer));
+                }
+            }
+            this.busPeers = Collections.unmodifiableList(peers);
+            this.busBatchIntervalMillis = busConfig.getLong("batch-interval-ms", 20L);
+            this.busRetryMillis = busConfig.getLong("retry-ms", 1000L);
+            this.busMaxUnacked = busConfig.getLong("max-unacked", 10000L).intValue();
+
+            // Moduleinstellungen
+            Toml moduleConfig = requireTable(config, "modules");
+            this.moduleAutoReload = moduleConfig.getBoolean("auto-reload", true);
+            this.moduleAutoCopy = moduleConfig.getBoolean("auto-copy-to-modules", true);
+            this.deleteOldPlugins = moduleConfig.getBoolean("delete-old-plugins", true);
+            this.allowNonPexoraModules = moduleConfig.getBoolean("allow-non-pexora-modules", false);
+
+            // Zusätzliche Module
+            Object additionalModulesObj = moduleConfig.getList("additional-modules");
+            if (additionalModulesObj instanceof List) {
+                List<?> list = (List<?>) additionalModulesObj;
+                this.additionalModules = list.toArray(new String[0]);
+            } else {
+                this.additionalModules = new String[0];
+            }
+
+            // Automatisches Neuladen
+            Toml watchConfig = config.getTable("config-watch");
+            if (watchConfig == null) {
+                watchConfig = new Toml();
+            }
+            this.configWatchEnabled = watchConfig.getBoolean("enabled", true);
+            this.configWatchDebounceMillis = watchConfig.getLong("debounce-ms", 500L);
+
+            // Rohwerte pro Abschnitt für den Vergleich beim Neuladen
+            this.sections = Collections.unmodifiableMap(new HashMap<>(config.toMap()));
+
+            validate();
+        }
+
+        /**
+         * Ermittelt die Abschnitte, deren Werte sich gegenüber einem älteren Stand unterscheiden
+         *
+         * @param previous Der ältere Stand
+         * @return Die Namen der geänderten Abschnitte (z.B. "database"), leer wenn nichts geändert wurde
+         */
+        public Set<String> getChangedSections(Snapshot previous) {
+            Set<String> changed = new TreeSet<>();
+            Set<String> names = new HashSet<>(sections.keySet());
+            names.addAll(previous.sections.keySet());
+            for (String name : names) {
+                if (!Objects.equals(sections.get(name), previous.sections.get(name))) {
+                    changed.add(name);
+                }
+            }
+            return changed;
+        }
+
+        private static Toml requireTable(Toml config, String name) {
+            Toml table = config.getTable(name);
+            if (table == null) {
+                throw new IllegalArgumentException("Abschnitt [" + name + "] fehlt");
+            }
+            return table;
+        }
+
+        private static Set<String> readStringSet(Toml table, String key) {
+            List<Object> values = table.getList(key);
+            Set<String> result = new HashSet<>();
+            if (values != null) {
+                for (Object value : values) {
+                    result.add(String.valueOf(value));
+                }
+            }
+            return Collections.unmodifiableSet(result);
+        }
+
+        private void validate() {
+            if (configWatchDebounceMillis < 0) {
+                throw new IllegalArgumentException("config-watch.debounce-ms darf nicht negativ sein: " + configWatchDebounceMillis);
+            }
+            if (databasePort < 1 || databasePort > 65535) {
+                throw new IllegalArgumentException("database.port muss zwischen 1 und 65535 liegen: " + databasePort);
+            }
+            if (databasePoolMinSize < 0 || databasePoolMaxSize < 1 || databasePoolMinSize > databasePoolMaxSize) {
+                throw new IllegalArgumentException("database.pool-min-size/pool-max-size ungültig: "
+                        + databasePoolMinSize + "/" + databasePoolMaxSize);
+            }
+            if (messagingPermissionIndexTtlMillis < 0) {
+                throw new IllegalArgumentException("messaging.permission-index-ttl-ms darf nicht negativ sein: " + messagingPermissionIndexTtlMillis);
+            }
+            if (messagingCompressionLevel < 1 || messagingCompressionLevel > 9) {
+                throw new IllegalArgumentException("messaging.compression-level muss zwischen 1 und 9 liegen: " + messagingCompressionLevel);
+            }
+            if (busEnabled && (busProxyId == null || busProxyId.isEmpty())) {
+                throw new IllegalArgumentException("bus.proxy-id darf nicht leer sein");
+            }
+            if (busEnabled && "tcp".equalsIgnoreCase(busTransport) && (busSecret == null || busSecret.isEmpty())) {
+                throw new IllegalArgumentException("bus.secret muss für den TCP-Transport gesetzt sein");
+            }
+            if (busEnabled && "tcp".equalsIgnoreCase(busTransport)) {
+                // Wirft bei einer ungültigen Adresse, damit die Datei verworfen wird statt erst beim Start des Busses
+                TcpBusTransport.parseAddress(busBind);
+                for (String peer : busPeers) {
+                    TcpBusTransport.parseAddress(peer);
+                }
+            }
+        }
+
+        /**
+         * @return Ob die Datenbankverbindung aktiviert ist
+         */
+        public boolean isDatabaseEnabled() {
+            return databaseEnabled;
+        }
+
+        /**
+         * @return Der Datenbank-Host
+         */
+        public String getDatabaseHost() {
+            return databaseHost;
+        }
+
+        /**
+         * @return Der Datenbank-Port
+         */
+        public int getDatabasePort() {
+            return databasePort;
+        }
+
+        /**
+         * @return Der Datenbank-Name
+         */
+        public String getDatabaseName() {
+            return databaseName;
+        }
+
+        /**
+         * @return Der Datenbank-Benutzer
+         */
+        public String getDatabaseUser() {
+            return databaseUser;
+        }
+
+        /**
+         * @return Das Datenbank-Passwort
+         */
+        public String getDatabasePassword() {
+            return databasePassword;
+        }
+
+        /**
+         * @return Die Größe des Verbindungspools
+         */
+        public int getDatabasePoolSize() {
+            return databasePoolSize;
+        }
+
+        /**
+         * @return Ob Module automatisch neu geladen werden sollen
+         */
+        public boolean isModuleAutoReload() {
+            return moduleAutoReload;
+        }
+
+        /**
+         * @return Ob Plugins automatisch in den Modules-Ordner kopiert werden sollen
+         */
+        public boolean isModuleAutoCopy() {
+            return moduleAutoCopy;
+        }
+
+        /**
+         * @return Ob alte Plugin-Versionen gelöscht werden sollen
+         */
+        public boolean isDeleteOldPlugins() {
+            return deleteOldPlugins;
+        }
+
+        /**
+         * @return Ob auch Nicht-Pexora-Module geladen werden sollen
+         */
+        public boolean isAllowNonPexoraModules() {
+            return allowNonPexoraModules;
+        }
+
+        /**
+         * @return Liste zusätzlicher Module
+         */
+        public String[] getAdditionalModules() {
+            return additionalModules.clone();
+        }
+
+        /**
+         * @return Die minimale Größe des Datenbankpools
+         */
+        public int getDatabasePoolMinSize() {
+            return databasePoolMinSize;
+        }
+
+        /**
+         * @return Die maximale Größe des Datenbankpools
+         */
+        public int getDatabasePoolMaxSize() {
+            return databasePoolMaxSize;
+        }
+
+        /**
+         * @return Die Idle-Timeout-Zeit für Datenbankverbindungen in ms
+         */
+        public long getDatabasePoolIdleTimeout() {
+            return databasePoolIdleTimeout;
+        }
+
+        /**
+         * @return Die maximale Lebensdauer einer Datenbankverbindung in ms
+         */
+        public long getDatabasePoolMaxLifetime() {
+            return databasePoolMaxLifetime;
+        }
+
+        /**
+         * @return Ob Tabellen automatisch erstellt werden sollen
+         */
+        public boolean isDatabaseAutoCreateTables() {
+            return databaseAutoCreateTables;
+        }
+
+        /**
+         * @return Ob der Debug-Modus aktiviert ist
+         */
+        public boolean isDebugMode() {
+            return debugMode;
+        }
+
+        /**
+         * @return Ob das Startprofil ausgegeben und gespeichert werden soll
+         */
+        public boolean isStartupProfileEnabled() {
+            return startupProfileEnabled;
+        }
+
+        /**
+         * @return Die globale Frist für das Herunterfahren in ms
+         */
+        public long getShutdownTimeoutMillis() {
+            return shutdownTimeoutMillis;
+        }
+
+        /**
+         * @return Das Intervall, in dem ein Spieler ein Nachrichten-Token erhält, in ms (0 = keine Begrenzung)
+         */
+        public long getMessagingThrottleMillis() {
+            return messagingThrottleMillis;
+        }
+
+        /**
+         * @return Die maximale Anzahl angesparter Nachrichten-Tokens pro Spieler
+         */
+        public int getMessagingRateLimitBurst() {
+            return messagingRateLimitBurst;
+        }
+
+        /**
+         * @return Die maximale Anzahl wartender Nachrichten pro Spieler
+         */
+        public int getMessagingRateLimitQueueSize() {
+            return messagingRateLimitQueueSize;
+        }
+
+        /**
+         * @return Eigene Token-Intervalle für einzelne Aktionen in ms
+         */
+        public Map<String, Long> getMessagingActionThrottleMillis() {
+            return messagingActionThrottleMillis;
+        }
+
+        /**
+         * @return Die Aktionen, bei denen nur die neueste wartende Nachricht gesendet wird
+         */
+        public Set<String> getMessagingCoalesceActions() {
+            return messagingCoalesceActions;
+        }
+
+        /**
+         * @return Das Intervall, in dem gebündelte Nachrichten gesendet werden, in ms (0 = keine Bündelung)
+         */
+        public long getMessagingBatchIntervalMillis() {
+            return messagingBatchIntervalMillis;
+        }
+
+        /**
+         * @return Die maximale Größe einer gebündelten Nachricht in Bytes
+         */
+        public int getMessagingBatchMaxBytes() {
+            return messagingBatchMaxBytes;
+        }
+
+        /**
+         * @return Die Aktionen, die ohne Bündelung sofort gesendet werden
+         */
+        public Set<String> getMessagingImmediateActions() {
+            return messagingImmediateActions;
+        }
+
+        /**
+         * @return Die Standardfrist für Anfragen an Backend-Server in ms
+         */
+        public long getMessagingRpcTimeoutMillis() {
+            return messagingRpcTimeoutMillis;
+        }
+
+        /**
+         * @return Die maximale Anzahl offener Anfragen pro Backend-Server
+         */
+        public int getMessagingRpcMaxInFlight() {
+            return messagingRpcMaxInFlight;
+        }
+
+        /**
+         * @return Die Auflösung der Zeitüberschreitungen von Anfragen in ms
+         */
+        public long getMessagingRpcTimerTickMillis() {
+            return messagingRpcTimerTickMillis;
+        }
+
+        /**
+         * @return Die Größe in Bytes, ab der ausgehende Nachrichten komprimiert werden (0 = keine Kompression)
+         */
+        public int getMessagingCompressionThreshold() {
+            return messagingCompressionThreshold;
+        }
+
+        /**
+         * @return Die Deflate-Kompressionsstufe (1 = schnell, 9 = klein)
+         */
+        public int getMessagingCompressionLevel() {
+            return messagingCompressionLevel;
+        }
+
+        /**
+         * @return Die maximale Anzahl zwischengespeicherter Nachrichten pro Server ohne Spieler (0 = aus)
+         */
+        public int getMessagingOutboxMaxSize() {
+            return messagingOutboxMaxSize;
+        }
+
+        /**
+         * @return Die Lebensdauer zwischengespeicherter Nachrichten in ms
+         */
+        public long getMessagingOutboxTtlMillis() {
+            return messagingOutboxTtlMillis;
+        }
+
+        /**
+         * @return Ob zwischengespeicherte Nachrichten beim Herunterfahren gespeichert werden
+         */
+        public boolean isMessagingOutboxPersistent() {
+            return messagingOutboxPersistent;
+        }
+
+        /**
+         * @return Die Länge einer Zeitscheibe für verteilte Zustellungen an viele Spieler in ms
+         */
+        public long getMessagingFanOutSliceMillis() {
+            return messagingFanOutSliceMillis;
+        }
+
+        /**
+         * @return Die maximale Anzahl Spieler pro Zeitscheibe (0 = alles sofort zustellen)
+         */
+        public int getMessagingFanOutBudget() {
+            return messagingFanOutBudget;
+        }
+
+        /**
+         * @return Die maximale Anzahl zwischengespeicherter JSON-Darstellungen von Komponenten (0 = nur Konfigurationsnachrichten)
+         */
+        public int getMessagingComponentCacheSize() {
+            return messagingComponentCacheSize;
+        }
+
+        /**
+         * @return Die Lebensdauer einer Spielermenge im Berechtigungs-Index ohne LuckPerms in ms (0 = unbegrenzt)
+         */
+        public long getMessagingPermissionIndexTtlMillis() {
+            return messagingPermissionIndexTtlMillis;
+        }
+
+        /**
+         * @return Ob der Bus zwischen mehreren Proxys aktiviert ist
+         */
+        public boolean isBusEnabled() {
+            return busEnabled;
+        }
+
+        /**
+         * @return Die eindeutige ID dieses Proxys im Bus
+         */
+        public String getBusProxyId() {
+            return busProxyId;
+        }
+
+        /**
+         * @return Der Transport des Busses ("tcp" oder "loopback")
+         */
+        public String getBusTransport() {
+            return busTransport;
+        }
+
+        /**
+         * @return Die Adresse, auf der der Bus Verbindungen annimmt (host:port)
+         */
+        public String getBusBind() {
+            return busBind;
+        }
+
+        /**
+         * @return Das gemeinsame Geheimnis, mit dem sich die Proxys beim Verbindungsaufbau ausweisen
+         */
+        public String getBusSecret() {
+            return busSecret;
+        }
+
+        /**
+         * @return Die Adressen der anderen Proxys (host:port)
+         */
+        public List<String> getBusPeers() {
+            return busPeers;
+        }
+
+        /**
+         * @return Das Intervall, in dem Bus-Nachrichten gebündelt gesendet werden, in ms
+         */
+        public long getBusBatchIntervalMillis() {
+            return busBatchIntervalMillis;
+        }
+
+        /**
+         * @return Die Zeit, nach der unbestätigte Bus-Nachrichten wiederholt werden, in ms
+         */
+        public long getBusRetryMillis() {
+            return busRetryMillis;
+        }
+
+        /**
+         * @return Die maximale Anzahl unbestätigter Bus-Nachrichten pro Proxy
+         */
+        public int getBusMaxUnacked() {
+            return busMaxUnacked;
+        }
+
+        /**
+         * @return Ob Änderungen an config.toml und messages.toml automatisch übernommen werden
+         */
+        public boolean isConfigWatchEnabled() {
+            return configWatchEnabled;
+        }
+
+        /**
+         * @return Die Wartezeit in ms nach der letzten Änderung, bevor eine Datei neu geladen wird
+         */
+        public long getConfigWatchDebounceMillis() {
+            return configWatchDebounceMillis;
+        }
     }
-}
\ No newline at end of file
+}
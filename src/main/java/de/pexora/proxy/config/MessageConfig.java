@@ -1,6 +1,10 @@
 package de.pexora.proxy.config;
 
 import com.moandjiezana.toml.Toml;
+import com.velocitypowered.api.event.Subscribe;
+import com.velocitypowered.api.event.connection.DisconnectEvent;
+import com.velocitypowered.api.event.player.PlayerSettingsChangedEvent;
+import com.velocitypowered.api.proxy.Player;
 import de.pexora.proxy.PexoraProxy;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.minimessage.MiniMessage;
@@ -9,20 +13,41 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Verwaltet die Nachrichtenkonfiguration des Plugins
+ * Verwaltet die Nachrichtenkonfiguration des Plugins.
+ *
+ * Alle Nachrichten werden beim Laden einmal mit MiniMessage geparst, auch in der Variante
+ * mit Präfix. Components sind unveränderlich, daher liefern {@link #getMessage(String)} und
+ * {@link #getMessageWithPrefix(String)} nur noch den vorbereiteten Baum. Beim Neuladen wird
+ * der komplette Satz ersetzt, Leser sehen also entweder den alten oder den neuen Stand.
+ *
+ * Nachrichten mit Platzhaltern werden als {@link MessageTemplate} vorbereitet und über
+ * {@link #getMessage(String, MessageTemplate.Arguments)} ohne erneutes Parsen gefüllt.
+ *
+ * Neben {@code messages.toml} können Sprachdateien {@code messages_<sprache>.toml} bzw.
+ * {@code messages_<sprache>_<land>.toml} (z.B. {@code messages_en.toml}, {@code messages_en_us.toml})
+ * angelegt werden. Sie werden erst beim ersten Zugriff geladen und enthalten nur die
+ * abweichenden Nachrichten, fehlende Schlüssel werden über die Kette
+ * {@code en_us -> en -> messages.toml} ergänzt. Die Sprache eines Spielers wird aus
+ * {@link Player#getEffectiveLocale()} ermittelt und bis zum Verlassen des Netzwerks
+ * bzw. bis zur nächsten Änderung seiner Client-Einstellungen zwischengespeichert.
  */
 public class MessageConfig {
 
     private final PexoraProxy plugin;
     private final Path messagesPath;
-    private Toml config;
     
-    private Component prefixComponent;
-    private final Map<String, String> messages = new HashMap<>();
+    private volatile Compiled compiled = new Compiled(null, Collections.emptyMap(), null);
 
     /**
      * Erstellt eine neue Nachrichtenkonfigurationsinstanz
@@ -35,6 +60,7 @@ public class MessageConfig {
         
         createDefault();
         load();
+        plugin.getServer().getEventManager().register(plugin, new PlayerLocaleListener());
     }
 
     /**
@@ -47,51 +73,149 @@ public class MessageConfig {
 
         plugin.getLoggerService().info("Erstelle Standard-Nachrichtenkonfiguration...");
 
-        try (InputStream is = getClass().getClassLoader().getResourceAsStream("messages.toml")) {
-            Files.createDirectories(messagesPath.getParent());
-            Files.copy(is, messagesPath);
-        } catch (IOException e) {
-            plugin.getLoggerService().severe("Konnte Standard-Nachrichtenkonfiguration nicht erstellen: " + e.getMessage());
-            e.printStackTrace();
+        for (String file : new String[]{"messages.toml", "messages_en.toml"}) {
+            if (Files.exists(messagesPath.resolveSibling(file))) {
+                continue;
+            }
+            try (InputStream is = getClass().getClassLoader().getResourceAsStream(file)) {
+                Files.createDirectories(messagesPath.getParent());
+                Files.copy(is, messagesPath.resolveSibling(file));
+            } catch (IOException e) {
+                plugin.getLoggerService().severe("Konnte Standard-Nachrichtenkonfiguration nicht erstellen: " + e.getMessage());
+                e.printStackTrace();
+            }
         }
     }
 
     /**
      * Lädt die Nachrichtenkonfiguration
      */
-    private void load() {
+    private boolean load() {
         plugin.getLoggerService().info("Lade Nachrichtenkonfiguration...");
         
         try {
-            this.config = new Toml().read(messagesPath.toFile());
-            
-            // Präfix laden
-            String prefixString = config.getString("prefix");
-            this.prefixComponent = MiniMessage.miniMessage().deserialize(prefixString);
+            Toml config = new Toml().read(messagesPath.toFile());
             
             // Debug-Ausgabe
-            plugin.getLoggerService().debug("Nachrichtenkonfiguration geladen, Präfix: " + prefixString);
+            plugin.getLoggerService().debug("Nachrichtenkonfiguration geladen, Präfix: " + config.getString("prefix"));
             
-            // Alle Nachrichten laden
-            messages.clear();
-            config.entrySet().forEach(entry -> {
-                if (!"prefix".equals(entry.getKey())) {
-                    messages.put(entry.getKey(), String.valueOf(entry.getValue()));
-                }
-            });
+            // Erst vollständig parsen, dann austauschen (Sprachdateien werden danach bei Bedarf neu geladen)
+            this.compiled = compile(config, null);
+            plugin.getLoggerService().debug("Nachrichten vorbereitet: " + compiled.messages.size());
+            if (plugin.getMessagingManager() != null) {
+                plugin.getMessagingManager().getComponentCache().pin(getPrecompiledComponents());
+            }
             
             plugin.getLoggerService().info("Nachrichtenkonfiguration erfolgreich geladen!");
+            return true;
         } catch (Exception e) {
             plugin.getLoggerService().severe("Fehler beim Laden der Nachrichtenkonfiguration: " + e.getMessage());
             e.printStackTrace();
+            if (!compiled.messages.isEmpty()) {
+                plugin.getLoggerService().warning("Die bisherigen Nachrichten bleiben aktiv");
+            }
+            return false;
         }
     }
 
     /**
-     * Lädt die Nachrichtenkonfiguration neu
+     * Parst alle Nachrichten einer Datei
+     *
+     * @param toml Die geladene Datei
+     * @param parent Der Satz, aus dem fehlende Nachrichten und der Präfix übernommen werden, oder null
      */
-    public void reload() {
-        load();
+    private Compiled compile(Toml toml, Compiled parent) {
+        String prefixString = toml.getString("prefix");
+        Component prefix = prefixString != null ? MiniMessage.miniMessage().deserialize(prefixString)
+                : parent != null ? parent.prefix : null;
+        
+        Map<String, String> messages = new HashMap<>();
+        toml.entrySet().forEach(entry -> {
+            if (!"prefix".equals(entry.getKey())) {
+                messages.put(entry.getKey(), String.valueOf(entry.getValue()));
+            }
+        });
+        return new Compiled(prefix, messages, parent);
+    }
+
+    /**
+     * Lädt die Nachrichtenkonfiguration neu, Sprachdateien werden danach bei Bedarf neu gelesen
+     *
+     * @return Ob die neuen Nachrichten übernommen wurden (false, wenn die Datei fehlerhaft ist)
+     */
+    public boolean reload() {
+        return load();
+    }
+
+    /**
+     * @return Der Pfad der Standard-Nachrichtendatei
+     */
+    public Path getMessagesPath() {
+        return messagesPath;
+    }
+
+    /**
+     * Ermittelt den Nachrichtensatz für eine Sprache
+     *
+     * @param root Der aktuelle Standardsatz
+     * @param locale Die Sprache oder null
+     * @return Der speziellste vorhandene Satz der Fallback-Kette
+     */
+    private Compiled bundle(Compiled root, Locale locale) {
+        if (locale == null || locale.getLanguage().isEmpty()) {
+            return root;
+        }
+        String language = locale.getLanguage().toLowerCase(Locale.ROOT);
+        Compiled bundle = bundle(root, language, root);
+        if (!locale.getCountry().isEmpty()) {
+            bundle = bundle(root, language + "_" + locale.getCountry().toLowerCase(Locale.ROOT), bundle);
+        }
+        return bundle;
+    }
+
+    private Compiled bundle(Compiled root, String tag, Compiled parent) {
+        Compiled bundle = root.locales.get(tag);
+        if (bundle == null) {
+            bundle = root.locales.computeIfAbsent(tag, key -> loadBundle(key, parent));
+        }
+        return bundle;
+    }
+
+    /**
+     * Lädt eine Sprachdatei
+     *
+     * @return Der Satz der Sprache oder der übergeordnete Satz, wenn es keine Datei gibt
+     */
+    private Compiled loadBundle(String tag, Compiled parent) {
+        Path path = messagesPath.resolveSibling("messages_" + tag + ".toml");
+        if (!Files.exists(path)) {
+            return parent;
+        }
+        
+        try {
+            Compiled bundle = compile(new Toml().read(path.toFile()), parent);
+            plugin.getLoggerService().info("Sprachdatei " + path.getFileName() + " geladen");
+            return bundle;
+        } catch (Exception e) {
+            plugin.getLoggerService().severe("Fehler beim Laden der Sprachdatei " + path.getFileName() + ": " + e.getMessage());
+            e.printStackTrace();
+            return parent;
+        }
+    }
+
+    /**
+     * Ermittelt den Nachrichtensatz eines Spielers
+     */
+    private Compiled bundle(Player player) {
+        Compiled root = compiled;
+        Compiled bundle = root.players.get(player.getUniqueId());
+        if (bundle == null) {
+            bundle = bundle(root, player.getEffectiveLocale());
+            if (player.isActive()) {
+                root.players.put(player.getUniqueId(), bundle);
+            }
+        }
+        return bundle;
     }
 
     /**
@@ -101,14 +225,37 @@ public class MessageConfig {
      * @return Die Nachricht als Component
      */
     public Component getMessage(String key) {
-        if (!messages.containsKey(key)) {
-            Component missingComponent = Component.text("Fehlende Nachricht: " + key);
-            plugin.getLoggerService().warning("Nachricht '" + key + "' nicht gefunden!");
-            return missingComponent;
+        return getMessage(compiled, key);
+    }
+
+    /**
+     * Holt eine Nachricht in der Sprache eines Spielers
+     *
+     * @param player Der Spieler
+     * @param key Der Schlüssel der Nachricht
+     * @return Die Nachricht als Component
+     */
+    public Component getMessage(Player player, String key) {
+        return getMessage(bundle(player), key);
+    }
+
+    /**
+     * Holt eine Nachricht in einer bestimmten Sprache
+     *
+     * @param locale Die Sprache
+     * @param key Der Schlüssel der Nachricht
+     * @return Die Nachricht als Component
+     */
+    public Component getMessage(Locale locale, String key) {
+        Compiled root = compiled;
+        return getMessage(bundle(root, locale), key);
+    }
+
+    private Component getMessage(Compiled bundle, String key) {
+        Component component = bundle.components.get(key);
+        if (component == null) {
+            return missing(key);
         }
-        
-        String message = messages.get(key);
-        Component component = MiniMessage.miniMessage().deserialize(message);
         return component;
     }
 
@@ -119,23 +266,209 @@ public class MessageConfig {
      * @return Die Nachricht mit Präfix als Component
      */
     public Component getMessageWithPrefix(String key) {
-        if (!messages.containsKey(key)) {
-            plugin.getLoggerService().warning("Nachricht '" + key + "' nicht gefunden!");
-            return Component.text("Fehlende Nachricht: " + key);
+        return getMessageWithPrefix(compiled, key);
+    }
+
+    /**
+     * Holt eine Nachricht mit Präfix in der Sprache eines Spielers
+     *
+     * @param player Der Spieler
+     * @param key Der Schlüssel der Nachricht
+     * @return Die Nachricht mit Präfix als Component
+     */
+    public Component getMessageWithPrefix(Player player, String key) {
+        return getMessageWithPrefix(bundle(player), key);
+    }
+
+    private Component getMessageWithPrefix(Compiled bundle, String key) {
+        Component component = bundle.prefixed.get(key);
+        if (component == null) {
+            return missing(key);
         }
-        
-        String message = messages.get(key);
-        if (prefixComponent != null) {
-            return prefixComponent.append(MiniMessage.miniMessage().deserialize(message));
-        } else {
-            return MiniMessage.miniMessage().deserialize(message);
+        return component;
+    }
+
+    /**
+     * Holt eine Nachricht und setzt die Werte der Platzhalter ein
+     *
+     * @param key Der Schlüssel der Nachricht
+     * @param arguments Die Werte der Platzhalter
+     * @return Die Nachricht als Component
+     */
+    public Component getMessage(String key, MessageTemplate.Arguments arguments) {
+        return getMessage(compiled, key, arguments);
+    }
+
+    /**
+     * Holt eine Nachricht in der Sprache eines Spielers und setzt die Werte der Platzhalter ein
+     *
+     * @param player Der Spieler
+     * @param key Der Schlüssel der Nachricht
+     * @param arguments Die Werte der Platzhalter
+     * @return Die Nachricht als Component
+     */
+    public Component getMessage(Player player, String key, MessageTemplate.Arguments arguments) {
+        return getMessage(bundle(player), key, arguments);
+    }
+
+    private Component getMessage(Compiled bundle, String key, MessageTemplate.Arguments arguments) {
+        MessageTemplate template = bundle.templates.get(key);
+        if (template == null) {
+            return missing(key);
+        }
+        return template.render(arguments);
+    }
+
+    /**
+     * Holt eine Nachricht mit Präfix und setzt die Werte der Platzhalter ein
+     *
+     * @param key Der Schlüssel der Nachricht
+     * @param arguments Die Werte der Platzhalter
+     * @return Die Nachricht mit Präfix als Component
+     */
+    public Component getMessageWithPrefix(String key, MessageTemplate.Arguments arguments) {
+        return getMessageWithPrefix(compiled, key, arguments);
+    }
+
+    /**
+     * Holt eine Nachricht mit Präfix in der Sprache eines Spielers und setzt die Werte der Platzhalter ein
+     *
+     * @param player Der Spieler
+     * @param key Der Schlüssel der Nachricht
+     * @param arguments Die Werte der Platzhalter
+     * @return Die Nachricht mit Präfix als Component
+     */
+    public Component getMessageWithPrefix(Player player, String key, MessageTemplate.Arguments arguments) {
+        return getMessageWithPrefix(bundle(player), key, arguments);
+    }
+
+    private Component getMessageWithPrefix(Compiled bundle, String key, MessageTemplate.Arguments arguments) {
+        MessageTemplate template = bundle.templates.get(key);
+        if (template == null) {
+            return missing(key);
+        }
+        if (!template.hasSlots()) {
+            return bundle.prefixed.get(key);
         }
+        return bundle.prefix != null ? bundle.prefix.append(template.render(arguments)) : template.render(arguments);
+    }
+
+    /**
+     * Holt die vorbereitete Nachricht mit Platzhaltern
+     *
+     * @param key Der Schlüssel der Nachricht
+     * @return Die vorbereitete Nachricht oder null, wenn die Nachricht nicht existiert
+     */
+    public MessageTemplate getTemplate(String key) {
+        return compiled.templates.get(key);
+    }
+
+    /**
+     * Holt den unverarbeiteten MiniMessage-Text einer Nachricht
+     *
+     * @param key Der Schlüssel der Nachricht
+     * @return Der Text oder null, wenn die Nachricht nicht existiert
+     */
+    public String getRawMessage(String key) {
+        return compiled.messages.get(key);
+    }
+
+    private Component missing(String key) {
+        plugin.getLoggerService().warning("Nachricht '" + key + "' nicht gefunden!");
+        return Component.text("Fehlende Nachricht: " + key);
+    }
+
+    /**
+     * @return Alle vorbereiteten Nachrichten des Standardsatzes, mit und ohne Präfix
+     */
+    public List<Component> getPrecompiledComponents() {
+        Compiled current = compiled;
+        List<Component> components = new ArrayList<>(current.components.values());
+        components.addAll(current.prefixed.values());
+        return components;
     }
 
     /**
      * @return Die Präfix-Komponente
      */
     public Component getPrefix() {
-        return prefixComponent;
+        return compiled.prefix;
+    }
+
+    /**
+     * @return Die bisher geladenen Sprachen (ohne Datei werden sie auf den Fallback abgebildet)
+     */
+    public Set<String> getLoadedLocales() {
+        return Collections.unmodifiableSet(compiled.locales.keySet());
+    }
+
+    /**
+     * Vergisst die zwischengespeicherte Sprache eines Spielers
+     *
+     * @param playerId Die UUID des Spielers
+     */
+    public void invalidatePlayerLocale(UUID playerId) {
+        compiled.players.remove(playerId);
+    }
+
+    /**
+     * Hält die Sprach-Zuordnung der Spieler aktuell
+     */
+    private class PlayerLocaleListener {
+
+        @Subscribe
+        public void onSettingsChanged(PlayerSettingsChangedEvent event) {
+            invalidatePlayerLocale(event.getPlayer().getUniqueId());
+        }
+
+        @Subscribe
+        public void onDisconnect(DisconnectEvent event) {
+            invalidatePlayerLocale(event.getPlayer().getUniqueId());
+        }
+    }
+
+    /**
+     * Ein vollständig geparster, unveränderlicher Satz an Nachrichten.
+     * Der Standardsatz hält zusätzlich die bereits geladenen Sprachen und die Sprache der Spieler,
+     * damit beides beim Neuladen zusammen mit ihm verworfen wird.
+     */
+    private static class Compiled {
+        private final Component prefix;
+        private final Map<String, String> messages;
+        private final Map<String, MessageTemplate> templates;
+        private final Map<String, Component> components;
+        private final Map<String, Component> prefixed;
+        private final Map<String, Compiled> locales = new ConcurrentHashMap<>();
+        private final Map<UUID, Compiled> players = new ConcurrentHashMap<>();
+
+        private Compiled(Component prefix, Map<String, String> messages, Compiled parent) {
+            Map<String, String> raw = new HashMap<>();
+            Map<String, MessageTemplate> templates = new HashMap<>();
+            Map<String, Component> components = new HashMap<>();
+            Map<String, Component> prefixed = new HashMap<>();
+            if (parent != null) {
+                // Nicht übersetzte Nachrichten übernehmen, ohne sie erneut zu parsen
+                raw.putAll(parent.messages);
+                templates.putAll(parent.templates);
+                components.putAll(parent.components);
+                for (Map.Entry<String, Component> entry : parent.components.entrySet()) {
+                    prefixed.put(entry.getKey(), prefix == parent.prefix ? parent.prefixed.get(entry.getKey())
+                            : prefix != null ? prefix.append(entry.getValue()) : entry.getValue());
+                }
+            }
+            for (Map.Entry<String, String> entry : messages.entrySet()) {
+                MessageTemplate template = MessageTemplate.compile(entry.getValue());
+                Component component = template.render();
+                raw.put(entry.getKey(), entry.getValue());
+                templates.put(entry.getKey(), template);
+                components.put(entry.getKey(), component);
+                prefixed.put(entry.getKey(), prefix != null ? prefix.append(component) : component);
+            }
+            this.prefix = prefix;
+            this.messages = Collections.unmodifiableMap(raw);
+            this.templates = Collections.unmodifiableMap(templates);
+            this.components = Collections.unmodifiableMap(components);
+            this.prefixed = Collections.unmodifiableMap(prefixed);
+        }
     }
-}
\ No newline at end of file
+}
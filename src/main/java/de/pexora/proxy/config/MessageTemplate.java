@@ -0,0 +1,325 @@
+package de.pexora.proxy.config;
+
+import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.ComponentLike;
+import net.kyori.adventure.text.TranslatableComponent;
+import net.kyori.adventure.text.format.Style;
+import net.kyori.adventure.text.minimessage.Context;
+import net.kyori.adventure.text.minimessage.MiniMessage;
+import net.kyori.adventure.text.minimessage.tag.Tag;
+import net.kyori.adventure.text.minimessage.tag.resolver.ArgumentQueue;
+import net.kyori.adventure.text.minimessage.tag.resolver.TagResolver;
+
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Eine vorbereitete Nachricht mit Platzhaltern.
+ *
+ * Beim Kompilieren wird der MiniMessage-Text einmal geparst. Jeder Tag, der kein
+ * Standard-Tag von MiniMessage ist (z.B. {@code <player>}, {@code <server>} oder
+ * {@code <count>}), wird zu einem Platzhalter im fertigen Component-Baum. Beim Rendern
+ * werden nur die Äste neu aufgebaut, die Platzhalter enthalten, alles andere wird
+ * unverändert wiederverwendet. Zahlen können mit einem {@link DecimalFormat}-Muster
+ * formatiert werden: {@code <count:'#,##0'>}.
+ *
+ * Platzhalter ohne Wert werden als Text ausgegeben, z.B. {@code <player>}. Farben, Formatierungen
+ * und Events um einen Platzhalter (z.B. {@code <yellow><player></yellow>}) gelten auch für den
+ * eingesetzten Wert, soweit dieser sie nicht selbst festlegt.
+ */
+public class MessageTemplate {
+
+    private static final String SLOT_KEY = "\u0000pexora-slot:";
+    private static final Arguments NONE = new Arguments();
+
+    private final Component component;
+    private final Node root;
+    private final List<String> slotNames;
+
+    private MessageTemplate(Component component, Node root, List<String> slotNames) {
+        this.component = component;
+        this.root = root;
+        this.slotNames = slotNames;
+    }
+
+    /**
+     * Kompiliert einen MiniMessage-Text
+     *
+     * @param message Der MiniMessage-Text
+     * @return Die vorbereitete Nachricht
+     */
+    public static MessageTemplate compile(String message) {
+        List<Slot> slots = new ArrayList<>();
+        TagResolver standard = TagResolver.standard();
+        TagResolver slotResolver = new TagResolver() {
+            @Override
+            public Tag resolve(String name, ArgumentQueue arguments, Context ctx) {
+                List<String> args = new ArrayList<>();
+                while (arguments.hasNext()) {
+                    args.add(arguments.pop().value());
+                }
+                Slot slot = new Slot(name, args);
+                slots.add(slot);
+                // Übersetzbare Komponenten werden beim Zusammenfassen von Text nicht verschmolzen
+                return Tag.selfClosingInserting(Component.translatable(SLOT_KEY + (slots.size() - 1)));
+            }
+
+            @Override
+            public boolean has(String name) {
+                return !standard.has(name);
+            }
+        };
+
+        Component parsed = MiniMessage.miniMessage().deserialize(message, slotResolver);
+        Node root = compile(parsed, slots);
+        List<String> names = new ArrayList<>();
+        for (Slot slot : slots) {
+            names.add(slot.name);
+        }
+        return new MessageTemplate(parsed, root, Collections.unmodifiableList(names));
+    }
+
+    private static Node compile(Component component, List<Slot> slots) {
+        if (component instanceof TranslatableComponent && ((TranslatableComponent) component).key().startsWith(SLOT_KEY)) {
+            Slot slot = slots.get(Integer.parseInt(((TranslatableComponent) component).key().substring(SLOT_KEY.length())));
+            // MiniMessage legt Tags, die nur den Platzhalter umschließen, in dessen eigenen Stil
+            slot.applyStyle(component.style());
+            return slot;
+        }
+
+        List<Component> children = component.children();
+        Node[] nodes = new Node[children.size()];
+        boolean dynamic = false;
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = compile(children.get(i), slots);
+            dynamic |= nodes[i] != null;
+        }
+        return dynamic ? new Branch(component, children, nodes) : null;
+    }
+
+    /**
+     * @return Neue, leere Werte für {@link #render(Arguments)}
+     */
+    public static Arguments arguments() {
+        return new Arguments();
+    }
+
+    /**
+     * Setzt die Werte in die Nachricht ein
+     *
+     * @param arguments Die Werte der Platzhalter
+     * @return Die fertige Nachricht
+     */
+    public Component render(Arguments arguments) {
+        return root != null ? root.render(arguments) : component;
+    }
+
+    /**
+     * @return Die Nachricht, in der alle Platzhalter als Text stehen
+     */
+    public Component render() {
+        return render(NONE);
+    }
+
+    /**
+     * @return Die Namen der Platzhalter in der Reihenfolge ihres Auftretens
+     */
+    public List<String> getSlotNames() {
+        return slotNames;
+    }
+
+    /**
+     * @return Ob die Nachricht Platzhalter enthält
+     */
+    public boolean hasSlots() {
+        return root != null;
+    }
+
+    /**
+     * Ein Knoten im vorbereiteten Baum, der beim Rendern neu erzeugt werden muss
+     */
+    private abstract static class Node {
+        abstract Component render(Arguments arguments);
+    }
+
+    /**
+     * Eine Komponente, unter der Platzhalter liegen
+     */
+    private static class Branch extends Node {
+        private final Component component;
+        private final List<Component> children;
+        private final Node[] nodes;
+
+        private Branch(Component component, List<Component> children, Node[] nodes) {
+            this.component = component;
+            this.children = new ArrayList<>(children);
+            this.nodes = nodes;
+        }
+
+        @Override
+        Component render(Arguments arguments) {
+            Component[] rendered = new Component[nodes.length];
+            for (int i = 0; i < nodes.length; i++) {
+                rendered[i] = nodes[i] != null ? nodes[i].render(arguments) : children.get(i);
+            }
+            return component.children(Arrays.asList(rendered));
+        }
+    }
+
+    /**
+     * Ein Platzhalter
+     */
+    private static class Slot extends Node {
+        private final String name;
+        private final ThreadLocal<DecimalFormat> format;
+        private Component fallback;
+        private Style style = Style.empty();
+
+        private Slot(String name, List<String> args) {
+            this.name = name;
+            StringBuilder tag = new StringBuilder("<").append(name);
+            for (String arg : args) {
+                tag.append(':').append(arg);
+            }
+            this.fallback = Component.text(tag.append('>').toString());
+
+            ThreadLocal<DecimalFormat> format = null;
+            if (!args.isEmpty()) {
+                String pattern = args.get(0);
+                try {
+                    new DecimalFormat(pattern);
+                    format = ThreadLocal.withInitial(() -> new DecimalFormat(pattern));
+                } catch (IllegalArgumentException e) {
+                    // Kein Zahlenformat, Argument wird ignoriert
+                }
+            }
+            this.format = format;
+        }
+
+        /**
+         * Übernimmt den Stil der Platzhalter-Komponente, wird beim Kompilieren aufgerufen
+         */
+        private void applyStyle(Style style) {
+            this.style = style;
+            this.fallback = fallback.style(style);
+        }
+
+        @Override
+        Component render(Arguments arguments) {
+            Object value = arguments.get(name);
+            if (value == null) {
+                return fallback;
+            }
+            Component rendered;
+            if (value instanceof ComponentLike) {
+                rendered = ((ComponentLike) value).asComponent();
+            } else if (value instanceof Number && format != null) {
+                rendered = Component.text(format.get().format(value));
+            } else {
+                rendered = Component.text(value.toString());
+            }
+            if (style.isEmpty()) {
+                return rendered;
+            }
+            return rendered.style(rendered.style().merge(style, Style.Merge.Strategy.IF_ABSENT_ON_TARGET));
+        }
+    }
+
+    /**
+     * Die Werte der Platzhalter für einen Aufruf von {@link #render(Arguments)}.
+     * Kann mit {@link #clear()} wiederverwendet werden und ist nicht threadsicher.
+     */
+    public static class Arguments {
+        private String[] names = new String[4];
+        private Object[] values = new Object[4];
+        private int size;
+
+        /**
+         * Setzt {@code <player>} auf den Namen des Spielers
+         */
+        public Arguments player(Player player) {
+            return set("player", player.getUsername());
+        }
+
+        /**
+         * Setzt {@code <server>} auf den Namen des Servers
+         */
+        public Arguments server(RegisteredServer server) {
+            return set("server", server.getServerInfo().getName());
+        }
+
+        /**
+         * Setzt {@code <server>} auf einen Servernamen
+         */
+        public Arguments server(String server) {
+            return set("server", server);
+        }
+
+        /**
+         * Setzt einen Zahlen-Platzhalter, der über {@code <name:'Muster'>} formatiert werden kann
+         */
+        public Arguments number(String name, long value) {
+            return set(name, value);
+        }
+
+        /**
+         * Setzt einen Zahlen-Platzhalter, der über {@code <name:'Muster'>} formatiert werden kann
+         */
+        public Arguments number(String name, double value) {
+            return set(name, value);
+        }
+
+        /**
+         * Setzt einen Platzhalter auf unformatierten Text (MiniMessage-Tags werden nicht ausgewertet)
+         */
+        public Arguments text(String name, String value) {
+            return set(name, value);
+        }
+
+        /**
+         * Setzt einen Platzhalter auf eine Komponente
+         */
+        public Arguments component(String name, ComponentLike value) {
+            return set(name, value);
+        }
+
+        /**
+         * Entfernt alle Werte
+         */
+        public Arguments clear() {
+            Arrays.fill(values, 0, size, null);
+            size = 0;
+            return this;
+        }
+
+        private Arguments set(String name, Object value) {
+            for (int i = 0; i < size; i++) {
+                if (names[i].equals(name)) {
+                    values[i] = value;
+                    return this;
+                }
+            }
+            if (size == names.length) {
+                names = Arrays.copyOf(names, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            names[size] = name;
+            values[size++] = value;
+            return this;
+        }
+
+        private Object get(String name) {
+            for (int i = 0; i < size; i++) {
+                if (names[i].equals(name)) {
+                    return values[i];
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -3,18 +3,36 @@ package de.pexora.proxy.database;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 import de.pexora.proxy.PexoraProxy;
+import de.pexora.proxy.config.CoreConfig;
+import de.pexora.proxy.module.ModuleResourceTracker;
+import de.pexora.proxy.shutdown.Drainable;
 
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Verwaltet die Datenbankverbindung und -operationen für PexoraProxy.
+ * Schreibvorgänge, auf deren Ergebnis niemand wartet, können über {@link #queueWrite(Runnable)}
+ * in eine Warteschlange gestellt werden, die beim Herunterfahren geleert wird.
  */
-public class DatabaseManager {
+public class DatabaseManager implements Drainable {
 
     private final PexoraProxy proxy;
-    private HikariDataSource dataSource;
+    private volatile CompletableFuture<Boolean> readyFuture = new CompletableFuture<>();
+    private volatile CompletableFuture<Void> nextConnection = new CompletableFuture<>();
+    private final ExecutorService writeExecutor;
+    private final AtomicInteger pendingWrites = new AtomicInteger();
+    private volatile boolean acceptingWrites = true;
+    private volatile HikariDataSource dataSource;
     private String lastHost;
     private String lastDatabase;
     private String lastUser;
@@ -23,26 +41,138 @@ public class DatabaseManager {
     
     public DatabaseManager(PexoraProxy proxy) {
         this.proxy = proxy;
+        this.writeExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Pexora-DB-Writer");
+            thread.setDaemon(true);
+            return thread;
+        });
     }
     
     /**
-     * Stellt eine Verbindung zur Datenbank her
+     * Stellt einen Schreibvorgang in die Warteschlange. Die Vorgänge werden nacheinander
+     * in einem eigenen Thread ausgeführt und beim Herunterfahren noch abgearbeitet.
+     * 
+     * @param write der Schreibvorgang
+     * @return false, wenn keine Schreibvorgänge mehr angenommen werden
+     */
+    public boolean queueWrite(Runnable write) {
+        if (!acceptingWrites) {
+            proxy.getLoggerService().warning("Datenbank-Schreibvorgang verworfen, PexoraProxy wird heruntergefahren.");
+            return false;
+        }
+        
+        pendingWrites.incrementAndGet();
+        try {
+            writeExecutor.execute(() -> {
+                try {
+                    write.run();
+                } catch (Exception e) {
+                    proxy.getLoggerService().error("Fehler bei einem Datenbank-Schreibvorgang: " + e.getMessage());
+                    if (proxy.getCoreConfig().isDebugMode()) {
+                        e.printStackTrace();
+                    }
+                } finally {
+                    pendingWrites.decrementAndGet();
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            pendingWrites.decrementAndGet();
+            return false;
+        }
+    }
+    
+    @Override
+    public void stopIntake() {
+        acceptingWrites = false;
+    }
+    
+    @Override
+    public boolean drain(long timeout, TimeUnit unit) throws InterruptedException {
+        writeExecutor.shutdown();
+        return writeExecutor.awaitTermination(timeout, unit);
+    }
+    
+    @Override
+    public int getPendingCount() {
+        return pendingWrites.get();
+    }
+    
+    /**
+     * Stellt beim Start die Verbindung her, sofern die Datenbank aktiviert ist, und erfüllt
+     * anschließend das Bereitschafts-Future. Wird vom Start in einem eigenen Thread ausgeführt.
+     */
+    public void initialize() {
+        boolean connected = false;
+        try {
+            connected = proxy.getCoreConfig().isDatabaseEnabled() && connect();
+        } finally {
+            readyFuture.complete(connected);
+        }
+    }
+    
+    /**
+     * Liefert ein Future, das nach dem ersten Verbindungsversuch beim Start erfüllt wird.
+     * Der Wert gibt an, ob die Datenbank verfügbar ist. Gelingt die Verbindung erst später
+     * (z.B. nach einem Neuladen der Konfiguration), wird ein bereits erfülltes Future ersetzt.
+     * 
+     * @return das Bereitschafts-Future
+     */
+    public CompletableFuture<Boolean> getReadyFuture() {
+        return readyFuture.copy();
+    }
+    
+    /**
+     * Liefert ein Future, das erfüllt wird, sobald eine Verbindung besteht. Besteht gerade keine,
+     * wird es beim nächsten erfolgreichen {@link #connect()} oder {@link #reconnect()} erfüllt.
+     * 
+     * @return das Verbindungs-Future
+     */
+    public CompletableFuture<Void> getConnectedFuture() {
+        CompletableFuture<Void> next = nextConnection;
+        if (isConnected()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return next.copy();
+    }
+    
+    /**
+     * Meldet eine erfolgreich hergestellte Verbindung an alle Wartenden
+     */
+    private void markConnected() {
+        if (readyFuture.isDone() && !readyFuture.getNow(false)) {
+            readyFuture = CompletableFuture.completedFuture(true);
+        }
+        CompletableFuture<Void> reached = nextConnection;
+        nextConnection = new CompletableFuture<>();
+        reached.complete(null);
+    }
+    
+    /**
+     * Stellt eine Verbindung zur Datenbank her. Läuft bereits ein Verbindungsaufbau,
+     * wird auf dessen Ergebnis gewartet, statt einen zweiten Pool zu erstellen.
      * 
      * @return true, wenn die Verbindung erfolgreich hergestellt wurde
      */
-    public boolean connect() {
-        if (!proxy.getCoreConfig().isDatabaseEnabled()) {
+    public synchronized boolean connect() {
+        // Alle Werte aus einem Stand lesen, damit ein gleichzeitiges Neuladen keine Mischung ergibt
+        CoreConfig.Snapshot settings = proxy.getCoreConfig().getSnapshot();
+        if (!settings.isDatabaseEnabled()) {
             proxy.getLoggerService().warn("Datenbankverbindung ist in der Konfiguration deaktiviert.");
             return false;
         }
         
+        if (isConnected()) {
+            return true;
+        }
+        
         try {
             // Konfigurationsdaten abrufen
-            String host = proxy.getCoreConfig().getDatabaseHost();
-            int port = proxy.getCoreConfig().getDatabasePort();
-            String database = proxy.getCoreConfig().getDatabaseName();
-            String user = proxy.getCoreConfig().getDatabaseUser();
-            String password = proxy.getCoreConfig().getDatabasePassword();
+            String host = settings.getDatabaseHost();
+            int port = settings.getDatabasePort();
+            String database = settings.getDatabaseName();
+            String user = settings.getDatabaseUser();
+            String password = settings.getDatabasePassword();
             
             // Konfigurationswerte speichern für Reconnect-Überprüfung
             lastHost = host;
@@ -59,10 +189,10 @@ public class DatabaseManager {
             config.setPoolName("PexoraPool");
             
             // Verbindungspool-Einstellungen
-            config.setMinimumIdle(proxy.getCoreConfig().getDatabasePoolMinSize());
-            config.setMaximumPoolSize(proxy.getCoreConfig().getDatabasePoolMaxSize());
-            config.setIdleTimeout(proxy.getCoreConfig().getDatabasePoolIdleTimeout());
-            config.setMaxLifetime(proxy.getCoreConfig().getDatabasePoolMaxLifetime());
+            config.setMinimumIdle(settings.getDatabasePoolMinSize());
+            config.setMaximumPoolSize(settings.getDatabasePoolMaxSize());
+            config.setIdleTimeout(settings.getDatabasePoolIdleTimeout());
+            config.setMaxLifetime(settings.getDatabasePoolMaxLifetime());
             
             // Weitere Einstellungen
             config.addDataSourceProperty("cachePrepStmts", "true");
@@ -85,13 +215,15 @@ public class DatabaseManager {
                     proxy.getLoggerService().info("Datenbankverbindung hergestellt zu: " + host + ":" + port + "/" + database);
                     
                     // Wenn automatische Tabellenerstellung aktiviert ist
-                    if (proxy.getCoreConfig().isDatabaseAutoCreateTables()) {
+                    if (settings.isDatabaseAutoCreateTables()) {
                         createTables();
                     }
                     
+                    markConnected();
                     return true;
                 } else {
                     proxy.getLoggerService().error("Datenbankverbindung ungültig!");
+                    closeDataSource();
                     return false;
                 }
             } catch (SQLException e) {
@@ -99,6 +231,7 @@ public class DatabaseManager {
                 if (proxy.getCoreConfig().isDebugMode()) {
                     e.printStackTrace();
                 }
+                closeDataSource();
                 return false;
             }
         } catch (Exception e) {
@@ -106,14 +239,25 @@ public class DatabaseManager {
             if (proxy.getCoreConfig().isDebugMode()) {
                 e.printStackTrace();
             }
+            closeDataSource();
             return false;
         }
     }
     
+    /**
+     * Verwirft einen Pool, dessen Verbindungstest fehlgeschlagen ist
+     */
+    private void closeDataSource() {
+        if (dataSource != null) {
+            dataSource.close();
+            dataSource = null;
+        }
+    }
+    
     /**
      * Trennt die Verbindung zur Datenbank
      */
-    public void disconnect() {
+    public synchronized void disconnect() {
         if (dataSource != null && !dataSource.isClosed()) {
             dataSource.close();
             proxy.getLoggerService().info("Datenbankverbindung getrennt.");
@@ -125,7 +269,7 @@ public class DatabaseManager {
      * 
      * @return true, wenn die Verbindung erfolgreich neu hergestellt wurde
      */
-    public boolean reconnect() {
+    public synchronized boolean reconnect() {
         disconnect();
         return connect();
     }
@@ -136,34 +280,80 @@ public class DatabaseManager {
      * @return true, wenn eine Neuverbindung erforderlich ist
      */
     public boolean needsReconnect() {
-        return !proxy.getCoreConfig().getDatabaseHost().equals(lastHost) ||
-               proxy.getCoreConfig().getDatabasePort() != lastPort ||
-               !proxy.getCoreConfig().getDatabaseName().equals(lastDatabase) ||
-               !proxy.getCoreConfig().getDatabaseUser().equals(lastUser) ||
-               !proxy.getCoreConfig().getDatabasePassword().equals(lastPassword);
+        CoreConfig.Snapshot settings = proxy.getCoreConfig().getSnapshot();
+        return !settings.getDatabaseHost().equals(lastHost) ||
+               settings.getDatabasePort() != lastPort ||
+               !settings.getDatabaseName().equals(lastDatabase) ||
+               !settings.getDatabaseUser().equals(lastUser) ||
+               !settings.getDatabasePassword().equals(lastPassword);
     }
     
     /**
+     * Holt eine Verbindung für das Modul, dessen Code gerade im aktuellen Thread läuft
+     * 
      * @return eine Verbindung aus dem Pool
      * @throws SQLException wenn ein Fehler auftritt
      */
     public Connection getConnection() throws SQLException {
-        if (dataSource == null || dataSource.isClosed()) {
+        return getConnection(proxy.getResourceTracker().getCurrentModule());
+    }
+    
+    /**
+     * Holt eine Verbindung, deren Nutzungsdauer dem angegebenen Modul zugeordnet wird
+     * 
+     * @param moduleName der Name des Moduls
+     * @return eine Verbindung aus dem Pool
+     * @throws SQLException wenn ein Fehler auftritt
+     */
+    public Connection getConnection(String moduleName) throws SQLException {
+        HikariDataSource source = dataSource;
+        if (source == null || source.isClosed()) {
             connect();
+            source = dataSource;
         }
         
-        if (dataSource == null) {
+        if (source == null) {
             throw new SQLException("Keine Datenbankverbindung verfügbar!");
         }
         
-        return dataSource.getConnection();
+        long start = System.nanoTime();
+        return trackConnection(source.getConnection(), moduleName, start);
+    }
+    
+    /**
+     * Verpackt eine Verbindung so, dass die Zeit vom Ausleihen bis zum Schließen
+     * dem Modul zugeordnet wird
+     */
+    private Connection trackConnection(Connection connection, String moduleName, long start) {
+        ModuleResourceTracker tracker = proxy.getResourceTracker();
+        boolean[] closed = new boolean[1];
+        
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (instance, method, args) -> {
+                    if ("close".equals(method.getName()) && method.getParameterCount() == 0) {
+                        synchronized (closed) {
+                            if (!closed[0]) {
+                                closed[0] = true;
+                                tracker.recordDatabaseTime(moduleName, System.nanoTime() - start);
+                            }
+                        }
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
     }
     
     /**
      * @return ob eine Verbindung zur Datenbank besteht
      */
     public boolean isConnected() {
-        return dataSource != null && !dataSource.isClosed();
+        HikariDataSource source = dataSource;
+        return source != null && !source.isClosed();
     }
     
     /**
@@ -0,0 +1,110 @@
+package de.pexora.proxy.messaging;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Ergebnis einer Nachricht, die über {@link MessagingManager#broadcastToServers} an alle
+ * Backend-Server gesendet wurde
+ */
+public class BroadcastReport {
+
+    private final String action;
+    private final int messageBytes;
+    private final long encodeNanos;
+    private final Map<String, Delivery> deliveries = new LinkedHashMap<>();
+
+    BroadcastReport(String action, int messageBytes, long encodeNanos) {
+        this.action = action;
+        this.messageBytes = messageBytes;
+        this.encodeNanos = encodeNanos;
+    }
+
+    void add(String server, Delivery delivery) {
+        deliveries.put(server, delivery);
+    }
+
+    public String getAction() {
+        return action;
+    }
+
+    /**
+     * @return Die Größe der einmal kodierten Nachricht in Bytes
+     */
+    public int getMessageBytes() {
+        return messageBytes;
+    }
+
+    /**
+     * @return Die Dauer der Kodierung in Nanosekunden
+     */
+    public long getEncodeNanos() {
+        return encodeNanos;
+    }
+
+    /**
+     * @return Das Ergebnis pro Servername
+     */
+    public Map<String, Delivery> getDeliveries() {
+        return Collections.unmodifiableMap(deliveries);
+    }
+
+    /**
+     * @return Die Anzahl der Server, an die gesendet bzw. für die eingereiht wurde
+     */
+    public int getDelivered() {
+        return count(Delivery.SENT) + count(Delivery.QUEUED);
+    }
+
+    /**
+     * @return Die Anzahl der Server ohne Spieler, für die die Nachricht zwischengespeichert wurde
+     */
+    public int getStored() {
+        return count(Delivery.OUTBOX);
+    }
+
+    /**
+     * @return Die Anzahl der Server ohne Spieler, über die gesendet werden könnte
+     */
+    public int getUnreachable() {
+        return count(Delivery.NO_CONNECTION);
+    }
+
+    public int getFailed() {
+        return count(Delivery.FAILED);
+    }
+
+    private int count(Delivery delivery) {
+        int count = 0;
+        for (Delivery value : deliveries.values()) {
+            if (value == delivery) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return action + ": " + getDelivered() + "/" + deliveries.size() + " Server erreicht, "
+                + getStored() + " zwischengespeichert, " + getUnreachable() + " ohne Verbindung, "
+                + getFailed() + " fehlgeschlagen";
+    }
+
+    /**
+     * Ergebnis für einen einzelnen Server
+     */
+    public enum Delivery {
+        /** Direkt gesendet */
+        SENT,
+        /** An die Bündelung der Verbindung übergeben */
+        QUEUED,
+        /** Kein Spieler auf dem Server, die Nachricht wartet im Zwischenspeicher */
+        OUTBOX,
+        /** Kein Spieler auf dem Server, die Nachricht wurde nicht gesendet */
+        NO_CONNECTION,
+        /** Senden fehlgeschlagen */
+        FAILED
+    }
+}
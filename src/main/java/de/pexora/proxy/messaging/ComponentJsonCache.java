@@ -0,0 +1,148 @@
+package de.pexora.proxy.messaging;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.serializer.gson.GsonComponentSerializer;
+
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Zwischenspeicher für die JSON-Darstellung von Komponenten.
+ *
+ * Die Komponenten aus der {@code MessageConfig} werden beim Laden vorab serialisiert und
+ * über ihre Identität gefunden, ohne die Komponente zu hashen. Alle anderen Komponenten
+ * landen in einem LRU-Speicher mit fester Größe, der über {@code equals} vergleicht,
+ * damit auch gleich aufgebaute Komponenten (z.B. immer wieder neu erzeugte Statuszeilen)
+ * nur einmal serialisiert werden.
+ */
+public class ComponentJsonCache {
+
+    private final int maxSize;
+    private final Map<Component, String> entries;
+    private volatile Map<Component, String> pinned = new IdentityHashMap<>();
+
+    private final AtomicLong pinnedHits = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param maxSize Die maximale Anzahl zwischengespeicherter Komponenten außerhalb der vorab serialisierten (0 = keine)
+     */
+    public ComponentJsonCache(int maxSize) {
+        this.maxSize = Math.max(0, maxSize);
+        this.entries = new LinkedHashMap<Component, String>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Component, String> eldest) {
+                if (size() > ComponentJsonCache.this.maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Liefert die JSON-Darstellung einer Komponente
+     *
+     * @param component Die Komponente
+     * @return Das JSON
+     */
+    public String serialize(Component component) {
+        String json = pinned.get(component);
+        if (json != null) {
+            pinnedHits.incrementAndGet();
+            return json;
+        }
+        if (maxSize == 0) {
+            misses.incrementAndGet();
+            return GsonComponentSerializer.gson().serialize(component);
+        }
+
+        synchronized (entries) {
+            json = entries.get(component);
+        }
+        if (json != null) {
+            hits.incrementAndGet();
+            return json;
+        }
+
+        misses.incrementAndGet();
+        json = GsonComponentSerializer.gson().serialize(component);
+        synchronized (entries) {
+            entries.put(component, json);
+        }
+        return json;
+    }
+
+    /**
+     * Serialisiert Komponenten vorab und ersetzt die bisher vorab serialisierten
+     *
+     * @param components Die Komponenten, z.B. alle Nachrichten der Konfiguration
+     */
+    public void pin(Collection<Component> components) {
+        Map<Component, String> serialized = new IdentityHashMap<>();
+        for (Component component : components) {
+            serialized.put(component, GsonComponentSerializer.gson().serialize(component));
+        }
+        this.pinned = serialized;
+    }
+
+    /**
+     * Leert den LRU-Speicher (die vorab serialisierten Komponenten bleiben erhalten)
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * @return Die Anzahl der Einträge im LRU-Speicher
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return Die Anzahl vorab serialisierter Komponenten
+     */
+    public int getPinnedCount() {
+        return pinned.size();
+    }
+
+    public long getPinnedHits() {
+        return pinnedHits.get();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * @return Der Anteil der Anfragen, die ohne Serialisierung beantwortet wurden (0 bis 1)
+     */
+    public double getHitRate() {
+        long found = pinnedHits.get() + hits.get();
+        long total = found + misses.get();
+        return total > 0 ? (double) found / total : 0.0;
+    }
+}
@@ -0,0 +1,211 @@
+package de.pexora.proxy.messaging;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * Verwaltet die Nachrichten-Handler des {@link MessagingManager}.
+ *
+ * Jede Aktion erhält bei der ersten Registrierung eine kompakte ID, die beim Codec für
+ * den Empfang hinterlegt wird. Die Handler liegen in einer Tabelle, die über diese ID
+ * indiziert wird. Änderungen erzeugen eine neue Tabelle (Copy-on-Write), dadurch liest
+ * der Netzwerk-Thread ohne Sperre und ohne String-Hashing, solange die Gegenseite IDs sendet.
+ * IDs werden nie wiederverwendet, auch wenn alle Handler einer Aktion entfernt wurden.
+ */
+public class HandlerRegistry {
+
+    public static final int DEFAULT_PRIORITY = 0;
+
+    private static final Registration[] NO_HANDLERS = new Registration[0];
+    private static final Comparator<Registration> ORDER = Comparator.comparingInt(Registration::getPriority);
+
+    private final MessageCodec codec;
+    private final Runnable onActionIdsChanged;
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile Registration[][] table = new Registration[16][];
+    private volatile int version;
+    private int nextId = 1;
+
+    /**
+     * @param codec Der Codec, bei dem die IDs hinterlegt werden
+     * @param onActionIdsChanged Wird aufgerufen, wenn eine neue ID vergeben wurde
+     */
+    public HandlerRegistry(MessageCodec codec, Runnable onActionIdsChanged) {
+        this.codec = codec;
+        this.onActionIdsChanged = onActionIdsChanged;
+    }
+
+    /**
+     * Registriert einen Handler
+     *
+     * @param action Die Aktion
+     * @param priority Die Reihenfolge, kleinere Werte werden zuerst aufgerufen
+     * @param executor Der Executor, auf dem der Handler läuft, oder null für den Netzwerk-Thread
+     * @param handler Der Handler
+     * @return Die Registrierung, über die der Handler wieder entfernt werden kann
+     */
+    public Registration register(String action, int priority, Executor executor, Consumer<MessagingManager.MessageEvent> handler) {
+        Registration registration = new Registration(action, priority, executor, handler);
+        boolean newId;
+        synchronized (this) {
+            Integer id = ids.get(action);
+            newId = id == null;
+            if (newId) {
+                id = assignId(action);
+            }
+
+            Registration[][] current = table;
+            Registration[][] updated = Arrays.copyOf(current, Math.max(current.length, Integer.highestOneBit(id) << 1));
+            Registration[] handlers = updated[id] != null ? updated[id] : NO_HANDLERS;
+            Registration[] sorted = Arrays.copyOf(handlers, handlers.length + 1);
+            sorted[handlers.length] = registration;
+            // Stabil sortiert, bei gleicher Priorität gilt die Reihenfolge der Registrierung
+            Arrays.sort(sorted, ORDER);
+            updated[id] = sorted;
+            registration.actionId = id;
+            table = updated;
+        }
+
+        if (newId) {
+            onActionIdsChanged.run();
+        }
+        return registration;
+    }
+
+    private int assignId(String action) {
+        int id = codec.getActionId(action);
+        if (id == 0) {
+            while (codec.isActionIdAssigned(nextId)) {
+                nextId++;
+            }
+            id = nextId++;
+            codec.registerInboundActionId(action, id);
+        }
+        ids.put(action, id);
+        version++;
+        return id;
+    }
+
+    /**
+     * Entfernt alle Handler einer Aktion
+     *
+     * @param action Die Aktion
+     */
+    public synchronized void unregisterAll(String action) {
+        Integer id = ids.get(action);
+        if (id != null) {
+            replace(id, NO_HANDLERS);
+        }
+    }
+
+    /**
+     * Entfernt alle Handler, die vergebenen IDs bleiben erhalten
+     */
+    public synchronized void clear() {
+        table = new Registration[table.length][];
+    }
+
+    private synchronized void unregister(Registration registration) {
+        Registration[] handlers = table[registration.actionId];
+        if (handlers == null) {
+            return;
+        }
+        int index = Arrays.asList(handlers).indexOf(registration);
+        if (index < 0) {
+            return;
+        }
+        Registration[] remaining = new Registration[handlers.length - 1];
+        System.arraycopy(handlers, 0, remaining, 0, index);
+        System.arraycopy(handlers, index + 1, remaining, index, handlers.length - index - 1);
+        replace(registration.actionId, remaining);
+    }
+
+    private void replace(int id, Registration[] handlers) {
+        Registration[][] updated = table.clone();
+        updated[id] = handlers;
+        table = updated;
+    }
+
+    /**
+     * Sucht die Handler eines empfangenen Frames ohne Sperre
+     *
+     * @param actionId Die übertragene Aktions-ID oder 0
+     * @param action Der Name der Aktion
+     * @return Die Handler in Aufrufreihenfolge, nie null
+     */
+    public Registration[] lookup(int actionId, String action) {
+        Registration[][] current = table;
+        if (actionId <= 0) {
+            Integer id = ids.get(action);
+            if (id == null) {
+                return NO_HANDLERS;
+            }
+            actionId = id;
+        }
+        Registration[] handlers = actionId < current.length ? current[actionId] : null;
+        return handlers != null ? handlers : NO_HANDLERS;
+    }
+
+    /**
+     * @return Die vergebenen IDs pro Aktion
+     */
+    public synchronized Map<String, Integer> getActionIds() {
+        return new LinkedHashMap<>(ids);
+    }
+
+    /**
+     * @return Die Version der ID-Tabelle, wird bei jeder neuen ID erhöht
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Ein registrierter Handler
+     */
+    public class Registration {
+        private final String action;
+        private final int priority;
+        private final Executor executor;
+        private final Consumer<MessagingManager.MessageEvent> handler;
+        private int actionId;
+
+        private Registration(String action, int priority, Executor executor, Consumer<MessagingManager.MessageEvent> handler) {
+            this.action = action;
+            this.priority = priority;
+            this.executor = executor;
+            this.handler = handler;
+        }
+
+        public String getAction() {
+            return action;
+        }
+
+        public int getPriority() {
+            return priority;
+        }
+
+        /**
+         * @return Der Executor des Handlers oder null, wenn er im Netzwerk-Thread läuft
+         */
+        public Executor getExecutor() {
+            return executor;
+        }
+
+        public Consumer<MessagingManager.MessageEvent> getHandler() {
+            return handler;
+        }
+
+        /**
+         * Entfernt diesen Handler
+         */
+        public void unregister() {
+            HandlerRegistry.this.unregister(this);
+        }
+    }
+}
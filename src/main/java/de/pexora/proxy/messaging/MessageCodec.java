@@ -0,0 +1,479 @@
+package de.pexora.proxy.messaging;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.zip.Deflater;
+
+/**
+ * Binäres Nachrichtenformat für den Kanal {@code pexora:proxy}.
+ *
+ * Aufbau eines Frames:
+ * <pre>
+ * [1 Byte]  Header: obere 4 Bit Formatversion, untere 4 Bit Flags
+ * [VarInt]  Aktions-ID (0 = Aktionsname folgt als Zeichenkette)
+ * [String]  Aktionsname, nur bei Aktions-ID 0
+ * [VarLong] Korrelations-ID, nur bei {@link #FLAG_REQUEST} oder {@link #FLAG_RESPONSE}
+ * [1 Byte]  Status ({@code STATUS_*}), nur bei {@link #FLAG_RESPONSE}
+ * [Felder]  Typisierte Felder (Typ-Byte + Wert), siehe {@link MessageWriter}
+ * </pre>
+ *
+ * Ist im Header {@link #FLAG_COMPRESSED} gesetzt, ist alles nach dem Header-Byte komprimiert,
+ * siehe {@link MessageCompressor}. Ist {@link #FLAG_BATCH} gesetzt, folgen statt Aktion und Feldern eine VarInt-Anzahl
+ * und entsprechend viele Frames mit vorangestellter VarInt-Länge.
+ *
+ * Zum Kodieren werden gepoolte {@link MessageWriter} verwendet, damit pro Nachricht nur das
+ * an Velocity übergebene Ergebnis-Array angelegt wird. Dekodiert wird direkt auf dem
+ * empfangenen Array.
+ */
+public class MessageCodec {
+
+    public static final int VERSION = 1;
+
+    /**
+     * Der Frame enthält mehrere gebündelte Frames
+     */
+    public static final int FLAG_BATCH = 0x01;
+
+    /**
+     * Alles nach dem Header-Byte ist mit Deflate komprimiert
+     */
+    public static final int FLAG_COMPRESSED = 0x02;
+
+    /**
+     * Der Frame ist eine Anfrage, auf die eine Antwort mit derselben Korrelations-ID erwartet wird
+     */
+    public static final int FLAG_REQUEST = 0x04;
+
+    /**
+     * Der Frame ist die Antwort auf eine Anfrage
+     */
+    public static final int FLAG_RESPONSE = 0x08;
+
+    public static final int STATUS_OK = 0;
+    public static final int STATUS_ERROR = 1;
+    public static final int STATUS_NO_HANDLER = 2;
+
+    public static final byte TYPE_BOOLEAN = 1;
+    public static final byte TYPE_INT = 2;
+    public static final byte TYPE_LONG = 3;
+    public static final byte TYPE_DOUBLE = 4;
+    public static final byte TYPE_STRING = 5;
+    public static final byte TYPE_BYTES = 6;
+    public static final byte TYPE_UUID = 7;
+
+    /**
+     * Maximale Größe einer Plugin-Nachricht an einen Backend-Server
+     */
+    public static final int MAX_MESSAGE_SIZE = 32767;
+
+    private static final int INITIAL_BUFFER_SIZE = 256;
+    private static final int MAX_POOLED_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_POOLED_WRITERS = 32;
+
+    private final Queue<MessageWriter> pool = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooledWriters = new AtomicInteger();
+    private final Map<String, Integer> actionIds = new ConcurrentHashMap<>();
+    private final Map<Integer, String> actionNames = new ConcurrentHashMap<>();
+    private final MessageCompressor compressor;
+
+    /**
+     * Erstellt einen Codec ohne ausgehende Kompression, komprimierte Nachrichten werden trotzdem gelesen
+     */
+    public MessageCodec() {
+        this(new MessageCompressor(0, Deflater.BEST_SPEED));
+    }
+
+    /**
+     * @param compressor Komprimiert ausgehende und entpackt eingehende Nachrichten
+     */
+    public MessageCodec(MessageCompressor compressor) {
+        this.compressor = compressor;
+    }
+
+    /**
+     * Legt eine feste ID für eine Aktion fest, die statt des Namens übertragen wird.
+     * Beide Seiten des Kanals müssen dieselbe Zuordnung verwenden.
+     *
+     * @param action Die Aktion
+     * @param id Die ID (größer als 0)
+     */
+    public synchronized void registerActionId(String action, int id) {
+        registerInboundActionId(action, id);
+        actionIds.put(action, id);
+    }
+
+    /**
+     * Legt eine ID fest, die nur beim Empfang aufgelöst wird. Ausgehende Nachrichten
+     * verwenden weiterhin den Namen, bis die Gegenseite die Zuordnung kennt.
+     *
+     * @param action Die Aktion
+     * @param id Die ID (größer als 0)
+     * @throws IllegalArgumentException wenn die ID bereits einer anderen Aktion gehört
+     */
+    public synchronized void registerInboundActionId(String action, int id) {
+        if (id <= 0) {
+            throw new IllegalArgumentException("Aktions-IDs müssen größer als 0 sein");
+        }
+        String existing = actionNames.putIfAbsent(id, action);
+        if (existing != null && !existing.equals(action)) {
+            throw new IllegalArgumentException("Aktions-ID " + id + " ist bereits an " + existing + " vergeben");
+        }
+    }
+
+    /**
+     * @param action Die Aktion
+     * @return Die ID, unter der die Aktion empfangen wird, oder 0
+     */
+    public int getActionId(String action) {
+        for (Map.Entry<Integer, String> entry : actionNames.entrySet()) {
+            if (entry.getValue().equals(action)) {
+                return entry.getKey();
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @param id Die ID
+     * @return Ob die ID bereits einer Aktion zugeordnet ist
+     */
+    public boolean isActionIdAssigned(int id) {
+        return actionNames.containsKey(id);
+    }
+
+    /**
+     * Kodiert eine Nachricht
+     *
+     * @param action Die Aktion
+     * @param flags Die Flags des Headers (0-15)
+     * @param body Schreibt die Felder der Nachricht, darf null sein
+     * @return Die kodierte Nachricht
+     */
+    public byte[] encode(String action, int flags, Consumer<MessageWriter> body) {
+        return encode(action, flags & ~(FLAG_REQUEST | FLAG_RESPONSE), 0L, STATUS_OK, body);
+    }
+
+    /**
+     * Kodiert eine Anfrage
+     *
+     * @param action Die Aktion
+     * @param correlationId Die Korrelations-ID, mit der die Antwort zugeordnet wird
+     * @param body Schreibt die Felder der Anfrage, darf null sein
+     * @return Die kodierte Anfrage
+     */
+    public byte[] encodeRequest(String action, long correlationId, Consumer<MessageWriter> body) {
+        return encode(action, FLAG_REQUEST, correlationId, STATUS_OK, body);
+    }
+
+    /**
+     * Kodiert eine Antwort
+     *
+     * @param action Die Aktion der Anfrage
+     * @param correlationId Die Korrelations-ID der Anfrage
+     * @param status Der Status ({@code STATUS_*})
+     * @param body Schreibt die Felder der Antwort, darf null sein
+     * @return Die kodierte Antwort
+     */
+    public byte[] encodeResponse(String action, long correlationId, int status, Consumer<MessageWriter> body) {
+        return encode(action, FLAG_RESPONSE, correlationId, status, body);
+    }
+
+    private byte[] encode(String action, int flags, long correlationId, int status, Consumer<MessageWriter> body) {
+        MessageWriter writer = acquireWriter();
+        try {
+            writer.writeRawByte((VERSION << 4) | (flags & 0x0F));
+            Integer id = actionIds.get(action);
+            if (id != null) {
+                writer.writeRawVarInt(id);
+            } else {
+                writer.writeRawVarInt(0);
+                writer.writeRawString(action);
+            }
+            if ((flags & (FLAG_REQUEST | FLAG_RESPONSE)) != 0) {
+                writer.writeRawVarLong(correlationId);
+            }
+            if ((flags & FLAG_RESPONSE) != 0) {
+                writer.writeRawByte(status);
+            }
+            if (body != null) {
+                body.accept(writer);
+            }
+            if (writer.size() > MAX_MESSAGE_SIZE) {
+                throw new IllegalArgumentException("Nachricht '" + action + "' ist mit " + writer.size()
+                        + " Bytes größer als " + MAX_MESSAGE_SIZE + " Bytes");
+            }
+            return writer.toByteArray();
+        } finally {
+            releaseWriter(writer);
+        }
+    }
+
+    /**
+     * Dekodiert den Kopf einer empfangenen Nachricht, die Felder werden erst beim Lesen dekodiert
+     *
+     * @param data Die empfangenen Daten
+     * @return Der dekodierte Frame
+     * @throws IllegalArgumentException wenn die Nachricht ungültig ist
+     */
+    public Frame decode(byte[] data) {
+        return decode(data, 0, data.length);
+    }
+
+    /**
+     * Dekodiert den Kopf einer Nachricht in einem Ausschnitt des Arrays
+     *
+     * @param data Die Daten
+     * @param offset Der Anfang der Nachricht
+     * @param length Die Länge der Nachricht
+     * @return Der dekodierte Frame
+     * @throws IllegalArgumentException wenn die Nachricht ungültig ist
+     */
+    public Frame decode(byte[] data, int offset, int length) {
+        if (length > 0 && (data[offset] & FLAG_COMPRESSED) != 0) {
+            byte[] inflated = compressor.decompress(data, offset, length);
+            return decode(inflated, 0, inflated.length);
+        }
+
+        MessageReader reader = new MessageReader(data, offset, length);
+        int header = reader.readRawByte();
+        int version = header >>> 4;
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Nicht unterstützte Formatversion: " + version);
+        }
+
+        if ((header & FLAG_BATCH) != 0) {
+            throw new IllegalArgumentException("Gebündelte Nachricht muss mit forEachFrame gelesen werden");
+        }
+
+        int id = reader.readRawVarInt();
+        String action;
+        if (id == 0) {
+            action = reader.readRawString();
+        } else {
+            action = actionNames.get(id);
+            if (action == null) {
+                throw new IllegalArgumentException("Unbekannte Aktions-ID: " + id);
+            }
+        }
+        int flags = header & 0x0F;
+        long correlationId = 0L;
+        int status = STATUS_OK;
+        if ((flags & (FLAG_REQUEST | FLAG_RESPONSE)) != 0) {
+            correlationId = reader.readRawVarLong();
+        }
+        if ((flags & FLAG_RESPONSE) != 0) {
+            status = reader.readRawByte();
+        }
+        return new Frame(flags, id, action, correlationId, status, reader);
+    }
+
+    /**
+     * Ruft den Consumer für jeden Frame einer Nachricht auf.
+     * Einzelne Nachrichten ergeben genau einen Frame, gebündelte Nachrichten werden entpackt,
+     * ohne die Daten zu kopieren.
+     *
+     * @param data Die empfangenen Daten
+     * @param consumer Erhält die dekodierten Frames
+     * @throws IllegalArgumentException wenn die Nachricht ungültig ist
+     */
+    public void forEachFrame(byte[] data, Consumer<Frame> consumer) {
+        if (data.length == 0) {
+            throw new IllegalArgumentException("Leere Nachricht");
+        }
+        if ((data[0] & FLAG_COMPRESSED) != 0) {
+            data = compressor.decompress(data, 0, data.length);
+        }
+        if ((data[0] & FLAG_BATCH) == 0) {
+            consumer.accept(decode(data));
+            return;
+        }
+
+        MessageReader reader = new MessageReader(data, 0, data.length);
+        int version = reader.readRawByte() >>> 4;
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Nicht unterstützte Formatversion: " + version);
+        }
+        int count = reader.readRawVarInt();
+        for (int i = 0; i < count; i++) {
+            int length = reader.readRawVarInt();
+            int offset = reader.position();
+            reader.skipRaw(length);
+            consumer.accept(decode(data, offset, length));
+        }
+    }
+
+    /**
+     * Fasst mehrere kodierte Frames zu einer Nachricht zusammen
+     *
+     * @param frames Die kodierten Frames
+     * @param count Die Anzahl der Frames
+     * @return Die gebündelte Nachricht
+     */
+    public byte[] encodeBatch(byte[][] frames, int count) {
+        if (count == 1) {
+            return frames[0];
+        }
+
+        MessageWriter writer = acquireWriter();
+        try {
+            writer.writeRawByte((VERSION << 4) | FLAG_BATCH);
+            writer.writeRawVarInt(count);
+            for (int i = 0; i < count; i++) {
+                writer.writeRawVarInt(frames[i].length);
+                writer.writeRawBytes(frames[i], 0, frames[i].length);
+            }
+            return writer.toByteArray();
+        } finally {
+            releaseWriter(writer);
+        }
+    }
+
+    /**
+     * Komprimiert eine fertige Nachricht (einzelner Frame oder Bündel) vor dem Senden,
+     * sofern sie die konfigurierte Schwelle erreicht
+     *
+     * @param message Die Nachricht
+     * @return Die komprimierte oder die unveränderte Nachricht
+     */
+    public byte[] compress(byte[] message) {
+        if (message.length < compressor.getThreshold() || compressor.getThreshold() <= 0) {
+            return message;
+        }
+        MessageWriter writer = acquireWriter();
+        try {
+            return compressor.compress(message, writer);
+        } finally {
+            releaseWriter(writer);
+        }
+    }
+
+    /**
+     * @return Der Kompressor des Codecs
+     */
+    public MessageCompressor getCompressor() {
+        return compressor;
+    }
+
+    /**
+     * Berechnet die Größe eines Frames innerhalb einer gebündelten Nachricht
+     *
+     * @param frameLength Die Länge des Frames
+     * @return Die Länge inklusive Längenpräfix
+     */
+    public static int batchedSize(int frameLength) {
+        return varIntSize(frameLength) + frameLength;
+    }
+
+    /**
+     * @param value Der Wert
+     * @return Die Anzahl der Bytes, die der Wert als VarInt belegt
+     */
+    public static int varIntSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    /**
+     * Holt einen Writer aus dem Pool oder erstellt einen neuen
+     *
+     * @return Ein leerer Writer
+     */
+    public MessageWriter acquireWriter() {
+        MessageWriter writer = pool.poll();
+        if (writer == null) {
+            return new MessageWriter(INITIAL_BUFFER_SIZE);
+        }
+        pooledWriters.decrementAndGet();
+        return writer;
+    }
+
+    /**
+     * Gibt einen Writer an den Pool zurück. Zu groß gewordene Puffer werden verworfen.
+     *
+     * @param writer Der Writer
+     */
+    public void releaseWriter(MessageWriter writer) {
+        if (writer.capacity() > MAX_POOLED_BUFFER_SIZE) {
+            return;
+        }
+        if (pooledWriters.incrementAndGet() > MAX_POOLED_WRITERS) {
+            pooledWriters.decrementAndGet();
+            return;
+        }
+        writer.reset();
+        pool.offer(writer);
+    }
+
+    /**
+     * Eine dekodierte Nachricht
+     */
+    public static class Frame {
+        private final int flags;
+        private final int actionId;
+        private final String action;
+        private final long correlationId;
+        private final int status;
+        private final MessageReader payload;
+
+        private Frame(int flags, int actionId, String action, long correlationId, int status, MessageReader payload) {
+            this.flags = flags;
+            this.actionId = actionId;
+            this.action = action;
+            this.correlationId = correlationId;
+            this.status = status;
+            this.payload = payload;
+        }
+
+        public int getFlags() {
+            return flags;
+        }
+
+        /**
+         * @return Die übertragene Aktions-ID oder 0, wenn der Name übertragen wurde
+         */
+        public int getActionId() {
+            return actionId;
+        }
+
+        public String getAction() {
+            return action;
+        }
+
+        public boolean isRequest() {
+            return (flags & FLAG_REQUEST) != 0;
+        }
+
+        public boolean isResponse() {
+            return (flags & FLAG_RESPONSE) != 0;
+        }
+
+        /**
+         * @return Die Korrelations-ID einer Anfrage oder Antwort, sonst 0
+         */
+        public long getCorrelationId() {
+            return correlationId;
+        }
+
+        /**
+         * @return Der Status einer Antwort ({@code STATUS_*})
+         */
+        public int getStatus() {
+            return status;
+        }
+
+        /**
+         * @return Ein Reader, der auf dem ersten Feld steht
+         */
+        public MessageReader getPayload() {
+            return payload;
+        }
+    }
+}
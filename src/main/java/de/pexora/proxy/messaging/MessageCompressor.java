@@ -0,0 +1,235 @@
+package de.pexora.proxy.messaging;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Komprimiert große Nachrichten mit Deflate.
+ *
+ * Eine komprimierte Nachricht behält ihr Header-Byte, zusätzlich ist {@link MessageCodec#FLAG_COMPRESSED}
+ * gesetzt. Danach folgen die unkomprimierte Länge des Rests als VarInt und der komprimierte Rest.
+ * Nachrichten unter der Schwelle oder solche, die nicht kleiner werden, bleiben unverändert.
+ * Deflater und Inflater werden gepoolt, da ihre nativen Puffer teuer anzulegen sind.
+ */
+public class MessageCompressor {
+
+    /**
+     * Obergrenze für entpackte Nachrichten, schützt vor Dekompressionsbomben
+     */
+    public static final int MAX_DECOMPRESSED_SIZE = 2 * 1024 * 1024;
+
+    private static final int MAX_POOLED = 8;
+
+    private final int threshold;
+    private final int level;
+    private final Queue<Deflater> deflaters = new ConcurrentLinkedQueue<>();
+    private final Queue<Inflater> inflaters = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooledDeflaters = new AtomicInteger();
+    private final AtomicInteger pooledInflaters = new AtomicInteger();
+
+    private final AtomicLong compressed = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong bytesIn = new AtomicLong();
+    private final AtomicLong bytesOut = new AtomicLong();
+    private final AtomicLong compressNanos = new AtomicLong();
+    private final AtomicLong decompressed = new AtomicLong();
+    private final AtomicLong decompressNanos = new AtomicLong();
+
+    /**
+     * @param threshold Nachrichten ab dieser Größe in Bytes werden komprimiert (0 = nie)
+     * @param level Die Kompressionsstufe (1-9)
+     */
+    public MessageCompressor(int threshold, int level) {
+        this.threshold = threshold;
+        this.level = Math.max(Deflater.BEST_SPEED, Math.min(Deflater.BEST_COMPRESSION, level));
+    }
+
+    /**
+     * Komprimiert eine kodierte Nachricht, falls sie groß genug ist und dadurch kleiner wird
+     *
+     * @param message Die kodierte Nachricht
+     * @param writer Ein leerer Writer als Puffer
+     * @return Die komprimierte oder die unveränderte Nachricht
+     */
+    byte[] compress(byte[] message, MessageWriter writer) {
+        if (threshold <= 0 || message.length < threshold || (message[0] & MessageCodec.FLAG_COMPRESSED) != 0) {
+            return message;
+        }
+
+        long start = System.nanoTime();
+        Deflater deflater = acquireDeflater();
+        try {
+            writer.writeRawByte(message[0] | MessageCodec.FLAG_COMPRESSED);
+            writer.writeRawVarInt(message.length - 1);
+            deflater.setInput(message, 1, message.length - 1);
+            deflater.finish();
+            writer.writeDeflated(deflater);
+        } finally {
+            releaseDeflater(deflater);
+        }
+        compressNanos.addAndGet(System.nanoTime() - start);
+
+        if (writer.size() >= message.length) {
+            skipped.incrementAndGet();
+            return message;
+        }
+        compressed.incrementAndGet();
+        bytesIn.addAndGet(message.length);
+        bytesOut.addAndGet(writer.size());
+        return writer.toByteArray();
+    }
+
+    /**
+     * Entpackt eine komprimierte Nachricht
+     *
+     * @param data Die Daten
+     * @param offset Der Anfang der Nachricht
+     * @param length Die Länge der Nachricht
+     * @return Die entpackte Nachricht mit gelöschtem Kompressions-Flag
+     * @throws IllegalArgumentException wenn die Nachricht ungültig ist
+     */
+    byte[] decompress(byte[] data, int offset, int length) {
+        long start = System.nanoTime();
+        MessageReader reader = new MessageReader(data, offset, length);
+        int header = reader.readRawByte();
+        int size = reader.readRawVarInt();
+        if (size < 0 || size > MAX_DECOMPRESSED_SIZE) {
+            throw new IllegalArgumentException("Ungültige entpackte Größe: " + size);
+        }
+
+        byte[] result = new byte[size + 1];
+        result[0] = (byte) (header & ~MessageCodec.FLAG_COMPRESSED);
+        Inflater inflater = acquireInflater();
+        try {
+            inflater.setInput(data, reader.position(), offset + length - reader.position());
+            int read = 0;
+            while (read < size && !inflater.finished()) {
+                int n = inflater.inflate(result, 1 + read, size - read);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                read += n;
+            }
+            if (read != size || !inflater.finished()) {
+                throw new IllegalArgumentException("Komprimierte Nachricht ist unvollständig oder zu lang");
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Komprimierte Nachricht ist beschädigt: " + e.getMessage());
+        } finally {
+            releaseInflater(inflater);
+        }
+
+        decompressed.incrementAndGet();
+        decompressNanos.addAndGet(System.nanoTime() - start);
+        return result;
+    }
+
+    private Deflater acquireDeflater() {
+        Deflater deflater = deflaters.poll();
+        if (deflater == null) {
+            return new Deflater(level);
+        }
+        pooledDeflaters.decrementAndGet();
+        return deflater;
+    }
+
+    private void releaseDeflater(Deflater deflater) {
+        if (pooledDeflaters.incrementAndGet() > MAX_POOLED) {
+            pooledDeflaters.decrementAndGet();
+            deflater.end();
+            return;
+        }
+        deflater.reset();
+        deflaters.offer(deflater);
+    }
+
+    private Inflater acquireInflater() {
+        Inflater inflater = inflaters.poll();
+        if (inflater == null) {
+            return new Inflater();
+        }
+        pooledInflaters.decrementAndGet();
+        return inflater;
+    }
+
+    private void releaseInflater(Inflater inflater) {
+        if (pooledInflaters.incrementAndGet() > MAX_POOLED) {
+            pooledInflaters.decrementAndGet();
+            inflater.end();
+            return;
+        }
+        inflater.reset();
+        inflaters.offer(inflater);
+    }
+
+    /**
+     * Gibt die nativen Puffer der gepoolten Deflater und Inflater frei
+     */
+    public void close() {
+        Deflater deflater;
+        while ((deflater = deflaters.poll()) != null) {
+            deflater.end();
+        }
+        Inflater inflater;
+        while ((inflater = inflaters.poll()) != null) {
+            inflater.end();
+        }
+        pooledDeflaters.set(0);
+        pooledInflaters.set(0);
+    }
+
+    /**
+     * @return Die Schwelle in Bytes, ab der komprimiert wird (0 = nie)
+     */
+    public int getThreshold() {
+        return threshold;
+    }
+
+    public long getCompressed() {
+        return compressed.get();
+    }
+
+    /**
+     * @return Die Anzahl der Nachrichten über der Schwelle, die komprimiert nicht kleiner wurden
+     */
+    public long getSkipped() {
+        return skipped.get();
+    }
+
+    public long getDecompressed() {
+        return decompressed.get();
+    }
+
+    /**
+     * @return Die Größe der komprimierten Nachrichten vor der Kompression
+     */
+    public long getBytesIn() {
+        return bytesIn.get();
+    }
+
+    /**
+     * @return Die Größe der komprimierten Nachrichten nach der Kompression
+     */
+    public long getBytesOut() {
+        return bytesOut.get();
+    }
+
+    /**
+     * @return Die gesamte Rechenzeit für Kompressionsversuche in Nanosekunden
+     */
+    public long getCompressNanos() {
+        return compressNanos.get();
+    }
+
+    /**
+     * @return Die gesamte Rechenzeit für das Entpacken in Nanosekunden
+     */
+    public long getDecompressNanos() {
+        return decompressNanos.get();
+    }
+}
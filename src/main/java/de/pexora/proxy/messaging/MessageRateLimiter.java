@@ -0,0 +1,266 @@
+package de.pexora.proxy.messaging;
+
+import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.scheduler.ScheduledTask;
+import de.pexora.proxy.PexoraProxy;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Begrenzt ausgehende Nachrichten pro Spieler und optional pro Aktion mit Token-Buckets.
+ *
+ * Jeder Spieler erhält alle {@code throttle-ms} ein Token, bis zu {@code rate-limit-burst} Tokens.
+ * Für Aktionen mit eigenem Intervall ({@code [messaging.action-throttle-ms]}) gilt zusätzlich ein
+ * eigener Bucket. Nachrichten über dem Limit werden nicht verworfen, sondern pro Spieler in
+ * Reihenfolge eingereiht und gesendet, sobald wieder Tokens verfügbar sind. Für Aktionen unter
+ * {@code coalesce-actions} ersetzt eine neue Nachricht eine noch wartende derselben Aktion.
+ * Erst wenn die Warteschlange voll ist, wird die älteste Nachricht verworfen und gezählt.
+ * Der Zustand eines Spielers wird beim Verlassen des Proxys entfernt.
+ */
+public class MessageRateLimiter {
+
+    private final long intervalNanos;
+    private final int burst;
+    private final int maxQueueSize;
+    private final Map<String, Long> actionIntervalNanos;
+    private final Set<String> coalesceActions;
+    private final Map<UUID, PlayerState> players = new ConcurrentHashMap<>();
+    private final ScheduledTask releaseTask;
+
+    private final AtomicLong allowed = new AtomicLong();
+    private final AtomicLong queued = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * Erstellt einen neuen Rate-Limiter und startet die Freigabe eingereihter Nachrichten
+     *
+     * @param plugin Die Plugin-Instanz
+     * @param intervalMillis Das Intervall, in dem ein Spieler ein Token erhält
+     * @param burst Die maximale Anzahl angesparter Tokens
+     * @param maxQueueSize Die maximale Anzahl eingereihter Nachrichten pro Spieler
+     * @param actionIntervalMillis Eigene Intervalle für einzelne Aktionen
+     * @param coalesceActions Aktionen, bei denen nur die neueste wartende Nachricht gesendet wird
+     */
+    public MessageRateLimiter(PexoraProxy plugin, long intervalMillis, int burst, int maxQueueSize,
+                              Map<String, Long> actionIntervalMillis, Set<String> coalesceActions) {
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        this.burst = Math.max(1, burst);
+        this.maxQueueSize = Math.max(1, maxQueueSize);
+        this.actionIntervalNanos = new HashMap<>();
+        for (Map.Entry<String, Long> entry : actionIntervalMillis.entrySet()) {
+            this.actionIntervalNanos.put(entry.getKey(), TimeUnit.MILLISECONDS.toNanos(entry.getValue()));
+        }
+        this.coalesceActions = coalesceActions;
+        this.releaseTask = plugin.getServer().getScheduler()
+                .buildTask(plugin, this::releaseQueued)
+                .repeat(Math.max(10L, intervalMillis), TimeUnit.MILLISECONDS)
+                .schedule();
+    }
+
+    /**
+     * Sendet eine Nachricht sofort, wenn das Limit es erlaubt, sonst wird sie eingereiht
+     *
+     * @param player Der Spieler
+     * @param action Die Aktion
+     * @param send Sendet die Nachricht
+     */
+    public void submit(Player player, String action, Runnable send) {
+        PlayerState state = players.computeIfAbsent(player.getUniqueId(), uuid -> new PlayerState());
+        boolean sendNow;
+        synchronized (state) {
+            // Solange Nachrichten warten, müssen neue dahinter, damit die Reihenfolge erhalten bleibt
+            sendNow = state.queue.isEmpty() && state.tryAcquire(action, System.nanoTime());
+            if (!sendNow) {
+                enqueue(state, action, send);
+            }
+        }
+
+        if (sendNow) {
+            allowed.incrementAndGet();
+            send.run();
+        }
+    }
+
+    private void enqueue(PlayerState state, String action, Runnable send) {
+        if (coalesceActions.contains(action)) {
+            for (Pending pending : state.queue) {
+                if (pending.action.equals(action)) {
+                    pending.send = send;
+                    coalesced.incrementAndGet();
+                    return;
+                }
+            }
+        }
+
+        if (state.queue.size() >= maxQueueSize) {
+            state.queue.pollFirst();
+            dropped.incrementAndGet();
+        }
+        state.queue.addLast(new Pending(action, send));
+        queued.incrementAndGet();
+    }
+
+    /**
+     * Sendet eingereihte Nachrichten, für die wieder Tokens verfügbar sind
+     */
+    private void releaseQueued() {
+        long now = System.nanoTime();
+        for (PlayerState state : players.values()) {
+            List<Runnable> ready = Collections.emptyList();
+            synchronized (state) {
+                Iterator<Pending> iterator = state.queue.iterator();
+                while (iterator.hasNext()) {
+                    Pending pending = iterator.next();
+                    if (!state.tryAcquire(pending.action, now)) {
+                        break;
+                    }
+                    iterator.remove();
+                    if (ready.isEmpty()) {
+                        ready = new ArrayList<>();
+                    }
+                    ready.add(pending.send);
+                }
+            }
+
+            for (Runnable send : ready) {
+                allowed.incrementAndGet();
+                send.run();
+            }
+        }
+    }
+
+    /**
+     * Entfernt den Zustand eines Spielers, z.B. wenn er den Proxy verlässt
+     *
+     * @param uuid Die UUID des Spielers
+     */
+    public void evict(UUID uuid) {
+        PlayerState state = players.remove(uuid);
+        if (state != null) {
+            synchronized (state) {
+                dropped.addAndGet(state.queue.size());
+                state.queue.clear();
+            }
+        }
+    }
+
+    /**
+     * Stoppt die Freigabe und verwirft alle Zustände
+     */
+    public void shutdown() {
+        releaseTask.cancel();
+        players.clear();
+    }
+
+    /**
+     * @return Die Anzahl der gerade eingereihten Nachrichten
+     */
+    public int getQueuedCount() {
+        int count = 0;
+        for (PlayerState state : players.values()) {
+            synchronized (state) {
+                count += state.queue.size();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return Die Anzahl der Spieler mit Limiter-Zustand
+     */
+    public int getTrackedPlayers() {
+        return players.size();
+    }
+
+    public long getAllowed() {
+        return allowed.get();
+    }
+
+    public long getQueued() {
+        return queued.get();
+    }
+
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Ein Token-Bucket mit fester Auffüllrate
+     */
+    private class Bucket {
+        private final long refillNanos;
+        private double tokens = burst;
+        private long lastRefill = System.nanoTime();
+
+        private Bucket(long refillNanos) {
+            this.refillNanos = refillNanos;
+        }
+
+        private void refill(long now) {
+            if (refillNanos <= 0) {
+                tokens = burst;
+                return;
+            }
+            tokens = Math.min(burst, tokens + (double) (now - lastRefill) / refillNanos);
+            lastRefill = now;
+        }
+    }
+
+    /**
+     * Buckets und Warteschlange eines Spielers
+     */
+    private class PlayerState {
+        private final Bucket playerBucket = new Bucket(intervalNanos);
+        private final Map<String, Bucket> actionBuckets = new HashMap<>();
+        private final ArrayDeque<Pending> queue = new ArrayDeque<>();
+
+        private boolean tryAcquire(String action, long now) {
+            playerBucket.refill(now);
+            if (playerBucket.tokens < 1) {
+                return false;
+            }
+
+            Long actionInterval = actionIntervalNanos.get(action);
+            if (actionInterval != null) {
+                Bucket actionBucket = actionBuckets.computeIfAbsent(action, key -> new Bucket(actionInterval));
+                actionBucket.refill(now);
+                if (actionBucket.tokens < 1) {
+                    return false;
+                }
+                actionBucket.tokens--;
+            }
+
+            playerBucket.tokens--;
+            return true;
+        }
+    }
+
+    /**
+     * Eine eingereihte Nachricht
+     */
+    private static class Pending {
+        private final String action;
+        private Runnable send;
+
+        private Pending(String action, Runnable send) {
+            this.action = action;
+            this.send = send;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package de.pexora.proxy.messaging;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Liest typisierte Felder direkt aus dem empfangenen Byte-Array, ohne es zu kopieren.
+ *
+ * Byte-Felder werden als schreibgeschützte {@link ByteBuffer}-Sicht auf das Original
+ * zurückgegeben, nur Zeichenketten werden beim Lesen dekodiert.
+ * Passt ein Feld nicht zum erwarteten Typ oder ist die Nachricht abgeschnitten,
+ * wird eine {@link IllegalArgumentException} geworfen.
+ */
+public class MessageReader {
+
+    private final byte[] data;
+    private final int limit;
+    private int position;
+
+    /**
+     * Erstellt einen Reader für einen Ausschnitt eines Byte-Arrays
+     *
+     * @param data Die Daten
+     * @param offset Der Anfang des Ausschnitts
+     * @param length Die Länge des Ausschnitts
+     */
+    public MessageReader(byte[] data, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > data.length) {
+            throw new IllegalArgumentException("Ungültiger Ausschnitt: " + offset + "+" + length + " von " + data.length);
+        }
+        this.data = data;
+        this.position = offset;
+        this.limit = offset + length;
+    }
+
+    /**
+     * @return Ob noch weitere Felder vorhanden sind
+     */
+    public boolean hasRemaining() {
+        return position < limit;
+    }
+
+    /**
+     * @return Die Anzahl der noch nicht gelesenen Bytes
+     */
+    public int remaining() {
+        return limit - position;
+    }
+
+    /**
+     * @return Der Typ des nächsten Feldes ({@code MessageCodec.TYPE_*}) oder -1 am Ende
+     */
+    public int peekType() {
+        return position < limit ? data[position] : -1;
+    }
+
+    public boolean readBoolean() {
+        expectType(MessageCodec.TYPE_BOOLEAN);
+        return readRawByte() != 0;
+    }
+
+    public int readInt() {
+        expectType(MessageCodec.TYPE_INT);
+        int value = readRawVarInt();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    public long readLong() {
+        expectType(MessageCodec.TYPE_LONG);
+        long value = readRawVarLong();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    public double readDouble() {
+        expectType(MessageCodec.TYPE_DOUBLE);
+        return Double.longBitsToDouble(readRawLong());
+    }
+
+    public String readString() {
+        expectType(MessageCodec.TYPE_STRING);
+        return readRawString();
+    }
+
+    public UUID readUuid() {
+        expectType(MessageCodec.TYPE_UUID);
+        return new UUID(readRawLong(), readRawLong());
+    }
+
+    /**
+     * Liest ein Byte-Feld als Sicht auf die empfangenen Daten
+     *
+     * @return Ein schreibgeschützter Puffer ohne Kopie
+     */
+    public ByteBuffer readBytes() {
+        expectType(MessageCodec.TYPE_BYTES);
+        int length = readRawVarInt();
+        checkAvailable(length);
+        ByteBuffer view = ByteBuffer.wrap(data, position, length).slice().asReadOnlyBuffer();
+        position += length;
+        return view;
+    }
+
+    /**
+     * Überspringt das nächste Feld
+     */
+    public void skip() {
+        int type = readRawByte();
+        switch (type) {
+            case MessageCodec.TYPE_BOOLEAN:
+                readRawByte();
+                break;
+            case MessageCodec.TYPE_INT:
+                readRawVarInt();
+                break;
+            case MessageCodec.TYPE_LONG:
+                readRawVarLong();
+                break;
+            case MessageCodec.TYPE_DOUBLE:
+                skipRaw(8);
+                break;
+            case MessageCodec.TYPE_UUID:
+                skipRaw(16);
+                break;
+            case MessageCodec.TYPE_STRING:
+            case MessageCodec.TYPE_BYTES:
+                skipRaw(readRawVarInt());
+                break;
+            default:
+                throw new IllegalArgumentException("Unbekannter Feldtyp: " + type);
+        }
+    }
+
+    /**
+     * @return Ein unabhängiger Reader ab der aktuellen Position (teilt sich die Daten)
+     */
+    public MessageReader copy() {
+        return new MessageReader(data, position, limit - position);
+    }
+
+    int readRawByte() {
+        checkAvailable(1);
+        return data[position++] & 0xFF;
+    }
+
+    int readRawVarInt() {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = readRawByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("VarInt ist zu lang");
+    }
+
+    long readRawVarLong() {
+        long value = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            int b = readRawByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("VarLong ist zu lang");
+    }
+
+    long readRawLong() {
+        checkAvailable(8);
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (data[position++] & 0xFF);
+        }
+        return value;
+    }
+
+    String readRawString() {
+        int length = readRawVarInt();
+        checkAvailable(length);
+        String value = new String(data, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return value;
+    }
+
+    void skipRaw(int length) {
+        checkAvailable(length);
+        position += length;
+    }
+
+    /**
+     * @return Die aktuelle Leseposition im zugrunde liegenden Array
+     */
+    int position() {
+        return position;
+    }
+
+    /**
+     * @return Das zugrunde liegende Array
+     */
+    byte[] array() {
+        return data;
+    }
+
+    private void expectType(int expected) {
+        int type = readRawByte();
+        if (type != expected) {
+            throw new IllegalArgumentException("Feldtyp " + expected + " erwartet, aber " + type + " gelesen");
+        }
+    }
+
+    private void checkAvailable(int length) {
+        if (length < 0 || position + length > limit) {
+            throw new IllegalArgumentException("Nachricht ist abgeschnitten");
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package de.pexora.proxy.messaging;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.zip.Deflater;
+
+/**
+ * Schreibt typisierte Felder in einen wiederverwendbaren Puffer.
+ *
+ * Jedes Feld beginnt mit einem Typ-Byte ({@code MessageCodec.TYPE_*}), gefolgt vom Wert.
+ * Ganzzahlen werden als ZigZag-VarInt bzw. -VarLong, Zeichenketten als VarInt-Länge plus UTF-8 kodiert.
+ * Instanzen werden vom {@link MessageCodec} gepoolt und sind nicht threadsicher.
+ */
+public class MessageWriter {
+
+    private byte[] buffer;
+    private int position;
+
+    /**
+     * Erstellt einen neuen Writer
+     *
+     * @param initialCapacity Die Anfangsgröße des Puffers
+     */
+    public MessageWriter(int initialCapacity) {
+        this.buffer = new byte[initialCapacity];
+    }
+
+    /**
+     * Schreibt einen Wahrheitswert
+     *
+     * @param value Der Wert
+     * @return Dieser Writer
+     */
+    public MessageWriter writeBoolean(boolean value) {
+        ensureCapacity(2);
+        buffer[position++] = MessageCodec.TYPE_BOOLEAN;
+        buffer[position++] = (byte) (value ? 1 : 0);
+        return this;
+    }
+
+    /**
+     * Schreibt eine Ganzzahl
+     *
+     * @param value Der Wert
+     * @return Dieser Writer
+     */
+    public MessageWriter writeInt(int value) {
+        writeRawByte(MessageCodec.TYPE_INT);
+        writeRawVarInt((value << 1) ^ (value >> 31));
+        return this;
+    }
+
+    /**
+     * Schreibt eine lange Ganzzahl
+     *
+     * @param value Der Wert
+     * @return Dieser Writer
+     */
+    public MessageWriter writeLong(long value) {
+        writeRawByte(MessageCodec.TYPE_LONG);
+        writeRawVarLong((value << 1) ^ (value >> 63));
+        return this;
+    }
+
+    /**
+     * Schreibt eine Gleitkommazahl
+     *
+     * @param value Der Wert
+     * @return Dieser Writer
+     */
+    public MessageWriter writeDouble(double value) {
+        writeRawByte(MessageCodec.TYPE_DOUBLE);
+        writeRawLong(Double.doubleToRawLongBits(value));
+        return this;
+    }
+
+    /**
+     * Schreibt eine Zeichenkette
+     *
+     * @param value Der Wert (nicht null)
+     * @return Dieser Writer
+     */
+    public MessageWriter writeString(String value) {
+        writeRawByte(MessageCodec.TYPE_STRING);
+        writeRawString(value);
+        return this;
+    }
+
+    /**
+     * Schreibt eine UUID
+     *
+     * @param value Der Wert
+     * @return Dieser Writer
+     */
+    public MessageWriter writeUuid(UUID value) {
+        writeRawByte(MessageCodec.TYPE_UUID);
+        writeRawLong(value.getMostSignificantBits());
+        writeRawLong(value.getLeastSignificantBits());
+        return this;
+    }
+
+    /**
+     * Schreibt ein Byte-Array
+     *
+     * @param value Die Bytes
+     * @param offset Der Anfang im Array
+     * @param length Die Anzahl der Bytes
+     * @return Dieser Writer
+     */
+    public MessageWriter writeBytes(byte[] value, int offset, int length) {
+        writeRawByte(MessageCodec.TYPE_BYTES);
+        writeRawVarInt(length);
+        writeRawBytes(value, offset, length);
+        return this;
+    }
+
+    /**
+     * Schreibt ein Byte-Array
+     *
+     * @param value Die Bytes
+     * @return Dieser Writer
+     */
+    public MessageWriter writeBytes(byte[] value) {
+        return writeBytes(value, 0, value.length);
+    }
+
+    void writeRawByte(int value) {
+        ensureCapacity(1);
+        buffer[position++] = (byte) value;
+    }
+
+    void writeRawVarInt(int value) {
+        ensureCapacity(5);
+        while ((value & ~0x7F) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    void writeRawVarLong(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    void writeRawLong(long value) {
+        ensureCapacity(8);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            buffer[position++] = (byte) (value >>> shift);
+        }
+    }
+
+    void writeRawBytes(byte[] value, int offset, int length) {
+        ensureCapacity(length);
+        System.arraycopy(value, offset, buffer, position, length);
+        position += length;
+    }
+
+    /**
+     * Kodiert eine Zeichenkette direkt als UTF-8 in den Puffer, ohne ein Zwischen-Array anzulegen
+     */
+    void writeRawString(String value) {
+        int length = value.length();
+        int utf8Length = 0;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                utf8Length++;
+            } else if (c < 0x800) {
+                utf8Length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                utf8Length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                utf8Length++;
+            } else {
+                utf8Length += 3;
+            }
+        }
+
+        writeRawVarInt(utf8Length);
+        ensureCapacity(utf8Length);
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                buffer[position++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[position++] = (byte) (0xC0 | (c >> 6));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // Einzelne Surrogate werden wie von String.getBytes als '?' kodiert
+                buffer[position++] = (byte) '?';
+            } else {
+                buffer[position++] = (byte) (0xE0 | (c >> 12));
+                buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    /**
+     * Schreibt die Ausgabe eines Deflaters, dessen Eingabe bereits vollständig gesetzt ist
+     */
+    void writeDeflated(Deflater deflater) {
+        while (!deflater.finished()) {
+            ensureCapacity(256);
+            position += deflater.deflate(buffer, position, buffer.length - position);
+        }
+    }
+
+    private void ensureCapacity(int additional) {
+        int required = position + additional;
+        if (required > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(required, buffer.length * 2));
+        }
+    }
+
+    /**
+     * @return Die Anzahl der geschriebenen Bytes
+     */
+    public int size() {
+        return position;
+    }
+
+    /**
+     * @return Der interne Puffer (gültig bis zur Position {@link #size()})
+     */
+    byte[] buffer() {
+        return buffer;
+    }
+
+    /**
+     * @return Eine Kopie der geschriebenen Bytes
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, position);
+    }
+
+    /**
+     * Setzt den Writer zur Wiederverwendung zurück
+     */
+    void reset() {
+        position = 0;
+    }
+
+    /**
+     * @return Die aktuelle Kapazität des Puffers
+     */
+    int capacity() {
+        return buffer.length;
+    }
+}
@@ -1,26 +1,58 @@
 package de.pexora.proxy.messaging;
 
+import com.velocitypowered.api.event.Subscribe;
+import com.velocitypowered.api.event.connection.DisconnectEvent;
+import com.velocitypowered.api.event.connection.PluginMessageEvent;
+import com.velocitypowered.api.event.player.ServerPostConnectEvent;
 import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.proxy.ServerConnection;
 import com.velocitypowered.api.proxy.messages.ChannelIdentifier;
 import com.velocitypowered.api.proxy.messages.MinecraftChannelIdentifier;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
 import de.pexora.proxy.PexoraProxy;
 import net.kyori.adventure.text.Component;
 
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
- * Verwaltet das Messaging zwischen Proxy und Server
+ * Verwaltet das Messaging zwischen Proxy und Server.
+ * Nachrichten werden im Binärformat des {@link MessageCodec} über die Verbindung
+ * eines Spielers zu seinem Backend-Server gesendet und empfangen.
+ * Anfragen an einen Server ({@link #request}) werden über Korrelations-IDs ihren
+ * Antworten zugeordnet.
  */
 public class MessagingManager {
 
+    /**
+     * Aktion, mit der Backend-Server die Aktions-IDs des Proxys abfragen bzw. über neue IDs informiert werden
+     */
+    public static final String ACTION_IDS = "pexora:action-ids";
+
+    /**
+     * Verzögerung, mit der neue Aktions-IDs gesammelt an die Server gemeldet werden
+     */
+    private static final long ACTION_ID_ANNOUNCE_DELAY_MS = 1000L;
+
     private final PexoraProxy plugin;
     private final ChannelIdentifier channel;
-    private final Map<UUID, Long> lastMessageTime = new ConcurrentHashMap<>();
-    private final Map<String, Consumer<MessageEvent>> handlers = new HashMap<>();
+    private final MessageCodec codec;
+    private final OutboundBatcher batcher;
+    private final MessageRateLimiter rateLimiter;
+    private final RequestTracker requestTracker;
+    private final ServerOutbox outbox;
+    private final HandlerRegistry handlers;
+    private final ComponentJsonCache componentCache;
+    private final AtomicBoolean actionIdAnnouncementPending = new AtomicBoolean();
+    private volatile boolean acceptingMessages = true;
 
     /**
      * Erstellt einen neuen Messaging-Manager
@@ -30,8 +62,43 @@ public class MessagingManager {
     public MessagingManager(PexoraProxy plugin) {
         this.plugin = plugin;
         this.channel = MinecraftChannelIdentifier.from("pexora:proxy");
+        this.codec = new MessageCodec(new MessageCompressor(plugin.getCoreConfig().getMessagingCompressionThreshold(),
+                plugin.getCoreConfig().getMessagingCompressionLevel()));
+        this.handlers = new HandlerRegistry(codec, this::scheduleActionIdAnnouncement);
+        
+        long batchInterval = plugin.getCoreConfig().getMessagingBatchIntervalMillis();
+        this.batcher = batchInterval > 0
+                ? new OutboundBatcher(plugin, codec, channel, batchInterval, plugin.getCoreConfig().getMessagingBatchMaxBytes(),
+                        this::findConnection, this::redirectToOutbox)
+                : null;
+        
+        long throttle = plugin.getCoreConfig().getMessagingThrottleMillis();
+        this.rateLimiter = throttle > 0
+                ? new MessageRateLimiter(plugin, throttle, plugin.getCoreConfig().getMessagingRateLimitBurst(),
+                        plugin.getCoreConfig().getMessagingRateLimitQueueSize(),
+                        plugin.getCoreConfig().getMessagingActionThrottleMillis(),
+                        plugin.getCoreConfig().getMessagingCoalesceActions())
+                : null;
+        
+        int outboxSize = plugin.getCoreConfig().getMessagingOutboxMaxSize();
+        this.outbox = outboxSize > 0
+                ? new ServerOutbox(plugin, outboxSize, plugin.getCoreConfig().getMessagingOutboxTtlMillis(),
+                        plugin.getCoreConfig().isMessagingOutboxPersistent() ? plugin.getDataDirectory().resolve("outbox.dat") : null)
+                : null;
+        
+        this.requestTracker = new RequestTracker(plugin, plugin.getCoreConfig().getMessagingRpcMaxInFlight(),
+                plugin.getCoreConfig().getMessagingRpcTimerTickMillis());
+        
+        // Nachrichten der Konfiguration vorab serialisieren, beim Neuladen ersetzt MessageConfig sie
+        this.componentCache = new ComponentJsonCache(plugin.getCoreConfig().getMessagingComponentCacheSize());
+        if (plugin.getMessageConfig() != null) {
+            this.componentCache.pin(plugin.getMessageConfig().getPrecompiledComponents());
+        }
         
         registerChannel();
+        
+        // Backend-Server fragen die Zuordnung beim Start ab und senden danach IDs statt Namen
+        registerHandler(ACTION_IDS, event -> event.respond(this::writeActionIds));
     }
 
     /**
@@ -50,7 +117,136 @@ public class MessagingManager {
      * Listener für Plugin-Nachrichten
      */
     private class PluginMessageListener {
-        // Hier können @Subscribe-annotierte Methoden für PluginMessageEvent hinzugefügt werden
+
+        @Subscribe
+        public void onPluginMessage(PluginMessageEvent event) {
+            if (!channel.equals(event.getIdentifier())) {
+                return;
+            }
+            
+            // Nachrichten auf diesem Kanal werden nie weitergeleitet
+            event.setResult(PluginMessageEvent.ForwardResult.handled());
+            
+            // Nur Backend-Server dürfen den Kanal verwenden, nicht die Clients
+            if (!(event.getSource() instanceof ServerConnection) || !acceptingMessages) {
+                return;
+            }
+            
+            handleIncoming((ServerConnection) event.getSource(), event.getData());
+        }
+
+        @Subscribe
+        public void onServerPostConnect(ServerPostConnectEvent event) {
+            if (outbox != null) {
+                event.getPlayer().getCurrentServer().ifPresent(MessagingManager.this::flushOutbox);
+            }
+        }
+
+        @Subscribe
+        public void onDisconnect(DisconnectEvent event) {
+            if (rateLimiter != null) {
+                rateLimiter.evict(event.getPlayer().getUniqueId());
+            }
+        }
+    }
+
+    /**
+     * Dekodiert eine empfangene Nachricht und ruft den passenden Handler auf
+     *
+     * @param connection Die Server-Verbindung, über die die Nachricht kam
+     * @param data Die empfangenen Daten
+     */
+    private void handleIncoming(ServerConnection connection, byte[] data) {
+        try {
+            codec.forEachFrame(data, frame -> dispatch(connection, frame));
+        } catch (IllegalArgumentException e) {
+            plugin.getLoggerService().warning("Ungültige Nachricht über " + connection.getPlayer().getUsername() + " empfangen: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Ruft den Handler für einen einzelnen Frame auf oder ordnet eine Antwort ihrer Anfrage zu
+     */
+    private void dispatch(ServerConnection connection, MessageCodec.Frame frame) {
+        if (frame.isResponse()) {
+            if (!requestTracker.complete(connection.getServer(), frame)) {
+                plugin.getLoggerService().debug("Antwort ohne offene Anfrage: " + frame.getAction() + " #" + frame.getCorrelationId());
+            }
+            return;
+        }
+        
+        MessageEvent event = new MessageEvent(connection, frame);
+        HandlerRegistry.Registration[] registrations = handlers.lookup(frame.getActionId(), frame.getAction());
+        if (registrations.length == 0) {
+            plugin.getLoggerService().debug("Kein Handler für Aktion " + frame.getAction());
+            if (event.isRequest()) {
+                event.respond(MessageCodec.STATUS_NO_HANDLER, null);
+            }
+            return;
+        }
+        
+        for (HandlerRegistry.Registration registration : registrations) {
+            Executor executor = registration.getExecutor();
+            if (executor == null) {
+                invoke(registration, event);
+                continue;
+            }
+            try {
+                executor.execute(() -> invoke(registration, event));
+            } catch (RejectedExecutionException e) {
+                plugin.getLoggerService().warning("Handler für " + frame.getAction() + " abgelehnt: " + e.getMessage());
+                if (event.isRequest()) {
+                    event.respondError("Handler überlastet");
+                }
+            }
+        }
+    }
+
+    /**
+     * Ruft einen einzelnen Handler auf und meldet Fehler bei Anfragen an den Server zurück
+     */
+    private void invoke(HandlerRegistry.Registration registration, MessageEvent event) {
+        try {
+            registration.getHandler().accept(event);
+        } catch (Exception e) {
+            plugin.getLoggerService().severe("Fehler beim Verarbeiten der Nachricht " + event.getAction() + ": " + e.getMessage());
+            e.printStackTrace();
+            if (event.isRequest()) {
+                event.respondError(String.valueOf(e.getMessage()));
+            }
+        }
+    }
+
+    /**
+     * Meldet neue Aktions-IDs gesammelt an alle Server, damit Registrierungen beim Start
+     * nicht jeweils eine eigene Nachricht auslösen
+     */
+    private void scheduleActionIdAnnouncement() {
+        if (!actionIdAnnouncementPending.compareAndSet(false, true)) {
+            return;
+        }
+        plugin.getServer().getScheduler()
+                .buildTask(plugin, () -> {
+                    actionIdAnnouncementPending.set(false);
+                    if (acceptingMessages) {
+                        broadcastToServers(ACTION_IDS, this::writeActionIds);
+                    }
+                })
+                .delay(ACTION_ID_ANNOUNCE_DELAY_MS, TimeUnit.MILLISECONDS)
+                .schedule();
+    }
+
+    /**
+     * Schreibt die Aktions-IDs: Version, Anzahl und Paare aus Name und ID
+     */
+    private void writeActionIds(MessageWriter writer) {
+        Map<String, Integer> ids = handlers.getActionIds();
+        writer.writeInt(handlers.getVersion());
+        writer.writeInt(ids.size());
+        for (Map.Entry<String, Integer> entry : ids.entrySet()) {
+            writer.writeString(entry.getKey());
+            writer.writeInt(entry.getValue());
+        }
     }
 
     /**
@@ -61,25 +257,180 @@ public class MessagingManager {
      * @param data Die Daten
      */
     public void sendMessage(Player player, String action, String data) {
+        sendMessage(player, action, writer -> writer.writeString(data));
+    }
+
+    /**
+     * Sendet eine Nachricht mit typisierten Feldern an einen Server über einen Spieler.
+     * Die Nachricht wird mit anderen Nachrichten an dieselbe Server-Verbindung gebündelt,
+     * sofern die Aktion nicht unter {@code immediate-actions} konfiguriert ist.
+     *
+     * @param player Der Spieler
+     * @param action Die Aktion
+     * @param payload Schreibt die Felder der Nachricht
+     * @return Ob die Nachricht gesendet bzw. zum Senden eingereiht wurde
+     */
+    public boolean sendMessage(Player player, String action, Consumer<MessageWriter> payload) {
+        return sendMessage(player, action, payload, plugin.getCoreConfig().getMessagingImmediateActions().contains(action));
+    }
+
+    /**
+     * Sendet eine zeitkritische Nachricht sofort, ohne sie zu bündeln
+     *
+     * @param player Der Spieler
+     * @param action Die Aktion
+     * @param payload Schreibt die Felder der Nachricht
+     * @return Ob die Nachricht gesendet wurde
+     */
+    public boolean sendMessageImmediately(Player player, String action, Consumer<MessageWriter> payload) {
+        return sendMessage(player, action, payload, true);
+    }
+
+    private boolean sendMessage(Player player, String action, Consumer<MessageWriter> payload, boolean immediate) {
         if (player == null || !player.isActive()) {
-            return;
+            return false;
         }
         
-        // Verhindert Spam durch Nachrichtenbegrenzung
-        UUID uuid = player.getUniqueId();
-        long now = System.currentTimeMillis();
-        long lastTime = lastMessageTime.getOrDefault(uuid, 0L);
+        if (!player.getCurrentServer().isPresent()) {
+            return false;
+        }
         
-        if (now - lastTime < 100) { // Minimale Zeit zwischen Nachrichten: 100ms
-            return;
+        byte[] message;
+        try {
+            message = codec.encode(action, 0, payload);
+        } catch (IllegalArgumentException e) {
+            plugin.getLoggerService().warning("Nachricht " + action + " konnte nicht kodiert werden: " + e.getMessage());
+            return false;
         }
         
-        lastMessageTime.put(uuid, now);
+        plugin.getLoggerService().debug("Nachricht an " + player.getUsername() + 
+                                       ": Action=" + action + ", " + message.length + " Bytes");
         
-        // Hier würde die tatsächliche Implementierung folgen
-        // um Nachrichten zu senden (z.B. mit ByteArrayDataOutput)
-        plugin.getLoggerService().debug("Nachricht gesendet an " + player.getUsername() + 
-                                       ": Action=" + action + ", Data=" + data);
+        // Nachrichten über dem Limit werden eingereiht statt verworfen
+        if (rateLimiter != null) {
+            rateLimiter.submit(player, action, () -> deliver(player, message, immediate));
+            return true;
+        }
+        return deliver(player, message, immediate);
+    }
+
+    /**
+     * Übergibt eine kodierte Nachricht an die aktuelle Server-Verbindung des Spielers
+     */
+    private boolean deliver(Player player, byte[] message, boolean immediate) {
+        ServerConnection connection = player.getCurrentServer().orElse(null);
+        if (connection == null) {
+            return false;
+        }
+        return deliver(connection, message, immediate);
+    }
+
+    /**
+     * Übergibt eine kodierte Nachricht an eine Server-Verbindung, gebündelt oder sofort
+     */
+    private boolean deliver(ServerConnection connection, byte[] message, boolean immediate) {
+        if (batcher == null) {
+            return connection.sendPluginMessage(channel, codec.compress(message));
+        }
+        if (immediate) {
+            return batcher.sendImmediately(connection.getServer(), connection.getPlayer(), message);
+        }
+        batcher.enqueue(connection.getServer(), connection.getPlayer(), message);
+        return true;
+    }
+
+    /**
+     * Speichert einen gebündelten Frame zwischen, dessen Server beim Senden keine Verbindung mehr hatte
+     *
+     * @return Ob der Frame zwischengespeichert wurde
+     */
+    private Boolean redirectToOutbox(RegisteredServer server, byte[] frame) {
+        if (outbox == null) {
+            return false;
+        }
+        outbox.enqueue(server.getServerInfo().getName(), frame);
+        return true;
+    }
+
+    /**
+     * Sendet eine Anfrage an einen Backend-Server mit der Standardfrist aus {@code rpc-timeout-ms}
+     *
+     * @param server Der Server
+     * @param action Die Aktion
+     * @param payload Schreibt die Felder der Anfrage, darf null sein
+     * @return Die Antwort des Servers
+     * @see #request(RegisteredServer, String, Consumer, long, TimeUnit)
+     */
+    public CompletableFuture<Response> request(RegisteredServer server, String action, Consumer<MessageWriter> payload) {
+        return request(server, action, payload, plugin.getCoreConfig().getMessagingRpcTimeoutMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Sendet eine Anfrage an einen Backend-Server und wartet asynchron auf die Antwort.
+     * Die Anfrage wird über die Verbindung eines beliebigen Spielers auf dem Server gesendet.
+     *
+     * Das Future schlägt fehl mit einer {@link java.util.concurrent.TimeoutException}, wenn
+     * innerhalb der Frist keine Antwort kommt, mit einer {@link java.util.concurrent.RejectedExecutionException},
+     * wenn bereits {@code rpc-max-in-flight} Anfragen an den Server offen sind, und mit einer
+     * {@link RpcException}, wenn kein Spieler auf dem Server ist oder der Server einen Fehler meldet.
+     * Abhängige Aktionen laufen im Netty- bzw. Scheduler-Thread, blockierende Arbeit gehört
+     * in die {@code *Async}-Varianten.
+     *
+     * @param server Der Server
+     * @param action Die Aktion
+     * @param payload Schreibt die Felder der Anfrage, darf null sein
+     * @param timeout Die Frist für die Antwort
+     * @param unit Die Einheit der Frist
+     * @return Die Antwort des Servers
+     */
+    public CompletableFuture<Response> request(RegisteredServer server, String action, Consumer<MessageWriter> payload,
+                                               long timeout, TimeUnit unit) {
+        ServerConnection connection = findConnection(server, null);
+        if (connection == null) {
+            CompletableFuture<Response> future = new CompletableFuture<>();
+            future.completeExceptionally(new RpcException(action, -1,
+                    "Keine Verbindung zu " + server.getServerInfo().getName() + " (kein Spieler online)"));
+            return future;
+        }
+        
+        RequestTracker.PendingRequest request = requestTracker.begin(server, action, timeout, unit);
+        if (request == null) {
+            return requestTracker.rejectedFuture(server, action);
+        }
+        
+        try {
+            byte[] message = codec.encodeRequest(action, request.getId(), payload);
+            if (!deliver(connection, message, true)) {
+                requestTracker.fail(request, new RpcException(action, -1,
+                        "Anfrage konnte nicht an " + server.getServerInfo().getName() + " gesendet werden"));
+            }
+        } catch (IllegalArgumentException e) {
+            requestTracker.fail(request, e);
+        }
+        return request.getFuture();
+    }
+
+    /**
+     * Sucht eine aktive Verbindung zu einem Backend-Server
+     *
+     * @param server Der Server
+     * @param preferred Der Spieler, dessen Verbindung bevorzugt wird, darf null sein
+     * @return Die Verbindung oder null, wenn kein Spieler auf dem Server ist
+     */
+    private ServerConnection findConnection(RegisteredServer server, Player preferred) {
+        if (preferred != null) {
+            ServerConnection connection = preferred.getCurrentServer().orElse(null);
+            if (connection != null && connection.getServer().equals(server)) {
+                return connection;
+            }
+        }
+        for (Player player : server.getPlayersConnected()) {
+            ServerConnection connection = player.getCurrentServer().orElse(null);
+            if (player.isActive() && connection != null && connection.getServer().equals(server)) {
+                return connection;
+            }
+        }
+        return null;
     }
 
     /**
@@ -87,32 +438,235 @@ public class MessagingManager {
      *
      * @param action Die Aktion
      * @param data Die Daten
+     * @see #broadcastToServers(String, Consumer)
      */
     public void broadcastMessage(String action, String data) {
-        for (Player player : plugin.getServer().getAllPlayers()) {
-            if (player.getCurrentServer().isPresent()) {
-                sendMessage(player, action, data);
+        BroadcastReport report = broadcastToServers(action, writer -> writer.writeString(data));
+        plugin.getLoggerService().debug("Broadcast " + report);
+    }
+
+    /**
+     * Sendet eine Nachricht genau einmal an jeden registrierten Backend-Server.
+     * Die Nachricht wird nur einmal kodiert und über die Verbindung eines beliebigen
+     * Spielers auf dem jeweiligen Server gesendet. Server ohne Spieler können keine
+     * Plugin-Nachrichten empfangen, für sie wird die Nachricht zwischengespeichert
+     * (siehe {@link ServerOutbox}) oder, falls deaktiviert, als nicht erreichbar gemeldet.
+     *
+     * @param action Die Aktion
+     * @param payload Schreibt die Felder der Nachricht
+     * @return Das Ergebnis pro Server
+     */
+    public BroadcastReport broadcastToServers(String action, Consumer<MessageWriter> payload) {
+        long start = System.nanoTime();
+        byte[] message;
+        try {
+            message = codec.encode(action, 0, payload);
+        } catch (IllegalArgumentException e) {
+            plugin.getLoggerService().warning("Nachricht " + action + " konnte nicht kodiert werden: " + e.getMessage());
+            BroadcastReport report = new BroadcastReport(action, 0, System.nanoTime() - start);
+            for (RegisteredServer server : plugin.getServer().getAllServers()) {
+                report.add(server.getServerInfo().getName(), BroadcastReport.Delivery.FAILED);
             }
+            return report;
+        }
+        
+        BroadcastReport report = new BroadcastReport(action, message.length, System.nanoTime() - start);
+        boolean immediate = plugin.getCoreConfig().getMessagingImmediateActions().contains(action);
+        for (RegisteredServer server : plugin.getServer().getAllServers()) {
+            report.add(server.getServerInfo().getName(), deliverToServer(server, message, immediate));
         }
+        return report;
     }
 
     /**
-     * Registriert einen Handler für eine bestimmte Aktion
+     * Sendet eine Nachricht an einen Backend-Server. Ist gerade kein Spieler auf dem Server,
+     * wird sie zwischengespeichert und gesendet, sobald sich ein Spieler verbindet.
+     *
+     * @param server Der Server
+     * @param action Die Aktion
+     * @param payload Schreibt die Felder der Nachricht
+     * @return Das Ergebnis der Zustellung
+     */
+    public BroadcastReport.Delivery sendToServer(RegisteredServer server, String action, Consumer<MessageWriter> payload) {
+        byte[] message;
+        try {
+            message = codec.encode(action, 0, payload);
+        } catch (IllegalArgumentException e) {
+            plugin.getLoggerService().warning("Nachricht " + action + " konnte nicht kodiert werden: " + e.getMessage());
+            return BroadcastReport.Delivery.FAILED;
+        }
+        return deliverToServer(server, message, plugin.getCoreConfig().getMessagingImmediateActions().contains(action));
+    }
+
+    /**
+     * Übergibt eine bereits kodierte Nachricht an eine Verbindung zu einem Server
+     */
+    private BroadcastReport.Delivery deliverToServer(RegisteredServer server, byte[] message, boolean immediate) {
+        ServerConnection connection = findConnection(server, null);
+        if (connection == null) {
+            if (outbox != null) {
+                outbox.enqueue(server.getServerInfo().getName(), message);
+                return BroadcastReport.Delivery.OUTBOX;
+            }
+            return BroadcastReport.Delivery.NO_CONNECTION;
+        }
+        try {
+            if (batcher != null && !immediate) {
+                // Alle Bündel teilen sich dasselbe Array, es wird nicht kopiert
+                batcher.enqueue(server, null, message);
+                return BroadcastReport.Delivery.QUEUED;
+            }
+            return deliver(connection, message, true) ? BroadcastReport.Delivery.SENT : BroadcastReport.Delivery.FAILED;
+        } catch (Exception e) {
+            plugin.getLoggerService().debug("Broadcast an " + server.getServerInfo().getName() + " fehlgeschlagen: " + e.getMessage());
+            return BroadcastReport.Delivery.FAILED;
+        }
+    }
+
+    /**
+     * Sendet die zwischengespeicherten Nachrichten eines Servers gebündelt über eine neue Verbindung
+     *
+     * @param connection Die Verbindung, die gerade aufgebaut wurde
+     */
+    private void flushOutbox(ServerConnection connection) {
+        List<byte[]> frames = outbox.drain(connection.getServerInfo().getName());
+        if (frames.isEmpty()) {
+            return;
+        }
+        
+        byte[][] chunk = new byte[frames.size()][];
+        int count = 0;
+        int size = 1 + 5;
+        int failed = 0;
+        for (byte[] frame : frames) {
+            if (count > 0 && size + MessageCodec.batchedSize(frame.length) > MessageCodec.MAX_MESSAGE_SIZE) {
+                failed += deliver(connection, codec.encodeBatch(chunk, count), true) ? 0 : count;
+                count = 0;
+                size = 1 + 5;
+            }
+            chunk[count++] = frame;
+            size += MessageCodec.batchedSize(frame.length);
+        }
+        failed += deliver(connection, codec.encodeBatch(chunk, count), true) ? 0 : count;
+        
+        plugin.getLoggerService().debug(frames.size() + " zwischengespeicherte Nachrichten an "
+                + connection.getServerInfo().getName() + " gesendet" + (failed > 0 ? ", " + failed + " fehlgeschlagen" : ""));
+    }
+
+    /**
+     * Registriert einen Handler für eine bestimmte Aktion.
+     * Mehrere Handler pro Aktion werden in der Reihenfolge ihrer Registrierung aufgerufen.
      *
      * @param action Die Aktion
      * @param handler Der Handler
+     * @return Die Registrierung, über die genau dieser Handler wieder entfernt werden kann
      */
-    public void registerHandler(String action, Consumer<MessageEvent> handler) {
-        handlers.put(action, handler);
+    public HandlerRegistry.Registration registerHandler(String action, Consumer<MessageEvent> handler) {
+        return registerHandler(action, HandlerRegistry.DEFAULT_PRIORITY, null, handler);
     }
 
     /**
-     * Entfernt einen Handler für eine bestimmte Aktion
+     * Registriert einen Handler mit Reihenfolge und optionalem Executor
+     *
+     * @param action Die Aktion
+     * @param priority Die Reihenfolge, kleinere Werte werden zuerst aufgerufen
+     * @param executor Der Executor für den Handler oder null, um ihn direkt im Netzwerk-Thread aufzurufen
+     * @param handler Der Handler
+     * @return Die Registrierung, über die genau dieser Handler wieder entfernt werden kann
+     */
+    public HandlerRegistry.Registration registerHandler(String action, int priority, Executor executor, Consumer<MessageEvent> handler) {
+        return handlers.register(action, priority, executor, handler);
+    }
+
+    /**
+     * Registriert einen Handler für Anfragen, der asynchron antworten kann.
+     * Die Antwort wird gesendet, sobald das zurückgegebene Future abgeschlossen ist,
+     * ein Fehler wird dem anfragenden Server als {@code STATUS_ERROR} gemeldet.
+     *
+     * @param action Die Aktion
+     * @param handler Liefert die Felder der Antwort
+     */
+    public HandlerRegistry.Registration registerRequestHandler(String action, Function<MessageEvent, ? extends CompletionStage<Consumer<MessageWriter>>> handler) {
+        return registerHandler(action, event -> handler.apply(event).whenComplete((payload, error) -> {
+            if (error != null) {
+                event.respondError(String.valueOf(error.getMessage()));
+            } else {
+                event.respond(payload);
+            }
+        }));
+    }
+
+    /**
+     * Entfernt alle Handler für eine bestimmte Aktion
      *
      * @param action Die Aktion
      */
     public void unregisterHandler(String action) {
-        handlers.remove(action);
+        handlers.unregisterAll(action);
+    }
+
+    /**
+     * @return Die Handler und die vergebenen Aktions-IDs
+     */
+    public HandlerRegistry getHandlerRegistry() {
+        return handlers;
+    }
+
+    /**
+     * @return Der Bündler für ausgehende Nachrichten oder null, wenn die Bündelung deaktiviert ist
+     */
+    public OutboundBatcher getBatcher() {
+        return batcher;
+    }
+
+    /**
+     * @return Der Rate-Limiter für ausgehende Nachrichten oder null, wenn keine Begrenzung konfiguriert ist
+     */
+    public MessageRateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    /**
+     * @return Der Zwischenspeicher für Server ohne Spieler oder null, wenn er deaktiviert ist
+     */
+    public ServerOutbox getOutbox() {
+        return outbox;
+    }
+
+    /**
+     * @return Die offenen Anfragen und ihre Statistik
+     */
+    public RequestTracker getRequestTracker() {
+        return requestTracker;
+    }
+
+    /**
+     * @return Der Codec des Kanals
+     */
+    public MessageCodec getCodec() {
+        return codec;
+    }
+
+    /**
+     * @return Der Zwischenspeicher für serialisierte Komponenten
+     */
+    public ComponentJsonCache getComponentCache() {
+        return componentCache;
+    }
+
+    /**
+     * Nimmt beim Herunterfahren keine eingehenden Nachrichten mehr an.
+     * Ausgehende Nachrichten können weiterhin gesendet werden.
+     */
+    public void stopIntake() {
+        acceptingMessages = false;
+    }
+
+    /**
+     * @return Ob eingehende Nachrichten noch verarbeitet werden
+     */
+    public boolean isAcceptingMessages() {
+        return acceptingMessages;
     }
 
     /**
@@ -122,7 +676,14 @@ public class MessagingManager {
         plugin.getLoggerService().info("Entferne Messaging-Kanal: " + channel.getId());
         plugin.getServer().getChannelRegistrar().unregister(channel);
         handlers.clear();
-        lastMessageTime.clear();
+        requestTracker.shutdown();
+        if (rateLimiter != null) {
+            rateLimiter.shutdown();
+        }
+        if (outbox != null) {
+            outbox.shutdown();
+        }
+        codec.getCompressor().close();
     }
 
     /**
@@ -131,14 +692,37 @@ public class MessagingManager {
     public class MessageEvent {
         private final Player player;
         private final String action;
-        private final String data;
+        private final MessageReader payload;
+        private final ServerConnection connection;
+        private final long correlationId;
+        private final AtomicBoolean responded = new AtomicBoolean();
+        private String data;
         
         public MessageEvent(Player player, String action, String data) {
             this.player = player;
             this.action = action;
+            this.payload = null;
+            this.connection = null;
+            this.correlationId = 0L;
             this.data = data;
         }
         
+        public MessageEvent(Player player, String action, MessageReader payload) {
+            this.player = player;
+            this.action = action;
+            this.payload = payload;
+            this.connection = null;
+            this.correlationId = 0L;
+        }
+        
+        private MessageEvent(ServerConnection connection, MessageCodec.Frame frame) {
+            this.player = connection.getPlayer();
+            this.action = frame.getAction();
+            this.payload = frame.getPayload();
+            this.connection = connection;
+            this.correlationId = frame.isRequest() ? frame.getCorrelationId() : 0L;
+        }
+        
         public Player getPlayer() {
             return player;
         }
@@ -147,17 +731,97 @@ public class MessagingManager {
             return action;
         }
         
+        /**
+         * @return Das erste Feld der Nachricht, falls es eine Zeichenkette ist, sonst null
+         */
         public String getData() {
+            if (data == null && payload != null && payload.peekType() == MessageCodec.TYPE_STRING) {
+                data = payload.copy().readString();
+            }
             return data;
         }
         
+        /**
+         * @return Ein neuer Reader für die typisierten Felder der Nachricht oder null, wenn keine vorhanden sind
+         */
+        public MessageReader getPayload() {
+            return payload != null ? payload.copy() : null;
+        }
+        
+        /**
+         * @return Ob der Server auf eine Antwort wartet
+         */
+        public boolean isRequest() {
+            return correlationId != 0L;
+        }
+        
+        /**
+         * @return Der Server, von dem die Nachricht kam, oder null
+         */
+        public RegisteredServer getServer() {
+            return connection != null ? connection.getServer() : null;
+        }
+        
+        /**
+         * Beantwortet eine Anfrage. Darf aus beliebigen Threads und auch nach der Rückkehr
+         * des Handlers aufgerufen werden, es wird nur die erste Antwort gesendet.
+         *
+         * @param payload Schreibt die Felder der Antwort, darf null sein
+         * @return Ob die Antwort gesendet wurde
+         */
+        public boolean respond(Consumer<MessageWriter> payload) {
+            return respond(MessageCodec.STATUS_OK, payload);
+        }
+        
+        /**
+         * Meldet dem anfragenden Server einen Fehler
+         *
+         * @param message Die Fehlermeldung
+         * @return Ob die Antwort gesendet wurde
+         */
+        public boolean respondError(String message) {
+            return respond(MessageCodec.STATUS_ERROR, writer -> writer.writeString(message));
+        }
+        
+        private boolean respond(int status, Consumer<MessageWriter> body) {
+            if (!isRequest() || !responded.compareAndSet(false, true)) {
+                return false;
+            }
+            // Der Spieler kann inzwischen gewechselt haben, dann antwortet ein anderer Spieler auf dem Server
+            ServerConnection target = findConnection(connection.getServer(), player);
+            if (target == null) {
+                plugin.getLoggerService().debug("Antwort auf " + action + " #" + correlationId + " verworfen, keine Verbindung");
+                return false;
+            }
+            try {
+                return deliver(target, codec.encodeResponse(action, correlationId, status, body), true);
+            } catch (IllegalArgumentException e) {
+                plugin.getLoggerService().warning("Antwort auf " + action + " konnte nicht kodiert werden: " + e.getMessage());
+                if (status == MessageCodec.STATUS_OK) {
+                    responded.set(false);
+                    return respondError(e.getMessage());
+                }
+                return false;
+            }
+        }
+        
+        /**
+         * Antwortet mit einer Zeichenkette. Bei Anfragen wird eine zugeordnete Antwort gesendet,
+         * sonst eine Nachricht mit der Aktion {@code reply:<action>}.
+         *
+         * @param data Die Daten
+         */
         public void reply(String data) {
+            if (isRequest()) {
+                respond(writer -> writer.writeString(data));
+                return;
+            }
             sendMessage(player, "reply:" + action, data);
         }
         
         public void replyWithComponent(Component component) {
-            // Konvertiere die Komponente in eine JSON-Darstellung
-            String json = net.kyori.adventure.text.serializer.gson.GsonComponentSerializer.gson().serialize(component);
+            // Konvertiere die Komponente in eine JSON-Darstellung (meist aus dem Zwischenspeicher)
+            String json = componentCache.serialize(component);
             reply(json);
         }
     }
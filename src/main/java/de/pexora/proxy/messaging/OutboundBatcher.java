@@ -0,0 +1,359 @@
+package de.pexora.proxy.messaging;
+
+import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.proxy.messages.ChannelIdentifier;
+import com.velocitypowered.api.proxy.messages.ChannelMessageSink;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import com.velocitypowered.api.scheduler.ScheduledTask;
+import de.pexora.proxy.PexoraProxy;
+import de.pexora.proxy.shutdown.Drainable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+
+/**
+ * Bündelt ausgehende Nachrichten pro Backend-Server.
+ *
+ * Kodierte Frames werden pro registriertem Server gesammelt und als eine gebündelte
+ * Plugin-Nachricht gesendet, sobald das Intervall abgelaufen ist oder die Größengrenze
+ * erreicht wird. Die Verbindung wird erst beim Senden gesucht (bevorzugt die des Spielers,
+ * der die erste Nachricht des Bündels ausgelöst hat), damit ein Serverwechsel oder Verlassen
+ * innerhalb des Intervalls die Nachrichten nicht verliert. Ist kein Spieler mehr auf dem
+ * Server, gehen die Nachrichten an die {@link ServerOutbox}.
+ *
+ * Zeitkritische Nachrichten umgehen die Bündelung, senden aber zuerst die bereits
+ * gesammelten Nachrichten desselben Servers. Alle Sendungen eines Servers laufen
+ * nacheinander, damit die Reihenfolge erhalten bleibt.
+ */
+public class OutboundBatcher implements Drainable {
+
+    /**
+     * Geschätzter Overhead einer Plugin-Nachricht ohne Kanalnamen (Paket-ID, Längenfelder)
+     */
+    private static final int PACKET_OVERHEAD = 5;
+
+    private final PexoraProxy plugin;
+    private final MessageCodec codec;
+    private final ChannelIdentifier channel;
+    private final int maxBatchBytes;
+    private final int packetOverhead;
+    private final BiFunction<RegisteredServer, Player, ChannelMessageSink> connections;
+    private final BiFunction<RegisteredServer, byte[], Boolean> fallback;
+    private final Map<RegisteredServer, Lane> lanes = new ConcurrentHashMap<>();
+    private ScheduledTask flushTask;
+
+    private volatile long startNanos = System.nanoTime();
+    private final AtomicLong messagesBatched = new AtomicLong();
+    private final AtomicLong messagesBypassed = new AtomicLong();
+    private final AtomicLong messagesDropped = new AtomicLong();
+    private final AtomicLong messagesRedirected = new AtomicLong();
+    private final AtomicLong packetsSent = new AtomicLong();
+    private final AtomicLong frameBytes = new AtomicLong();
+    private final AtomicLong wireBytes = new AtomicLong();
+
+    /**
+     * Erstellt einen neuen Bündler und startet den periodischen Flush
+     *
+     * @param plugin Die Plugin-Instanz
+     * @param codec Der Codec des Kanals
+     * @param channel Der Kanal
+     * @param intervalMillis Das Flush-Intervall in ms
+     * @param maxBatchBytes Die maximale Größe einer gebündelten Nachricht
+     * @param connections Sucht beim Senden eine aktive Verbindung zum Server (Spieler darf null sein)
+     * @param fallback Übernimmt einen Frame, wenn keine Verbindung gefunden wurde, und meldet, ob er übernommen wurde
+     */
+    public OutboundBatcher(PexoraProxy plugin, MessageCodec codec, ChannelIdentifier channel, long intervalMillis, int maxBatchBytes,
+                           BiFunction<RegisteredServer, Player, ChannelMessageSink> connections,
+                           BiFunction<RegisteredServer, byte[], Boolean> fallback) {
+        this.plugin = plugin;
+        this.connections = connections;
+        this.fallback = fallback;
+        this.codec = codec;
+        this.channel = channel;
+        this.maxBatchBytes = Math.min(maxBatchBytes, MessageCodec.MAX_MESSAGE_SIZE);
+        this.packetOverhead = PACKET_OVERHEAD + channel.getId().length();
+        this.flushTask = plugin.getServer().getScheduler()
+                .buildTask(plugin, this::flushAll)
+                .delay(intervalMillis, TimeUnit.MILLISECONDS)
+                .repeat(intervalMillis, TimeUnit.MILLISECONDS)
+                .schedule();
+    }
+
+    /**
+     * Stellt einen kodierten Frame für einen Server in die Warteschlange
+     *
+     * @param server Der Server
+     * @param preferred Der Spieler, über dessen Verbindung bevorzugt gesendet wird, darf null sein
+     * @param frame Der kodierte Frame
+     */
+    public void enqueue(RegisteredServer server, Player preferred, byte[] frame) {
+        messagesBatched.incrementAndGet();
+        frameBytes.addAndGet(frame.length);
+
+        Lane lane = lanes.computeIfAbsent(server, Lane::new);
+        synchronized (lane) {
+            if (lane.batch != null && !lane.batch.fits(frame.length)) {
+                lane.flush();
+            }
+            if (lane.batch == null) {
+                lane.batch = new Batch(preferred);
+            }
+            lane.batch.add(frame);
+            if (lane.batch.bytes >= maxBatchBytes) {
+                lane.flush();
+            }
+        }
+    }
+
+    /**
+     * Sendet einen Frame sofort, nachdem die gesammelten Nachrichten desselben Servers gesendet wurden
+     *
+     * @param server Der Server
+     * @param preferred Der Spieler, über dessen Verbindung bevorzugt gesendet wird, darf null sein
+     * @param frame Der kodierte Frame
+     * @return Ob die Nachricht gesendet wurde
+     */
+    public boolean sendImmediately(RegisteredServer server, Player preferred, byte[] frame) {
+        messagesBypassed.incrementAndGet();
+        frameBytes.addAndGet(frame.length);
+
+        Lane lane = lanes.computeIfAbsent(server, Lane::new);
+        synchronized (lane) {
+            lane.flush();
+            ChannelMessageSink sink = connections.apply(server, preferred);
+            return sink != null && sendRaw(sink, frame);
+        }
+    }
+
+    /**
+     * Sendet die gesammelten Nachrichten eines Servers
+     *
+     * @param server Der Server
+     */
+    public void flush(RegisteredServer server) {
+        Lane lane = lanes.get(server);
+        if (lane != null) {
+            synchronized (lane) {
+                lane.flush();
+            }
+        }
+    }
+
+    /**
+     * Sendet die gesammelten Nachrichten aller Server
+     */
+    public void flushAll() {
+        for (RegisteredServer server : new ArrayList<>(lanes.keySet())) {
+            flush(server);
+        }
+    }
+
+    /**
+     * Sendet ein Bündel über eine aktive Verbindung oder übergibt seine Frames der Ausweichlösung
+     */
+    private void send(RegisteredServer server, Batch batch) {
+        ChannelMessageSink sink = connections.apply(server, batch.preferred);
+        if (sink != null && sendRaw(sink, codec.encodeBatch(batch.frames, batch.count))) {
+            return;
+        }
+        for (int i = 0; i < batch.count; i++) {
+            if (fallback != null && fallback.apply(server, batch.frames[i])) {
+                messagesRedirected.incrementAndGet();
+            } else {
+                messagesDropped.incrementAndGet();
+            }
+        }
+    }
+
+    private boolean sendRaw(ChannelMessageSink sink, byte[] message) {
+        try {
+            message = codec.compress(message);
+            if (sink.sendPluginMessage(channel, message)) {
+                packetsSent.incrementAndGet();
+                wireBytes.addAndGet(message.length);
+                return true;
+            }
+        } catch (Exception e) {
+            plugin.getLoggerService().debug("Nachricht konnte nicht gesendet werden: " + e.getMessage());
+        }
+        return false;
+    }
+
+    @Override
+    public void stopIntake() {
+        if (flushTask != null) {
+            flushTask.cancel();
+            flushTask = null;
+        }
+    }
+
+    @Override
+    public boolean drain(long timeout, TimeUnit unit) {
+        flushAll();
+        return getPendingCount() == 0;
+    }
+
+    @Override
+    public int getPendingCount() {
+        int pending = 0;
+        for (Lane lane : lanes.values()) {
+            synchronized (lane) {
+                pending += lane.batch != null ? lane.batch.count : 0;
+            }
+        }
+        return pending;
+    }
+
+    /**
+     * @return Eine Momentaufnahme der Einsparungen durch die Bündelung
+     */
+    public BatchStats getStats() {
+        return new BatchStats(System.nanoTime() - startNanos, messagesBatched.get(), messagesBypassed.get(),
+                messagesDropped.get(), messagesRedirected.get(), packetsSent.get(), frameBytes.get(), wireBytes.get(), packetOverhead);
+    }
+
+    /**
+     * Setzt die Statistik zurück
+     */
+    public void resetStats() {
+        startNanos = System.nanoTime();
+        messagesBatched.set(0);
+        messagesBypassed.set(0);
+        messagesDropped.set(0);
+        messagesRedirected.set(0);
+        packetsSent.set(0);
+        frameBytes.set(0);
+        wireBytes.set(0);
+    }
+
+    /**
+     * Warteschlange eines Servers, alle Zugriffe sind auf die Lane synchronisiert
+     */
+    private class Lane {
+        private final RegisteredServer server;
+        private Batch batch;
+
+        private Lane(RegisteredServer server) {
+            this.server = server;
+        }
+
+        private void flush() {
+            if (batch != null) {
+                Batch current = batch;
+                batch = null;
+                send(server, current);
+            }
+        }
+    }
+
+    /**
+     * Gesammelte Frames für einen Server
+     */
+    private class Batch {
+        private final Player preferred;
+        private byte[][] frames = new byte[8][];
+        private int count;
+        private int bytes = 1 + 5;
+
+        private Batch(Player preferred) {
+            this.preferred = preferred;
+        }
+
+        private boolean fits(int frameLength) {
+            return bytes + MessageCodec.batchedSize(frameLength) <= maxBatchBytes;
+        }
+
+        private void add(byte[] frame) {
+            if (count == frames.length) {
+                frames = Arrays.copyOf(frames, count * 2);
+            }
+            frames[count++] = frame;
+            bytes += MessageCodec.batchedSize(frame.length);
+        }
+    }
+
+    /**
+     * Momentaufnahme der Bündelungsstatistik
+     */
+    public static class BatchStats {
+        private final long elapsedNanos;
+        private final long messagesBatched;
+        private final long messagesBypassed;
+        private final long messagesDropped;
+        private final long messagesRedirected;
+        private final long packetsSent;
+        private final long frameBytes;
+        private final long wireBytes;
+        private final int packetOverhead;
+
+        private BatchStats(long elapsedNanos, long messagesBatched, long messagesBypassed, long messagesDropped,
+                           long messagesRedirected, long packetsSent, long frameBytes, long wireBytes, int packetOverhead) {
+            this.elapsedNanos = elapsedNanos;
+            this.messagesBatched = messagesBatched;
+            this.messagesBypassed = messagesBypassed;
+            this.messagesDropped = messagesDropped;
+            this.messagesRedirected = messagesRedirected;
+            this.packetsSent = packetsSent;
+            this.frameBytes = frameBytes;
+            this.wireBytes = wireBytes;
+            this.packetOverhead = packetOverhead;
+        }
+
+        public long getMessages() {
+            return messagesBatched + messagesBypassed;
+        }
+
+        public long getMessagesBypassed() {
+            return messagesBypassed;
+        }
+
+        public long getMessagesDropped() {
+            return messagesDropped;
+        }
+
+        /**
+         * @return Die Nachrichten, die beim Senden keinen Spieler mehr auf dem Server fanden und zwischengespeichert wurden
+         */
+        public long getMessagesRedirected() {
+            return messagesRedirected;
+        }
+
+        public long getPacketsSent() {
+            return packetsSent;
+        }
+
+        /**
+         * @return Die Anzahl der Pakete, die ohne Bündelung zusätzlich gesendet worden wären
+         */
+        public long getPacketsSaved() {
+            return Math.max(0L, getMessages() - messagesDropped - messagesRedirected - packetsSent);
+        }
+
+        /**
+         * @return Die eingesparten Bytes inklusive Paket-Overhead (negativ, wenn die Bündelung mehr kostet)
+         */
+        public long getBytesSaved() {
+            long unbatched = frameBytes + (getMessages() - messagesDropped - messagesRedirected) * packetOverhead;
+            long batched = wireBytes + packetsSent * packetOverhead;
+            return unbatched - batched;
+        }
+
+        public double getPacketsSavedPerSecond() {
+            return perSecond(getPacketsSaved());
+        }
+
+        public double getBytesSavedPerSecond() {
+            return perSecond(getBytesSaved());
+        }
+
+        private double perSecond(long value) {
+            double seconds = elapsedNanos / 1_000_000_000.0;
+            return seconds > 0 ? value / seconds : 0.0;
+        }
+    }
+}
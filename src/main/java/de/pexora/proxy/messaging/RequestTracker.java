@@ -0,0 +1,238 @@
+package de.pexora.proxy.messaging;
+
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import com.velocitypowered.api.scheduler.ScheduledTask;
+import de.pexora.proxy.PexoraProxy;
+import de.pexora.proxy.status.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Verwaltet offene Anfragen an Backend-Server.
+ *
+ * Jede Anfrage erhält eine Korrelations-ID, über die die Antwort zugeordnet wird.
+ * Zeitüberschreitungen laufen über ein {@link TimerWheel}, die Anzahl offener Anfragen
+ * ist pro Server begrenzt. Die Antwortzeiten werden pro Aktion erfasst.
+ */
+public class RequestTracker {
+
+    private static final int WHEEL_SIZE = 512;
+
+    private final int maxInFlightPerServer;
+    private final TimerWheel timerWheel;
+    private final ScheduledTask tickTask;
+    private final AtomicLong nextCorrelationId = new AtomicLong();
+    private final Map<Long, PendingRequest> pending = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> latencies = new ConcurrentHashMap<>();
+
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * Erstellt einen neuen Tracker und startet das Timer-Rad
+     *
+     * @param plugin Die Plugin-Instanz
+     * @param maxInFlightPerServer Die maximale Anzahl offener Anfragen pro Server
+     * @param tickMillis Die Auflösung der Zeitüberschreitungen in ms
+     */
+    public RequestTracker(PexoraProxy plugin, int maxInFlightPerServer, long tickMillis) {
+        this.maxInFlightPerServer = Math.max(1, maxInFlightPerServer);
+        this.timerWheel = new TimerWheel(tickMillis, WHEEL_SIZE);
+        this.tickTask = plugin.getServer().getScheduler()
+                .buildTask(plugin, timerWheel::tick)
+                .repeat(Math.max(1L, tickMillis), TimeUnit.MILLISECONDS)
+                .schedule();
+    }
+
+    /**
+     * Legt eine neue offene Anfrage an
+     *
+     * @param server Der Zielserver
+     * @param action Die Aktion
+     * @param timeout Die Frist für die Antwort
+     * @param unit Die Einheit der Frist
+     * @return Die offene Anfrage oder null, wenn das Limit für den Server erreicht ist
+     */
+    PendingRequest begin(RegisteredServer server, String action, long timeout, TimeUnit unit) {
+        String serverName = server.getServerInfo().getName();
+        AtomicInteger counter = inFlight.computeIfAbsent(serverName, name -> new AtomicInteger());
+        if (counter.incrementAndGet() > maxInFlightPerServer) {
+            counter.decrementAndGet();
+            rejected.incrementAndGet();
+            return null;
+        }
+
+        long id = nextCorrelationId.incrementAndGet();
+        PendingRequest request = new PendingRequest(id, server, action);
+        // Erst eintragen, dann die Zeitüberschreitung planen: Sie findet die Anfrage dadurch immer
+        pending.put(id, request);
+        TimerWheel.Timeout expiry = timerWheel.schedule(() -> {
+            if (finish(id) != null) {
+                timedOut.incrementAndGet();
+                request.future.completeExceptionally(new TimeoutException("Keine Antwort von " + serverName
+                        + " auf " + action + " innerhalb von " + unit.toMillis(timeout) + " ms"));
+            }
+        }, timeout, unit);
+        request.timeout = expiry;
+        // Wurde die Anfrage in der Zwischenzeit abgeschlossen, konnte finish die Zeitüberschreitung nicht abbrechen
+        if (!pending.containsKey(id)) {
+            expiry.cancel();
+        }
+        sent.incrementAndGet();
+        return request;
+    }
+
+    /**
+     * Ordnet eine empfangene Antwort ihrer Anfrage zu
+     *
+     * @param server Der Server, von dem die Antwort kam
+     * @param frame Die Antwort
+     * @return Ob eine passende offene Anfrage gefunden wurde
+     */
+    boolean complete(RegisteredServer server, MessageCodec.Frame frame) {
+        PendingRequest request = pending.get(frame.getCorrelationId());
+        // Antworten anderer Server dürfen keine fremden Anfragen abschließen
+        if (request == null || !request.server.equals(server) || finish(frame.getCorrelationId()) == null) {
+            return false;
+        }
+
+        long roundTrip = System.nanoTime() - request.startNanos;
+        latencies.computeIfAbsent(request.action, action -> new LatencyHistogram()).record(roundTrip);
+
+        if (frame.getStatus() == MessageCodec.STATUS_OK) {
+            completed.incrementAndGet();
+            request.future.complete(new Response(server, request.action, frame.getPayload(), roundTrip));
+        } else {
+            failed.incrementAndGet();
+            MessageReader payload = frame.getPayload();
+            String message = payload.peekType() == MessageCodec.TYPE_STRING ? payload.readString()
+                    : frame.getStatus() == MessageCodec.STATUS_NO_HANDLER ? "Kein Handler für " + request.action
+                    : "Fehler bei " + request.action;
+            request.future.completeExceptionally(new RpcException(request.action, frame.getStatus(), message));
+        }
+        return true;
+    }
+
+    /**
+     * Lässt eine offene Anfrage fehlschlagen, z.B. wenn sie nicht gesendet werden konnte
+     *
+     * @param request Die Anfrage
+     * @param cause Der Grund
+     */
+    void fail(PendingRequest request, Throwable cause) {
+        if (finish(request.id) != null) {
+            failed.incrementAndGet();
+            request.future.completeExceptionally(cause);
+        }
+    }
+
+    /**
+     * Erstellt eine bereits abgelehnte Anfrage für ein erreichtes Limit
+     */
+    CompletableFuture<Response> rejectedFuture(RegisteredServer server, String action) {
+        CompletableFuture<Response> future = new CompletableFuture<>();
+        future.completeExceptionally(new RejectedExecutionException("Zu viele offene Anfragen an "
+                + server.getServerInfo().getName() + " (" + maxInFlightPerServer + "), " + action + " abgelehnt"));
+        return future;
+    }
+
+    /**
+     * Entfernt eine offene Anfrage genau einmal und gibt ihren Platz frei
+     */
+    private PendingRequest finish(long id) {
+        PendingRequest request = pending.remove(id);
+        if (request != null) {
+            TimerWheel.Timeout expiry = request.timeout;
+            if (expiry != null) {
+                expiry.cancel();
+            }
+            AtomicInteger counter = inFlight.get(request.server.getServerInfo().getName());
+            if (counter != null) {
+                counter.decrementAndGet();
+            }
+        }
+        return request;
+    }
+
+    /**
+     * Stoppt das Timer-Rad und lässt alle offenen Anfragen fehlschlagen
+     */
+    public void shutdown() {
+        tickTask.cancel();
+        for (PendingRequest request : new ArrayList<>(pending.values())) {
+            fail(request, new RpcException(request.action, -1, "Messaging wird beendet"));
+        }
+    }
+
+    /**
+     * @return Die Anzahl der offenen Anfragen
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * @return Die Antwortzeiten pro Aktion
+     */
+    public Map<String, LatencyHistogram> getLatencies() {
+        return latencies;
+    }
+
+    public long getSent() {
+        return sent.get();
+    }
+
+    public long getCompleted() {
+        return completed.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    public long getTimedOut() {
+        return timedOut.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    /**
+     * Eine gesendete Anfrage, auf deren Antwort gewartet wird
+     */
+    static class PendingRequest {
+        private final long id;
+        private final RegisteredServer server;
+        private final String action;
+        private final long startNanos = System.nanoTime();
+        private final CompletableFuture<Response> future = new CompletableFuture<>();
+        private volatile TimerWheel.Timeout timeout;
+
+        private PendingRequest(long id, RegisteredServer server, String action) {
+            this.id = id;
+            this.server = server;
+            this.action = action;
+        }
+
+        long getId() {
+            return id;
+        }
+
+        CompletableFuture<Response> getFuture() {
+            return future;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package de.pexora.proxy.messaging;
+
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+
+/**
+ * Die Antwort eines Backend-Servers auf eine Anfrage über {@link MessagingManager#request}
+ */
+public class Response {
+
+    private final RegisteredServer server;
+    private final String action;
+    private final MessageReader payload;
+    private final long roundTripNanos;
+
+    Response(RegisteredServer server, String action, MessageReader payload, long roundTripNanos) {
+        this.server = server;
+        this.action = action;
+        this.payload = payload;
+        this.roundTripNanos = roundTripNanos;
+    }
+
+    /**
+     * @return Der Server, der geantwortet hat
+     */
+    public RegisteredServer getServer() {
+        return server;
+    }
+
+    /**
+     * @return Die Aktion der Anfrage
+     */
+    public String getAction() {
+        return action;
+    }
+
+    /**
+     * @return Ein neuer Reader für die typisierten Felder der Antwort
+     */
+    public MessageReader getPayload() {
+        return payload.copy();
+    }
+
+    /**
+     * @return Das erste Feld der Antwort, falls es eine Zeichenkette ist, sonst null
+     */
+    public String getData() {
+        return payload.peekType() == MessageCodec.TYPE_STRING ? payload.copy().readString() : null;
+    }
+
+    /**
+     * @return Die Zeit zwischen Senden der Anfrage und Empfang der Antwort in Nanosekunden
+     */
+    public long getRoundTripNanos() {
+        return roundTripNanos;
+    }
+}
@@ -0,0 +1,34 @@
+package de.pexora.proxy.messaging;
+
+/**
+ * Eine Anfrage über {@link MessagingManager#request} ist fehlgeschlagen.
+ * Zeitüberschreitungen werden als {@link java.util.concurrent.TimeoutException} gemeldet,
+ * ein erreichtes Limit offener Anfragen als {@link java.util.concurrent.RejectedExecutionException}.
+ */
+public class RpcException extends RuntimeException {
+
+    private final String action;
+    private final int status;
+
+    /**
+     * @param action Die Aktion der Anfrage
+     * @param status Der Status der Antwort ({@code MessageCodec.STATUS_*}) oder -1, wenn keine Antwort kam
+     * @param message Die Fehlermeldung
+     */
+    public RpcException(String action, int status, String message) {
+        super(message);
+        this.action = action;
+        this.status = status;
+    }
+
+    public String getAction() {
+        return action;
+    }
+
+    /**
+     * @return Der Status der Antwort ({@code MessageCodec.STATUS_*}) oder -1, wenn keine Antwort kam
+     */
+    public int getStatus() {
+        return status;
+    }
+}
@@ -0,0 +1,307 @@
+package de.pexora.proxy.messaging;
+
+import com.velocitypowered.api.scheduler.ScheduledTask;
+import de.pexora.proxy.PexoraProxy;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Zwischenspeicher für Nachrichten an Backend-Server, auf denen gerade kein Spieler ist.
+ *
+ * Plugin-Nachrichten können nur über die Verbindung eines Spielers gesendet werden. Kodierte
+ * Frames für leere Server werden daher pro Server mit Ablaufzeit eingereiht und gesammelt
+ * gesendet, sobald sich ein Spieler mit dem Server verbindet. Pro Server ist die Anzahl
+ * begrenzt, bei Überlauf wird die älteste Nachricht verworfen. Optional wird der Inhalt nach
+ * jeder Änderung spätestens mit der nächsten Bereinigung (alle 5 Sekunden) und beim
+ * Herunterfahren in eine Datei geschrieben und beim nächsten Start wieder geladen. Bei einem
+ * Absturz gehen so höchstens die Änderungen der letzten Sekunden verloren.
+ */
+public class ServerOutbox {
+
+    private static final int FILE_VERSION = 1;
+    private static final long PURGE_INTERVAL_MS = 5000L;
+
+    private final PexoraProxy plugin;
+    private final int maxPerServer;
+    private final long defaultTtlMillis;
+    private final Path file;
+    private final Map<String, ArrayDeque<Entry>> queues = new ConcurrentHashMap<>();
+    private final ScheduledTask purgeTask;
+    private volatile boolean dirty;
+
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+    private final AtomicLong overflowed = new AtomicLong();
+
+    /**
+     * Erstellt einen neuen Zwischenspeicher und lädt gespeicherte Nachrichten
+     *
+     * @param plugin Die Plugin-Instanz
+     * @param maxPerServer Die maximale Anzahl wartender Nachrichten pro Server
+     * @param defaultTtlMillis Die Standard-Lebensdauer einer Nachricht in ms
+     * @param file Die Datei für die Persistenz oder null
+     */
+    public ServerOutbox(PexoraProxy plugin, int maxPerServer, long defaultTtlMillis, Path file) {
+        this.plugin = plugin;
+        this.maxPerServer = Math.max(1, maxPerServer);
+        this.defaultTtlMillis = defaultTtlMillis;
+        this.file = file;
+        if (file != null) {
+            load();
+        }
+        this.purgeTask = plugin.getServer().getScheduler()
+                .buildTask(plugin, this::maintain)
+                .delay(PURGE_INTERVAL_MS, TimeUnit.MILLISECONDS)
+                .repeat(PURGE_INTERVAL_MS, TimeUnit.MILLISECONDS)
+                .schedule();
+    }
+
+    /**
+     * Reiht einen kodierten Frame mit der Standard-Lebensdauer ein
+     *
+     * @param server Der Name des Servers
+     * @param frame Der kodierte Frame
+     */
+    public void enqueue(String server, byte[] frame) {
+        enqueue(server, frame, defaultTtlMillis);
+    }
+
+    /**
+     * Reiht einen kodierten Frame ein
+     *
+     * @param server Der Name des Servers
+     * @param frame Der kodierte Frame
+     * @param ttlMillis Die Lebensdauer in ms
+     */
+    public void enqueue(String server, byte[] frame, long ttlMillis) {
+        ArrayDeque<Entry> queue = queues.computeIfAbsent(server, name -> new ArrayDeque<>());
+        synchronized (queue) {
+            if (queue.size() >= maxPerServer) {
+                queue.pollFirst();
+                overflowed.incrementAndGet();
+            }
+            queue.addLast(new Entry(frame, System.currentTimeMillis() + ttlMillis));
+        }
+        dirty = true;
+        enqueued.incrementAndGet();
+    }
+
+    /**
+     * Entnimmt alle noch gültigen Nachrichten eines Servers in Reihenfolge
+     *
+     * @param server Der Name des Servers
+     * @return Die kodierten Frames, leer wenn nichts wartet
+     */
+    public List<byte[]> drain(String server) {
+        ArrayDeque<Entry> queue = queues.get(server);
+        if (queue == null) {
+            return Collections.emptyList();
+        }
+
+        long now = System.currentTimeMillis();
+        List<byte[]> frames = new ArrayList<>();
+        synchronized (queue) {
+            for (Entry entry : queue) {
+                if (entry.expiresAt > now) {
+                    frames.add(entry.frame);
+                } else {
+                    expired.incrementAndGet();
+                }
+            }
+            if (!queue.isEmpty()) {
+                queue.clear();
+                dirty = true;
+            }
+        }
+        delivered.addAndGet(frames.size());
+        return frames;
+    }
+
+    /**
+     * Entfernt abgelaufene Nachrichten und speichert Änderungen, falls Persistenz aktiv ist
+     */
+    private void maintain() {
+        purgeExpired();
+        if (file != null && dirty) {
+            save();
+        }
+    }
+
+    /**
+     * Entfernt abgelaufene Nachrichten
+     */
+    private void purgeExpired() {
+        long now = System.currentTimeMillis();
+        for (ArrayDeque<Entry> queue : queues.values()) {
+            synchronized (queue) {
+                Iterator<Entry> iterator = queue.iterator();
+                while (iterator.hasNext()) {
+                    if (iterator.next().expiresAt <= now) {
+                        iterator.remove();
+                        expired.incrementAndGet();
+                        dirty = true;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Stoppt die Bereinigung und speichert die wartenden Nachrichten, falls Persistenz aktiv ist
+     */
+    public void shutdown() {
+        purgeTask.cancel();
+        if (file != null) {
+            purgeExpired();
+            save();
+        }
+    }
+
+    private synchronized void save() {
+        // Vor dem Schreiben zurücksetzen, damit Änderungen währenddessen beim nächsten Mal gespeichert werden
+        dirty = false;
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(FILE_VERSION);
+            for (Map.Entry<String, ArrayDeque<Entry>> queue : queues.entrySet()) {
+                synchronized (queue.getValue()) {
+                    for (Entry entry : queue.getValue()) {
+                        out.writeBoolean(true);
+                        out.writeUTF(queue.getKey());
+                        out.writeLong(entry.expiresAt);
+                        out.writeInt(entry.frame.length);
+                        out.write(entry.frame);
+                    }
+                }
+            }
+            out.writeBoolean(false);
+        } catch (IOException e) {
+            plugin.getLoggerService().severe("Ausgehende Nachrichten konnten nicht gespeichert werden: " + e.getMessage());
+            e.printStackTrace();
+            dirty = true;
+            return;
+        }
+
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            plugin.getLoggerService().debug("Ausgehende Nachrichten gespeichert: " + getQueuedCount());
+        } catch (IOException e) {
+            plugin.getLoggerService().severe("Ausgehende Nachrichten konnten nicht gespeichert werden: " + e.getMessage());
+            e.printStackTrace();
+            dirty = true;
+        }
+    }
+
+    private void load() {
+        if (!Files.exists(file)) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        int loaded = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            int version = in.readInt();
+            if (version != FILE_VERSION) {
+                plugin.getLoggerService().warning("Unbekannte Version der Datei " + file.getFileName() + ": " + version);
+                return;
+            }
+            while (in.readBoolean()) {
+                String server = in.readUTF();
+                long expiresAt = in.readLong();
+                byte[] frame = new byte[in.readInt()];
+                in.readFully(frame);
+                if (expiresAt > now) {
+                    queues.computeIfAbsent(server, name -> new ArrayDeque<>()).addLast(new Entry(frame, expiresAt));
+                    loaded++;
+                }
+            }
+        } catch (IOException e) {
+            plugin.getLoggerService().severe("Gespeicherte Nachrichten konnten nicht geladen werden: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        // Die Datei bleibt bestehen, bis der geladene Stand überschrieben wird, damit ein erneuter Absturz nichts verliert
+        if (loaded > 0) {
+            plugin.getLoggerService().info(loaded + " gespeicherte Nachrichten für Backend-Server geladen");
+        }
+    }
+
+    /**
+     * @return Die Anzahl wartender Nachrichten pro Server
+     */
+    public Map<String, Integer> getQueueDepths() {
+        Map<String, Integer> depths = new LinkedHashMap<>();
+        for (Map.Entry<String, ArrayDeque<Entry>> queue : queues.entrySet()) {
+            synchronized (queue.getValue()) {
+                if (!queue.getValue().isEmpty()) {
+                    depths.put(queue.getKey(), queue.getValue().size());
+                }
+            }
+        }
+        return depths;
+    }
+
+    /**
+     * @return Die Anzahl aller wartenden Nachrichten
+     */
+    public int getQueuedCount() {
+        int count = 0;
+        for (int depth : getQueueDepths().values()) {
+            count += depth;
+        }
+        return count;
+    }
+
+    public long getEnqueued() {
+        return enqueued.get();
+    }
+
+    public long getDelivered() {
+        return delivered.get();
+    }
+
+    /**
+     * @return Die Anzahl der Nachrichten, die vor dem Senden abgelaufen sind
+     */
+    public long getExpired() {
+        return expired.get();
+    }
+
+    /**
+     * @return Die Anzahl der Nachrichten, die wegen einer vollen Warteschlange verworfen wurden
+     */
+    public long getOverflowed() {
+        return overflowed.get();
+    }
+
+    /**
+     * Ein wartender Frame mit Ablaufzeit (Systemzeit, damit sie einen Neustart übersteht)
+     */
+    private static class Entry {
+        private final byte[] frame;
+        private final long expiresAt;
+
+        private Entry(byte[] frame, long expiresAt) {
+            this.frame = frame;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package de.pexora.proxy.messaging;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Einfaches Timer-Rad für viele kurzlebige Zeitüberschreitungen.
+ *
+ * Zeitüberschreitungen werden in Slots einsortiert, die pro Tick einmal abgearbeitet werden.
+ * Anlegen und Abbrechen kosten dadurch konstante Zeit, unabhängig von der Anzahl offener
+ * Timer. Die Auflösung entspricht der Tick-Länge, eine Zeitüberschreitung wird höchstens
+ * einen Tick zu spät ausgelöst. {@link #tick()} muss regelmäßig aufgerufen werden und
+ * holt verpasste Ticks anhand der vergangenen Zeit nach.
+ *
+ * Einsortieren und Abarbeiten der Slots laufen unter derselben Sperre, damit ein Timer nicht
+ * in einen Slot gelegt wird, den der laufende Tick gerade schon besucht hat. Die Aufgaben
+ * selbst werden außerhalb der Sperre ausgeführt.
+ */
+public class TimerWheel {
+
+    private final long tickNanos;
+    private final Set<Timeout>[] slots;
+    private final int mask;
+    private final long startNanos = System.nanoTime();
+    private long processedTick;
+
+    /**
+     * Erstellt ein neues Timer-Rad
+     *
+     * @param tickMillis Die Länge eines Ticks in ms
+     * @param wheelSize Die Anzahl der Slots (wird auf eine Zweierpotenz aufgerundet)
+     */
+    @SuppressWarnings("unchecked")
+    public TimerWheel(long tickMillis, int wheelSize) {
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1L, tickMillis));
+        int size = Integer.highestOneBit(Math.max(2, wheelSize) - 1) << 1;
+        this.slots = new Set[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = ConcurrentHashMap.newKeySet();
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * Plant eine Aufgabe nach Ablauf einer Frist
+     *
+     * @param task Die Aufgabe, wird im Thread des Ticks ausgeführt
+     * @param delay Die Frist
+     * @param unit Die Einheit der Frist
+     * @return Die Zeitüberschreitung, über die die Aufgabe abgebrochen werden kann
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        long elapsed = System.nanoTime() - startNanos + unit.toNanos(Math.max(0L, delay));
+        synchronized (this) {
+            // Aufrunden, damit die Frist nie zu früh abläuft
+            long deadlineTick = Math.max((elapsed + tickNanos - 1) / tickNanos, processedTick + 1);
+            Timeout timeout = new Timeout(task, deadlineTick);
+            slots[(int) (deadlineTick & mask)].add(timeout);
+            return timeout;
+        }
+    }
+
+    /**
+     * Löst alle Zeitüberschreitungen aus, deren Frist seit dem letzten Aufruf abgelaufen ist
+     */
+    public void tick() {
+        List<Timeout> expired = new ArrayList<>();
+        synchronized (this) {
+            long currentTick = (System.nanoTime() - startNanos) / tickNanos;
+            // Nach einer langen Pause reicht eine Umdrehung, danach ist jeder Slot einmal besucht
+            long from = Math.max(processedTick + 1, currentTick - mask);
+            for (long tick = from; tick <= currentTick; tick++) {
+                collectExpired(slots[(int) (tick & mask)], currentTick, expired);
+            }
+            processedTick = Math.max(processedTick, currentTick);
+        }
+
+        for (Timeout timeout : expired) {
+            if (!timeout.cancelled) {
+                try {
+                    timeout.task.run();
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    private void collectExpired(Set<Timeout> slot, long currentTick, List<Timeout> expired) {
+        Iterator<Timeout> iterator = slot.iterator();
+        while (iterator.hasNext()) {
+            Timeout timeout = iterator.next();
+            if (timeout.deadlineTick > currentTick) {
+                continue;
+            }
+            iterator.remove();
+            expired.add(timeout);
+        }
+    }
+
+    /**
+     * @return Die Anzahl der geplanten Zeitüberschreitungen
+     */
+    public int getPendingCount() {
+        int count = 0;
+        for (Set<Timeout> slot : slots) {
+            count += slot.size();
+        }
+        return count;
+    }
+
+    /**
+     * Eine geplante Zeitüberschreitung
+     */
+    public class Timeout {
+        private final Runnable task;
+        private final long deadlineTick;
+        private volatile boolean cancelled;
+
+        private Timeout(Runnable task, long deadlineTick) {
+            this.task = task;
+            this.deadlineTick = deadlineTick;
+        }
+
+        /**
+         * Bricht die Zeitüberschreitung ab, falls sie noch nicht ausgelöst wurde
+         */
+        public void cancel() {
+            cancelled = true;
+            slots[(int) (deadlineTick & mask)].remove(this);
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+}
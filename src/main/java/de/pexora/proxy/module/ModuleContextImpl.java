@@ -0,0 +1,88 @@
+package de.pexora.proxy.module;
+
+import com.velocitypowered.api.command.SimpleCommand;
+import de.pexora.proxy.PexoraProxy;
+import de.pexora.proxy.api.events.EventRegistration;
+import de.pexora.proxy.api.module.ModuleContext;
+import de.pexora.proxy.api.scheduler.SchedulerService;
+import de.pexora.proxy.messaging.MessagingManager;
+
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+/**
+ * Implementierung des ModuleContext für eine einzelne Generation eines Moduls.
+ */
+public class ModuleContextImpl implements ModuleContext {
+
+    private final ModuleRoute route;
+    private final int generation;
+    private final Path dataDirectory;
+    private final EventRegistration events;
+    private final SchedulerService scheduler;
+
+    /**
+     * Erstellt einen neuen Modul-Kontext
+     *
+     * @param plugin Die Plugin-Instanz
+     * @param route Die Route des Moduls
+     * @param generation Die Generation der Modulinstanz
+     * @param dataDirectory Das Datenverzeichnis des Moduls
+     */
+    public ModuleContextImpl(PexoraProxy plugin, ModuleRoute route, int generation, Path dataDirectory) {
+        this.route = route;
+        this.generation = generation;
+        this.dataDirectory = dataDirectory;
+        this.events = new EventRegistration(plugin, route.getModuleName(), () -> route.isActive(generation));
+        this.scheduler = new SchedulerService(plugin, route.getModuleName(), () -> route.isActive(generation));
+    }
+
+    @Override
+    public String getModuleName() {
+        return route.getModuleName();
+    }
+
+    @Override
+    public Path getDataDirectory() {
+        return dataDirectory;
+    }
+
+    @Override
+    public EventRegistration getEvents() {
+        return events;
+    }
+
+    @Override
+    public SchedulerService getScheduler() {
+        return scheduler;
+    }
+
+    @Override
+    public void registerCommand(String name, SimpleCommand command, String... aliases) {
+        route.registerCommand(generation, name, command);
+        for (String alias : aliases) {
+            route.registerCommand(generation, alias, command);
+        }
+    }
+
+    @Override
+    public void registerMessageHandler(String action, Consumer<MessagingManager.MessageEvent> handler) {
+        route.registerMessageHandler(generation, action, handler);
+    }
+
+    /**
+     * Entfernt alle Registrierungen dieser Generation
+     */
+    public void close() {
+        events.unregisterAllListeners();
+        scheduler.cancelAll();
+        route.retire(generation);
+    }
+
+    /**
+     * @return Die Generation dieser Modulinstanz
+     */
+    public int getGeneration() {
+        return generation;
+    }
+}
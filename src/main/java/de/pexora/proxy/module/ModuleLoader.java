@@ -1,18 +1,35 @@
 package de.pexora.proxy.module;
 
+import com.moandjiezana.toml.Toml;
 import de.pexora.proxy.PexoraProxy;
+import de.pexora.proxy.api.module.PexoraModule;
+import de.pexora.proxy.api.module.StatefulModule;
+import de.pexora.proxy.startup.StartupProfiler;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Verwaltet das Laden und Entladen von Modulen
@@ -26,15 +43,24 @@ import java.util.stream.Collectors;
  * - Statusverfolgung aller geladenen Module
  * - Möglichkeit zum Neuladen einzelner oder aller Module
  * - Verhinderung von Mehrfachladung identischer Module
+ * - Austausch einzelner Module ohne Ausfallzeit (Blue/Green) inkl. Zustandsübergabe
  * 
  * Module werden als reguläre JAR-Dateien verarbeitet, die den Namenskonventionen 
  * folgen (z.B. PexoraEconomy.jar) und die richtige Abhängigkeit zu PexoraCore definieren.
+ * Gibt die module.toml eines Moduls eine {@code main}-Klasse an, wird diese in einem eigenen
+ * ClassLoader instanziiert und muss {@link PexoraModule} implementieren. Unter {@code libraries}
+ * angegebene Bibliotheken werden über die {@link SharedLibraryRegistry} aus dem libs-Ordner geteilt.
+ * Module mit {@code database = true} werden erst aktiviert, wenn die Datenbank bereit ist.
+ * Über {@code depends} angegebene Module werden beim Entladen erst nach ihren Abhängigen deaktiviert.
  */
 public class ModuleLoader {
 
     private final PexoraProxy plugin;
     private final Path modulesDir;
-    private final Map<String, ProxyModule> modules = new HashMap<>();
+    private final Map<String, ProxyModule> modules = new ConcurrentHashMap<>();
+    private final Map<String, ModuleRoute> routes = new ConcurrentHashMap<>();
+    private final SharedLibraryRegistry libraryRegistry;
+    private final ModuleSyncEngine syncEngine;
 
     /**
      * Erstellt einen neuen Modul-Loader
@@ -44,6 +70,8 @@ public class ModuleLoader {
     public ModuleLoader(PexoraProxy plugin) {
         this.plugin = plugin;
         this.modulesDir = plugin.getDataDirectory().resolve("modules");
+        this.libraryRegistry = new SharedLibraryRegistry(plugin, plugin.getDataDirectory().resolve("libs"));
+        this.syncEngine = new ModuleSyncEngine(plugin, modulesDir);
         
         createModulesFolder();
         loadModules();
@@ -58,6 +86,11 @@ public class ModuleLoader {
                 Files.createDirectories(modulesDir);
                 plugin.getLoggerService().info("Modules-Ordner erstellt: " + modulesDir);
             }
+            
+            Path libsDir = plugin.getDataDirectory().resolve("libs");
+            if (!Files.exists(libsDir)) {
+                Files.createDirectories(libsDir);
+            }
         } catch (IOException e) {
             plugin.getLoggerService().severe("Fehler beim Erstellen des Modules-Ordners: " + e.getMessage());
             e.printStackTrace();
@@ -81,55 +114,47 @@ public class ModuleLoader {
                 return;
             }
             
-            List<Path> pluginFiles = Files.list(pluginsDir)
-                    .filter(path -> path.toString().endsWith(".jar"))
-                    .filter(path -> {
-                        try {
-                            String fileName = path.getFileName().toString();
-                            return isPexoraModule(path) || 
-                                   (plugin.getCoreConfig().isAllowNonPexoraModules() && !fileName.equals("PexoraProxy-1.0.0.jar"));
-                        } catch (Exception e) {
-                            return false;
-                        }
-                    })
-                    .collect(Collectors.toList());
-            
-            for (Path pluginPath : pluginFiles) {
-                String fileName = pluginPath.getFileName().toString();
-                Path targetPath = modulesDir.resolve(fileName);
-                
-                // Überprüfen, ob eine ältere Version gelöscht werden soll
-                if (plugin.getCoreConfig().isDeleteOldPlugins()) {
-                    String baseName = fileName.substring(0, fileName.lastIndexOf('-'));
-                    try {
-                        Files.list(modulesDir)
-                            .filter(path -> path.getFileName().toString().startsWith(baseName + "-") && 
-                                   !path.getFileName().toString().equals(fileName))
-                            .forEach(path -> {
-                                try {
-                                    Files.delete(path);
-                                    plugin.getLoggerService().info("Alte Version gelöscht: " + path.getFileName());
-                                } catch (IOException e) {
-                                    plugin.getLoggerService().warning("Konnte alte Version nicht löschen: " + e.getMessage());
-                                }
-                            });
-                    } catch (IOException e) {
-                        plugin.getLoggerService().warning("Fehler beim Prüfen auf alte Versionen: " + e.getMessage());
-                    }
-                }
-                
-                // Kopieren der Datei, wenn sie noch nicht existiert
-                if (!Files.exists(targetPath)) {
-                    Files.copy(pluginPath, targetPath, StandardCopyOption.REPLACE_EXISTING);
-                    plugin.getLoggerService().info("Plugin kopiert: " + fileName);
-                }
+            List<Path> pluginFiles;
+            try (Stream<Path> files = Files.list(pluginsDir)) {
+                pluginFiles = files
+                        .filter(path -> path.toString().endsWith(".jar"))
+                        .filter(path -> {
+                            try {
+                                String fileName = path.getFileName().toString();
+                                return isPexoraModule(path) || 
+                                       (plugin.getCoreConfig().isAllowNonPexoraModules() && !fileName.equals("PexoraProxy-1.0.0.jar"));
+                            } catch (Exception e) {
+                                return false;
+                            }
+                        })
+                        .collect(Collectors.toList());
             }
+            
+            // Einmaliger Abgleich: neue Dateien kopieren, geänderte ersetzen, alte Versionen entfernen
+            ModuleSyncEngine.SyncResult result = syncEngine.sync(pluginFiles, plugin.getCoreConfig().isDeleteOldPlugins());
+            logSyncResult(result, "Plugin");
         } catch (IOException e) {
             plugin.getLoggerService().severe("Fehler beim Kopieren von Plugins: " + e.getMessage());
             e.printStackTrace();
         }
     }
 
+    /**
+     * Gibt die Änderungen eines Synchronisationslaufs aus
+     */
+    private void logSyncResult(ModuleSyncEngine.SyncResult result, String kind) {
+        for (String fileName : result.getCopied()) {
+            plugin.getLoggerService().info(kind + " kopiert: " + fileName);
+        }
+        for (String fileName : result.getUpdated()) {
+            plugin.getLoggerService().info(kind + " aktualisiert: " + fileName);
+        }
+        for (String fileName : result.getPruned()) {
+            plugin.getLoggerService().info("Alte Version gelöscht: " + fileName);
+        }
+        plugin.getLoggerService().info("Modules-Ordner synchronisiert: " + result);
+    }
+
     /**
      * Prüft, ob es sich um ein Pexora-Modul handelt
      *
@@ -149,13 +174,16 @@ public class ModuleLoader {
      */
     private void loadModules() {
         // Zuerst alle Plugins in den Modules-Ordner kopieren
-        copyModulesToFolder();
+        try (StartupProfiler.Span span = plugin.getStartupProfiler().start("Module synchronisieren")) {
+            copyModulesToFolder();
+        }
         
         plugin.getLoggerService().info("Lade Module...");
         
         // Zusätzliche Module hinzufügen
         String[] additionalModules = plugin.getCoreConfig().getAdditionalModules();
         if (additionalModules != null && additionalModules.length > 0) {
+            List<Path> additionalPaths = new ArrayList<>();
             for (String moduleName : additionalModules) {
                 Path modulePath = plugin.getServer().getPluginManager().getPlugin(moduleName)
                         .flatMap(provider -> {
@@ -174,16 +202,17 @@ public class ModuleLoader {
                         .orElse(null);
                 
                 if (modulePath != null) {
-                    try {
-                        Path targetPath = modulesDir.resolve(modulePath.getFileName());
-                        if (!Files.exists(targetPath)) {
-                            Files.copy(modulePath, targetPath, StandardCopyOption.REPLACE_EXISTING);
-                            plugin.getLoggerService().info("Zusätzliches Modul kopiert: " + modulePath.getFileName());
-                        }
-                    } catch (IOException e) {
-                        plugin.getLoggerService().warning("Konnte zusätzliches Modul nicht kopieren: " + e.getMessage());
-                    }
+                    additionalPaths.add(modulePath);
+                }
+            }
+            
+            try {
+                ModuleSyncEngine.SyncResult result = syncEngine.sync(additionalPaths, false);
+                if (result.hasChanges()) {
+                    logSyncResult(result, "Zusätzliches Modul");
                 }
+            } catch (IOException e) {
+                plugin.getLoggerService().warning("Konnte zusätzliche Module nicht kopieren: " + e.getMessage());
             }
         }
         
@@ -199,15 +228,20 @@ public class ModuleLoader {
                     .collect(Collectors.toList());
             
             for (Path modulePath : moduleFiles) {
-                try {
+                try (StartupProfiler.Span span = plugin.getStartupProfiler().start("Modul " + modulePath.getFileName())) {
                     loadModule(modulePath.toFile());
-                } catch (Exception e) {
+                } catch (Exception | LinkageError e) {
                     plugin.getLoggerService().severe("Fehler beim Laden des Moduls " + modulePath.getFileName() + ": " + e.getMessage());
                     e.printStackTrace();
                 }
             }
             
             plugin.getLoggerService().info(modules.size() + " Module geladen");
+            
+            Map<String, String> sharedLibraries = libraryRegistry.getSharedLibraries();
+            if (!sharedLibraries.isEmpty()) {
+                plugin.getLoggerService().info(sharedLibraries.size() + " geteilte Bibliotheken: " + sharedLibraries);
+            }
         } catch (IOException e) {
             plugin.getLoggerService().severe("Fehler beim Laden der Module: " + e.getMessage());
             e.printStackTrace();
@@ -219,38 +253,419 @@ public class ModuleLoader {
      *
      * @param file Die Moduldatei
      */
-    private void loadModule(File file) {
+    private void loadModule(File file) throws Exception {
         String fileName = file.getName();
         
         plugin.getLoggerService().info("Lade Modul: " + fileName);
         
-        // Hier würde die tatsächliche Implementierung sein, um das Modul zu laden
-        // Da wir keine echten Module haben, erstellen wir ein Dummy-Modul
-        ProxyModule module = new ProxyModule(fileName, "Dummy-Modul", "1.0.0");
+        ProxyModule module = createModule(file.toPath());
+        if (findModule(module.getName()) != null) {
+            plugin.getLoggerService().warning("Modul " + module.getName() + " ist bereits geladen, überspringe " + fileName);
+            closeModule(module);
+            return;
+        }
+        
+        module.getRoute().activate(module.getGeneration());
+        
+        // Module, die die Datenbank benötigen, warten auf deren Bereitschaft, ohne den Start aufzuhalten
+        if (module.isDatabaseRequired() && !plugin.getDatabaseManager().isConnected()) {
+            CompletableFuture<Boolean> databaseReady = plugin.getDatabaseManager().getReadyFuture();
+            modules.put(fileName, module);
+            if (!databaseReady.isDone()) {
+                plugin.getLoggerService().info("Modul " + module.getName() + " wartet auf die Datenbank...");
+            }
+            databaseReady.whenComplete((ready, error) -> enableDeferredModule(module, Boolean.TRUE.equals(ready) && error == null));
+            return;
+        }
+        
+        try {
+            enableModule(module);
+        } catch (Exception e) {
+            closeModule(module);
+            throw e;
+        }
         modules.put(fileName, module);
         
-        plugin.getLoggerService().info("Modul " + fileName + " geladen");
+        plugin.getLoggerService().info("Modul " + module.getName() + " v" + module.getVersion() + " geladen");
+    }
+
+    /**
+     * Aktiviert ein Modul, das auf die Datenbank gewartet hat
+     *
+     * @param module Das wartende Modul
+     * @param databaseReady Ob die Datenbankverbindung hergestellt wurde
+     */
+    private synchronized void enableDeferredModule(ProxyModule module, boolean databaseReady) {
+        // Das Modul wurde in der Zwischenzeit entladen, ausgetauscht oder schon aktiviert
+        if (modules.get(module.getFileName()) != module || module.isEnabled()) {
+            return;
+        }
+        if (!databaseReady) {
+            plugin.getLoggerService().warning("Modul " + module.getName()
+                    + " benötigt die Datenbank, die nicht verfügbar ist, und bleibt deaktiviert, bis die Verbindung besteht");
+            // Nicht im Thread des Verbindungsaufbaus aktivieren, der die Sperre des DatabaseManager hält
+            plugin.getDatabaseManager().getConnectedFuture()
+                    .thenRunAsync(() -> enableDeferredModule(module, true));
+            return;
+        }
+        
+        try {
+            enableModule(module);
+            plugin.getLoggerService().info("Modul " + module.getName() + " v" + module.getVersion() + " geladen");
+        } catch (Exception | LinkageError e) {
+            plugin.getLoggerService().severe("Fehler beim Aktivieren des Moduls " + module.getName() + ": " + e.getMessage());
+            e.printStackTrace();
+            modules.remove(module.getFileName());
+            closeModule(module);
+        }
+    }
+
+    /**
+     * Liest die module.toml einer Moduldatei und instanziiert die Hauptklasse, ohne sie zu aktivieren
+     *
+     * @param path Der Pfad zur Moduldatei
+     * @return Das noch nicht aktivierte Modul
+     */
+    private ProxyModule createModule(Path path) throws Exception {
+        String fileName = path.getFileName().toString();
+        String name = fileName.endsWith(".jar") ? fileName.substring(0, fileName.length() - 4) : fileName;
+        String version = "1.0.0";
+        String mainClass = null;
+        boolean databaseRequired = false;
+        List<String> libraries = new ArrayList<>();
+        List<String> dependencies = new ArrayList<>();
+        
+        try (JarFile jarFile = new JarFile(path.toFile())) {
+            JarEntry entry = jarFile.getJarEntry("module.toml");
+            if (entry != null) {
+                try (InputStream is = jarFile.getInputStream(entry)) {
+                    Toml description = new Toml().read(is);
+                    name = description.getString("name", name);
+                    version = description.getString("version", version);
+                    mainClass = description.getString("main");
+                    databaseRequired = description.getBoolean("database", false);
+                    List<Object> declaredLibraries = description.getList("libraries");
+                    if (declaredLibraries != null) {
+                        for (Object library : declaredLibraries) {
+                            libraries.add(String.valueOf(library));
+                        }
+                    }
+                    List<Object> declaredDependencies = description.getList("depends");
+                    if (declaredDependencies != null) {
+                        for (Object dependency : declaredDependencies) {
+                            dependencies.add(String.valueOf(dependency));
+                        }
+                    }
+                }
+            }
+        }
+        
+        ModuleRoute route = routes.computeIfAbsent(name, moduleName -> new ModuleRoute(plugin, moduleName));
+        int generation = route.nextGeneration();
+        
+        if (mainClass == null) {
+            // Modul ohne eigene Hauptklasse (z.B. reines Velocity-Plugin)
+            return new ProxyModule(fileName, name, version, route, generation, dependencies, false, null, null, null);
+        }
+        
+        SharedLibraryRegistry.ModuleClassLoader classLoader = libraryRegistry.createClassLoader(name, path, libraries);
+        try {
+            Class<?> moduleClass = Class.forName(mainClass, true, classLoader);
+            if (!PexoraModule.class.isAssignableFrom(moduleClass)) {
+                throw new IllegalStateException("Hauptklasse " + mainClass + " implementiert PexoraModule nicht");
+            }
+            PexoraModule instance = moduleClass.asSubclass(PexoraModule.class).getDeclaredConstructor().newInstance();
+            ModuleContextImpl context = new ModuleContextImpl(plugin, route, generation, modulesDir.resolve(name));
+            return new ProxyModule(fileName, name, version, route, generation, dependencies, databaseRequired, instance, context, classLoader);
+        } catch (Exception | LinkageError e) {
+            libraryRegistry.release(classLoader);
+            classLoader.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Aktiviert die Instanz eines Moduls
+     */
+    private void enableModule(ProxyModule module) {
+        module.enabled = true;
+        if (module.getInstance() != null) {
+            plugin.getResourceTracker().runTask(module.getName(), () -> module.getInstance().onEnable(module.getContext()));
+        }
+    }
+
+    /**
+     * Deaktiviert die Instanz eines Moduls und entfernt alle ihre Registrierungen
+     */
+    private void closeModule(ProxyModule module) {
+        try {
+            // Nie aktivierte Module (z.B. ohne Datenbank) werden auch nicht deaktiviert
+            if (module.getInstance() != null && module.isEnabled()) {
+                plugin.getResourceTracker().runTask(module.getName(), () -> module.getInstance().onDisable());
+            }
+        } catch (Exception e) {
+            plugin.getLoggerService().severe("Fehler beim Deaktivieren des Moduls " + module.getName() + ": " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            if (module.getContext() != null) {
+                module.getContext().close();
+            } else {
+                module.getRoute().retire(module.getGeneration());
+            }
+            if (module.getClassLoader() != null) {
+                libraryRegistry.release(module.getClassLoader());
+                try {
+                    module.getClassLoader().close();
+                } catch (IOException e) {
+                    plugin.getLoggerService().warning("Konnte ClassLoader von " + module.getName() + " nicht schließen: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Sucht ein geladenes Modul anhand seines Namens
+     *
+     * @param moduleName Der Name des Moduls
+     * @return Das Modul oder null, wenn es nicht geladen ist
+     */
+    public ProxyModule findModule(String moduleName) {
+        for (ProxyModule module : modules.values()) {
+            if (module.getName().equalsIgnoreCase(moduleName)) {
+                return module;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Tauscht ein geladenes Modul ohne Ausfallzeit gegen eine neue Version aus (Blue/Green).
+     *
+     * Ablauf:
+     * 1. Die neue Version wird in einem eigenen ClassLoader neben der alten geladen und aktiviert.
+     *    Ihre Listener, Befehle, Tasks und Nachrichten-Handler bleiben bis zum Umschalten inaktiv.
+     * 2. Die alte Version wird angehalten (keine Generation aktiv, Befehle melden kurz
+     *    "nicht verfügbar"), damit sich ihr Zustand nicht mehr ändert. Dann liefert sie eine
+     *    Momentaufnahme ihres Zustands, die neue übernimmt sie (nur bei {@link StatefulModule}).
+     * 3. Alle Registrierungen werden mit einem einzigen Schreibzugriff auf die neue Version umgeleitet.
+     * 4. Die alte Version wird deaktiviert, ihr ClassLoader geschlossen und ihre JAR-Datei gelöscht,
+     *    damit beim nächsten Start nur die neue Version geladen wird.
+     *
+     * Schlägt Schritt 1 oder 2 fehl, wird die neue Version verworfen und die alte bleibt aktiv.
+     * Benötigt die neue Version die Datenbank, wird nur bei bestehender Verbindung getauscht.
+     * Eine alte Version, die noch auf die Datenbank wartet und nie aktiviert wurde, gibt keinen Zustand ab.
+     *
+     * @param moduleName Der Name des auszutauschenden Moduls
+     * @param newModulePath Der Pfad zur JAR-Datei der neuen Version (mit eigenem Dateinamen im Modules-Ordner)
+     * @return Ob der Austausch erfolgreich war
+     */
+    public synchronized boolean swapModule(String moduleName, Path newModulePath) {
+        ProxyModule oldModule = findModule(moduleName);
+        if (oldModule == null) {
+            plugin.getLoggerService().warning("Modul " + moduleName + " ist nicht geladen und kann nicht ausgetauscht werden");
+            return false;
+        }
+        // Nur Dateien direkt im Modules-Ordner, sonst wäre das Modul nach dem Löschen der alten Datei beim nächsten Start weg
+        newModulePath = newModulePath.toAbsolutePath().normalize();
+        if (!modulesDir.toAbsolutePath().normalize().equals(newModulePath.getParent())) {
+            plugin.getLoggerService().warning("Neue Moduldatei muss direkt im Modules-Ordner liegen: " + newModulePath);
+            return false;
+        }
+        if (!Files.exists(newModulePath)) {
+            plugin.getLoggerService().warning("Neue Moduldatei nicht gefunden: " + newModulePath);
+            return false;
+        }
+        
+        long start = System.nanoTime();
+        plugin.getLoggerService().info("Tausche Modul " + oldModule.getName() + " v" + oldModule.getVersion()
+                + " gegen " + newModulePath.getFileName() + " aus...");
+        
+        ProxyModule newModule;
+        try {
+            newModule = createModule(newModulePath);
+        } catch (Exception | LinkageError e) {
+            plugin.getLoggerService().severe("Fehler beim Laden der neuen Version von " + moduleName + ": " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+        
+        if (!newModule.getName().equals(oldModule.getName())) {
+            plugin.getLoggerService().severe("Die neue Version heißt " + newModule.getName() + " statt " + oldModule.getName() + ", Austausch abgebrochen");
+            closeModule(newModule);
+            return false;
+        }
+        if (newModule.isDatabaseRequired() && !plugin.getDatabaseManager().isConnected()) {
+            plugin.getLoggerService().severe("Die neue Version von " + moduleName
+                    + " benötigt die Datenbank, die nicht verfügbar ist, Austausch abgebrochen");
+            closeModule(newModule);
+            return false;
+        }
+        
+        // 1. Neue Version vorbereiten, ihre Registrierungen bleiben inaktiv
+        try {
+            enableModule(newModule);
+        } catch (Exception | LinkageError e) {
+            plugin.getLoggerService().severe("Fehler beim Aktivieren der neuen Version von " + moduleName + ": " + e.getMessage());
+            e.printStackTrace();
+            closeModule(newModule);
+            return false;
+        }
+        
+        // 2. Alte Version anhalten und Zustand übergeben
+        oldModule.getRoute().activate(0);
+        try {
+            Object state = oldModule.isEnabled() && oldModule.getInstance() instanceof StatefulModule
+                    ? ((StatefulModule) oldModule.getInstance()).snapshotState()
+                    : null;
+            if (newModule.getInstance() instanceof StatefulModule) {
+                ((StatefulModule) newModule.getInstance()).restoreState(state);
+            }
+        } catch (Exception | LinkageError e) {
+            plugin.getLoggerService().severe("Fehler bei der Zustandsübergabe von " + moduleName + ": " + e.getMessage());
+            e.printStackTrace();
+            oldModule.getRoute().activate(oldModule.getGeneration());
+            closeModule(newModule);
+            return false;
+        }
+        
+        // 3. Atomar umleiten
+        newModule.getRoute().activate(newModule.getGeneration());
+        modules.remove(oldModule.getFileName());
+        modules.put(newModule.getFileName(), newModule);
+        
+        // 4. Alte Version abbauen
+        closeModule(oldModule);
+        Path oldModulePath = modulesDir.resolve(oldModule.getFileName());
+        if (!oldModulePath.toAbsolutePath().normalize().equals(newModulePath)) {
+            try {
+                Files.deleteIfExists(oldModulePath);
+            } catch (IOException e) {
+                plugin.getLoggerService().warning("Konnte alte Moduldatei " + oldModulePath.getFileName()
+                        + " nicht löschen, bitte vor dem nächsten Start entfernen: " + e.getMessage());
+            }
+        }
+        
+        plugin.getLoggerService().info(String.format("Modul %s auf v%s ausgetauscht (%.1f ms)",
+                newModule.getName(), newModule.getVersion(), (System.nanoTime() - start) / 1_000_000.0));
+        return true;
     }
 
     /**
      * Entlädt alle Module
      */
     public void disableAllModules() {
+        disableAllModules(plugin.getCoreConfig().getShutdownTimeoutMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Entlädt alle Module parallel in umgekehrter Abhängigkeitsreihenfolge:
+     * Ein Modul wird erst deaktiviert, wenn alle Module, die von ihm abhängen, deaktiviert sind.
+     * Voneinander unabhängige Module werden gleichzeitig deaktiviert.
+     *
+     * @param timeout Die maximale Wartezeit
+     * @param unit Die Zeiteinheit der Wartezeit
+     * @return Die Namen der Module, deren Deaktivierung bei Fristablauf noch nicht abgeschlossen war
+     */
+    public List<String> disableAllModules(long timeout, TimeUnit unit) {
         plugin.getLoggerService().info("Entlade alle Module...");
         
-        for (ProxyModule module : new ArrayList<>(modules.values())) {
-            try {
-                // Hier würde die tatsächliche Implementierung sein, um das Modul zu entladen
-                plugin.getLoggerService().info("Entlade Modul: " + module.getName());
-                modules.remove(module.getFileName());
-            } catch (Exception e) {
-                plugin.getLoggerService().severe("Fehler beim Entladen des Moduls " + module.getName() + ": " + e.getMessage());
-                e.printStackTrace();
+        List<ProxyModule> loaded = new ArrayList<>(modules.values());
+        if (loaded.isEmpty()) {
+            plugin.getLoggerService().info("Alle Module entladen");
+            return Collections.emptyList();
+        }
+        
+        // Für jedes Modul die Module sammeln, die von ihm abhängen
+        Map<String, ProxyModule> byName = new HashMap<>();
+        for (ProxyModule module : loaded) {
+            byName.put(module.getName().toLowerCase(), module);
+        }
+        Map<ProxyModule, List<ProxyModule>> dependents = new HashMap<>();
+        for (ProxyModule module : loaded) {
+            dependents.computeIfAbsent(module, key -> new ArrayList<>());
+            for (String dependencyName : module.getDependencies()) {
+                ProxyModule dependency = byName.get(dependencyName.toLowerCase());
+                if (dependency != null && dependency != module) {
+                    dependents.computeIfAbsent(dependency, key -> new ArrayList<>()).add(module);
+                }
+            }
+        }
+        
+        AtomicInteger counter = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(loaded.size(), 4), runnable -> {
+            Thread thread = new Thread(runnable, "Pexora-ModuleShutdown-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        
+        Map<ProxyModule, CompletableFuture<Void>> scheduled = new HashMap<>();
+        for (ProxyModule module : loaded) {
+            scheduleDisable(module, dependents, scheduled, new HashSet<>(), executor);
+        }
+        
+        try {
+            CompletableFuture.allOf(scheduled.values().toArray(new CompletableFuture<?>[0])).get(timeout, unit);
+        } catch (TimeoutException e) {
+            // Auswertung unten
+        } catch (Exception e) {
+            plugin.getLoggerService().severe("Fehler beim Entladen der Module: " + e.getMessage());
+        } finally {
+            executor.shutdownNow();
+        }
+        
+        List<String> unfinished = new ArrayList<>();
+        for (Map.Entry<ProxyModule, CompletableFuture<Void>> entry : scheduled.entrySet()) {
+            if (!entry.getValue().isDone()) {
+                unfinished.add(entry.getKey().getName());
             }
         }
+        Collections.sort(unfinished);
         
         modules.clear();
-        plugin.getLoggerService().info("Alle Module entladen");
+        plugin.getLoggerService().info(unfinished.isEmpty()
+                ? "Alle Module entladen"
+                : "Module entladen, nicht rechtzeitig beendet: " + String.join(", ", unfinished));
+        return unfinished;
+    }
+
+    /**
+     * Plant die Deaktivierung eines Moduls nach der Deaktivierung aller von ihm abhängigen Module
+     */
+    private CompletableFuture<Void> scheduleDisable(ProxyModule module, Map<ProxyModule, List<ProxyModule>> dependents,
+                                                    Map<ProxyModule, CompletableFuture<Void>> scheduled,
+                                                    Set<ProxyModule> visiting, Executor executor) {
+        CompletableFuture<Void> existing = scheduled.get(module);
+        if (existing != null) {
+            return existing;
+        }
+        
+        visiting.add(module);
+        List<CompletableFuture<Void>> before = new ArrayList<>();
+        for (ProxyModule dependent : dependents.get(module)) {
+            if (visiting.contains(dependent)) {
+                plugin.getLoggerService().warning("Zyklische Abhängigkeit zwischen " + module.getName() + " und " + dependent.getName());
+                continue;
+            }
+            before.add(scheduleDisable(dependent, dependents, scheduled, visiting, executor));
+        }
+        visiting.remove(module);
+        
+        // Auch nach einem Fehler bei einem abhängigen Modul weitermachen
+        CompletableFuture<Void> future = CompletableFuture.allOf(before.toArray(new CompletableFuture<?>[0]))
+                .handle((result, error) -> null)
+                .thenRunAsync(() -> {
+                    try {
+                        plugin.getLoggerService().info("Entlade Modul: " + module.getName());
+                        closeModule(module);
+                    } catch (Exception e) {
+                        plugin.getLoggerService().severe("Fehler beim Entladen des Moduls " + module.getName() + ": " + e.getMessage());
+                        e.printStackTrace();
+                    } finally {
+                        modules.remove(module.getFileName(), module);
+                    }
+                }, executor);
+        scheduled.put(module, future);
+        return future;
     }
 
     /**
@@ -262,6 +677,13 @@ public class ModuleLoader {
         loadModules();
     }
 
+    /**
+     * @return Das Verzeichnis, aus dem Module geladen werden
+     */
+    public Path getModulesDirectory() {
+        return modulesDir;
+    }
+
     /**
      * @return Eine Kopie der geladenen Module
      */
@@ -276,11 +698,28 @@ public class ModuleLoader {
         private final String fileName;
         private final String name;
         private final String version;
+        private final ModuleRoute route;
+        private final int generation;
+        private final List<String> dependencies;
+        private final boolean databaseRequired;
+        private final PexoraModule instance;
+        private final ModuleContextImpl context;
+        private final SharedLibraryRegistry.ModuleClassLoader classLoader;
+        private volatile boolean enabled;
         
-        public ProxyModule(String fileName, String name, String version) {
+        public ProxyModule(String fileName, String name, String version, ModuleRoute route, int generation, List<String> dependencies,
+                           boolean databaseRequired, PexoraModule instance, ModuleContextImpl context,
+                           SharedLibraryRegistry.ModuleClassLoader classLoader) {
             this.fileName = fileName;
             this.name = name;
             this.version = version;
+            this.route = route;
+            this.generation = generation;
+            this.dependencies = Collections.unmodifiableList(new ArrayList<>(dependencies));
+            this.databaseRequired = databaseRequired;
+            this.instance = instance;
+            this.context = context;
+            this.classLoader = classLoader;
         }
         
         public String getFileName() {
@@ -294,5 +733,46 @@ public class ModuleLoader {
         public String getVersion() {
             return version;
         }
+        
+        public ModuleRoute getRoute() {
+            return route;
+        }
+        
+        public int getGeneration() {
+            return generation;
+        }
+        
+        /**
+         * @return Die Namen der Module, von denen dieses Modul abhängt ({@code depends} in der module.toml)
+         */
+        public List<String> getDependencies() {
+            return dependencies;
+        }
+        
+        /**
+         * @return Ob das Modul erst nach dem Verbindungsaufbau zur Datenbank aktiviert wird
+         */
+        public boolean isDatabaseRequired() {
+            return databaseRequired;
+        }
+        
+        public PexoraModule getInstance() {
+            return instance;
+        }
+        
+        public ModuleContextImpl getContext() {
+            return context;
+        }
+        
+        public SharedLibraryRegistry.ModuleClassLoader getClassLoader() {
+            return classLoader;
+        }
+        
+        /**
+         * @return Ob {@code onEnable} aufgerufen wurde (false, solange das Modul auf die Datenbank wartet)
+         */
+        public boolean isEnabled() {
+            return enabled;
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,271 @@
+package de.pexora.proxy.module;
+
+import de.pexora.proxy.api.status.ModuleResourceStats;
+import de.pexora.proxy.status.LatencyHistogram;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ordnet Event-Handler, Tasks, Threads und Datenbankzugriffe ihrem Modul zu
+ * und misst den jeweiligen Ressourcenverbrauch.
+ *
+ * Gemessen werden pro Modul:
+ * - Anzahl und Laufzeit (kumuliert und als Perzentile) aller Handler und Tasks
+ * - CPU-Zeit und allokierte Bytes über die Thread-Zähler der JVM
+ * - Anzahl der Threads, die über die Thread-Factory des Moduls erzeugt wurden
+ * - Anzahl und Dauer der ausgeliehenen Datenbankverbindungen
+ *
+ * Während ein Handler läuft, ist das zugehörige Modul über {@link #getCurrentModule()}
+ * abrufbar, damit z.B. der DatabaseManager Zugriffe ohne expliziten Modulnamen zuordnen kann.
+ */
+public class ModuleResourceTracker {
+
+    /**
+     * Modulname, unter dem Aufrufe des Kernsystems selbst verbucht werden
+     */
+    public static final String CORE_MODULE = "PexoraProxy";
+
+    private final Map<String, ModuleMetrics> metrics = new ConcurrentHashMap<>();
+    private final ThreadLocal<String> currentModule = new ThreadLocal<>();
+    private final ThreadMXBean threadBean;
+    private final boolean cpuTimeSupported;
+    private final boolean allocationSupported;
+
+    /**
+     * Erstellt einen neuen Ressourcen-Tracker
+     */
+    public ModuleResourceTracker() {
+        this.threadBean = ManagementFactory.getThreadMXBean();
+        this.cpuTimeSupported = threadBean.isCurrentThreadCpuTimeSupported() && threadBean.isThreadCpuTimeEnabled();
+        this.allocationSupported = threadBean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) threadBean).isThreadAllocatedMemorySupported()
+                && ((com.sun.management.ThreadMXBean) threadBean).isThreadAllocatedMemoryEnabled();
+    }
+
+    /**
+     * Holt die Messwerte eines Moduls und legt sie bei Bedarf an
+     *
+     * @param moduleName Der Name des Moduls
+     * @return Die Messwerte des Moduls
+     */
+    public ModuleMetrics getMetrics(String moduleName) {
+        return metrics.computeIfAbsent(normalize(moduleName), ModuleMetrics::new);
+    }
+
+    /**
+     * @return Das Modul, dessen Code gerade im aktuellen Thread läuft
+     */
+    public String getCurrentModule() {
+        String module = currentModule.get();
+        return module != null ? module : CORE_MODULE;
+    }
+
+    /**
+     * Führt einen Event-Handler im Kontext eines Moduls aus und misst ihn
+     *
+     * @param moduleName Der Name des Moduls
+     * @param handler Der auszuführende Handler
+     */
+    public void runEventHandler(String moduleName, Runnable handler) {
+        run(getMetrics(moduleName), handler, true);
+    }
+
+    /**
+     * Führt einen Task im Kontext eines Moduls aus und misst ihn
+     *
+     * @param moduleName Der Name des Moduls
+     * @param task Der auszuführende Task
+     */
+    public void runTask(String moduleName, Runnable task) {
+        run(getMetrics(moduleName), task, false);
+    }
+
+    /**
+     * Verpackt einen Task so, dass jede Ausführung dem Modul zugeordnet wird
+     *
+     * @param moduleName Der Name des Moduls
+     * @param task Der Task
+     * @return Der verpackte Task
+     */
+    public Runnable wrapTask(String moduleName, Runnable task) {
+        ModuleMetrics moduleMetrics = getMetrics(moduleName);
+        return () -> run(moduleMetrics, task, false);
+    }
+
+    /**
+     * Erstellt eine Thread-Factory, deren Threads dem Modul zugeordnet und gezählt werden
+     *
+     * @param moduleName Der Name des Moduls
+     * @return Die Thread-Factory
+     */
+    public ThreadFactory threadFactory(String moduleName) {
+        ModuleMetrics moduleMetrics = getMetrics(moduleName);
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(() -> {
+                moduleMetrics.liveThreads.incrementAndGet();
+                currentModule.set(moduleMetrics.moduleName);
+                try {
+                    runnable.run();
+                } finally {
+                    currentModule.remove();
+                    moduleMetrics.liveThreads.decrementAndGet();
+                }
+            }, "Pexora-" + moduleMetrics.moduleName + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Verbucht eine Datenbanknutzung für ein Modul
+     *
+     * @param moduleName Der Name des Moduls
+     * @param nanos Die Dauer in Nanosekunden
+     */
+    public void recordDatabaseTime(String moduleName, long nanos) {
+        ModuleMetrics moduleMetrics = getMetrics(moduleName);
+        moduleMetrics.databaseCalls.increment();
+        moduleMetrics.databaseNanos.add(nanos);
+    }
+
+    /**
+     * Setzt die Messwerte eines Moduls zurück
+     *
+     * @param moduleName Der Name des Moduls
+     */
+    public void reset(String moduleName) {
+        ModuleMetrics moduleMetrics = metrics.get(normalize(moduleName));
+        if (moduleMetrics != null) {
+            moduleMetrics.reset();
+        }
+    }
+
+    /**
+     * @param moduleName Der Name des Moduls
+     * @return Eine Momentaufnahme der Messwerte, oder null wenn für das Modul nichts erfasst wurde
+     */
+    public ModuleResourceStats getStats(String moduleName) {
+        ModuleMetrics moduleMetrics = metrics.get(normalize(moduleName));
+        return moduleMetrics != null ? moduleMetrics.toStats() : null;
+    }
+
+    /**
+     * @return Momentaufnahmen aller Module, sortiert nach Modulname
+     */
+    public Map<String, ModuleResourceStats> getAllStats() {
+        Map<String, ModuleResourceStats> result = new TreeMap<>();
+        for (ModuleMetrics moduleMetrics : metrics.values()) {
+            result.put(moduleMetrics.moduleName, moduleMetrics.toStats());
+        }
+        return result;
+    }
+
+    private void run(ModuleMetrics moduleMetrics, Runnable runnable, boolean event) {
+        String previousModule = currentModule.get();
+        currentModule.set(moduleMetrics.moduleName);
+        moduleMetrics.activeThreads.incrementAndGet();
+
+        long cpuStart = cpuTimeSupported ? threadBean.getCurrentThreadCpuTime() : 0L;
+        long allocStart = allocatedBytes();
+        long start = System.nanoTime();
+        try {
+            runnable.run();
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            moduleMetrics.handlerTime.record(elapsed);
+            if (event) {
+                moduleMetrics.eventInvocations.increment();
+            } else {
+                moduleMetrics.taskExecutions.increment();
+            }
+            if (cpuTimeSupported) {
+                moduleMetrics.cpuNanos.add(threadBean.getCurrentThreadCpuTime() - cpuStart);
+            }
+            if (allocationSupported) {
+                moduleMetrics.allocatedBytes.add(allocatedBytes() - allocStart);
+            }
+
+            moduleMetrics.activeThreads.decrementAndGet();
+            if (previousModule != null) {
+                currentModule.set(previousModule);
+            } else {
+                currentModule.remove();
+            }
+        }
+    }
+
+    private long allocatedBytes() {
+        if (!allocationSupported) {
+            return 0L;
+        }
+        return ((com.sun.management.ThreadMXBean) threadBean).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static String normalize(String moduleName) {
+        return moduleName == null || moduleName.isEmpty() ? CORE_MODULE : moduleName;
+    }
+
+    /**
+     * Laufende Messwerte eines einzelnen Moduls
+     */
+    public class ModuleMetrics {
+        private final String moduleName;
+        private final LatencyHistogram handlerTime = new LatencyHistogram();
+        private final LongAdder eventInvocations = new LongAdder();
+        private final LongAdder taskExecutions = new LongAdder();
+        private final LongAdder cpuNanos = new LongAdder();
+        private final LongAdder allocatedBytes = new LongAdder();
+        private final AtomicInteger liveThreads = new AtomicInteger();
+        private final AtomicInteger activeThreads = new AtomicInteger();
+        private final LongAdder databaseCalls = new LongAdder();
+        private final LongAdder databaseNanos = new LongAdder();
+
+        public ModuleMetrics(String moduleName) {
+            this.moduleName = moduleName;
+        }
+
+        public String getModuleName() {
+            return moduleName;
+        }
+
+        private void reset() {
+            handlerTime.reset();
+            eventInvocations.reset();
+            taskExecutions.reset();
+            cpuNanos.reset();
+            allocatedBytes.reset();
+            databaseCalls.reset();
+            databaseNanos.reset();
+        }
+
+        /**
+         * @return Eine unveränderliche Momentaufnahme der Messwerte
+         */
+        public ModuleResourceStats toStats() {
+            return new ModuleResourceStats(
+                    moduleName,
+                    eventInvocations.sum(),
+                    taskExecutions.sum(),
+                    handlerTime.getTotal(),
+                    handlerTime.getPercentile(0.50),
+                    handlerTime.getPercentile(0.95),
+                    handlerTime.getPercentile(0.99),
+                    handlerTime.getMax(),
+                    cpuNanos.sum(),
+                    allocatedBytes.sum(),
+                    liveThreads.get(),
+                    activeThreads.get(),
+                    databaseCalls.sum(),
+                    databaseNanos.sum()
+            );
+        }
+    }
+}
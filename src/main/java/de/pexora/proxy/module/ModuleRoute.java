@@ -0,0 +1,205 @@
+package de.pexora.proxy.module;
+
+import com.velocitypowered.api.command.SimpleCommand;
+import de.pexora.proxy.PexoraProxy;
+import de.pexora.proxy.messaging.HandlerRegistry;
+import de.pexora.proxy.messaging.MessagingManager;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Leitet Befehle, Nachrichten-Handler, Listener und Tasks eines Moduls
+ * an die jeweils aktive Instanz (Generation) weiter.
+ *
+ * Jede geladene Instanz eines Moduls erhält eine eigene Generation. Befehle und Handler
+ * werden nur einmal bei Velocity bzw. dem MessagingManager registriert und schauen bei
+ * jedem Aufruf nach, welche Generation gerade aktiv ist. Dadurch genügt beim Austausch
+ * eines Moduls ein einziger Schreibzugriff auf {@code activeGeneration}, um alle
+ * Registrierungen gleichzeitig auf die neue Instanz umzuleiten.
+ */
+public class ModuleRoute {
+
+    private final PexoraProxy plugin;
+    private final String moduleName;
+    private final AtomicInteger generations = new AtomicInteger();
+    private volatile int activeGeneration;
+
+    private final Map<String, Map<Integer, SimpleCommand>> commands = new ConcurrentHashMap<>();
+    private final Map<String, Map<Integer, Consumer<MessagingManager.MessageEvent>>> messageHandlers = new ConcurrentHashMap<>();
+    private final Map<String, HandlerRegistry.Registration> messageRegistrations = new ConcurrentHashMap<>();
+
+    /**
+     * Erstellt eine neue Route für ein Modul
+     *
+     * @param plugin Die Plugin-Instanz
+     * @param moduleName Der Name des Moduls
+     */
+    public ModuleRoute(PexoraProxy plugin, String moduleName) {
+        this.plugin = plugin;
+        this.moduleName = moduleName;
+    }
+
+    /**
+     * Reserviert eine neue Generation, die erst nach {@link #activate(int)} Aufrufe erhält
+     *
+     * @return Die neue Generation
+     */
+    public int nextGeneration() {
+        return generations.incrementAndGet();
+    }
+
+    /**
+     * Leitet alle Registrierungen atomar auf die angegebene Generation um
+     *
+     * @param generation Die zu aktivierende Generation
+     */
+    public void activate(int generation) {
+        this.activeGeneration = generation;
+    }
+
+    /**
+     * @param generation Die Generation
+     * @return Ob die Generation gerade aktiv ist
+     */
+    public boolean isActive(int generation) {
+        return activeGeneration == generation;
+    }
+
+    /**
+     * @return Die aktive Generation
+     */
+    public int getActiveGeneration() {
+        return activeGeneration;
+    }
+
+    /**
+     * Registriert einen Befehl für eine Generation
+     *
+     * @param generation Die Generation
+     * @param alias Der Befehlsname
+     * @param command Der Befehlsausführer
+     */
+    public synchronized void registerCommand(int generation, String alias, SimpleCommand command) {
+        Map<Integer, SimpleCommand> byGeneration = commands.get(alias);
+        if (byGeneration == null) {
+            byGeneration = new ConcurrentHashMap<>();
+            commands.put(alias, byGeneration);
+            plugin.getServer().getCommandManager().register(alias, new RoutedCommand(alias));
+        }
+        byGeneration.put(generation, command);
+    }
+
+    /**
+     * Registriert einen Nachrichten-Handler für eine Generation
+     *
+     * @param generation Die Generation
+     * @param action Die Aktion
+     * @param handler Der Handler
+     */
+    public synchronized void registerMessageHandler(int generation, String action, Consumer<MessagingManager.MessageEvent> handler) {
+        Map<Integer, Consumer<MessagingManager.MessageEvent>> byGeneration = messageHandlers.get(action);
+        if (byGeneration == null) {
+            byGeneration = new ConcurrentHashMap<>();
+            messageHandlers.put(action, byGeneration);
+            messageRegistrations.put(action, plugin.getMessagingManager().registerHandler(action, event -> dispatchMessage(action, event)));
+        }
+        byGeneration.put(generation, handler);
+    }
+
+    /**
+     * Entfernt alle Befehle und Handler einer Generation.
+     * Befehle und Aktionen, die keine andere Generation mehr nutzt, werden abgemeldet.
+     *
+     * @param generation Die zu entfernende Generation
+     */
+    public synchronized void retire(int generation) {
+        commands.entrySet().removeIf(entry -> {
+            entry.getValue().remove(generation);
+            if (entry.getValue().isEmpty()) {
+                plugin.getServer().getCommandManager().unregister(entry.getKey());
+                return true;
+            }
+            return false;
+        });
+
+        messageHandlers.entrySet().removeIf(entry -> {
+            entry.getValue().remove(generation);
+            if (entry.getValue().isEmpty()) {
+                // Nur den eigenen Handler entfernen, andere Module können dieselbe Aktion nutzen
+                HandlerRegistry.Registration registration = messageRegistrations.remove(entry.getKey());
+                if (registration != null) {
+                    registration.unregister();
+                }
+                return true;
+            }
+            return false;
+        });
+    }
+
+    /**
+     * @return Der Name des Moduls
+     */
+    public String getModuleName() {
+        return moduleName;
+    }
+
+    private void dispatchMessage(String action, MessagingManager.MessageEvent event) {
+        Map<Integer, Consumer<MessagingManager.MessageEvent>> byGeneration = messageHandlers.get(action);
+        Consumer<MessagingManager.MessageEvent> handler = byGeneration != null ? byGeneration.get(activeGeneration) : null;
+        if (handler != null) {
+            plugin.getResourceTracker().runEventHandler(moduleName, () -> handler.accept(event));
+        }
+    }
+
+    private SimpleCommand activeCommand(String alias) {
+        Map<Integer, SimpleCommand> byGeneration = commands.get(alias);
+        return byGeneration != null ? byGeneration.get(activeGeneration) : null;
+    }
+
+    /**
+     * Befehl, der an die aktive Generation des Moduls weiterleitet
+     */
+    private class RoutedCommand implements SimpleCommand {
+        private final String alias;
+
+        private RoutedCommand(String alias) {
+            this.alias = alias;
+        }
+
+        @Override
+        public void execute(Invocation invocation) {
+            SimpleCommand command = activeCommand(alias);
+            if (command == null) {
+                invocation.source().sendMessage(Component.text("Dieser Befehl ist momentan nicht verfügbar.").color(NamedTextColor.RED));
+                return;
+            }
+            plugin.getResourceTracker().runEventHandler(moduleName, () -> command.execute(invocation));
+        }
+
+        @Override
+        public List<String> suggest(Invocation invocation) {
+            SimpleCommand command = activeCommand(alias);
+            return command != null ? command.suggest(invocation) : Collections.emptyList();
+        }
+
+        @Override
+        public CompletableFuture<List<String>> suggestAsync(Invocation invocation) {
+            SimpleCommand command = activeCommand(alias);
+            return command != null ? command.suggestAsync(invocation) : CompletableFuture.completedFuture(Collections.emptyList());
+        }
+
+        @Override
+        public boolean hasPermission(Invocation invocation) {
+            SimpleCommand command = activeCommand(alias);
+            return command == null || command.hasPermission(invocation);
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package de.pexora.proxy.module;
+
+import de.pexora.proxy.PexoraProxy;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Synchronisiert Plugin-JARs inkrementell in den Modules-Ordner.
+ *
+ * Der Modules-Ordner wird pro Durchlauf genau einmal gelesen und nach Basisnamen
+ * (Dateiname ohne Versionssuffix) indiziert. Bereits vorhandene Dateien werden nur ersetzt,
+ * wenn sich ihr Inhalt (SHA-256) tatsächlich geändert hat. Neue und geänderte Dateien werden
+ * zuerst in eine temporäre Datei geschrieben und dann atomar an ihren Platz verschoben,
+ * damit nie eine halb kopierte JAR geladen wird.
+ */
+public class ModuleSyncEngine {
+
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final PexoraProxy plugin;
+    private final Path modulesDir;
+    private final Map<Path, FileHash> hashCache = new ConcurrentHashMap<>();
+
+    /**
+     * Erstellt eine neue Synchronisation für den Modules-Ordner
+     *
+     * @param plugin Die Plugin-Instanz
+     * @param modulesDir Der Modules-Ordner
+     */
+    public ModuleSyncEngine(PexoraProxy plugin, Path modulesDir) {
+        this.plugin = plugin;
+        this.modulesDir = modulesDir;
+    }
+
+    /**
+     * Synchronisiert die angegebenen JAR-Dateien in den Modules-Ordner
+     *
+     * @param sources Die Quelldateien
+     * @param deleteOldVersions Ob andere Versionen desselben Moduls entfernt werden sollen
+     * @return Eine Zusammenfassung der Änderungen
+     * @throws IOException wenn der Modules-Ordner nicht gelesen werden kann
+     */
+    public SyncResult sync(List<Path> sources, boolean deleteOldVersions) throws IOException {
+        SyncResult result = new SyncResult();
+        Map<String, List<Path>> index = scanModulesDirectory();
+
+        for (Path source : sources) {
+            String fileName = source.getFileName().toString();
+            Path target = modulesDir.resolve(fileName);
+            List<Path> versions = index.computeIfAbsent(baseNameOf(fileName), key -> new ArrayList<>());
+
+            try {
+                if (!versions.contains(target)) {
+                    replaceAtomically(source, target);
+                    versions.add(target);
+                    result.copied.add(fileName);
+                } else if (!sameContent(source, target)) {
+                    replaceAtomically(source, target);
+                    result.updated.add(fileName);
+                } else {
+                    result.unchanged++;
+                }
+            } catch (IOException e) {
+                plugin.getLoggerService().warning("Konnte " + fileName + " nicht synchronisieren: " + e.getMessage());
+                result.failed.add(fileName);
+                continue;
+            }
+
+            if (deleteOldVersions) {
+                Iterator<Path> iterator = versions.iterator();
+                while (iterator.hasNext()) {
+                    Path existing = iterator.next();
+                    if (existing.equals(target)) {
+                        continue;
+                    }
+                    try {
+                        Files.deleteIfExists(existing);
+                        hashCache.remove(existing);
+                        iterator.remove();
+                        result.pruned.add(existing.getFileName().toString());
+                    } catch (IOException e) {
+                        plugin.getLoggerService().warning("Konnte alte Version nicht löschen: " + e.getMessage());
+                    }
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Liest den Modules-Ordner einmal und gruppiert die JARs nach Basisnamen
+     */
+    private Map<String, List<Path>> scanModulesDirectory() throws IOException {
+        Map<String, List<Path>> index = new HashMap<>();
+        if (!Files.exists(modulesDir)) {
+            return index;
+        }
+
+        try (Stream<Path> files = Files.list(modulesDir)) {
+            files.forEach(path -> {
+                String fileName = path.getFileName().toString();
+                if (fileName.endsWith(TEMP_SUFFIX)) {
+                    // Überreste eines abgebrochenen Kopiervorgangs
+                    try {
+                        Files.deleteIfExists(path);
+                    } catch (IOException ignored) {
+                    }
+                } else if (fileName.endsWith(".jar")) {
+                    index.computeIfAbsent(baseNameOf(fileName), key -> new ArrayList<>()).add(path);
+                }
+            });
+        }
+        return index;
+    }
+
+    /**
+     * Ermittelt den Basisnamen einer JAR-Datei (z.B. PexoraEconomy für PexoraEconomy-1.2.0.jar)
+     *
+     * @param fileName Der Dateiname
+     * @return Der Basisname
+     */
+    public static String baseNameOf(String fileName) {
+        String name = fileName.endsWith(".jar") ? fileName.substring(0, fileName.length() - 4) : fileName;
+        int separator = name.lastIndexOf('-');
+        return separator > 0 ? name.substring(0, separator) : name;
+    }
+
+    private boolean sameContent(Path source, Path target) throws IOException {
+        if (Files.size(source) != Files.size(target)) {
+            return false;
+        }
+        return Arrays.equals(hashOf(source), hashOf(target));
+    }
+
+    private void replaceAtomically(Path source, Path target) throws IOException {
+        Path temp = target.resolveSibling(target.getFileName() + TEMP_SUFFIX);
+        try {
+            Files.copy(source, temp, StandardCopyOption.REPLACE_EXISTING);
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            hashCache.remove(target);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Berechnet den SHA-256-Hash einer Datei, solange sich Größe und Änderungszeit nicht
+     * geändert haben, wird der zwischengespeicherte Wert verwendet
+     */
+    private byte[] hashOf(Path path) throws IOException {
+        long size = Files.size(path);
+        FileTime modified = Files.getLastModifiedTime(path);
+        FileHash cached = hashCache.get(path);
+        if (cached != null && cached.size == size && cached.modified.equals(modified)) {
+            return cached.hash;
+        }
+
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("SHA-256 nicht verfügbar", e);
+        }
+
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream is = Files.newInputStream(path)) {
+            int read;
+            while ((read = is.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+
+        byte[] hash = digest.digest();
+        hashCache.put(path, new FileHash(size, modified, hash));
+        return hash;
+    }
+
+    /**
+     * Zwischengespeicherter Hash einer Datei
+     */
+    private static class FileHash {
+        private final long size;
+        private final FileTime modified;
+        private final byte[] hash;
+
+        private FileHash(long size, FileTime modified, byte[] hash) {
+            this.size = size;
+            this.modified = modified;
+            this.hash = hash;
+        }
+    }
+
+    /**
+     * Zusammenfassung eines Synchronisationslaufs
+     */
+    public static class SyncResult {
+        private final List<String> copied = new ArrayList<>();
+        private final List<String> updated = new ArrayList<>();
+        private final List<String> pruned = new ArrayList<>();
+        private final List<String> failed = new ArrayList<>();
+        private int unchanged;
+
+        public List<String> getCopied() {
+            return copied;
+        }
+
+        public List<String> getUpdated() {
+            return updated;
+        }
+
+        public List<String> getPruned() {
+            return pruned;
+        }
+
+        public List<String> getFailed() {
+            return failed;
+        }
+
+        public int getUnchanged() {
+            return unchanged;
+        }
+
+        /**
+         * @return Ob sich im Modules-Ordner etwas geändert hat
+         */
+        public boolean hasChanges() {
+            return !copied.isEmpty() || !updated.isEmpty() || !pruned.isEmpty();
+        }
+
+        @Override
+        public String toString() {
+            return copied.size() + " kopiert, " + updated.size() + " aktualisiert, " + pruned.size()
+                    + " entfernt, " + unchanged + " unverändert" + (failed.isEmpty() ? "" : ", " + failed.size() + " fehlgeschlagen");
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package de.pexora.proxy.module;
+
+import de.pexora.proxy.PexoraProxy;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Verwaltet die gemeinsam genutzten Bibliotheken aller Module.
+ *
+ * Module geben in ihrer module.toml unter {@code libraries} Maven-Koordinaten an
+ * (z.B. {@code "com.google.code.gson:gson:2.10.1"}). Jede Bibliotheksversion wird nur einmal
+ * in einen gemeinsamen ClassLoader geladen, gegen den alle Module linken. Verlangt ein Modul
+ * eine andere Version einer bereits geteilten Bibliothek, erhält es eine isolierte Kopie
+ * in seinem eigenen ClassLoader.
+ *
+ * Die JAR-Dateien werden im Ordner {@code libs/} erwartet, entweder flach als
+ * {@code <artifact>-<version>.jar} oder im Maven-Layout
+ * {@code <group>/<artifact>/<version>/<artifact>-<version>.jar}.
+ */
+public class SharedLibraryRegistry {
+
+    private final PexoraProxy plugin;
+    private final Path libsDir;
+    private final Map<String, String> sharedVersions = new HashMap<>();
+    private final Map<String, Integer> references = new HashMap<>();
+    private SharedLibraryClassLoader sharedLoader;
+
+    /**
+     * Erstellt eine neue Bibliotheksverwaltung
+     *
+     * @param plugin Die Plugin-Instanz
+     * @param libsDir Der Ordner mit den Bibliotheken
+     */
+    public SharedLibraryRegistry(PexoraProxy plugin, Path libsDir) {
+        this.plugin = plugin;
+        this.libsDir = libsDir;
+    }
+
+    /**
+     * Erstellt den ClassLoader für ein Modul und verknüpft ihn mit den angeforderten Bibliotheken
+     *
+     * @param moduleName Der Name des Moduls
+     * @param moduleJar Der Pfad zur Moduldatei
+     * @param libraries Die Maven-Koordinaten der benötigten Bibliotheken
+     * @return Der ClassLoader des Moduls
+     * @throws IOException wenn eine Bibliothek nicht gefunden wurde
+     */
+    public synchronized ModuleClassLoader createClassLoader(String moduleName, Path moduleJar, List<String> libraries) throws IOException {
+        List<URL> urls = new ArrayList<>();
+        urls.add(moduleJar.toUri().toURL());
+
+        List<String> linked = new ArrayList<>();
+        try {
+            for (String coordinates : libraries) {
+                String[] parts = coordinates.split(":");
+                if (parts.length != 3) {
+                    throw new IOException("Ungültige Bibliothekskoordinaten in " + moduleName + ": " + coordinates);
+                }
+
+                String artifactKey = parts[0] + ":" + parts[1];
+                Path jar = resolveJar(parts[0], parts[1], parts[2]);
+                String sharedVersion = sharedVersions.get(artifactKey);
+
+                if (sharedVersion == null) {
+                    getSharedLoader().addLibrary(jar.toUri().toURL());
+                    sharedVersions.put(artifactKey, parts[2]);
+                    plugin.getLoggerService().debug("Bibliothek geteilt: " + coordinates);
+                } else if (!sharedVersion.equals(parts[2])) {
+                    // Versionskonflikt: das Modul erhält eine eigene Kopie
+                    urls.add(jar.toUri().toURL());
+                    plugin.getLoggerService().warning("Modul " + moduleName + " benötigt " + coordinates
+                            + ", geteilt ist aber Version " + sharedVersion + " - verwende isolierte Kopie");
+                    continue;
+                }
+
+                references.merge(artifactKey, 1, Integer::sum);
+                linked.add(artifactKey);
+            }
+        } catch (IOException e) {
+            // Bereits verknüpfte Bibliotheken wieder freigeben
+            for (String artifactKey : linked) {
+                references.computeIfPresent(artifactKey, (key, count) -> count > 1 ? count - 1 : null);
+            }
+            throw e;
+        }
+
+        ClassLoader parent = linked.isEmpty() ? getClass().getClassLoader() : getSharedLoader();
+        return new ModuleClassLoader(urls.toArray(new URL[0]), parent, urls.size() > 1, linked);
+    }
+
+    /**
+     * Gibt die geteilten Bibliotheken eines entladenen Moduls frei.
+     * Nutzt kein Modul mehr eine geteilte Bibliothek, wird der gemeinsame ClassLoader geschlossen.
+     *
+     * @param classLoader Der ClassLoader der entladenen Modulinstanz
+     */
+    public synchronized void release(ModuleClassLoader classLoader) {
+        for (String artifactKey : classLoader.linkedLibraries) {
+            references.computeIfPresent(artifactKey, (key, count) -> count > 1 ? count - 1 : null);
+        }
+
+        if (references.isEmpty() && sharedLoader != null) {
+            try {
+                sharedLoader.close();
+            } catch (IOException e) {
+                plugin.getLoggerService().warning("Konnte gemeinsamen Bibliotheks-ClassLoader nicht schließen: " + e.getMessage());
+            }
+            sharedLoader = null;
+            sharedVersions.clear();
+        }
+    }
+
+    /**
+     * @return Die geteilten Bibliotheken als Map von group:artifact auf Version
+     */
+    public synchronized Map<String, String> getSharedLibraries() {
+        return new HashMap<>(sharedVersions);
+    }
+
+    private SharedLibraryClassLoader getSharedLoader() {
+        if (sharedLoader == null) {
+            sharedLoader = new SharedLibraryClassLoader(getClass().getClassLoader());
+        }
+        return sharedLoader;
+    }
+
+    private Path resolveJar(String group, String artifact, String version) throws IOException {
+        String fileName = artifact + "-" + version + ".jar";
+        Path flat = libsDir.resolve(fileName);
+        if (Files.exists(flat)) {
+            return flat;
+        }
+
+        Path mavenLayout = libsDir.resolve(group.replace('.', '/')).resolve(artifact).resolve(version).resolve(fileName);
+        if (Files.exists(mavenLayout)) {
+            return mavenLayout;
+        }
+
+        throw new IOException("Bibliothek " + group + ":" + artifact + ":" + version + " nicht gefunden (erwartet: " + flat + ")");
+    }
+
+    /**
+     * Gemeinsamer ClassLoader aller geteilten Bibliotheken
+     */
+    private static class SharedLibraryClassLoader extends URLClassLoader {
+
+        static {
+            ClassLoader.registerAsParallelCapable();
+        }
+
+        private SharedLibraryClassLoader(ClassLoader parent) {
+            super(new URL[0], parent);
+        }
+
+        private void addLibrary(URL url) {
+            addURL(url);
+        }
+    }
+
+    /**
+     * ClassLoader eines Moduls.
+     * Enthält das Modul isolierte Bibliothekskopien, werden Klassen zuerst im Modul gesucht,
+     * damit die isolierte Version Vorrang vor der geteilten hat. Klassen der Plattform
+     * (JDK, Velocity, Adventure, PexoraProxy-API) kommen immer vom Elternteil.
+     */
+    public static class ModuleClassLoader extends URLClassLoader {
+
+        private static final String[] PLATFORM_PACKAGES = {
+                "java.", "javax.", "jdk.", "sun.", "com.velocitypowered.", "net.kyori.",
+                "org.slf4j.", "com.google.inject.", "de.pexora.proxy."
+        };
+
+        static {
+            ClassLoader.registerAsParallelCapable();
+        }
+
+        private final boolean childFirst;
+        private final List<String> linkedLibraries;
+
+        private ModuleClassLoader(URL[] urls, ClassLoader parent, boolean childFirst, List<String> linkedLibraries) {
+            super(urls, parent);
+            this.childFirst = childFirst;
+            this.linkedLibraries = Collections.unmodifiableList(linkedLibraries);
+        }
+
+        /**
+         * @return Die geteilten Bibliotheken (group:artifact), gegen die dieses Modul linkt
+         */
+        public List<String> getLinkedLibraries() {
+            return linkedLibraries;
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (!childFirst || isPlatformClass(name)) {
+                return super.loadClass(name, resolve);
+            }
+
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> loaded = findLoadedClass(name);
+                if (loaded == null) {
+                    try {
+                        loaded = findClass(name);
+                    } catch (ClassNotFoundException e) {
+                        loaded = getParent().loadClass(name);
+                    }
+                }
+                if (resolve) {
+                    resolveClass(loaded);
+                }
+                return loaded;
+            }
+        }
+
+        private static boolean isPlatformClass(String name) {
+            for (String prefix : PLATFORM_PACKAGES) {
+                if (name.startsWith(prefix)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
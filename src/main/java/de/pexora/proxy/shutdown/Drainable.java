@@ -0,0 +1,30 @@
+package de.pexora.proxy.shutdown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Eine asynchrone Warteschlange, die beim Herunterfahren geleert werden muss,
+ * z.B. ausstehende Datenbank-Schreibvorgänge oder ausgehende Nachrichten.
+ */
+public interface Drainable {
+
+    /**
+     * Nimmt keine neuen Aufträge mehr an. Bereits angenommene Aufträge werden weiter abgearbeitet.
+     */
+    void stopIntake();
+
+    /**
+     * Wartet, bis alle ausstehenden Aufträge abgearbeitet sind
+     *
+     * @param timeout Die maximale Wartezeit
+     * @param unit Die Zeiteinheit der Wartezeit
+     * @return Ob die Warteschlange vollständig geleert wurde
+     * @throws InterruptedException wenn der Thread beim Warten unterbrochen wurde
+     */
+    boolean drain(long timeout, TimeUnit unit) throws InterruptedException;
+
+    /**
+     * @return Die Anzahl der noch ausstehenden Aufträge
+     */
+    int getPendingCount();
+}
@@ -0,0 +1,225 @@
+package de.pexora.proxy.shutdown;
+
+import de.pexora.proxy.PexoraProxy;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fährt PexoraProxy geordnet und unter einer globalen Frist herunter.
+ *
+ * Ablauf:
+ * 1. Eingehende Nachrichten werden nicht mehr angenommen.
+ * 2. Alle Module werden parallel in umgekehrter Abhängigkeitsreihenfolge deaktiviert.
+ * 3. Alle registrierten Warteschlangen ({@link Drainable}) werden parallel geleert.
+ * 4. Datenbank, Messaging-Kanal und Proxy-Bus werden geschlossen.
+ *
+ * Was bei Ablauf der Frist noch nicht erledigt war, wird im Bericht aufgeführt,
+ * statt das Herunterfahren des Proxys zu blockieren.
+ */
+public class ShutdownCoordinator {
+
+    private final PexoraProxy plugin;
+    private final Map<String, Drainable> drainables = new ConcurrentHashMap<>();
+
+    /**
+     * Erstellt einen neuen Koordinator
+     *
+     * @param plugin Die Plugin-Instanz
+     */
+    public ShutdownCoordinator(PexoraProxy plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Registriert eine Warteschlange, die beim Herunterfahren geleert wird
+     *
+     * @param name Der Name der Warteschlange (für den Bericht)
+     * @param drainable Die Warteschlange
+     */
+    public void registerDrainable(String name, Drainable drainable) {
+        drainables.put(name, drainable);
+    }
+
+    /**
+     * Entfernt eine registrierte Warteschlange
+     *
+     * @param name Der Name der Warteschlange
+     */
+    public void unregisterDrainable(String name) {
+        drainables.remove(name);
+    }
+
+    /**
+     * Fährt alle Komponenten herunter
+     *
+     * @param timeoutMillis Die globale Frist in Millisekunden
+     * @return Der Bericht über das Herunterfahren
+     */
+    public ShutdownReport shutdown(long timeoutMillis) {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+
+        // 1. Keine neue Arbeit mehr annehmen
+        if (plugin.getConfigWatcher() != null) {
+            plugin.getConfigWatcher().close();
+        }
+        if (plugin.getMessagingManager() != null) {
+            plugin.getMessagingManager().stopIntake();
+        }
+
+        // 2. Module parallel in umgekehrter Abhängigkeitsreihenfolge deaktivieren
+        List<String> unfinishedModules = Collections.emptyList();
+        if (plugin.getModuleLoader() != null) {
+            unfinishedModules = plugin.getModuleLoader().disableAllModules(remaining(deadline), TimeUnit.NANOSECONDS);
+        }
+
+        // 3. Warteschlangen leeren
+        Map<String, Integer> pendingWork = drainAll(deadline);
+
+        // 4. Verbindungen schließen
+        if (plugin.getDatabaseManager() != null && plugin.getDatabaseManager().isConnected()) {
+            plugin.getDatabaseManager().disconnect();
+        }
+        if (plugin.getMessagingManager() != null) {
+            plugin.getMessagingManager().unregister();
+        }
+        if (plugin.getMessageBus() != null) {
+            plugin.getMessageBus().close();
+        }
+        if (plugin.getFanOutScheduler() != null) {
+            plugin.getFanOutScheduler().shutdown();
+        }
+
+        ShutdownReport report = new ShutdownReport(System.nanoTime() - start, unfinishedModules, pendingWork);
+        logReport(report);
+        return report;
+    }
+
+    /**
+     * Leert alle Warteschlangen parallel bis zur Frist
+     *
+     * @return Die Warteschlangen, in denen bei Fristablauf noch Aufträge lagen, mit deren Anzahl
+     */
+    private Map<String, Integer> drainAll(long deadline) {
+        Map<String, Integer> pendingWork = new TreeMap<>();
+        if (drainables.isEmpty()) {
+            return pendingWork;
+        }
+
+        for (Drainable drainable : drainables.values()) {
+            drainable.stopIntake();
+        }
+
+        AtomicInteger counter = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(drainables.size(), runnable -> {
+            Thread thread = new Thread(runnable, "Pexora-Drain-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Map<String, CompletableFuture<Boolean>> futures = new TreeMap<>();
+        for (Map.Entry<String, Drainable> entry : drainables.entrySet()) {
+            Drainable drainable = entry.getValue();
+            futures.put(entry.getKey(), CompletableFuture.supplyAsync(() -> {
+                try {
+                    return drainable.drain(remaining(deadline), TimeUnit.NANOSECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }, executor));
+        }
+
+        try {
+            CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[0]))
+                    .get(remaining(deadline), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            // Auswertung unten
+        } catch (Exception e) {
+            plugin.getLoggerService().warning("Fehler beim Leeren der Warteschlangen: " + e.getMessage());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        for (Map.Entry<String, CompletableFuture<Boolean>> entry : futures.entrySet()) {
+            CompletableFuture<Boolean> future = entry.getValue();
+            boolean drained = future.isDone() && !future.isCompletedExceptionally() && future.join();
+            int pending = drainables.get(entry.getKey()).getPendingCount();
+            if (!drained || pending > 0) {
+                pendingWork.put(entry.getKey(), pending);
+            }
+        }
+        return pendingWork;
+    }
+
+    private void logReport(ShutdownReport report) {
+        double millis = report.getDurationNanos() / 1_000_000.0;
+        if (report.isClean()) {
+            plugin.getLoggerService().info(String.format("Alle Komponenten in %.1f ms heruntergefahren", millis));
+            return;
+        }
+
+        plugin.getLoggerService().warning(String.format("Herunterfahren nach %.1f ms mit offener Arbeit beendet:", millis));
+        for (String module : report.getUnfinishedModules()) {
+            plugin.getLoggerService().warning("- Modul " + module + " wurde nicht rechtzeitig deaktiviert");
+        }
+        for (Map.Entry<String, Integer> entry : report.getPendingWork().entrySet()) {
+            plugin.getLoggerService().warning("- " + entry.getKey() + ": " + entry.getValue() + " ausstehende Aufträge");
+        }
+    }
+
+    private static long remaining(long deadline) {
+        return Math.max(0L, deadline - System.nanoTime());
+    }
+
+    /**
+     * Ergebnis eines Herunterfahrens
+     */
+    public static class ShutdownReport {
+        private final long durationNanos;
+        private final List<String> unfinishedModules;
+        private final Map<String, Integer> pendingWork;
+
+        private ShutdownReport(long durationNanos, List<String> unfinishedModules, Map<String, Integer> pendingWork) {
+            this.durationNanos = durationNanos;
+            this.unfinishedModules = Collections.unmodifiableList(new ArrayList<>(unfinishedModules));
+            this.pendingWork = Collections.unmodifiableMap(pendingWork);
+        }
+
+        public long getDurationNanos() {
+            return durationNanos;
+        }
+
+        /**
+         * @return Die Module, deren Deaktivierung bei Fristablauf noch nicht abgeschlossen war
+         */
+        public List<String> getUnfinishedModules() {
+            return unfinishedModules;
+        }
+
+        /**
+         * @return Die Warteschlangen mit noch ausstehenden Aufträgen und deren Anzahl
+         */
+        public Map<String, Integer> getPendingWork() {
+            return pendingWork;
+        }
+
+        /**
+         * @return Ob alles vor Ablauf der Frist erledigt wurde
+         */
+        public boolean isClean() {
+            return unfinishedModules.isEmpty() && pendingWork.isEmpty();
+        }
+    }
+}
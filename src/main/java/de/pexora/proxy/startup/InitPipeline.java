@@ -0,0 +1,115 @@
+package de.pexora.proxy.startup;
+
+import de.pexora.proxy.logger.LoggerService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Führt die Initialisierungsschritte des Plugins abhängigkeitsgesteuert und parallel aus.
+ *
+ * Jeder Schritt (Stage) wird gestartet, sobald alle seine Abhängigkeiten abgeschlossen sind.
+ * Schlägt eine Abhängigkeit fehl, wird der Schritt übersprungen und schlägt ebenfalls fehl.
+ * Jeder Schritt wird als eigener Span im {@link StartupProfiler} aufgezeichnet.
+ */
+public class InitPipeline {
+
+    private final LoggerService logger;
+    private final StartupProfiler profiler;
+    private final ExecutorService executor;
+    private final List<CompletableFuture<?>> stages = new ArrayList<>();
+
+    /**
+     * Erstellt eine neue Pipeline
+     *
+     * @param logger Der Logger-Service
+     * @param profiler Der Start-Profiler
+     * @param threads Die Anzahl der Worker-Threads
+     */
+    public InitPipeline(LoggerService logger, StartupProfiler profiler, int threads) {
+        this.logger = logger;
+        this.profiler = profiler;
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "Pexora-Init-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Fügt einen Schritt hinzu
+     *
+     * @param name Der Name des Schritts
+     * @param action Die auszuführende Aktion
+     * @param dependencies Die Schritte, die vorher abgeschlossen sein müssen
+     * @return Ein Future, das nach Abschluss des Schritts erfüllt wird
+     */
+    public synchronized CompletableFuture<Void> stage(String name, Runnable action, CompletableFuture<?>... dependencies) {
+        StartupProfiler.Span parent = profiler.getRoot();
+        CompletableFuture<Void> stage = CompletableFuture.allOf(dependencies)
+                .thenRunAsync(() -> {
+                    try (StartupProfiler.Span span = profiler.start(name, parent)) {
+                        action.run();
+                    }
+                }, executor);
+
+        stage.whenComplete((result, error) -> {
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                if (cause instanceof StageSkippedException) {
+                    logger.warning("Initialisierungsschritt '" + name + "' übersprungen, da eine Abhängigkeit fehlgeschlagen ist");
+                    return;
+                }
+                logger.severe("Initialisierungsschritt '" + name + "' fehlgeschlagen: " + cause.getMessage());
+                cause.printStackTrace();
+            }
+        });
+
+        CompletableFuture<Void> guarded = stage.handle((result, error) -> {
+            if (error != null) {
+                throw new StageSkippedException(name);
+            }
+            return result;
+        });
+        stages.add(guarded);
+        return guarded;
+    }
+
+    /**
+     * Wartet auf die angegebenen Schritte
+     *
+     * @param required Die Schritte, auf die gewartet werden soll
+     * @return Ob alle Schritte erfolgreich waren
+     */
+    public boolean await(CompletableFuture<?>... required) {
+        try {
+            CompletableFuture.allOf(required).join();
+            return true;
+        } catch (CompletionException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Beendet die Worker-Threads, sobald alle bisher hinzugefügten Schritte abgeschlossen sind
+     */
+    public synchronized void shutdownWhenDone() {
+        CompletableFuture.allOf(stages.toArray(new CompletableFuture<?>[0]))
+                .whenComplete((result, error) -> executor.shutdown());
+    }
+
+    /**
+     * Markiert einen Schritt, der wegen einer fehlgeschlagenen Abhängigkeit nicht ausgeführt wurde
+     */
+    private static class StageSkippedException extends RuntimeException {
+        private StageSkippedException(String stage) {
+            super("Schritt '" + stage + "' wurde wegen eines Fehlers übersprungen", null, false, false);
+        }
+    }
+}
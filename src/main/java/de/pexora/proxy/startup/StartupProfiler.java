@@ -0,0 +1,306 @@
+package de.pexora.proxy.startup;
+
+import de.pexora.proxy.logger.LoggerService;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Zeichnet verschachtelte Zeitabschnitte (Spans) während des Starts auf.
+ *
+ * Für jeden Span werden Wanduhrzeit, CPU-Zeit und allokierte Bytes des ausführenden Threads
+ * sowie die Anzahl der in dieser Zeit geladenen Klassen (JVM-weit) erfasst. Am Ende des Starts
+ * wird der Baum in der Konsole ausgegeben und im Chrome-Trace-Format (JSON, z.B. für Perfetto
+ * oder speedscope) sowie als Collapsed-Stack-Datei für Flame-Graphs gespeichert.
+ *
+ * Spans werden mit try-with-resources verwendet:
+ * <pre>
+ * try (StartupProfiler.Span span = profiler.start("Konfiguration")) {
+ *     ...
+ * }
+ * </pre>
+ */
+public class StartupProfiler {
+
+    private static final Span NOOP = new Span(null, "noop");
+
+    private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    private final ClassLoadingMXBean classLoadingBean = ManagementFactory.getClassLoadingMXBean();
+    private final boolean cpuTimeSupported;
+    private final boolean allocationSupported;
+    private final ThreadLocal<Span> current = new ThreadLocal<>();
+    private final long originNanos;
+    private final Span root;
+    private volatile boolean finished;
+
+    /**
+     * Erstellt einen neuen Profiler und startet den Wurzel-Span
+     *
+     * @param rootName Der Name des Wurzel-Spans
+     */
+    public StartupProfiler(String rootName) {
+        this.cpuTimeSupported = threadBean.isCurrentThreadCpuTimeSupported() && threadBean.isThreadCpuTimeEnabled();
+        this.allocationSupported = threadBean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) threadBean).isThreadAllocatedMemorySupported()
+                && ((com.sun.management.ThreadMXBean) threadBean).isThreadAllocatedMemoryEnabled();
+        this.originNanos = System.nanoTime();
+        this.root = new Span(this, rootName);
+        current.set(root);
+    }
+
+    /**
+     * Startet einen Span unterhalb des aktuellen Spans dieses Threads.
+     * Nach {@link #finish()} wird ein Span ohne Wirkung zurückgegeben.
+     *
+     * @param name Der Name des Spans
+     * @return Der gestartete Span
+     */
+    public Span start(String name) {
+        Span parent = current.get();
+        return start(name, parent != null ? parent : root);
+    }
+
+    /**
+     * Startet einen Span unterhalb eines bestimmten Spans, z.B. wenn die Arbeit
+     * in einem anderen Thread fortgesetzt wird
+     *
+     * @param name Der Name des Spans
+     * @param parent Der übergeordnete Span
+     * @return Der gestartete Span
+     */
+    public Span start(String name, Span parent) {
+        if (finished || parent == null || parent.profiler != this) {
+            return NOOP;
+        }
+        Span span = new Span(this, name);
+        parent.addChild(span);
+        return span;
+    }
+
+    /**
+     * @return Der Wurzel-Span
+     */
+    public Span getRoot() {
+        return root;
+    }
+
+    /**
+     * Beendet den Wurzel-Span. Danach werden keine Spans mehr aufgezeichnet.
+     */
+    public void finish() {
+        if (!finished) {
+            finished = true;
+            root.close();
+        }
+    }
+
+    /**
+     * Gibt den Span-Baum über den Logger-Service aus
+     *
+     * @param logger Der Logger-Service
+     */
+    public void printTree(LoggerService logger) {
+        logger.info("Startprofil:");
+        printSpan(logger, root, "");
+    }
+
+    private void printSpan(LoggerService logger, Span span, String indent) {
+        if (span.endNanos < 0) {
+            // Span eines Hintergrundschritts, der über das Ende des Starts hinaus läuft
+            logger.info(String.format("%s%s - läuft noch (%.1f ms)", indent, span.name, span.getWallNanos() / 1_000_000.0));
+            return;
+        }
+        logger.info(String.format("%s%s - %.1f ms (CPU %.1f ms, %.1f MB, %d Klassen)",
+                indent, span.name, span.getWallNanos() / 1_000_000.0, span.cpuNanos / 1_000_000.0,
+                span.allocatedBytes / (1024.0 * 1024.0), span.classesLoaded));
+        for (Span child : span.getChildren()) {
+            printSpan(logger, child, indent + "  ");
+        }
+    }
+
+    /**
+     * Speichert den Span-Baum im Chrome-Trace-Format
+     *
+     * @param path Der Zielpfad
+     * @throws IOException wenn die Datei nicht geschrieben werden kann
+     */
+    public void writeTraceJson(Path path) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            writer.write("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[");
+            writeTraceEvent(writer, root, true);
+            writer.write("]}");
+        }
+    }
+
+    private void writeTraceEvent(Writer writer, Span span, boolean first) throws IOException {
+        if (!first) {
+            writer.write(',');
+        }
+        writer.write(String.format(Locale.ROOT,
+                "{\"name\":\"%s\",\"cat\":\"startup\",\"ph\":\"X\",\"pid\":1,\"tid\":\"%s\",\"ts\":%.3f,\"dur\":%.3f,"
+                        + "\"args\":{\"cpuMs\":%.3f,\"allocatedBytes\":%d,\"classesLoaded\":%d}}",
+                escapeJson(span.name), escapeJson(span.threadName),
+                (span.startNanos - originNanos) / 1000.0, span.getWallNanos() / 1000.0,
+                span.cpuNanos / 1_000_000.0, span.allocatedBytes, span.classesLoaded));
+        for (Span child : span.getChildren()) {
+            writeTraceEvent(writer, child, false);
+        }
+    }
+
+    /**
+     * Speichert den Span-Baum als Collapsed-Stacks (Eingabeformat von flamegraph.pl)
+     *
+     * @param path Der Zielpfad
+     * @throws IOException wenn die Datei nicht geschrieben werden kann
+     */
+    public void writeFoldedStacks(Path path) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            writeFolded(writer, root, root.name.replace(';', ','));
+        }
+    }
+
+    private void writeFolded(Writer writer, Span span, String stack) throws IOException {
+        long childNanos = 0;
+        for (Span child : span.getChildren()) {
+            if (child.threadId == span.threadId) {
+                childNanos += child.getWallNanos();
+            }
+            writeFolded(writer, child, stack + ";" + child.name.replace(';', ','));
+        }
+        long selfMicros = Math.max(0L, span.getWallNanos() - childNanos) / 1000L;
+        if (selfMicros > 0) {
+            writer.write(stack + " " + selfMicros + "\n");
+        }
+    }
+
+    private static String escapeJson(String value) {
+        StringBuilder builder = new StringBuilder(value.length());
+        for (char c : value.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                builder.append('\\').append(c);
+            } else if (c < 0x20) {
+                builder.append(String.format("\\u%04x", (int) c));
+            } else {
+                builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+
+    private long currentThreadCpu() {
+        return cpuTimeSupported ? threadBean.getCurrentThreadCpuTime() : 0L;
+    }
+
+    private long currentThreadAllocated() {
+        if (!allocationSupported) {
+            return 0L;
+        }
+        return ((com.sun.management.ThreadMXBean) threadBean).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Ein aufgezeichneter Zeitabschnitt
+     */
+    public static class Span implements AutoCloseable {
+        private final StartupProfiler profiler;
+        private final String name;
+        private final Span previous;
+        private final long threadId;
+        private final String threadName;
+        private final List<Span> children = new ArrayList<>();
+        private final long startNanos;
+        private final long startCpu;
+        private final long startAllocated;
+        private final long startClasses;
+        private volatile long endNanos = -1;
+        private long cpuNanos;
+        private long allocatedBytes;
+        private long classesLoaded;
+
+        private Span(StartupProfiler profiler, String name) {
+            this.profiler = profiler;
+            this.name = name;
+            this.threadId = Thread.currentThread().getId();
+            this.threadName = Thread.currentThread().getName();
+
+            if (profiler == null) {
+                this.previous = null;
+                this.startNanos = 0L;
+                this.startCpu = 0L;
+                this.startAllocated = 0L;
+                this.startClasses = 0L;
+                return;
+            }
+
+            this.previous = profiler.current.get();
+            profiler.current.set(this);
+            this.startNanos = System.nanoTime();
+            this.startCpu = profiler.currentThreadCpu();
+            this.startAllocated = profiler.currentThreadAllocated();
+            this.startClasses = profiler.classLoadingBean.getTotalLoadedClassCount();
+        }
+
+        private void addChild(Span child) {
+            synchronized (children) {
+                children.add(child);
+            }
+        }
+
+        /**
+         * @return Eine Kopie der untergeordneten Spans
+         */
+        public List<Span> getChildren() {
+            synchronized (children) {
+                return new ArrayList<>(children);
+            }
+        }
+
+        /**
+         * @return Der Name des Spans
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return Die Wanduhrzeit in Nanosekunden (bis jetzt, falls der Span noch läuft)
+         */
+        public long getWallNanos() {
+            long end = endNanos;
+            return (end >= 0 ? end : System.nanoTime()) - startNanos;
+        }
+
+        /**
+         * Beendet den Span. CPU-Zeit und Allokationen beziehen sich auf den Thread,
+         * der den Span gestartet hat, und werden nur gemessen, wenn er ihn auch beendet.
+         */
+        @Override
+        public void close() {
+            if (profiler == null || endNanos >= 0) {
+                return;
+            }
+            endNanos = System.nanoTime();
+            if (threadId == Thread.currentThread().getId()) {
+                cpuNanos = profiler.currentThreadCpu() - startCpu;
+                allocatedBytes = profiler.currentThreadAllocated() - startAllocated;
+                if (profiler.current.get() == this) {
+                    if (previous != null) {
+                        profiler.current.set(previous);
+                    } else {
+                        profiler.current.remove();
+                    }
+                }
+            }
+            classesLoaded = profiler.classLoadingBean.getTotalLoadedClassCount() - startClasses;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package de.pexora.proxy.status;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-freies Histogramm für Laufzeiten in Nanosekunden.
+ *
+ * Die Werte werden in logarithmische Buckets (vier Unterteilungen pro Zweierpotenz)
+ * einsortiert, dadurch bleibt der Speicherbedarf konstant und Perzentile lassen sich
+ * mit einer Genauigkeit von etwa 25% bestimmen.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = 64 * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Erfasst einen Messwert
+     *
+     * @param nanos Die gemessene Dauer in Nanosekunden
+     */
+    public void record(long nanos) {
+        long value = Math.max(0L, nanos);
+        counts.incrementAndGet(indexOf(value));
+        count.increment();
+        total.add(value);
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    /**
+     * @return Die Anzahl der erfassten Werte
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * @return Die Summe aller erfassten Werte in Nanosekunden
+     */
+    public long getTotal() {
+        return total.sum();
+    }
+
+    /**
+     * @return Der größte erfasste Wert in Nanosekunden
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Berechnet ein Perzentil der erfassten Werte
+     *
+     * @param percentile Das Perzentil zwischen 0.0 und 1.0
+     * @return Die Obergrenze des Buckets, in dem das Perzentil liegt, oder 0 ohne Messwerte
+     */
+    public long getPercentile(double percentile) {
+        long[] snapshot = new long[BUCKETS];
+        long samples = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            samples += snapshot[i];
+        }
+
+        if (samples == 0) {
+            return 0L;
+        }
+
+        long target = Math.max(1L, (long) Math.ceil(Math.min(1.0, Math.max(0.0, percentile)) * samples));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= target) {
+                return Math.min(upperBoundOf(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Setzt alle Messwerte zurück
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0L);
+        }
+        count.reset();
+        total.reset();
+        max.set(0L);
+    }
+
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) ((value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1));
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long upperBoundOf(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        int subBucket = index % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        long lowerBound = (1L << exponent) + subBucket * width;
+        return lowerBound + width - 1;
+    }
+}
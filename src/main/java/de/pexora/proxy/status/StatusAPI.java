@@ -1,6 +1,9 @@
 package de.pexora.proxy.status;
 
+import de.pexora.proxy.api.status.ModuleResourceStats;
 import de.pexora.proxy.api.status.ModuleStatus;
+import de.pexora.proxy.module.ModuleResourceTracker;
+
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -12,6 +15,16 @@ import java.util.concurrent.ConcurrentHashMap;
 public class StatusAPI implements de.pexora.proxy.api.status.StatusAPI {
 
     private final Map<String, StatusEntry> statusEntries = new HashMap<>();
+    private final ModuleResourceTracker resourceTracker;
+
+    /**
+     * Erstellt eine neue Status-API
+     *
+     * @param resourceTracker Der Tracker für den Ressourcenverbrauch der Module
+     */
+    public StatusAPI(ModuleResourceTracker resourceTracker) {
+        this.resourceTracker = resourceTracker;
+    }
 
     /**
      * Setzt den Status für eine Komponente
@@ -179,6 +192,16 @@ public class StatusAPI implements de.pexora.proxy.api.status.StatusAPI {
         
         return new ModuleStatusImpl(moduleName, entry.getStatus(), entry.getMessage());
     }
+    
+    @Override
+    public ModuleResourceStats getModuleResourceStats(String moduleName) {
+        return resourceTracker.getStats(moduleName);
+    }
+    
+    @Override
+    public Map<String, ModuleResourceStats> getAllModuleResourceStats() {
+        return resourceTracker.getAllStats();
+    }
 
     /**
      * Status-Typen für Komponenten